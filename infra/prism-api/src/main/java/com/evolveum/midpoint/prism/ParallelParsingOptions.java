@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism;
+
+/**
+ * Options for parsing objects iteratively in more threads.
+ *
+ * Objects are read from the input by a single reader thread and unmarshalled by worker threads.
+ * The handler is always called in the thread that started the parsing, one object at a time.
+ *
+ * @see PrismParser#parseObjectsIteratively(PrismParser.ObjectHandler, ParallelParsingOptions)
+ */
+public class ParallelParsingOptions implements Cloneable {
+
+    /**
+     * Number of threads that unmarshal the objects.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximal number of objects that have been read but not yet passed to the handler.
+     * Zero means the default, i.e. four times the number of threads.
+     */
+    private int queueSize;
+
+    /**
+     * Should the objects be passed to the handler in the order in which they are present in the input?
+     * If not, they are passed as soon as they are unmarshalled.
+     */
+    private boolean preserveOrder = true;
+
+    public static ParallelParsingOptions create() {
+        return new ParallelParsingOptions();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public ParallelParsingOptions threads(int value) {
+        setThreads(value);
+        return this;
+    }
+
+    public int getQueueSize() {
+        return queueSize > 0 ? queueSize : 4 * threads;
+    }
+
+    public void setQueueSize(int queueSize) {
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("Queue size must not be negative: " + queueSize);
+        }
+        this.queueSize = queueSize;
+    }
+
+    public ParallelParsingOptions queueSize(int value) {
+        setQueueSize(value);
+        return this;
+    }
+
+    public boolean isPreserveOrder() {
+        return preserveOrder;
+    }
+
+    public void setPreserveOrder(boolean preserveOrder) {
+        this.preserveOrder = preserveOrder;
+    }
+
+    public ParallelParsingOptions preserveOrder(boolean value) {
+        setPreserveOrder(value);
+        return this;
+    }
+
+    @Override
+    public ParallelParsingOptions clone() {
+        try {
+            return (ParallelParsingOptions) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelParsingOptions{threads=" + threads + ", queueSize=" + getQueueSize()
+                + ", preserveOrder=" + preserveOrder + "}";
+    }
+}
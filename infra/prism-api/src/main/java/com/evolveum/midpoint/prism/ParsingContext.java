@@ -8,9 +8,13 @@
 package com.evolveum.midpoint.prism;
 
 import com.evolveum.midpoint.prism.marshaller.XNodeProcessorEvaluationMode;
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.Trace;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,6 +28,37 @@ public interface ParsingContext extends Cloneable {
 
     boolean isStrict();
 
+    /**
+     * In lazy mode, items of container values are not parsed immediately. Each container value keeps
+     * its XNode representation and parses it only when its items are accessed for the first time
+     * (e.g. by findItem, getItems or a visitor). Value ID, object OID and version are parsed eagerly.
+     *
+     * Parsing problems in postponed items are reported only when the items are accessed,
+     * as {@link com.evolveum.midpoint.util.exception.SystemException}. Warnings (in compat mode)
+     * are added to this context at that time.
+     *
+     * Items are materialized also when the value is (Java-)serialized. Materialization is synchronized,
+     * so the lazily parsed values can be read concurrently; though it is cheaper to freeze them before sharing.
+     */
+    boolean isLazy();
+
+    /**
+     * Paths of items that should be parsed; empty means all items. Paths are relative to the value being parsed
+     * (e.g. the object); container IDs in them are ignored.
+     *
+     * Items that are not selected by included/excluded paths are skipped already by the lexical processors,
+     * i.e. no XNodes are created for them. Their ancestors are parsed, but only with the selected content.
+     * (When parsing from an existing XNode tree, these paths are not applied.)
+     */
+    @NotNull
+    Collection<ItemPath> getIncludedPaths();
+
+    /**
+     * Paths of items that should not be parsed, even if they are (or are contained in) included ones.
+     */
+    @NotNull
+    Collection<ItemPath> getExcludedPaths();
+
     void warn(Trace logger, String message);
 
     void warnOrThrow(Trace logger, String message) throws SchemaException;
@@ -42,5 +77,11 @@ public interface ParsingContext extends Cloneable {
 
     ParsingContext compat();
 
+    ParsingContext lazy();
+
+    ParsingContext include(ItemPath... paths);
+
+    ParsingContext exclude(ItemPath... paths);
+
     XNodeProcessorEvaluationMode getEvaluationMode();
 }
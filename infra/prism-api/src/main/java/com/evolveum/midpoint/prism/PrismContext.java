@@ -10,6 +10,8 @@ package com.evolveum.midpoint.prism;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +36,7 @@ import com.evolveum.midpoint.prism.path.CanonicalItemPath;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.path.UniformItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyStringNormalizer;
+import com.evolveum.midpoint.prism.query.OrgHierarchyProvider;
 import com.evolveum.midpoint.prism.query.PrismQueryLanguageParser;
 import com.evolveum.midpoint.prism.query.PrismQuerySerializer;
 import com.evolveum.midpoint.prism.query.QueryConverter;
@@ -186,6 +189,34 @@ public interface PrismContext extends ProtectorCreator {
     @NotNull
     PrismSerializer<String> serializerFor(@NotNull String language);
 
+    /**
+     * Creates a serializer for the given language that writes directly to the given writer.
+     * The serialized data are not collected in memory. The writer is flushed after each operation but not closed.
+     *
+     * @param language Language (like xml, json, yaml).
+     * @param writer Writer to be written to. Serialization methods return it as their result.
+     * @return The serializer.
+     * @throws UnsupportedOperationException If the implementation does not support writing directly to a writer.
+     */
+    @NotNull
+    default PrismStreamSerializer<Writer> serializerFor(@NotNull String language, @NotNull Writer writer) {
+        throw new UnsupportedOperationException("Serialization to a writer is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Creates a serializer for the given language that writes directly to the given stream (in UTF-8).
+     * The serialized data are not collected in memory. The stream is flushed after each operation but not closed.
+     *
+     * @param language Language (like xml, json, yaml).
+     * @param stream Stream to be written to. Serialization methods return it as their result.
+     * @return The serializer.
+     * @throws UnsupportedOperationException If the implementation does not support writing directly to a stream.
+     */
+    @NotNull
+    default PrismStreamSerializer<OutputStream> serializerFor(@NotNull String language, @NotNull OutputStream stream) {
+        throw new UnsupportedOperationException("Serialization to a stream is not supported by " + getClass().getName());
+    }
+
     /**
      * Creates a serializer for XML language.
      *
@@ -395,6 +426,24 @@ public interface PrismContext extends ProtectorCreator {
     @Experimental
     ValueMetadataFactory getValueMetadataFactory();
 
+    /**
+     * Sets the provider of org structure information used to evaluate ORG filters in memory.
+     *
+     * @throws UnsupportedOperationException If the implementation does not support in-memory evaluation of ORG filters.
+     */
+    @Experimental
+    default void setOrgHierarchyProvider(OrgHierarchyProvider provider) {
+        throw new UnsupportedOperationException("Org hierarchy provider is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Returns the provider of org structure information, or null if there is none.
+     */
+    @Experimental
+    default OrgHierarchyProvider getOrgHierarchyProvider() {
+        return null;
+    }
+
     @Experimental
     EquivalenceStrategy getProvenanceEquivalenceStrategy();
 
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Serializes objects one by one, e.g. when exporting large number of objects.
+ * Obtained by {@link PrismStreamSerializer#objectsWriter()}.
+ *
+ * The output is complete only after the writer is closed.
+ */
+public interface PrismObjectsWriter extends AutoCloseable {
+
+    /**
+     * Serializes the object and flushes the output.
+     */
+    void write(@NotNull PrismObject<?> object) throws SchemaException;
+
+    /**
+     * Finishes the output (e.g. closes the enclosing list or element). The underlying writer or stream is not closed.
+     */
+    @Override
+    void close() throws SchemaException;
+}
@@ -7,6 +7,7 @@
 
 package com.evolveum.midpoint.prism;
 
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.xnode.RootXNode;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import org.jetbrains.annotations.NotNull;
@@ -108,6 +109,29 @@ public interface PrismParser {
     @NotNull
     PrismParser compat();
 
+    /**
+     * Switches the parser into "lazy" parsing mode: items of container values are parsed only when
+     * they are accessed for the first time. See {@link ParsingContext#isLazy()}.
+     * @return Updated parser.
+     */
+    @NotNull
+    PrismParser lazy();
+
+    /**
+     * Tells the parser to parse only given items (and their content). Other items are skipped already at
+     * the lexical level. See {@link ParsingContext#getIncludedPaths()}.
+     * @return Updated parser.
+     */
+    @NotNull
+    PrismParser include(ItemPath... paths);
+
+    /**
+     * Tells the parser to skip given items (and their content). See {@link ParsingContext#getExcludedPaths()}.
+     * @return Updated parser.
+     */
+    @NotNull
+    PrismParser exclude(ItemPath... paths);
+
     /**
      * Tells parser which definition to use when parsing item (or an item value). Optional.
      * @param itemDefinition The definition
@@ -236,6 +260,16 @@ public interface PrismParser {
      */
     void parseObjectsIteratively(@NotNull ObjectHandler handler) throws SchemaException, IOException;
 
+    /**
+     * Parses objects iteratively, unmarshalling them in more threads. The handler is called in the current thread,
+     * one object at a time, either in the input order or in the order of completion (see options).
+     *
+     * Problems in the input structure (e.g. malformed XML) are reported by throwing an exception after the objects
+     * read before the problem are passed to the handler.
+     */
+    void parseObjectsIteratively(@NotNull ObjectHandler handler, @NotNull ParallelParsingOptions options)
+            throws SchemaException, IOException;
+
     // ============= other methods (convenience ones, deprecated ones etc) =============
 
     //    /**
@@ -7,6 +7,7 @@
 
 package com.evolveum.midpoint.prism;
 
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.xnode.RootXNode;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import org.jetbrains.annotations.NotNull;
@@ -41,6 +42,12 @@ public interface PrismParserNoIO extends PrismParser {
     @NotNull
     PrismParserNoIO compat();
     @NotNull
+    PrismParserNoIO lazy();
+    @NotNull
+    PrismParserNoIO include(ItemPath... paths);
+    @NotNull
+    PrismParserNoIO exclude(ItemPath... paths);
+    @NotNull
     PrismParserNoIO definition(ItemDefinition<?> itemDefinition);
     @NotNull
     PrismParserNoIO name(QName itemName);
@@ -64,4 +71,7 @@ public interface PrismParserNoIO extends PrismParser {
     List<PrismObject<? extends Objectable>> parseObjects() throws SchemaException;
 
     void parseObjectsIteratively(@NotNull ObjectHandler handler) throws SchemaException;
+
+    void parseObjectsIteratively(@NotNull ObjectHandler handler, @NotNull ParallelParsingOptions options)
+            throws SchemaException;
 }
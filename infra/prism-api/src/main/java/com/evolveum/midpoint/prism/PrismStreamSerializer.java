@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism;
+
+import java.util.Collection;
+import java.util.List;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Serializer that writes directly to a writer or stream provided by the client.
+ * Obtained by {@link PrismContext#serializerFor(String, java.io.Writer)} or
+ * {@link PrismContext#serializerFor(String, java.io.OutputStream)}.
+ *
+ * @param <T> Type of the writer or stream. Serialization methods return it as their result.
+ */
+public interface PrismStreamSerializer<T> extends PrismSerializer<T> {
+
+    @NotNull
+    @Override
+    PrismStreamSerializer<T> root(QName elementName);
+
+    @NotNull
+    @Override
+    PrismStreamSerializer<T> definition(ItemDefinition itemDefinition);
+
+    @NotNull
+    @Override
+    PrismStreamSerializer<T> context(@Nullable SerializationContext context);
+
+    @NotNull
+    @Override
+    PrismStreamSerializer<T> options(@Nullable SerializationOptions options);
+
+    @NotNull
+    @Override
+    PrismStreamSerializer<T> itemsToSkip(Collection<? extends QName> itemNames);
+
+    /**
+     * Creates a writer that serializes objects one at a time. The output is equivalent to {@link #serializeObjects(List)}
+     * but only the object being written is kept in memory.
+     */
+    @NotNull
+    PrismObjectsWriter objectsWriter() throws SchemaException;
+}
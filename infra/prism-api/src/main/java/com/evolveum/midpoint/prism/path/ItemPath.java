@@ -170,6 +170,14 @@ public interface ItemPath extends ShortDumpable, Serializable {
         return ItemPathComparatorUtil.equivalent(path1, path2);
     }
 
+    /**
+     * Hash code that is consistent with {@link #equivalent(ItemPath)}, i.e. equivalent paths have the same
+     * equivalence hash code. (Unlike {@link #hashCode()} that corresponds to {@link #equals(Object)}.)
+     */
+    default int equivalenceHashCode() {
+        return ItemPathComparatorUtil.equivalenceHashCode(this);
+    }
+
     /**
      * Compares with the other object either literally (exact = true) or via .equivalent (exact = false).
      */
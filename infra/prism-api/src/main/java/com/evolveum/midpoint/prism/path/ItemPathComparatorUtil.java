@@ -10,6 +10,7 @@ package com.evolveum.midpoint.prism.path;
 import com.evolveum.midpoint.util.QNameUtil;
 import org.jetbrains.annotations.Nullable;
 
+import javax.xml.namespace.QName;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
@@ -101,6 +102,37 @@ public class ItemPathComparatorUtil {
         return compareComplex(path1, path2) == ItemPath.CompareResult.EQUIVALENT;
     }
 
+    /**
+     * Hash code consistent with {@link #equivalent(ItemPath, ItemPath)}: equivalent paths have the same hash code.
+     * Computed over normalized segments; namespaces are ignored, as unqualified names match qualified ones.
+     */
+    public static int equivalenceHashCode(@Nullable ItemPath path) {
+        int result = 1;
+        ItemPathNormalizingIterator iterator = normalizingIterator(path);
+        while (iterator.hasNext()) {
+            result = 31 * result + segmentHashCode(iterator.next());
+        }
+        return result;
+    }
+
+    private static int segmentHashCode(Object segment) {
+        if (ItemPath.isName(segment)) {
+            return localPartHashCode(ItemPath.toName(segment));
+        } else if (ItemPath.isVariable(segment)) {
+            return 31 * localPartHashCode(ItemPath.toVariableName(segment)) + 1;
+        } else if (ItemPath.isSpecial(segment)) {
+            return 31 * localPartHashCode(ItemPathSegmentUtil.getSpecialSymbol(segment)) + 2;
+        } else if (ItemPath.isId(segment)) {
+            return Objects.hashCode(ItemPath.toId(segment));
+        } else {
+            return 0; // such segments are not equivalent to anything
+        }
+    }
+
+    private static int localPartHashCode(QName name) {
+        return name != null ? name.getLocalPart().hashCode() : 0;
+    }
+
     public static boolean isSubPath(ItemPath path1, ItemPath path2) {
         return compareComplex(path1, path2) == ItemPath.CompareResult.SUBPATH;
     }
@@ -27,12 +27,18 @@ import java.util.*;
  *
  * This map does _not_ support null keys. Also, collections returned by keySet(), values(), entrySet()
  * are not modifiable.
+ *
+ * Keys are indexed by {@link ItemPath#equivalenceHashCode()}, so only keys in the same bucket have to be
+ * compared using equivalent().
  */
 @Experimental
 public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
 
     private final Map<ItemPath, T> internalMap = new HashMap<>();
 
+    /** Keys of internalMap by their equivalence hash codes. */
+    private final Map<Integer, List<ItemPath>> keysByHash = new HashMap<>();
+
     @Override
     public int size() {
         return internalMap.size();
@@ -45,8 +51,7 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
 
     @Override
     public boolean containsKey(Object key) {
-        return key instanceof ItemPath &&
-                ItemPathCollectionsUtil.containsEquivalent(internalMap.keySet(), (ItemPath) key);
+        return key instanceof ItemPath && findExistingKey((ItemPath) key) != null;
     }
 
     @Override
@@ -57,10 +62,9 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
     @Override
     public T get(Object key) {
         if (key instanceof ItemPath) {
-            for (Map.Entry<ItemPath, T> entry : internalMap.entrySet()) {
-                if (entry.getKey().equivalent((ItemPath) key)) {
-                    return entry.getValue();
-                }
+            ItemPath existingKey = findExistingKey((ItemPath) key);
+            if (existingKey != null) {
+                return internalMap.get(existingKey);
             }
         }
         return null;
@@ -70,10 +74,12 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
     @Override
     public T put(ItemPath key, T value) {
         Objects.requireNonNull(key);
-        for (ItemPath existingKey : internalMap.keySet()) {
-            if (existingKey.equivalent(key)) {
-                return internalMap.put(existingKey, value);
-            }
+        ItemPath existingKey = findExistingKey(key);
+        if (existingKey != null) {
+            return internalMap.put(existingKey, value);
+        }
+        if (!internalMap.containsKey(key)) {
+            keysByHash.computeIfAbsent(key.equivalenceHashCode(), k -> new ArrayList<>(1)).add(key);
         }
         return internalMap.put(key, value);
     }
@@ -81,15 +87,38 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
     @Override
     public T remove(Object key) {
         if (key instanceof ItemPath) {
-            for (ItemPath existingKey : internalMap.keySet()) {
-                if (existingKey.equivalent((ItemPath) key)) {
-                    return internalMap.remove(existingKey);
+            ItemPath existingKey = findExistingKey((ItemPath) key);
+            if (existingKey != null) {
+                removeFromIndex(existingKey);
+                return internalMap.remove(existingKey);
+            }
+        }
+        return null;
+    }
+
+    private ItemPath findExistingKey(ItemPath key) {
+        List<ItemPath> candidates = keysByHash.get(key.equivalenceHashCode());
+        if (candidates != null) {
+            for (ItemPath candidate : candidates) {
+                if (candidate.equivalent(key)) {
+                    return candidate;
                 }
             }
         }
         return null;
     }
 
+    private void removeFromIndex(ItemPath existingKey) {
+        int hash = existingKey.equivalenceHashCode();
+        List<ItemPath> candidates = keysByHash.get(hash);
+        if (candidates != null) {
+            candidates.removeIf(candidate -> candidate == existingKey);
+            if (candidates.isEmpty()) {
+                keysByHash.remove(hash);
+            }
+        }
+    }
+
     @Override
     public void putAll(@NotNull Map<? extends ItemPath, ? extends T> m) {
         for (Entry<? extends ItemPath, ? extends T> entry : m.entrySet()) {
@@ -100,6 +129,7 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
     @Override
     public void clear() {
         internalMap.clear();
+        keysByHash.clear();
     }
 
     @NotNull
@@ -14,13 +14,19 @@ import org.jetbrains.annotations.NotNull;
 import java.util.*;
 
 /**
+ * Set of item paths, compared using {@link ItemPath#equivalent(ItemPath)}. Keeps the insertion order.
  *
+ * Paths are indexed by {@link ItemPath#equivalenceHashCode()}, so only paths in the same bucket have to be
+ * compared using equivalent().
  */
 @Experimental
 public class PathSet implements Set<ItemPath> {
 
     private final List<ItemPath> content = new ArrayList<>();
 
+    /** Paths from content by their equivalence hash codes. */
+    private final Map<Integer, List<ItemPath>> pathsByHash = new HashMap<>();
+
     @Override
     public int size() {
         return content.size();
@@ -33,13 +39,40 @@ public class PathSet implements Set<ItemPath> {
 
     @Override
     public boolean contains(Object o) {
-        return o instanceof ItemPath && ItemPathCollectionsUtil.containsEquivalent(content, (ItemPath) o);
+        if (!(o instanceof ItemPath)) {
+            return false;
+        }
+        ItemPath path = (ItemPath) o;
+        List<ItemPath> candidates = pathsByHash.get(path.equivalenceHashCode());
+        return candidates != null && ItemPathCollectionsUtil.containsEquivalent(candidates, path);
     }
 
     @NotNull
     @Override
     public Iterator<ItemPath> iterator() {
-        return content.iterator();
+        Iterator<ItemPath> iterator = content.iterator();
+        return new Iterator<>() {
+
+            private ItemPath current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public ItemPath next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                removeFromIndex(current);
+                current = null;
+            }
+        };
     }
 
     @NotNull
@@ -60,20 +93,50 @@ public class PathSet implements Set<ItemPath> {
         if (contains(itemPath)) {
             return false;
         } else {
+            pathsByHash.computeIfAbsent(itemPath.equivalenceHashCode(), k -> new ArrayList<>(1)).add(itemPath);
             return content.add(itemPath);
         }
     }
 
     @Override
     public boolean remove(Object o) {
-        return content.removeIf(path -> o instanceof ItemPath && path.equivalent((ItemPath) o));
+        if (!(o instanceof ItemPath)) {
+            return false;
+        }
+        ItemPath path = (ItemPath) o;
+        List<ItemPath> candidates = pathsByHash.get(path.equivalenceHashCode());
+        if (candidates == null) {
+            return false;
+        }
+        Set<ItemPath> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ItemPath candidate : candidates) {
+            if (candidate.equivalent(path)) {
+                toRemove.add(candidate);
+            }
+        }
+        if (toRemove.isEmpty()) {
+            return false;
+        }
+        content.removeIf(toRemove::contains);
+        toRemove.forEach(this::removeFromIndex);
+        return true;
+    }
+
+    private void removeFromIndex(ItemPath path) {
+        int hash = path.equivalenceHashCode();
+        List<ItemPath> candidates = pathsByHash.get(hash);
+        if (candidates != null) {
+            candidates.removeIf(candidate -> candidate == path);
+            if (candidates.isEmpty()) {
+                pathsByHash.remove(hash);
+            }
+        }
     }
 
     @Override
     public boolean containsAll(@NotNull Collection<?> c) {
         for (Object o : c) {
-            //noinspection SuspiciousMethodCalls
-            if (!content.contains(o)) {
+            if (!contains(o)) {
                 return false;
             }
         }
@@ -100,5 +163,6 @@ public class PathSet implements Set<ItemPath> {
     @Override
     public void clear() {
         content.clear();
+        pathsByHash.clear();
     }
 }
@@ -17,6 +17,7 @@ import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.ShortDumpable;
 import com.evolveum.midpoint.util.annotation.Experimental;
+import com.evolveum.midpoint.util.caching.PatternCache;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringTranslationType;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 
@@ -389,7 +390,8 @@ public class PolyString implements Matchable<PolyString>, Recomputable, Structur
 
     @Override
     public boolean matches(String regex) {
-        return Pattern.matches(regex, norm) || Pattern.matches(regex, orig);
+        Pattern pattern = PatternCache.get(regex);
+        return pattern.matcher(norm).matches() || pattern.matcher(orig).matches();
     }
 
     /**
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.query;
+
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Object filter prepared for repeated in-memory evaluation, see {@link ObjectFilter#compile(MatchingRuleRegistry)}.
+ *
+ * Gives the same results as {@link ObjectFilter#match(PrismContainerValue, MatchingRuleRegistry)}, but the matching
+ * rules, item paths and filter values are resolved only once. Compiled filters are immutable and can be used
+ * from more threads concurrently.
+ */
+@FunctionalInterface
+public interface CompiledObjectFilter {
+
+    boolean match(PrismContainerValue<?> value) throws SchemaException;
+}
@@ -27,6 +27,16 @@ public interface ObjectFilter extends DebugDumpable, Serializable, Revivable, Fr
 
     boolean match(PrismContainerValue value, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException;
 
+    /**
+     * Prepares the filter for repeated evaluation against many values, e.g. when filtering cached objects.
+     *
+     * The filter must not be modified after it is compiled (ideally, it should be frozen).
+     * Filters that have no compiled form are evaluated by calling {@link #match(PrismContainerValue, MatchingRuleRegistry)}.
+     */
+    default CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        return value -> match(value, matchingRuleRegistry);
+    }
+
     void accept(Visitor visitor);
 
     @Override
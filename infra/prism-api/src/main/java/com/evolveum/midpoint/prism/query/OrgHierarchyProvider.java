@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.query;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.util.annotation.Experimental;
+
+/**
+ * Provides information about the org structure needed to evaluate {@link OrgFilter} in memory.
+ *
+ * ROOT and ONE_LEVEL filters need only the parent org references of the object itself; SUBTREE and ANCESTORS
+ * filters need to know whether an org is an ancestor of another one.
+ *
+ * See {@link com.evolveum.midpoint.prism.PrismContext#setOrgHierarchyProvider(OrgHierarchyProvider)}.
+ */
+@Experimental
+public interface OrgHierarchyProvider {
+
+    /**
+     * Name of the reference pointing to the parent orgs (parentOrgRef in midPoint).
+     */
+    @NotNull
+    ItemName getParentOrgRefName();
+
+    /**
+     * Returns true if the first org is an ancestor (parent, grandparent, ...) of the second object.
+     * An object is not its own ancestor.
+     */
+    boolean isAncestor(@NotNull String ancestorOid, @NotNull String descendantOid);
+}
@@ -146,6 +146,15 @@ public interface QueryFactory {
     @NotNull
     NotFilter createNot(ObjectFilter inner);
 
+    /**
+     * Returns a simplified equivalent of the filter: nested logical filters are flattened, ALL/NONE conditions
+     * and duplicate conditions are removed, EQUAL filters on the same item in an OR filter are merged
+     * into one multi-valued filter, and conditions are ordered by estimated evaluation cost.
+     *
+     * The original filter is not modified.
+     */
+    ObjectFilter optimize(ObjectFilter filter);
+
     @Deprecated // please use QueryBuilder instead
     <C extends Containerable> ExistsFilter createExists(ItemName path, Class<C> containerType, PrismContext prismContext, ObjectFilter inner);
 
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+import org.apache.commons.io.IOUtils;
+import org.jetbrains.annotations.NotNull;
+import org.xml.sax.SAXException;
+
+import com.evolveum.axiom.lang.antlr.AxiomModelStatementSource;
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.foo.ObjectFactory;
+import com.evolveum.midpoint.prism.foo.ObjectType;
+import com.evolveum.midpoint.prism.impl.PrismContextImpl;
+import com.evolveum.midpoint.prism.impl.schema.axiom.AxiomEnabledSchemaRegistry;
+import com.evolveum.midpoint.prism.impl.xml.GlobalDynamicNamespacePrefixMapper;
+import com.evolveum.midpoint.prism.xml.DynamicNamespacePrefixMapper;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Prism context with the "foo" test schemas, as used by prism-impl tests.
+ *
+ * Unlike PrismInternalTestUtil we load everything from the classpath (prism-impl test-jar),
+ * so the benchmarks do not depend on the working directory.
+ */
+class BenchmarkPrismContext {
+
+    private static final String NS_WEAPONS = "http://midpoint.evolveum.com/xml/ns/test/weapons";
+    private static final QName FOO_VALUE_METADATA_TYPE_QNAME = new QName(ObjectType.NS_FOO, "FooValueMetadataType");
+
+    private static final String[] EXTENSION_SCHEMAS = {
+            "schema/extension-secondary.xsd", "schema/extension.xsd", "schema/weapons.xsd" };
+
+    static PrismContextImpl create() throws SchemaException, SAXException, IOException {
+        AxiomEnabledSchemaRegistry schemaRegistry = new AxiomEnabledSchemaRegistry();
+        schemaRegistry.setCatalogResourceName("META-INF/catalog-test.xml");
+        schemaRegistry.setDefaultNamespace(ObjectType.NS_FOO);
+        DynamicNamespacePrefixMapper prefixMapper = new GlobalDynamicNamespacePrefixMapper();
+        schemaRegistry.setNamespacePrefixMapper(prefixMapper);
+        schemaRegistry.registerPrismDefaultSchemaResource("xml/ns/test/foo-1.xsd", "foo", ObjectFactory.class.getPackage());
+        schemaRegistry.registerPrismSchemaResource("xml/ns/test/foo-types-1.xsd", "foot", null);
+        schemaRegistry.registerPrismSchemaResource("xml/ns/public/types-3.xsd", "t", com.evolveum.prism.xml.ns._public.types_3.ObjectFactory.class.getPackage());
+        schemaRegistry.registerPrismSchemaResource("xml/ns/public/query-3.xsd", "q", com.evolveum.prism.xml.ns._public.query_3.ObjectFactory.class.getPackage());
+        for (String extensionSchema : EXTENSION_SCHEMAS) {
+            try (InputStream input = openResource(extensionSchema)) {
+                schemaRegistry.registerPrismSchema(input, extensionSchema);
+            }
+        }
+        schemaRegistry.addAxiomSource(AxiomModelStatementSource.fromResource("xml/ns/test/foo-metadata.axiom"));
+
+        prefixMapper.registerPrefix(XMLConstants.W3C_XML_SCHEMA_NS_URI, DOMUtil.NS_W3C_XML_SCHEMA_PREFIX, false);
+        prefixMapper.registerPrefix(PrismConstants.NS_ANNOTATION, PrismConstants.PREFIX_NS_ANNOTATION, false);
+        prefixMapper.registerPrefix(NS_WEAPONS, "w", false);
+        schemaRegistry.setValueMetadataTypeName(FOO_VALUE_METADATA_TYPE_QNAME);
+        PrismContextImpl prismContext = PrismContextImpl.create(schemaRegistry);
+        prismContext.setObjectsElementName(new QName("http://midpoint.evolveum.com/xml/ns/public/common/common-3", "objects"));
+        prismContext.initialize();
+        return prismContext;
+    }
+
+    @NotNull
+    static String readResource(String name) throws IOException {
+        try (InputStream input = openResource(name)) {
+            return IOUtils.toString(input, StandardCharsets.UTF_8);
+        }
+    }
+
+    @NotNull
+    private static InputStream openResource(String name) throws IOException {
+        InputStream input = BenchmarkPrismContext.class.getClassLoader().getResourceAsStream(name);
+        if (input == null) {
+            throw new IOException("Resource " + name + " was not found on the classpath");
+        }
+        return input;
+    }
+}
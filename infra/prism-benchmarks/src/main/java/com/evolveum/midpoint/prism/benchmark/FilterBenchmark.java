@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.foo.AssignmentType;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.match.MatchingRuleRegistryFactory;
+import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * In-memory evaluation of an object filter: interpreted ({@link ObjectFilter#match}) vs. compiled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FilterState {
+
+        MatchingRuleRegistry matchingRuleRegistry;
+        ObjectFilter filter;
+        CompiledObjectFilter compiledFilter;
+
+        @Setup
+        public void setup(UserState userState) throws SchemaException {
+            matchingRuleRegistry = MatchingRuleRegistryFactory.createRegistry();
+            filter = userState.prismContext.queryFor(UserType.class)
+                    .id("c0c010c0-d34d-b33f-f00d-111111111111", "c0c010c0-d34d-b33f-f00d-222222222222")
+                    .and().item(UserType.F_ADDITIONAL_NAMES).eq("name 5", "name 50", "name 99", "Jack the Pirate")
+                    .and().item(UserType.F_FULL_NAME).contains("Sparrow")
+                    .and().item(UserType.F_ASSIGNMENT, AssignmentType.F_DESCRIPTION).startsWith("assignment")
+                    .buildFilter();
+            filter.freeze();
+            compiledFilter = filter.compile(matchingRuleRegistry);
+        }
+    }
+
+    @Benchmark
+    public boolean interpreted(UserState userState, FilterState filterState) throws SchemaException {
+        return filterState.filter.match(userState.user.getValue(), filterState.matchingRuleRegistry);
+    }
+
+    @Benchmark
+    public boolean compiled(UserState userState, FilterState filterState) throws SchemaException {
+        return filterState.compiledFilter.match(userState.user.getValue());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+
+/**
+ * Reports heap footprint of parsed objects from prism-impl test resources, as measured by JOL.
+ *
+ * The footprint of an object is the size of all heap objects that are added by parsing one more copy of it,
+ * i.e. without the structures it shares with other copies (definitions, prism context, interned values).
+ *
+ * Run with `-v` to see the footprint per class.
+ */
+public class HeapFootprint {
+
+    private static final List<String> RESOURCES = Arrays.asList(
+            "common/xml/user-jack.xml",
+            "common/xml/user-barbossa.xml",
+            "common/xml/user-will.xml",
+            "common/xml/user-elisabeth.xml",
+            "common/xml/user-alice-metadata.xml",
+            "common/xml/account-barbossa.xml");
+
+    public static void main(String[] args) throws Exception {
+        boolean verbose = Arrays.asList(args).contains("-v");
+        System.out.println(VM.current().details());
+
+        PrismContext prismContext = BenchmarkPrismContext.create();
+        long totalSize = 0;
+        long totalCount = 0;
+        for (String resource : RESOURCES) {
+            String text = BenchmarkPrismContext.readResource(resource);
+            PrismObject<?> first;
+            PrismObject<?> second;
+            try {
+                first = prismContext.parseObject(text);
+                second = prismContext.parseObject(text);
+            } catch (Exception e) {
+                System.out.printf("%-40s cannot be parsed: %s%n", resource, e.getMessage());
+                continue;
+            }
+            GraphLayout footprint = GraphLayout.parseInstance(first, second)
+                    .subtract(GraphLayout.parseInstance(first));
+            System.out.printf("%-40s %10d bytes %8d objects%n", resource, footprint.totalSize(), footprint.totalCount());
+            if (verbose) {
+                System.out.println(footprint.toFootprint());
+            }
+            totalSize += footprint.totalSize();
+            totalCount += footprint.totalCount();
+        }
+        System.out.printf("%-40s %10d bytes %8d objects%n", "total", totalSize, totalCount);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.xml.namespace.QName;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.foo.ActivationType;
+import com.evolveum.midpoint.prism.foo.AssignmentType;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.path.UniformItemPath;
+
+/**
+ * Parsing and comparison of item paths.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemPathBenchmark {
+
+    private static final String PATH_STRING =
+            "declare namespace f='" + UserType.F_ASSIGNMENT.getNamespaceURI() + "'; f:assignment/f:activation/f:enabled";
+
+    private PrismContext prismContext;
+
+    private ItemPath qualifiedPath;
+    private ItemPath unqualifiedPath;
+    private ItemPath prefixPath;
+
+    @Setup
+    public void setup() throws Exception {
+        prismContext = BenchmarkPrismContext.create();
+        qualifiedPath = ItemPath.create(UserType.F_ASSIGNMENT, 1000L, AssignmentType.F_ACTIVATION, ActivationType.F_ENABLED);
+        unqualifiedPath = ItemPath.create(new QName("assignment"), 1000L, new QName("activation"), new QName("enabled"));
+        prefixPath = ItemPath.create(UserType.F_ASSIGNMENT, 1000L);
+    }
+
+    @Benchmark
+    public UniformItemPath parse() {
+        return prismContext.itemPathParser().asItemPath(PATH_STRING);
+    }
+
+    @Benchmark
+    public boolean equivalent() {
+        return qualifiedPath.equivalent(unqualifiedPath);
+    }
+
+    @Benchmark
+    public boolean equalsExact() {
+        return qualifiedPath.equals(ItemPath.create(UserType.F_ASSIGNMENT, 1000L, AssignmentType.F_ACTIVATION, ActivationType.F_ENABLED));
+    }
+
+    @Benchmark
+    public boolean isSubPath() {
+        return prefixPath.isSubPathOrEquivalent(unqualifiedPath);
+    }
+}
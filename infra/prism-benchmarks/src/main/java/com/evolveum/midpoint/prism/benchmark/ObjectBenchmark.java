@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Operations on whole objects: diff, delta application, clone, equals and hashCode.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectBenchmark {
+
+    @Benchmark
+    public ObjectDelta<UserType> diff(UserState state) {
+        return state.user.diff(state.modifiedUser);
+    }
+
+    /**
+     * Applying the delta changes the object, so it is applied to a fresh clone. Per-invocation setup would distort
+     * the results for such short operations; compare with {@link #cloneObject(UserState)} to get the cost of the delta.
+     */
+    @Benchmark
+    public PrismObject<UserType> cloneAndApplyDelta(UserState state) throws SchemaException {
+        PrismObject<UserType> target = state.user.clone();
+        state.delta.applyTo(target);
+        return target;
+    }
+
+    @Benchmark
+    public PrismObject<UserType> cloneObject(UserState state) {
+        return state.user.clone();
+    }
+
+    @Benchmark
+    public boolean equalsSame(UserState state) {
+        return state.user.equals(state.userCopy);
+    }
+
+    @Benchmark
+    public boolean equalsModified(UserState state) {
+        return state.user.equals(state.modifiedUser);
+    }
+
+    @Benchmark
+    public int hashCodeObject(UserState state) {
+        return state.user.hashCode();
+    }
+}
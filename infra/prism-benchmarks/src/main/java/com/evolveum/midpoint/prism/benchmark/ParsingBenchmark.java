@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Parsing and serialization of the sample user in all supported languages.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParsingBenchmark {
+
+    @Param({ "xml", "json", "yaml" })
+    public String language;
+
+    private String serialized;
+
+    @Setup
+    public void setup(UserState state) throws SchemaException {
+        serialized = state.prismContext.serializerFor(language).serialize(state.user);
+    }
+
+    @Benchmark
+    public PrismObject<UserType> parse(UserState state) throws SchemaException {
+        return state.prismContext.parserFor(serialized).language(language).parse();
+    }
+
+    @Benchmark
+    public String serialize(UserState state) throws SchemaException {
+        return state.prismContext.serializerFor(language).serialize(state.user);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.xml.namespace.QName;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.ComplexTypeDefinition;
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.PrismObjectDefinition;
+import com.evolveum.midpoint.prism.foo.ObjectType;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.schema.SchemaRegistry;
+
+/**
+ * Global definition lookups in the schema registry.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchemaRegistryBenchmark {
+
+    private static final QName USER_QNAME = new QName(ObjectType.NS_FOO, "user");
+    private static final QName USER_QNAME_UNQUALIFIED = new QName("user");
+    private static final QName USER_TYPE_QNAME = new QName(ObjectType.NS_FOO, "UserType");
+
+    private SchemaRegistry schemaRegistry;
+
+    @Setup
+    public void setup() throws Exception {
+        schemaRegistry = BenchmarkPrismContext.create().getSchemaRegistry();
+    }
+
+    @Benchmark
+    public PrismObjectDefinition<UserType> findByCompileTimeClass() {
+        return schemaRegistry.findObjectDefinitionByCompileTimeClass(UserType.class);
+    }
+
+    @Benchmark
+    public ItemDefinition<?> findByElementName() {
+        return schemaRegistry.findItemDefinitionByElementName(USER_QNAME);
+    }
+
+    @Benchmark
+    public ItemDefinition<?> findByUnqualifiedElementName() {
+        return schemaRegistry.findItemDefinitionByElementName(USER_QNAME_UNQUALIFIED);
+    }
+
+    @Benchmark
+    public ComplexTypeDefinition findComplexTypeByType() {
+        return schemaRegistry.findComplexTypeDefinitionByType(USER_TYPE_QNAME);
+    }
+}
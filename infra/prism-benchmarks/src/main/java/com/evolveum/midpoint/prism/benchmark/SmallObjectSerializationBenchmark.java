@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.lex.json.writer.JsonWriter;
+import com.evolveum.midpoint.prism.impl.lex.json.writer.YamlWriter;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Serialization of a small object (the sample user as is). Its cost used to be dominated by creating
+ * Jackson factories and object mappers for each serialization; these are now shared.
+ * The {@link #serializeWithNewFactories()} baseline shows the original cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SmallObjectSerializationBenchmark {
+
+    @Param({ "xml", "json", "yaml" })
+    public String language;
+
+    private PrismContext prismContext;
+    private PrismObject<UserType> user;
+
+    @Setup
+    public void setup() throws Exception {
+        prismContext = BenchmarkPrismContext.create();
+        user = prismContext.parseObject(BenchmarkPrismContext.readResource(UserState.USER_JACK_RESOURCE));
+    }
+
+    @Benchmark
+    public String serialize() throws SchemaException {
+        return prismContext.serializerFor(language).serialize(user);
+    }
+
+    /**
+     * Creates a new writer - and so a new Jackson factory and object mapper - for each serialization.
+     * XML serialization does not use Jackson, so the baseline is the same as {@link #serialize()} there.
+     */
+    @Benchmark
+    public String serializeWithNewFactories() throws SchemaException {
+        switch (language) {
+            case "json":
+                return new JsonWriter(prismContext.getSchemaRegistry()).write(prismContext.xnodeSerializer().serialize(user), null);
+            case "yaml":
+                return new YamlWriter(prismContext.getSchemaRegistry()).write(prismContext.xnodeSerializer().serialize(user), null);
+            default:
+                return serialize();
+        }
+    }
+}
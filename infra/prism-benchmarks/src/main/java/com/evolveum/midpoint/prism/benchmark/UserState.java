@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.foo.ActivationType;
+import com.evolveum.midpoint.prism.foo.AssignmentType;
+import com.evolveum.midpoint.prism.foo.UserType;
+
+/**
+ * Sample user (jack from prism-impl tests), enlarged according to the parameters:
+ *
+ * - `assignments`: number of assignment container values added (the object size),
+ * - `multiplicity`: number of values of the multi-valued `additionalNames` property.
+ *
+ * Also provides an equal copy of the user, a modified copy of the user and the delta between the two.
+ */
+@State(Scope.Benchmark)
+public class UserState {
+
+    static final String USER_JACK_RESOURCE = "common/xml/user-jack.xml";
+
+    @Param({ "1", "10", "100" })
+    public int assignments;
+
+    @Param({ "1", "10", "100" })
+    public int multiplicity;
+
+    PrismContext prismContext;
+    PrismObject<UserType> user;
+    PrismObject<UserType> userCopy;
+    PrismObject<UserType> modifiedUser;
+    ObjectDelta<UserType> delta;
+
+    @Setup
+    public void setup() throws Exception {
+        prismContext = BenchmarkPrismContext.create();
+        user = prismContext.parseObject(BenchmarkPrismContext.readResource(USER_JACK_RESOURCE));
+        PrismContainer<AssignmentType> assignmentContainer = user.findOrCreateContainer(UserType.F_ASSIGNMENT);
+        for (int i = 0; i < assignments; i++) {
+            PrismContainerValue<AssignmentType> assignment = assignmentContainer.createNewValue();
+            assignment.setId(1000L + i);
+            assignment.findOrCreateProperty(AssignmentType.F_DESCRIPTION).setRealValue("assignment " + i);
+            assignment.findOrCreateContainer(AssignmentType.F_ACTIVATION)
+                    .findOrCreateProperty(ActivationType.F_ENABLED).setRealValue(i % 2 == 0);
+        }
+        PrismProperty<String> additionalNames = user.findOrCreateProperty(UserType.F_ADDITIONAL_NAMES);
+        for (int i = 0; i < multiplicity; i++) {
+            additionalNames.addRealValue("name " + i);
+        }
+
+        userCopy = user.clone();
+        modifiedUser = user.clone();
+        modifiedUser.findProperty(UserType.F_FULL_NAME).setRealValue("Captain Jack Sparrow");
+        modifiedUser.findProperty(UserType.F_ADDITIONAL_NAMES).addRealValue("Jack the Pirate");
+        modifiedUser.findContainer(UserType.F_ASSIGNMENT).getValues().get(0)
+                .findOrCreateProperty(AssignmentType.F_DESCRIPTION).setRealValue("modified");
+        delta = user.diff(modifiedUser);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * List of item values optimized for the most common case of items having a single value.
+ *
+ * Empty list and single-value list keep no array at all: the value is stored directly in a field.
+ * (Compare with `ArrayList` that allocates a 10-element array when the first value is added.)
+ * For more values, an array is used, starting at a small size.
+ */
+class CompactValueList<V> extends AbstractList<V> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_ARRAY_SIZE = 4;
+
+    /** The only value, if {@link #elements} is null and the size is 1. */
+    private V single;
+
+    /** Values, if there are (or were) two or more of them. */
+    private Object[] elements;
+
+    private int size;
+
+    /**
+     * Incremented on every modification, including {@link #set(int, Object)} that does not count as structural one
+     * (and so does not change {@link #modCount}). Used to detect stale derived data, like indexes of the values.
+     */
+    private int version;
+
+    @Override
+    public V get(int index) {
+        checkIndex(index);
+        return elements == null ? single : elementAt(index);
+    }
+
+    @Override
+    public V set(int index, V value) {
+        checkIndex(index);
+        V old;
+        if (elements == null) {
+            old = single;
+            single = value;
+        } else {
+            old = elementAt(index);
+            elements[index] = value;
+        }
+        version++;
+        return old;
+    }
+
+    @Override
+    public void add(int index, V value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        modCount++;
+        version++;
+        if (elements == null) {
+            if (size == 0) {
+                single = value;
+                size = 1;
+                return;
+            }
+            elements = new Object[INITIAL_ARRAY_SIZE];
+            elements[0] = single;
+            single = null;
+        } else if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size + (size >> 1));
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    @Override
+    public V remove(int index) {
+        checkIndex(index);
+        modCount++;
+        version++;
+        V old;
+        if (elements == null) {
+            old = single;
+            single = null;
+        } else {
+            old = elementAt(index);
+            System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+            elements[size - 1] = null;
+        }
+        size--;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        version++;
+        single = null;
+        elements = null;
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V elementAt(int index) {
+        return (V) elements[index];
+    }
+}
@@ -48,6 +48,12 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Mut
     @NotNull private final TransientCache<QName, Object> cachedLocalDefinitionQueries = new TransientCache<>();
     private static final Object NO_DEFINITION = new Object();
 
+    /**
+     * Item definitions indexed by names. Built when this definition is frozen, as only then
+     * we can be sure that neither the list of definitions nor their names change.
+     */
+    private transient ItemDefinitionIndex itemDefinitionIndex;
+
     // temporary/experimental - to avoid trimming "standard" definitions
     // we reset this flag when cloning
     protected boolean shared = true;
@@ -86,6 +92,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Mut
 
     private void invalidateCaches() {
         cachedLocalDefinitionQueries.invalidate();
+        itemDefinitionIndex = null;
     }
 
     @Override
@@ -236,7 +243,9 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Mut
     //  but beware, consider only local definitions!
     @Override
     public <T extends ItemDefinition> T findLocalItemDefinition(@NotNull QName name, @NotNull Class<T> clazz, boolean caseInsensitive) {
-        for (ItemDefinition def : getDefinitions()) {
+        ItemDefinitionIndex index = getItemDefinitionIndex();
+        Collection<? extends ItemDefinition> candidates = index != null ? index.getCandidates(name, caseInsensitive) : getDefinitions();
+        for (ItemDefinition def : candidates) {
             if (def.isValidFor(name, clazz, caseInsensitive)) {
                 return (T) def;
             }
@@ -575,6 +584,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Mut
         checkMutable();
         itemDefinitions.removeIf(def -> def.getItemName().equals(itemName));
         cachedLocalDefinitionQueries.remove(itemName);
+        itemDefinitionIndex = null;
     }
 
     @Override
@@ -586,9 +596,23 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Mut
     @Override
     public void performFreeze() {
         itemDefinitions.forEach(Freezable::freeze);
+        itemDefinitionIndex = new ItemDefinitionIndex(itemDefinitions);
         super.performFreeze();
     }
 
+    private ItemDefinitionIndex getItemDefinitionIndex() {
+        if (isMutable()) {
+            return null;
+        }
+        ItemDefinitionIndex index = itemDefinitionIndex;
+        if (index == null) {
+            // e.g. after deserialization
+            index = new ItemDefinitionIndex(itemDefinitions);
+            itemDefinitionIndex = index;
+        }
+        return index;
+    }
+
     @Override
     public void addSubstitution(ItemDefinition<?> itemDef, ItemDefinition<?> maybeSubst) {
         substitutions.put(maybeSubst.getItemName(),maybeSubst);
@@ -606,4 +630,49 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Mut
     public boolean hasSubstitutions() {
         return !substitutions.isEmpty();
     }
+
+    /**
+     * Item definitions grouped by local part of their names (and, for references, of their composite object element names).
+     * Lookups by qualified name use the same buckets, because unqualified names match any namespace; the final
+     * decision is left to {@link ItemDefinition#isValidFor(QName, Class, boolean)}. Buckets keep the original
+     * order of definitions, so the result is the same as for the sequential search.
+     */
+    private static class ItemDefinitionIndex {
+
+        @NotNull private final Map<String, List<ItemDefinition>> byLocalPart = new HashMap<>();
+        @NotNull private final Map<String, List<ItemDefinition>> byLowerCaseLocalPart = new HashMap<>();
+
+        private ItemDefinitionIndex(@NotNull List<ItemDefinition> definitions) {
+            for (ItemDefinition<?> definition : definitions) {
+                index(definition, definition.getItemName());
+                if (definition instanceof PrismReferenceDefinition) {
+                    QName compositeName = ((PrismReferenceDefinition) definition).getCompositeObjectElementName();
+                    if (compositeName != null && !compositeName.getLocalPart().equals(definition.getItemName().getLocalPart())) {
+                        index(definition, compositeName);
+                    }
+                }
+            }
+        }
+
+        private void index(ItemDefinition<?> definition, QName name) {
+            String localPart = name.getLocalPart();
+            add(byLocalPart, localPart, definition);
+            add(byLowerCaseLocalPart, localPart.toLowerCase(Locale.ROOT), definition);
+        }
+
+        private static void add(Map<String, List<ItemDefinition>> map, String key, ItemDefinition<?> definition) {
+            List<ItemDefinition> bucket = map.computeIfAbsent(key, k -> new ArrayList<>(1));
+            if (!bucket.contains(definition)) {
+                bucket.add(definition);
+            }
+        }
+
+        @NotNull
+        private Collection<ItemDefinition> getCandidates(@NotNull QName name, boolean caseInsensitive) {
+            List<ItemDefinition> candidates = caseInsensitive
+                    ? byLowerCaseLocalPart.get(name.getLocalPart().toLowerCase(Locale.ROOT))
+                    : byLocalPart.get(name.getLocalPart());
+            return candidates != null ? candidates : Collections.emptyList();
+        }
+    }
 }
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Items of a container value whose parsing was postponed until they are really needed.
+ *
+ * @see com.evolveum.midpoint.prism.ParsingContext#isLazy()
+ */
+@FunctionalInterface
+public interface DeferredItems {
+
+    /**
+     * Parses the items and puts them into the value. Called at most once for each value.
+     */
+    void materialize(PrismContainerValue<?> value) throws SchemaException;
+}
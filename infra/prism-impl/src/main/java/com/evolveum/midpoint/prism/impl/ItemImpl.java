@@ -31,6 +31,7 @@ import com.evolveum.midpoint.prism.ItemDefinitionTransformer.TransformableValue;
 import com.evolveum.midpoint.prism.util.CloneUtil;
 import com.evolveum.midpoint.util.annotation.Experimental;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -62,14 +63,21 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
 
     private static final long serialVersionUID = 510000191615288733L;
 
+    /**
+     * Allows switching off the {@link OutstandingValues} index in diff, so the tests can compare the results
+     * with the pairwise comparison.
+     */
+    @VisibleForTesting
+    static boolean valueIndexingEnabled = true;
+
     // The object should basically work without definition and prismContext. This is the
     // usual case when it is constructed "out of the blue", e.g. as a new JAXB object
     // It may not work perfectly, but basic things should work
     protected ItemName elementName;
     protected PrismContainerValue<?> parent;
     protected D definition;
-    @NotNull protected final List<V> values = new ArrayList<>();
-    private transient Map<String,Object> userData = new HashMap<>();
+    @NotNull protected final List<V> values = new CompactValueList<>();
+    private transient Map<String,Object> userData;          // created lazily, as it is rarely used
 
     protected boolean immutable;
     protected boolean incomplete;
@@ -313,20 +321,21 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
     @Override
     @NotNull
     public Map<String, Object> getUserData() {
+        if (immutable) {
+            return userData != null
+                    ? Collections.unmodifiableMap(userData)            // TODO beware, objects in userData themselves are mutable
+                    : Collections.emptyMap();
+        }
         if (userData == null) {
             userData = new HashMap<>();
         }
-        if (immutable) {
-            return Collections.unmodifiableMap(userData);            // TODO beware, objects in userData themselves are mutable
-        } else {
-            return userData;
-        }
+        return userData;
     }
 
     @Override
     public <T> T getUserData(String key) {
         // TODO make returned data immutable (?)
-        return (T) getUserData().get(key);
+        return userData != null ? (T) userData.get(key) : null;
     }
 
     @Override
@@ -612,49 +621,13 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
             if (delta.getDefinition() == null && other.getDefinition() != null) {
                 delta.setDefinition(other.getDefinition().clone());
             }
-            // the other exists, this means that we need to compare the values one by one
-            Collection<PrismValue> outstandingOtherValues = new ArrayList<>(other.getValues().size());
-            outstandingOtherValues.addAll(other.getValues());
-            for (PrismValue thisValue : getValues()) {
-                Iterator<PrismValue> iterator = outstandingOtherValues.iterator();
-                boolean found = false;
-                while (iterator.hasNext()) {
-                    PrismValueImpl otherValue = (PrismValueImpl) iterator.next();
-                    if (!rootValuesOnly && thisValue.representsSameValue(otherValue, true)) {
-                        found = true;
-                        // Matching IDs, look inside to figure out internal deltas
-                        boolean different = ((PrismValueImpl) thisValue).diffMatchingRepresentation(otherValue, deltas, strategy, exitOnDiff);
-                        if (exitOnDiff && different) {
-                            return true;
-                        }
-
-                        // No need to process this value again
-                        iterator.remove();
-                        break;
-                    } else if (thisValue.equals(otherValue, strategy)) {
-                        found = true;
-                        // same values. No delta
-                        // No need to process this value again
-                        iterator.remove();
-                        break;
-                    }
-                }
-                if (!found) {
-                    if (exitOnDiff) {
-                        return true;
-                    }
-                    // We have the value and the other does not, this is delete of the entire value
-                    delta.addValueToDelete(thisValue.clone());
+            if (isValueIndexingApplicable(other)) {
+                if (diffValuesIndexed(other, deltas, delta, rootValuesOnly, strategy, exitOnDiff)) {
+                    return true;
                 }
-            }
-            // outstandingOtherValues are those values that the other has and we could not
-            // match them to any of our values. These must be new values to add
-            if (exitOnDiff && !outstandingOtherValues.isEmpty()) {
+            } else if (diffValuesPairwise(other, deltas, delta, rootValuesOnly, strategy, exitOnDiff)) {
                 return true;
             }
-            for (PrismValue outstandingOtherValue : outstandingOtherValues) {
-                delta.addValueToAdd(outstandingOtherValue.clone());
-            }
             // Some deltas may need to be polished a bit. E.g. transforming
             // add/delete delta to a replace delta.
             delta = fixupDelta(delta, other);
@@ -665,6 +638,102 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
         return !delta.isEmpty();
     }
 
+    /**
+     * Compares the values one by one. Returns true if exitOnDiff is set and a difference was found.
+     */
+    private boolean diffValuesPairwise(Item<V, D> other, Collection<? extends ItemDelta> deltas, ItemDelta delta,
+            boolean rootValuesOnly, ParameterizedEquivalenceStrategy strategy, boolean exitOnDiff) {
+        // the other exists, this means that we need to compare the values one by one
+        Collection<PrismValue> outstandingOtherValues = new ArrayList<>(other.getValues().size());
+        outstandingOtherValues.addAll(other.getValues());
+        for (PrismValue thisValue : getValues()) {
+            Iterator<PrismValue> iterator = outstandingOtherValues.iterator();
+            boolean found = false;
+            while (iterator.hasNext()) {
+                PrismValueImpl otherValue = (PrismValueImpl) iterator.next();
+                if (!rootValuesOnly && thisValue.representsSameValue(otherValue, true)) {
+                    found = true;
+                    // Matching IDs, look inside to figure out internal deltas
+                    boolean different = ((PrismValueImpl) thisValue).diffMatchingRepresentation(otherValue, deltas, strategy, exitOnDiff);
+                    if (exitOnDiff && different) {
+                        return true;
+                    }
+
+                    // No need to process this value again
+                    iterator.remove();
+                    break;
+                } else if (thisValue.equals(otherValue, strategy)) {
+                    found = true;
+                    // same values. No delta
+                    // No need to process this value again
+                    iterator.remove();
+                    break;
+                }
+            }
+            if (!found) {
+                if (exitOnDiff) {
+                    return true;
+                }
+                // We have the value and the other does not, this is delete of the entire value
+                delta.addValueToDelete(thisValue.clone());
+            }
+        }
+        // outstandingOtherValues are those values that the other has and we could not
+        // match them to any of our values. These must be new values to add
+        if (exitOnDiff && !outstandingOtherValues.isEmpty()) {
+            return true;
+        }
+        for (PrismValue outstandingOtherValue : outstandingOtherValues) {
+            delta.addValueToAdd(outstandingOtherValue.clone());
+        }
+        return false;
+    }
+
+    /**
+     * Large multi-valued items are matched using {@link OutstandingValues} index instead of the pairwise scan.
+     * Single-valued items are excluded, because their values always "represent the same value" (see
+     * {@link PrismValue#representsSameValue(PrismValue, boolean)}), regardless of IDs.
+     */
+    private boolean isValueIndexingApplicable(Item<V, D> other) {
+        return valueIndexingEnabled
+                && other.getValues().size() >= OutstandingValues.INDEXING_THRESHOLD
+                && (definition == null || !definition.isSingleValue())
+                && (other.getDefinition() == null || !other.getDefinition().isSingleValue());
+    }
+
+    /**
+     * Indexed variant of the values comparison in {@link #diffInternal(Item, Collection, boolean, ParameterizedEquivalenceStrategy, boolean)}.
+     * Returns true if exitOnDiff is set and a difference was found.
+     */
+    private boolean diffValuesIndexed(Item<V, D> other, Collection<? extends ItemDelta> deltas, ItemDelta delta,
+            boolean rootValuesOnly, ParameterizedEquivalenceStrategy strategy, boolean exitOnDiff) {
+        OutstandingValues outstandingOtherValues = new OutstandingValues(other.getValues(), strategy, !rootValuesOnly);
+        for (PrismValue thisValue : getValues()) {
+            OutstandingValues.Match match = outstandingOtherValues.match(thisValue);
+            if (match == null) {
+                if (exitOnDiff) {
+                    return true;
+                }
+                // We have the value and the other does not, this is delete of the entire value
+                delta.addValueToDelete(thisValue.clone());
+            } else if (match.sameRepresentation) {
+                // Matching IDs, look inside to figure out internal deltas
+                boolean different = ((PrismValueImpl) thisValue).diffMatchingRepresentation(match.value, deltas, strategy, exitOnDiff);
+                if (exitOnDiff && different) {
+                    return true;
+                }
+            }
+        }
+        // Values that could not be matched to any of our values must be new values to add
+        if (exitOnDiff && !outstandingOtherValues.isEmpty()) {
+            return true;
+        }
+        for (PrismValue outstandingOtherValue : outstandingOtherValues.getRemaining()) {
+            delta.addValueToAdd(outstandingOtherValue.clone());
+        }
+        return false;
+    }
+
     protected ItemDelta<V,D> fixupDelta(ItemDelta<V, D> delta, Item<V, D> other) {
         return delta;
     }
@@ -741,7 +810,7 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
         // Do not clone parent so the cloned item can be safely placed to
         // another item
         clone.parent = null;
-        clone.userData = MiscUtil.cloneMap(this.userData);
+        clone.userData = userData != null && !userData.isEmpty() ? MiscUtil.cloneMap(userData) : null;
         clone.incomplete = this.incomplete;
         // Also do not copy 'immutable' flag so the clone is free to be modified
     }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.Item;
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.PrismPropertyValue;
+import com.evolveum.midpoint.prism.PrismValue;
+import com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy;
+import com.evolveum.prism.xml.ns._public.types_3.ProtectedDataType;
+import com.evolveum.prism.xml.ns._public.types_3.RawType;
+
+/**
+ * Values of the "other" item that are not yet matched during {@link ItemImpl#diffInternal}.
+ *
+ * The values are indexed by container ID and by hash code computed using the diff equivalence strategy,
+ * so matching a value costs (roughly) a constant time instead of a scan over all outstanding values.
+ * Values whose hash code is not guaranteed to be consistent with equals (raw values, protected strings,
+ * byte arrays, and containers holding any of these) are kept aside and always compared one by one.
+ *
+ * Matching follows the rules of the pairwise scan, which goes through the other values in their order and
+ * takes the first one that either has the same container ID (i.e. "represents the same value", if requested)
+ * or is equal under the strategy. So an equal value takes precedence over a value with the same ID if it comes
+ * first. The indexes are used only to find the first candidate of each kind.
+ */
+class OutstandingValues {
+
+    /**
+     * Minimal number of values in the other item for the index to be worth building.
+     * For smaller items we simply scan the values.
+     */
+    static final int INDEXING_THRESHOLD = 8;
+
+    @NotNull private final List<PrismValue> values;
+    @NotNull private final boolean[] matched;
+    private int remaining;
+
+    @NotNull private final ParameterizedEquivalenceStrategy strategy;
+    private final boolean matchingIds;
+
+    @NotNull private final Map<Long, List<Integer>> idIndex = new HashMap<>();
+    @NotNull private final Map<Integer, List<Integer>> hashIndex = new HashMap<>();
+    @NotNull private final List<Integer> unstable = new ArrayList<>();
+
+    /**
+     * @param matchingIds Whether container values with the same ID should be matched as representing the same value.
+     */
+    OutstandingValues(@NotNull Collection<? extends PrismValue> otherValues,
+            @NotNull ParameterizedEquivalenceStrategy strategy, boolean matchingIds) {
+        this.values = new ArrayList<>(otherValues);
+        this.matched = new boolean[values.size()];
+        this.remaining = values.size();
+        this.strategy = strategy;
+        this.matchingIds = matchingIds;
+        for (int i = 0; i < values.size(); i++) {
+            PrismValue value = values.get(i);
+            if (matchingIds) {
+                Long id = getId(value);
+                if (id != null) {
+                    idIndex.computeIfAbsent(id, k -> new ArrayList<>(1)).add(i);
+                }
+            }
+            if (isHashStable(value)) {
+                hashIndex.computeIfAbsent(value.hashCode(strategy), k -> new ArrayList<>(1)).add(i);
+            } else {
+                unstable.add(i);
+            }
+        }
+    }
+
+    /**
+     * Finds a not-yet-matched value that corresponds to the given one and marks it as matched.
+     */
+    @Nullable Match match(@NotNull PrismValue thisValue) {
+        if (remaining == 0) {
+            return null;
+        }
+        int sameId = findSameId(thisValue);
+        // Only values before the one with the same ID are relevant: the first candidate wins.
+        int equal;
+        if (isHashStable(thisValue)) {
+            equal = Math.min(
+                    findEqual(thisValue, hashIndex.get(thisValue.hashCode(strategy)), sameId),
+                    findEqual(thisValue, unstable, sameId));
+        } else {
+            equal = findEqual(thisValue, sameId);
+        }
+        if (equal < sameId) {
+            return markMatched(equal, false);
+        } else if (sameId < values.size()) {
+            return markMatched(sameId, true);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the index of the first not-yet-matched value with the same container ID (or the number of values if none).
+     */
+    private int findSameId(PrismValue thisValue) {
+        if (matchingIds) {
+            Long id = getId(thisValue);
+            List<Integer> candidates = id != null ? idIndex.get(id) : null;
+            if (candidates != null) {
+                for (int candidate : candidates) {
+                    if (!matched[candidate]) {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return values.size();
+    }
+
+    /**
+     * Returns the index of the first not-yet-matched equal value among (ordered) candidates with index lower than the limit,
+     * or the limit if there is none.
+     */
+    private int findEqual(PrismValue thisValue, List<Integer> candidates, int limit) {
+        if (candidates != null) {
+            for (int candidate : candidates) {
+                if (candidate >= limit) {
+                    break;
+                }
+                if (!matched[candidate] && thisValue.equals(values.get(candidate), strategy)) {
+                    return candidate;
+                }
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * The same as {@link #findEqual(PrismValue, List, int)} but scanning all the values.
+     */
+    private int findEqual(PrismValue thisValue, int limit) {
+        for (int i = 0; i < limit; i++) {
+            if (!matched[i] && thisValue.equals(values.get(i), strategy)) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private Match markMatched(int index, boolean sameRepresentation) {
+        matched[index] = true;
+        remaining--;
+        return new Match(values.get(index), sameRepresentation);
+    }
+
+    boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    /**
+     * Values that were not matched, in their original order.
+     */
+    @NotNull List<PrismValue> getRemaining() {
+        List<PrismValue> rv = new ArrayList<>(remaining);
+        for (int i = 0; i < values.size(); i++) {
+            if (!matched[i]) {
+                rv.add(values.get(i));
+            }
+        }
+        return rv;
+    }
+
+    private static Long getId(PrismValue value) {
+        return value instanceof PrismContainerValue ? ((PrismContainerValue<?>) value).getId() : null;
+    }
+
+    /**
+     * Returns true if equal values of this kind are guaranteed to have the same hash code.
+     * Hash codes are allowed to be "coarser" than equals, but not the other way around.
+     */
+    private static boolean isHashStable(PrismValue value) {
+        if (value instanceof PrismPropertyValue) {
+            PrismPropertyValue<?> propertyValue = (PrismPropertyValue<?>) value;
+            if (propertyValue.isRaw()) {
+                return false;
+            }
+            Object realValue = propertyValue.getValue();
+            return !(realValue instanceof RawType)
+                    && !(realValue instanceof ProtectedDataType)
+                    && !(realValue instanceof byte[]);
+        } else if (value instanceof PrismContainerValue) {
+            for (Item<?, ?> item : ((PrismContainerValue<?>) value).getItems()) {
+                for (PrismValue itemValue : item.getValues()) {
+                    if (!isHashStable(itemValue)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } else {
+            return true;
+        }
+    }
+
+    static class Match {
+
+        @NotNull final PrismValue value;
+
+        /**
+         * True if the match is based on the container ID, i.e. the values may differ in their content.
+         */
+        final boolean sameRepresentation;
+
+        private Match(@NotNull PrismValue value, boolean sameRepresentation) {
+            this.value = value;
+            this.sameRepresentation = sameRepresentation;
+        }
+    }
+}
@@ -9,10 +9,15 @@ package com.evolveum.midpoint.prism.impl;
 
 import com.evolveum.midpoint.prism.ParsingContext;
 import com.evolveum.midpoint.prism.marshaller.XNodeProcessorEvaluationMode;
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.Trace;
 
+import org.jetbrains.annotations.NotNull;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,7 +27,10 @@ public class ParsingContextImpl implements ParsingContext {
 
     private XNodeProcessorEvaluationMode evaluationMode = XNodeProcessorEvaluationMode.STRICT;
     private boolean allowMissingRefTypes;
-    private final List<String> warnings = new ArrayList<>();
+    private boolean lazy;
+    private List<ItemPath> includedPaths = new ArrayList<>();
+    private List<ItemPath> excludedPaths = new ArrayList<>();
+    private List<String> warnings = new ArrayList<>();
 
     ParsingContextImpl() {
     }
@@ -53,6 +61,10 @@ public class ParsingContextImpl implements ParsingContext {
         this.allowMissingRefTypes = allowMissingRefTypes;
     }
 
+    void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
     void setEvaluationMode(XNodeProcessorEvaluationMode evaluationMode) {
         this.evaluationMode = evaluationMode;
     }
@@ -73,6 +85,20 @@ public class ParsingContextImpl implements ParsingContext {
         return evaluationMode == XNodeProcessorEvaluationMode.STRICT;
     }
 
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    @NotNull
+    public Collection<ItemPath> getIncludedPaths() {
+        return includedPaths;
+    }
+
+    @NotNull
+    public Collection<ItemPath> getExcludedPaths() {
+        return excludedPaths;
+    }
+
     public void warn(Trace logger, String message) {
         logger.warn("{}", message);
         warn(message);
@@ -112,7 +138,10 @@ public class ParsingContextImpl implements ParsingContext {
         }
         clone.evaluationMode = evaluationMode;
         clone.allowMissingRefTypes = allowMissingRefTypes;
-        clone.warnings.addAll(warnings);
+        clone.lazy = lazy;
+        clone.includedPaths = new ArrayList<>(includedPaths);
+        clone.excludedPaths = new ArrayList<>(excludedPaths);
+        clone.warnings = new ArrayList<>(warnings);
         return clone;
     }
 
@@ -125,4 +154,19 @@ public class ParsingContextImpl implements ParsingContext {
         this.setEvaluationMode(XNodeProcessorEvaluationMode.COMPAT);
         return this;
     }
+
+    public ParsingContext lazy() {
+        this.setLazy(true);
+        return this;
+    }
+
+    public ParsingContext include(ItemPath... paths) {
+        includedPaths.addAll(Arrays.asList(paths));
+        return this;
+    }
+
+    public ParsingContext exclude(ItemPath... paths) {
+        excludedPaths.addAll(Arrays.asList(paths));
+        return this;
+    }
 }
@@ -56,8 +56,19 @@ public class PrismContainerImpl<C extends Containerable> extends ItemImpl<PrismC
 
     private static final Trace LOGGER = TraceManager.getTrace(PrismContainerImpl.class);
 
+    /**
+     * Containers with at least this number of values use {@link #valueIdIndex} when looking up values by ID.
+     */
+    static final int VALUE_ID_INDEX_THRESHOLD = 8;
+
     protected Class<C> compileTimeClass;
 
+    /**
+     * Lazily built index of values by their IDs. It is rebuilt when the values list is modified in any way
+     * (see {@link CompactValueList#getVersion()}), and dropped when ID of a value changes.
+     */
+    private transient ValueIdIndex<C> valueIdIndex;
+
     public PrismContainerImpl(QName name) {
         super(name);
     }
@@ -214,12 +225,8 @@ public class PrismContainerImpl<C extends Containerable> extends ItemImpl<PrismC
 
     @Override
     protected boolean addInternalExecution(@NotNull PrismContainerValue<C> newValue) {
-        if (newValue.getId() != null) {
-            for (PrismContainerValue existingValue : getValues()) {
-                if (existingValue.getId() != null && existingValue.getId().equals(newValue.getId())) {
-                    throw new IllegalStateException("Attempt to add a container value with an id that already exists: " + newValue.getId());
-                }
-            }
+        if (newValue.getId() != null && findValueById(newValue.getId()) != null) {
+            throw new IllegalStateException("Attempt to add a container value with an id that already exists: " + newValue.getId());
         }
         return super.addInternalExecution(newValue);
     }
@@ -233,6 +240,9 @@ public class PrismContainerImpl<C extends Containerable> extends ItemImpl<PrismC
     }
 
     public PrismContainerValue<C> getValue(Long id) {
+        if (id != null) {
+            return findValueById(id);
+        }
         for (PrismContainerValue<C> pval: getValues()) {
             if ((id == null && pval.getId() == null) ||
                     id.equals(pval.getId())) {
@@ -498,12 +508,7 @@ public class PrismContainerImpl<C extends Containerable> extends ItemImpl<PrismC
     }
 
     public PrismContainerValue<C> findValue(long id) {
-        for (PrismContainerValue<C> pval : getValues()) {
-            if (id == pval.getId()) {
-                return pval;
-            }
-        }
-        return null;
+        return findValueById(id);
     }
 
     private PrismContainerValue<C> findValue(Long id) {
@@ -514,13 +519,81 @@ public class PrismContainerImpl<C extends Containerable> extends ItemImpl<PrismC
                 throw new IllegalArgumentException("Attempt to get segment without an ID from a multi-valued container "+ getElementName());
             }
         } else {
-            for (PrismContainerValue<C> pval : getValues()) {
+            return findValueById(id);
+        }
+    }
+
+    private PrismContainerValue<C> findValueById(@NotNull Long id) {
+        List<PrismContainerValue<C>> values = getValues();
+        if (values.size() < VALUE_ID_INDEX_THRESHOLD) {
+            for (PrismContainerValue<C> pval : values) {
                 if (id.equals(pval.getId())) {
                     return pval;
                 }
             }
             return null;
         }
+        PrismContainerValue<C> pval = getValueIdIndex().values.get(id);
+        if (pval != null && (pval.getParent() != this || !id.equals(pval.getId()))) {
+            // ID of the value changed while it was not connected to this container.
+            invalidateValueIdIndex();
+            pval = getValueIdIndex().values.get(id);
+        }
+        return pval;
+    }
+
+    @NotNull
+    private ValueIdIndex<C> getValueIdIndex() {
+        ValueIdIndex<C> index = valueIdIndex;
+        int valuesVersion = getValuesVersion();
+        if (index == null || index.valuesVersion != valuesVersion) {
+            index = new ValueIdIndex<>(getValues(), valuesVersion);
+            valueIdIndex = index; // benign race: the index is immutable, so it can be safely shared by threads reading frozen containers
+        }
+        return index;
+    }
+
+    private int getValuesVersion() {
+        return ((CompactValueList<?>) values).getVersion();
+    }
+
+    /**
+     * Called when ID of a value changes. (Changes of the values list itself are detected by its version.)
+     */
+    void invalidateValueIdIndex() {
+        valueIdIndex = null;
+    }
+
+    /**
+     * Own values are covered by the ID index, so only inner containers (and objects embedded in references)
+     * need to be visited. Properties cannot contain container values.
+     */
+    @Override
+    public Long getHighestId() {
+        List<PrismContainerValue<C>> values = getValues();
+        Long highest = values.size() < VALUE_ID_INDEX_THRESHOLD ? highestId(values) : getValueIdIndex().highestId;
+        for (PrismContainerValue<C> value : values) {
+            for (Item<?, ?> item : value.getItems()) {
+                if (!(item instanceof PrismProperty)) {
+                    Long itemHighest = item.getHighestId();
+                    if (itemHighest != null && (highest == null || itemHighest > highest)) {
+                        highest = itemHighest;
+                    }
+                }
+            }
+        }
+        return highest;
+    }
+
+    private static Long highestId(Collection<? extends PrismContainerValue<?>> values) {
+        Long highest = null;
+        for (PrismContainerValue<?> value : values) {
+            Long id = value.getId();
+            if (id != null && (highest == null || id > highest)) {
+                highest = id;
+            }
+        }
+        return highest;
     }
 
     public <T extends Containerable> PrismContainer<T> findContainer(ItemPath path) {
@@ -875,4 +948,27 @@ public class PrismContainerImpl<C extends Containerable> extends ItemImpl<PrismC
         });
         return paths;
     }
+
+    /**
+     * Immutable snapshot of values indexed by their IDs. If there are more values with the same ID
+     * (which is not legal anyway), the first one is indexed - just like a sequential search would find it.
+     */
+    private static class ValueIdIndex<C extends Containerable> {
+
+        @NotNull private final Map<Long, PrismContainerValue<C>> values;
+        private final int valuesVersion;
+        private final Long highestId;
+
+        private ValueIdIndex(@NotNull List<PrismContainerValue<C>> values, int valuesVersion) {
+            this.values = new HashMap<>(values.size() * 2);
+            for (PrismContainerValue<C> value : values) {
+                Long id = value.getId();
+                if (id != null) {
+                    this.values.putIfAbsent(id, value);
+                }
+            }
+            this.valuesVersion = valuesVersion;
+            this.highestId = highestId(values);
+        }
+    }
 }
@@ -9,6 +9,8 @@ package com.evolveum.midpoint.prism.impl;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.function.Consumer;
@@ -60,7 +62,19 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     // (in order to maintain the ordering) but they are maintained in a separate set to know they require a separate
     // handling.
     protected final LinkedHashMap<QName, Item<?, ?>> items = new LinkedHashMap<>();
-    protected final Set<String> unqualifiedItemNames = new HashSet<>();
+    protected Set<String> unqualifiedItemNames;         // created lazily, as unqualified item names are rare
+
+    // Items that were not parsed yet (lazy parsing mode). They are materialized on the first access to items,
+    // so all access to the items map should go through items() method. Deferred items are not serializable;
+    // they are materialized before the value is serialized (see writeObject).
+    private transient volatile DeferredItems deferredItems;
+
+    // True while the deferred items are being materialized (by the thread holding the lock on this value).
+    private transient boolean materializing;
+
+    // Failure of the materialization of deferred items. Items of such value are incomplete, so any further access
+    // to them fails as well (the deferred items are kept, but not materialized again).
+    private transient Exception deferredItemsFailure;
 
     private Long id;
 
@@ -120,6 +134,65 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         return prismContext;
     }
 
+    /**
+     * Sets items that are to be parsed on first access to items of this value. The value must contain no items yet.
+     */
+    public void setDeferredItems(DeferredItems deferredItems) {
+        checkMutable();
+        if (!items.isEmpty()) {
+            throw new IllegalStateException("Cannot set deferred items for a non-empty value: " + this);
+        }
+        this.deferredItems = deferredItems;
+    }
+
+    /**
+     * Returns true if the items of this value were not parsed yet.
+     */
+    public boolean hasDeferredItems() {
+        return deferredItems != null;
+    }
+
+    protected LinkedHashMap<QName, Item<?, ?>> items() {
+        if (deferredItems != null) {
+            materializeDeferredItems();
+        }
+        return items;
+    }
+
+    /**
+     * Synchronized, as the materialization is a hidden modification: concurrent readers of a shared (non-frozen)
+     * lazily parsed value must not see partially materialized items. Other threads wait for the materialization
+     * to finish; the materializing thread itself gets the items being added (via standard methods that call
+     * items() again).
+     *
+     * If the materialization fails, the exception is thrown on this and each subsequent access to the items.
+     */
+    private synchronized void materializeDeferredItems() {
+        DeferredItems toMaterialize = deferredItems;
+        if (toMaterialize == null || materializing) {
+            return;
+        }
+        if (deferredItemsFailure == null) {
+            materializing = true;
+            try {
+                toMaterialize.materialize(this);
+                deferredItems = null;
+                return;
+            } catch (SchemaException | RuntimeException e) {
+                deferredItemsFailure = e;
+            } finally {
+                materializing = false;
+            }
+        }
+        throw new SystemException("Couldn't parse deferred items of container value with ID " + id + ": "
+                + deferredItemsFailure.getMessage(), deferredItemsFailure);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        items(); // deferred items (if any) are not serializable
+        out.defaultWriteObject();
+    }
+
     /**
      * Returns a set of items that the property container contains. The items may be properties or inner property containers.
      * <p>
@@ -134,9 +207,9 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @NotNull
     public Collection<Item<?, ?>> getItems() {
         if (isImmutable()) {
-            return Collections.unmodifiableCollection(items.values());
+            return Collections.unmodifiableCollection(items().values());
         } else {
-            return items.values();
+            return items().values();
         }
     }
 
@@ -144,7 +217,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @SuppressWarnings("unchecked")
     public <I extends Item<?, ?>> List<I> getItems(Class<I> type) {
         List<I> rv = new ArrayList<>();
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (type.isAssignableFrom(item.getClass())) {
                 rv.add(((I) item));
             }
@@ -154,7 +227,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @Override
     public int size() {
-        return items.size();
+        return items().size();
     }
 
     /**
@@ -171,7 +244,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @NotNull
     public Set<PrismProperty<?>> getProperties() {
         Set<PrismProperty<?>> properties = new HashSet<>();
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (item instanceof PrismProperty) {
                 properties.add((PrismProperty<?>) item);
             }
@@ -188,6 +261,10 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     public void setId(Long id) {
         checkMutable();
         this.id = id;
+        Itemable parent = super.getParent();
+        if (parent instanceof PrismContainerImpl) {
+            ((PrismContainerImpl<?>) parent).invalidateValueIdIndex();
+        }
     }
 
     @Override
@@ -337,7 +414,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     @NotNull
     public Collection<QName> getItemNames() {
-        return new ArrayList<>(items.keySet());
+        return new ArrayList<>(items().keySet());
     }
 
     @Override
@@ -374,8 +451,11 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     private <IV extends PrismValue, ID extends ItemDefinition> void simpleAdd(Item<IV, ID> item) {
         @NotNull ItemName itemName = item.getElementName();
-        items.put(itemName, item);
+        items().put(itemName, item);
         if (QNameUtil.isUnqualified(itemName)) {
+            if (unqualifiedItemNames == null) {
+                unqualifiedItemNames = new HashSet<>();
+            }
             unqualifiedItemNames.add(itemName.getLocalPart());
         }
     }
@@ -449,7 +529,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         Item<IV, ID> existingItem = findItem(item.getElementName(), Item.class);
         if (existingItem != null) {
             ItemName existingItemName = existingItem.getElementName();
-            items.remove(existingItemName);
+            items().remove(existingItemName);
             removeFromUnqualifiedIfNeeded(existingItemName);
             existingItem.setParent(null);
         }
@@ -458,13 +538,15 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void removeAll() {
         checkMutable();
+        deferredItems = null;
+        deferredItemsFailure = null;
         Iterator<Item<?, ?>> iterator = items.values().iterator();
         while (iterator.hasNext()) {
             Item<?, ?> item = iterator.next();
             item.setParent(null);
             iterator.remove();
         }
-        unqualifiedItemNames.clear();
+        unqualifiedItemNames = null;
     }
 
     /**
@@ -502,13 +584,15 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void clear() {
         checkMutable();
+        deferredItems = null;
+        deferredItemsFailure = null;
         items.clear();
-        unqualifiedItemNames.clear();
+        unqualifiedItemNames = null;
     }
 
     @Override
     public boolean contains(Item item) {
-        return items.values().contains(item);
+        return items().values().contains(item);
     }
 
     @Override
@@ -597,7 +681,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     // todo optimize this some day
     @Override
     public PrismReference findReferenceByCompositeObjectElementName(QName elementName) {
-        for (Item item : items.values()) {
+        for (Item item : items().values()) {
             if (item instanceof PrismReference) {
                 PrismReference ref = (PrismReference) item;
                 PrismReferenceDefinition refDef = ref.getDefinition();
@@ -733,18 +817,20 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     }
 
     private <IV extends PrismValue, ID extends ItemDefinition> Item<IV, ID> findItemByQName(QName subName) throws SchemaException {
-        if (QNameUtil.isUnqualified(subName) || unqualifiedItemNames.contains(subName.getLocalPart())) {
+        items(); // unqualifiedItemNames are valid only after deferred items are materialized
+        if (QNameUtil.isUnqualified(subName)
+                || unqualifiedItemNames != null && unqualifiedItemNames.contains(subName.getLocalPart())) {
             return findItemByQNameFullScan(subName);
         } else {
             //noinspection unchecked
-            return (Item<IV, ID>) items.get(subName);
+            return (Item<IV, ID>) items().get(subName);
         }
     }
 
     private <IV extends PrismValue, ID extends ItemDefinition> Item<IV, ID> findItemByQNameFullScan(QName subName) throws SchemaException {
 //        LOGGER.warn("Full scan while finding {} in {}", subName, this);
         Item<IV, ID> matching = null;
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (QNameUtil.match(subName, item.getElementName())) {
                 if (matching != null) {
                     String containerName = getParent() != null ? DebugUtil.formatElementName(getParent().getElementName()) : "";
@@ -899,7 +985,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         }
         QName subName = itemPath.firstToName();
         ItemPath rest = itemPath.rest();
-        Iterator<Item<?, ?>> itemsIterator = items.values().iterator();
+        Iterator<Item<?, ?>> itemsIterator = items().values().iterator();
         while (itemsIterator.hasNext()) {
             Item<?, ?> item = itemsIterator.next();
             ItemName itemName = item.getElementName();
@@ -927,12 +1013,14 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     }
 
     private void removeUnqualifiedItemName(ItemName itemName) {
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (itemName.equals(item.getElementName())) {
                 return;
             }
         }
-        unqualifiedItemNames.remove(itemName.getLocalPart());
+        if (unqualifiedItemNames != null) {
+            unqualifiedItemNames.remove(itemName.getLocalPart());
+        }
     }
 
     @Override
@@ -962,7 +1050,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void accept(Visitor visitor) {
         super.accept(visitor);
-        for (Item<?, ?> item : new ArrayList<>(items.values())) {     // to allow modifying item list via the acceptor
+        for (Item<?, ?> item : new ArrayList<>(items().values())) {     // to allow modifying item list via the acceptor
             item.accept(visitor);
         }
     }
@@ -983,7 +1071,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
             }
             QName subName = ItemPath.toName(first);
             ItemPath rest = path.rest();
-            for (Item<?, ?> item : items.values()) {            // todo unqualified names!
+            for (Item<?, ?> item : items().values()) {            // todo unqualified names!
                 if (subName.equals(item.getElementName())) {
                     item.accept(visitor, rest, recursive);
                 }
@@ -1230,7 +1318,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     private void applyDefinitionToItems(boolean force) throws SchemaException {
         // We change items during this operation, so we need to create a copy of them.
-        ArrayList<Item<?, ?>> existingItems = new ArrayList<>(items.values());
+        ArrayList<Item<?, ?>> existingItems = new ArrayList<>(items().values());
 
         for (Item item : existingItems) {
             if (item.getDefinition() == null || force) {
@@ -1303,7 +1391,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
             this.prismContext = prismContext;
         }
         super.revive(prismContext);
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             item.revive(prismContext);
         }
     }
@@ -1315,7 +1403,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @Override
     public boolean hasNoItems() {
-        return items.isEmpty();
+        return items().isEmpty();
     }
 
     @Override
@@ -1326,7 +1414,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void normalize() {
         checkMutable();
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             item.normalize();
         }
     }
@@ -1337,7 +1425,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         if (getDefinition() == null) {
             throw new IllegalStateException("Definition-less container value " + this + " (" + myPath + " in " + rootItem + ")");
         }
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (scope.isThorough()) {
                 if (item == null) {
                     throw new IllegalStateException("Null item in container value " + this + " (" + myPath + " in " + rootItem + ")");
@@ -1390,7 +1478,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         if (strategy == CloneStrategy.LITERAL) {
             clone.id = this.id;
         }
-        for (Item<?, ?> item : this.items.values()) {
+        for (Item<?, ?> item : this.items().values()) {
             Item<?, ?> clonedItem = item.cloneComplex(strategy);
             clonedItem.setParent(clone);
             clone.simpleAdd(clonedItem);
@@ -1407,7 +1495,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
                 replaceComplexTypeDefinition(complexTypeDefinition.deepClone(ultraDeep ? null : new HashMap<>(), new HashMap<>(), postCloneAction));        // OK?
             }
         }
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             deepCloneDefinitionItem(item, ultraDeep, clonedContainerDef, postCloneAction);
         }
     }
@@ -1478,7 +1566,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         // We also need to make sure that container valus that contain only metadata will produce zero hashcode
         // so it will not ruin hashcodes of parent containers
         int itemsHash = 0;
-        itemsHash = MiscUtil.unorderedCollectionHashcode(items.values(), item -> !item.isOperational());
+        itemsHash = MiscUtil.unorderedCollectionHashcode(items().values(), item -> !item.isOperational());
         if (itemsHash != 0) {
             result = prime * result + itemsHash;
         }
@@ -1554,7 +1642,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @Override
     public String toHumanReadableString() {
-        return "id=" + id + ": " + items.size() + " items";
+        return "id=" + id + ": " + items().size() + " items";
     }
 
     @Override
@@ -1618,7 +1706,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         }
 
         // And now let's freeze it; from the bottom up.
-        for (Item item : items.values()) {
+        for (Item item : items().values()) {
             item.freeze();
         }
         super.performFreeze();
@@ -1750,7 +1838,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     // Removes all unused definitions, in order to conserve heap. Assumes that the definition is not shared. Use with care!
     void trimItemsDefinitionsTrees(Collection<? extends ItemPath> alwaysKeep) {
         // to play safe, we won't touch PCV-specific complexTypeDefinition
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (item instanceof PrismContainer) {
                 Collection<ItemPath> alwaysKeepInSub = ItemPathCollectionsUtil.remainder(CollectionUtils.emptyIfNull(alwaysKeep),
                         item.getElementName(), false);
@@ -1835,7 +1923,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
             replaceComplexTypeDefinition(newDefinition);
         }
 
-        for(Item<?,?> item : items.values()) {
+        for(Item<?,?> item : items().values()) {
             if (item instanceof TransformableItem) {
                 ((TransformableItem) item).transformDefinition(complexTypeDefinition, transformation);
             }
@@ -6,11 +6,16 @@
  */
 package com.evolveum.midpoint.prism.impl;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import javax.xml.namespace.QName;
@@ -52,6 +57,7 @@ import com.evolveum.midpoint.prism.path.CanonicalItemPath;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.path.UniformItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyStringNormalizer;
+import com.evolveum.midpoint.prism.query.OrgHierarchyProvider;
 import com.evolveum.midpoint.prism.query.PrismQueryLanguageParser;
 import com.evolveum.midpoint.prism.query.PrismQuerySerializer;
 import com.evolveum.midpoint.prism.query.QueryConverter;
@@ -85,6 +91,7 @@ public final class PrismContextImpl implements PrismContext {
     @NotNull private PolyStringNormalizer defaultPolyStringNormalizer;
     @NotNull private final PrismUnmarshaller prismUnmarshaller;
     @NotNull private final PrismMarshaller prismMarshaller;
+    @NotNull private final PrismBeanInspector beanInspector;
     @NotNull private final BeanMarshaller beanMarshaller;
     @NotNull private final BeanUnmarshaller beanUnmarshaller;
     @NotNull private final HacksImpl hacks;
@@ -98,6 +105,7 @@ public final class PrismContextImpl implements PrismContext {
 
     @Experimental private ValueMetadataFactory valueMetadataFactory;
     @Experimental private EquivalenceStrategy provenanceEquivalenceStrategy;
+    @Experimental private OrgHierarchyProvider orgHierarchyProvider;
 
     private ParsingMigrator parsingMigrator;
     private PrismMonitor monitor = null;
@@ -132,9 +140,9 @@ public final class PrismContextImpl implements PrismContext {
         schemaRegistry.setPrismContext(this);
         this.queryConverter = new QueryConverterImpl(this);
         this.lexicalProcessorRegistry = new LexicalProcessorRegistry(schemaRegistry);
-        PrismBeanInspector inspector = new PrismBeanInspector(this);
-        this.beanMarshaller = new BeanMarshaller(this, inspector);
-        this.beanUnmarshaller = new BeanUnmarshaller(this, inspector, beanMarshaller);
+        this.beanInspector = new PrismBeanInspector(this);
+        this.beanMarshaller = new BeanMarshaller(this, beanInspector);
+        this.beanUnmarshaller = new BeanUnmarshaller(this, beanInspector, beanMarshaller);
         this.prismUnmarshaller = new PrismUnmarshaller(this, beanUnmarshaller, schemaRegistry);
         this.prismMarshaller = new PrismMarshaller(beanMarshaller);
         this.jaxbDomHack = new JaxbDomHackImpl(lexicalProcessorRegistry.domProcessor(), this);
@@ -266,6 +274,14 @@ public final class PrismContextImpl implements PrismContext {
         return beanUnmarshaller;
     }
 
+    /**
+     * Bean inspector used by bean marshaller and unmarshaller. Useful mainly for its cache statistics.
+     */
+    @NotNull
+    public PrismBeanInspector getBeanInspector() {
+        return beanInspector;
+    }
+
     @NotNull
     public JaxbDomHack getJaxbDomHack() {
         return jaxbDomHack;
@@ -466,6 +482,19 @@ public final class PrismContextImpl implements PrismContext {
         return new PrismSerializerImpl<>(new SerializerStringTarget(this, language), null, null, null, this, null);
     }
 
+    @NotNull
+    @Override
+    public PrismStreamSerializer<Writer> serializerFor(@NotNull String language, @NotNull Writer writer) {
+        return new PrismStreamSerializerImpl<>(new SerializerWriterTarget<>(this, language, writer, writer), null, null, null, this, null);
+    }
+
+    @NotNull
+    @Override
+    public PrismStreamSerializer<OutputStream> serializerFor(@NotNull String language, @NotNull OutputStream stream) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        return new PrismStreamSerializerImpl<>(new SerializerWriterTarget<>(this, language, stream, writer), null, null, null, this, null);
+    }
+
     @NotNull
     @Override
     public PrismSerializer<String> xmlSerializer() {
@@ -699,6 +728,16 @@ public final class PrismContextImpl implements PrismContext {
         return valueMetadataFactory;
     }
 
+    @Override
+    public void setOrgHierarchyProvider(OrgHierarchyProvider orgHierarchyProvider) {
+        this.orgHierarchyProvider = orgHierarchyProvider;
+    }
+
+    @Override
+    public OrgHierarchyProvider getOrgHierarchyProvider() {
+        return orgHierarchyProvider;
+    }
+
     @Override
     public EquivalenceStrategy getProvenanceEquivalenceStrategy() {
         return provenanceEquivalenceStrategy;
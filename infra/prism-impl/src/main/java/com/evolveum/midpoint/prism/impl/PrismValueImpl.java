@@ -37,8 +37,7 @@ public abstract class PrismValueImpl extends AbstractFreezable implements PrismV
 
     private ValueMetadata valueMetadata;
 
-    @SuppressWarnings("FieldMayBeFinal") // Cannot be final because it is transient
-    private transient Map<String,Object> userData = new HashMap<>();
+    private transient Map<String,Object> userData;          // created lazily, as it is rarely used
 
     // FIXME: always null
     protected EquivalenceStrategy defaultEquivalenceStrategy;
@@ -98,17 +97,20 @@ public abstract class PrismValueImpl extends AbstractFreezable implements PrismV
 
     @Override
     public Map<String, Object> getUserData() {
+        if (userData == null) {
+            userData = new HashMap<>();
+        }
         return userData;
     }
 
     @Override
     public Object getUserData(@NotNull String key) {
-        return userData.get(key);
+        return userData != null ? userData.get(key) : null;
     }
 
     @Override
     public void setUserData(@NotNull String key, Object value) {
-        userData.put(key, value);
+        getUserData().put(key, value);
     }
 
     @Override
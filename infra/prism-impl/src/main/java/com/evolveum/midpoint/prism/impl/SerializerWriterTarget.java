@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.TextLexicalProcessor;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+
+/**
+ * Writes serialized data directly to a writer (or a stream wrapped in a writer).
+ * The result of each operation is the output object itself, i.e. the writer or stream provided by the client.
+ */
+public class SerializerWriterTarget<T> extends SerializerTarget<T> {
+
+    @NotNull private final String language;
+    @NotNull private final T output;
+    @NotNull private final Writer writer;
+
+    /**
+     * @param output The object returned to the client (writer or stream).
+     * @param writer The writer we write to. It is either the output itself or a wrapper of it.
+     */
+    SerializerWriterTarget(@NotNull PrismContextImpl prismContext, @NotNull String language, @NotNull T output,
+            @NotNull Writer writer) {
+        super(prismContext);
+        this.language = language;
+        this.output = output;
+        this.writer = writer;
+    }
+
+    @NotNull
+    @Override
+    public T write(@NotNull RootXNodeImpl xroot, SerializationContext context) throws SchemaException {
+        try {
+            getLexicalProcessor().write(xroot, context, writer);
+        } catch (IOException e) {
+            throw new SystemException("Couldn't write serialized data: " + e.getMessage(), e);
+        }
+        return output;
+    }
+
+    @NotNull
+    @Override
+    public T write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context) throws SchemaException {
+        try {
+            getLexicalProcessor().write(roots, context, writer);
+        } catch (IOException e) {
+            throw new SystemException("Couldn't write serialized data: " + e.getMessage(), e);
+        }
+        return output;
+    }
+
+    @NotNull
+    public TextLexicalProcessor.ObjectsWriter objectsWriter(@Nullable SerializationContext context) throws SchemaException {
+        try {
+            return getLexicalProcessor().objectsWriter(context, writer);
+        } catch (IOException e) {
+            throw new SystemException("Couldn't write serialized data: " + e.getMessage(), e);
+        }
+    }
+
+    private TextLexicalProcessor getLexicalProcessor() {
+        return prismContext.getLexicalProcessorRegistry().textProcessorFor(language);
+    }
+}
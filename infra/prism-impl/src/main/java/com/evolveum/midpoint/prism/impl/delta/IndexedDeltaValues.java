@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.delta;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.Predicate;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismPropertyValue;
+import com.evolveum.midpoint.prism.PrismReferenceValue;
+import com.evolveum.midpoint.prism.PrismValue;
+
+/**
+ * Values to add, delete or replace (or estimated old values) of {@link ItemDeltaImpl}: a collection that keeps
+ * the insertion order and (for larger collections) indexes the values, so that checking for an existing
+ * equivalent value does not require a scan over all values.
+ *
+ * Indexed are property values with simple immutable real values (strings, numbers, booleans, QNames, enums),
+ * keyed by the real value itself, and reference values with an OID, keyed by the OID. All equivalence strategies
+ * used for delta values compare such real values using their `equals` method and always compare reference OIDs,
+ * so the index only narrows down the set of candidates; callers still apply their usual comparison on them.
+ * Other values (raw values, structured real values, references without OID) are kept aside and are always
+ * compared one by one. Container values are not indexed at all: their IDs are ignored by some of the strategies
+ * used, so neither the IDs nor the content can serve as a key.
+ *
+ * The key of a value is remembered when the value is added, so the value is correctly removed even if its key
+ * changed in the meantime, e.g. when a raw value was parsed in place. However, real values (and OIDs) of
+ * indexed values must not be changed while the values are part of this collection, otherwise they would not
+ * be found.
+ */
+class IndexedDeltaValues<V extends PrismValue> extends AbstractCollection<V> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Minimal number of values for the index to be worth building.
+     * For smaller collections we simply scan the values.
+     */
+    static final int INDEXING_THRESHOLD = 8;
+
+    @NotNull private final List<V> values = new ArrayList<>();
+
+    /** Indexed values by their keys, or null if the index is not built (yet). */
+    private Map<Object, List<V>> index;
+
+    /** Values that cannot be indexed. Meaningful only if the index is built. */
+    private List<V> unindexed;
+
+    /** Keys of indexed values, as they were at the time of indexing. Meaningful only if the index is built. */
+    private Map<V, Object> keys;
+
+    @NotNull
+    @Override
+    public Iterator<V> iterator() {
+        Iterator<V> valueIterator = values.iterator();
+        return new Iterator<>() {
+
+            private V current;
+
+            @Override
+            public boolean hasNext() {
+                return valueIterator.hasNext();
+            }
+
+            @Override
+            public V next() {
+                current = valueIterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                valueIterator.remove();
+                unindex(current);
+                current = null;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public boolean add(V value) {
+        values.add(value);
+        if (index != null) {
+            index(value);
+        } else if (values.size() >= INDEXING_THRESHOLD) {
+            index = new HashMap<>();
+            unindexed = new ArrayList<>();
+            keys = new IdentityHashMap<>();
+            values.forEach(this::index);
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        values.clear();
+        index = null;
+        unindexed = null;
+        keys = null;
+    }
+
+    /**
+     * Returns true if there is a value matching the given one. The predicate is applied to candidate values
+     * (i.e. values that may be equal to the given one under any equivalence strategy).
+     */
+    boolean containsMatching(@NotNull PrismValue value, @NotNull Predicate<V> matcher) {
+        for (V candidate : getCandidates(value)) {
+            if (matcher.test(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all candidate values that match the predicate.
+     *
+     * @return true if anything was removed
+     */
+    boolean removeMatching(@NotNull PrismValue value, @NotNull Predicate<V> matcher) {
+        Set<V> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (V candidate : getCandidates(value)) {
+            if (matcher.test(candidate)) {
+                toRemove.add(candidate);
+            }
+        }
+        if (toRemove.isEmpty()) {
+            return false;
+        }
+        values.removeIf(toRemove::contains);
+        toRemove.forEach(this::unindex);
+        return true;
+    }
+
+    /**
+     * Values that may be equal to the given one. If the value cannot be indexed, all values are returned.
+     */
+    @NotNull
+    private Collection<V> getCandidates(@NotNull PrismValue value) {
+        if (index == null) {
+            return values;
+        }
+        Object key = getKey(value);
+        if (key == null) {
+            return values;
+        }
+        List<V> indexed = index.get(key);
+        if (indexed == null) {
+            return unindexed;
+        } else if (unindexed.isEmpty()) {
+            return indexed;
+        } else {
+            List<V> candidates = new ArrayList<>(indexed.size() + unindexed.size());
+            candidates.addAll(indexed);
+            candidates.addAll(unindexed);
+            return candidates;
+        }
+    }
+
+    private void index(V value) {
+        Object key = getKey(value);
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
+            keys.put(value, key);
+        } else {
+            unindexed.add(value);
+        }
+    }
+
+    private void unindex(V value) {
+        if (index == null) {
+            return;
+        }
+        Object key = keys.remove(value);
+        List<V> list = key != null ? index.get(key) : unindexed;
+        if (list != null) {
+            list.removeIf(v -> v == value);
+            if (key != null && list.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Key of the value in the index: the real value, if it is a simple immutable one, or the OID of a reference.
+     * Otherwise null.
+     */
+    @Nullable
+    private static Object getKey(PrismValue value) {
+        if (value instanceof PrismReferenceValue) {
+            String oid = ((PrismReferenceValue) value).getOid();
+            return oid != null ? new OidKey(oid) : null;
+        }
+        if (!(value instanceof PrismPropertyValue)) {
+            return null;
+        }
+        PrismPropertyValue<?> propertyValue = (PrismPropertyValue<?>) value;
+        if (propertyValue.isRaw()) {
+            return null;
+        }
+        Object realValue = propertyValue.getValue();
+        if (realValue instanceof String
+                || realValue instanceof Boolean
+                || realValue instanceof Integer
+                || realValue instanceof Long
+                || realValue instanceof Short
+                || realValue instanceof Byte
+                || realValue instanceof Double
+                || realValue instanceof Float
+                || realValue instanceof BigInteger
+                || realValue instanceof BigDecimal
+                || realValue instanceof QName
+                || realValue instanceof Enum) {
+            return realValue;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Key of a reference value. It is distinct from the real value keys; although property and reference values
+     * should not be mixed in one delta, a string property value must never be a candidate for a reference.
+     */
+    private static final class OidKey implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @NotNull private final String oid;
+
+        private OidKey(@NotNull String oid) {
+            this.oid = oid;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof OidKey && oid.equals(((OidKey) o).oid);
+        }
+
+        @Override
+        public int hashCode() {
+            return oid.hashCode();
+        }
+    }
+}
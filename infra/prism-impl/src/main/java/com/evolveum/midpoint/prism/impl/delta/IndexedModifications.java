@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.delta;
+
+import java.io.Serializable;
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.path.ItemPath;
+
+/**
+ * Modifications of {@link ObjectDeltaImpl}: a collection of item deltas that keeps their insertion order
+ * and (for larger collections) indexes them by their paths.
+ *
+ * The index is a trie over normalized path segments (as seen by {@link ItemPath#compareComplex(ItemPath)}),
+ * keyed by local names and container IDs. It only narrows down the set of candidate deltas; callers still
+ * apply their usual path comparison on the candidates. Namespaces are not part of the keys, as unqualified
+ * names match qualified ones.
+ *
+ * Candidates are always returned in the order of the collection, so the results are the same as if
+ * the whole collection were scanned.
+ *
+ * Paths of item deltas must not be changed while the deltas are part of this collection.
+ */
+class IndexedModifications extends AbstractCollection<ItemDelta<?, ?>> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Minimal number of deltas for the index to be worth building.
+     * For smaller collections we simply scan the deltas.
+     */
+    static final int INDEXING_THRESHOLD = 8;
+
+    @NotNull private final List<Entry> entries = new ArrayList<>();
+
+    /** Root of the index, or null if the index is not built (yet). */
+    private Node root;
+
+    /** Sequence number of the next entry added; determines the order of candidates. */
+    private long nextSequence;
+
+    @NotNull
+    @Override
+    public Iterator<ItemDelta<?, ?>> iterator() {
+        Iterator<Entry> entryIterator = entries.iterator();
+        return new Iterator<>() {
+
+            private Entry current;
+
+            @Override
+            public boolean hasNext() {
+                return entryIterator.hasNext();
+            }
+
+            @Override
+            public ItemDelta<?, ?> next() {
+                current = entryIterator.next();
+                return current.delta;
+            }
+
+            @Override
+            public void remove() {
+                entryIterator.remove();
+                unindex(current);
+                current = null;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public boolean add(ItemDelta<?, ?> delta) {
+        Entry entry = new Entry(delta, nextSequence++);
+        entries.add(entry);
+        if (root != null) {
+            index(entry);
+        } else if (entries.size() >= INDEXING_THRESHOLD) {
+            root = new Node(null, null);
+            entries.forEach(this::index);
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        root = null;
+    }
+
+    /**
+     * Deltas whose paths may be equivalent to the given path (exact), shorter than it (ancestors),
+     * or longer than it (descendants) - depending on the flags. The result is a superset of such deltas,
+     * in the order of this collection.
+     */
+    @NotNull
+    Collection<? extends ItemDelta<?, ?>> getCandidates(
+            @NotNull ItemPath path, boolean ancestors, boolean exact, boolean descendants) {
+        if (root == null) {
+            return this;
+        }
+        List<Entry> found = new ArrayList<>();
+        Node node = root;
+        for (Object key : keys(path)) {
+            if (ancestors) {
+                node.collectOwn(found);
+            }
+            node = node.children != null ? node.children.get(key) : null;
+            if (node == null) {
+                break;
+            }
+        }
+        if (node != null) {
+            if (exact) {
+                node.collectOwn(found);
+            }
+            if (descendants) {
+                node.collectDescendants(found);
+            }
+        }
+        if (found.size() > 1) {
+            found.sort(Comparator.comparingLong(e -> e.sequence));
+        }
+        List<ItemDelta<?, ?>> rv = new ArrayList<>(found.size());
+        for (Entry entry : found) {
+            rv.add(entry.delta);
+        }
+        return rv;
+    }
+
+    /**
+     * Removes the deltas (compared by identity).
+     */
+    void removeAllIdentical(@NotNull Collection<? extends ItemDelta<?, ?>> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Set<ItemDelta<?, ?>> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        toRemove.addAll(deltas);
+        Iterator<ItemDelta<?, ?>> iterator = iterator();
+        while (iterator.hasNext()) {
+            if (toRemove.contains(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void index(Entry entry) {
+        Node node = root;
+        for (Object key : keys(entry.delta.getPath())) {
+            node = node.getOrCreateChild(key);
+        }
+        node.add(entry);
+        entry.node = node;
+    }
+
+    private void unindex(Entry entry) {
+        Node node = entry.node;
+        if (node != null) {
+            node.remove(entry);
+            entry.node = null;
+        }
+    }
+
+    /**
+     * Keys for normalized path segments, see ItemPathComparatorUtil: artificial (null) IDs are inserted between
+     * consecutive non-ID segments.
+     */
+    private static List<Object> keys(ItemPath path) {
+        List<?> segments = path.getSegments();
+        List<Object> keys = new ArrayList<>(segments.size() * 2);
+        for (int i = 0; i < segments.size(); i++) {
+            Object segment = segments.get(i);
+            keys.add(key(segment));
+            if (i < segments.size() - 1 && !ItemPath.isId(segment) && !ItemPath.isId(segments.get(i + 1))) {
+                keys.add(SegmentKind.NULL_ID);
+            }
+        }
+        return keys;
+    }
+
+    private static Object key(Object segment) {
+        if (ItemPath.isName(segment)) {
+            return ItemPath.toName(segment).getLocalPart();
+        } else if (ItemPath.isId(segment)) {
+            Long id = ItemPath.toId(segment);
+            return id != null ? id : SegmentKind.NULL_ID;
+        } else if (ItemPath.isVariable(segment)) {
+            return SegmentKind.VARIABLE;
+        } else if (ItemPath.isSpecial(segment)) {
+            return SegmentKind.SPECIAL;
+        } else {
+            // Such segments are not equivalent to anything (not even to themselves).
+            return new UnmatchableKey();
+        }
+    }
+
+    /**
+     * Keys for segments other than names and non-null IDs. Variables and special segments are not distinguished
+     * further, as they are very rare in delta paths.
+     */
+    private enum SegmentKind {
+        NULL_ID, VARIABLE, SPECIAL
+    }
+
+    private static class UnmatchableKey implements Serializable {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @NotNull private final ItemDelta<?, ?> delta;
+        private final long sequence;
+        private Node node;
+
+        private Entry(@NotNull ItemDelta<?, ?> delta, long sequence) {
+            this.delta = delta;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class Node implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Node parent;
+        private final Object key;
+        private Map<Object, Node> children;
+        private List<Entry> entries;
+
+        private Node(Node parent, Object key) {
+            this.parent = parent;
+            this.key = key;
+        }
+
+        private Node getOrCreateChild(Object childKey) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(childKey, k -> new Node(this, k));
+        }
+
+        private void add(Entry entry) {
+            if (entries == null) {
+                entries = new ArrayList<>(1);
+            }
+            entries.add(entry);
+        }
+
+        private void remove(Entry entry) {
+            if (entries != null) {
+                entries.remove(entry);
+            }
+            // Prune nodes that are no longer needed
+            Node node = this;
+            while (node.parent != null && node.isEmpty()) {
+                node.parent.children.remove(node.key);
+                node = node.parent;
+            }
+        }
+
+        private boolean isEmpty() {
+            return (entries == null || entries.isEmpty()) && (children == null || children.isEmpty());
+        }
+
+        private void collectOwn(List<Entry> found) {
+            if (entries != null) {
+                found.addAll(entries);
+            }
+        }
+
+        private void collectDescendants(List<Entry> found) {
+            if (children != null) {
+                for (Node child : children.values()) {
+                    child.collectOwn(found);
+                    child.collectDescendants(found);
+                }
+            }
+        }
+    }
+}
@@ -346,7 +346,7 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
         if (valuesToAdd == null) {
             valuesToAdd = newValueCollection();
         }
-        if (!PrismValueCollectionsUtil.containsRealValue(valuesToAdd, newValue)) {
+        if (!containsRealValue(valuesToAdd, newValue)) {
             valuesToAdd.add(newValue);
             newValue.setParent(this);
             newValue.recompute();
@@ -371,11 +371,14 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
         if (set == null) {
             return false;
         }
+        if (set instanceof IndexedDeltaValues) {
+            return ((IndexedDeltaValues<V>) set).removeMatching(valueToRemove,
+                    existingValue -> isValueToRemove(existingValue, valueToRemove, toDelete));
+        }
         Iterator<V> valuesIterator = set.iterator();
         while (valuesIterator.hasNext()) {
             V existingValue = valuesIterator.next();
-            if (existingValue.equals(valueToRemove, EquivalenceStrategy.REAL_VALUE_CONSIDER_DIFFERENT_IDS)
-                    || toDelete && existingValue.representsSameValue(valueToRemove, false)) {        // the same algorithm as when deleting the item value
+            if (isValueToRemove(existingValue, valueToRemove, toDelete)) {
                 valuesIterator.remove();
                 removed = true;
             }
@@ -383,6 +386,20 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
         return removed;
     }
 
+    private boolean isValueToRemove(V existingValue, PrismValue valueToRemove, boolean toDelete) {
+        return existingValue.equals(valueToRemove, EquivalenceStrategy.REAL_VALUE_CONSIDER_DIFFERENT_IDS)
+                || toDelete && existingValue.representsSameValue(valueToRemove, false); // the same algorithm as when deleting the item value
+    }
+
+    private boolean containsRealValue(Collection<V> collection, V value) {
+        if (collection instanceof IndexedDeltaValues) {
+            return ((IndexedDeltaValues<V>) collection).containsMatching(value,
+                    colVal -> colVal.equals(value, EquivalenceStrategy.REAL_VALUE));
+        } else {
+            return PrismValueCollectionsUtil.containsRealValue(collection, value);
+        }
+    }
+
     public void mergeValuesToAdd(Collection<V> newValues) {
         checkMutable();
         if (newValues == null) {
@@ -406,7 +423,7 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
     public void mergeValueToAdd(V newValue) {
         checkMutable();
         if (valuesToReplace != null) {
-            if (!PrismValueCollectionsUtil.containsRealValue(valuesToReplace, newValue)) {
+            if (!containsRealValue(valuesToReplace, newValue)) {
                 valuesToReplace.add(newValue);
                 newValue.setParent(this);
             }
@@ -455,6 +472,10 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
         if (collection == null) {
             return false;
         }
+        if (collection instanceof IndexedDeltaValues) {
+            return ((IndexedDeltaValues<V>) collection).containsMatching(value,
+                    colVal -> isValueEquivalent(colVal, value, strategy));
+        }
         for (V colVal : collection) {
             if (isValueEquivalent(colVal, value, strategy)) {
                 return true;
@@ -636,7 +657,7 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
     }
 
     private Collection<V> newValueCollection() {
-        return new ArrayList<>();
+        return new IndexedDeltaValues<>();
     }
 
     public boolean isValueToAdd(V value) {
@@ -655,6 +676,9 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
         if (set == null) {
             return false;
         }
+        if (set instanceof IndexedDeltaValues) {
+            return ((IndexedDeltaValues<V>) set).containsMatching(value, myVal -> myVal.equals(value, DATA));
+        }
         for (V myVal : set) {
             if (myVal.equals(value, DATA)) {
                 return true;
@@ -760,7 +784,7 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
         if (estimatedOldValues == null) {
             estimatedOldValues = newValueCollection();
         }
-        if (PrismValueCollectionsUtil.containsRealValue(estimatedOldValues, newValue)) {
+        if (containsRealValue(estimatedOldValues, newValue)) {
             return;
         }
         estimatedOldValues.add(newValue);
@@ -939,7 +963,7 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
         validateSet(valuesToDelete, PlusMinusZero.MINUS, validator);
         if (isReplace()) {
             for (V val : getValuesToReplace()) {
-                if (PrismValueCollectionsUtil.containsRealValue(oldValues, val)) {
+                if (containsRealValue(oldValues, val)) {
                     validator.validate(PlusMinusZero.ZERO, val);
                 } else {
                     validator.validate(PlusMinusZero.PLUS, val);
@@ -947,7 +971,7 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
             }
             if (oldValues != null) {
                 for (V val : getValuesToReplace()) {
-                    if (!PrismValueCollectionsUtil.containsRealValue(getValuesToReplace(), val)) {
+                    if (!containsRealValue(getValuesToReplace(), val)) {
                         validator.validate(PlusMinusZero.MINUS, val);
                     }
                 }
@@ -56,8 +56,9 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
 
     /**
      * Set of relative property deltas. Valid only if changeType==MODIFY
+     * Indexed by item paths, so looking up a modification does not need to scan all of them.
      */
-    @NotNull private final Collection<? extends ItemDelta<?, ?>> modifications;
+    @NotNull private final IndexedModifications modifications;
 
     /**
      * Class of the object that we describe.
@@ -278,7 +279,7 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
             return deltas;
         } else if (changeType == ChangeType.MODIFY) {
             Collection<PartiallyResolvedDelta<IV, ID>> deltas = new ArrayList<>();
-            for (ItemDelta<?, ?> modification : modifications) {
+            for (ItemDelta<?, ?> modification : modifications.getCandidates(propertyPath, true, true, true)) {
                 CompareResult compareComplex = modification.getPath().compareComplex(propertyPath);
                 if (compareComplex == CompareResult.EQUIVALENT) {
                     deltas.add(new PartiallyResolvedDelta<>((ItemDelta<IV, ID>) modification, null));
@@ -313,7 +314,7 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
             Item item = objectToAdd.findItem(propertyPath, Item.class);
             return item != null;
         } else if (changeType == ChangeType.MODIFY) {
-            for (ItemDelta<?, ?> delta : getModifications()) {
+            for (ItemDelta<?, ?> delta : modifications.getCandidates(propertyPath, true, true, false)) {
                 CompareResult compare = delta.getPath().compareComplex(propertyPath);
                 if (compare == CompareResult.EQUIVALENT || compare == CompareResult.SUBPATH) {
                     return true;
@@ -391,7 +392,9 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
 
     private <D extends ItemDelta> D findModification(ItemPath propertyPath, Class<D> deltaType, boolean strict) {
         if (isModify()) {
-            return ItemDeltaCollectionsUtil.findItemDelta(modifications, propertyPath, deltaType, strict);
+            // Non-strict mode can return also a sub-delta of a container delta with a shorter path
+            return ItemDeltaCollectionsUtil.findItemDelta(
+                    modifications.getCandidates(propertyPath, !strict, true, false), propertyPath, deltaType, strict);
         } else if (isAdd()) {
             Item<PrismValue, ItemDefinition> item = getObjectToAdd().findItem(propertyPath);
             if (item == null) {
@@ -413,12 +416,19 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
      * Returns all item deltas at or below a specified path.
      */
     public Collection<? extends ItemDelta<?, ?>> findItemDeltasSubPath(ItemPath itemPath) {
-        return ItemDeltaCollectionsUtil.findItemDeltasSubPath(modifications, itemPath);
+        return ItemDeltaCollectionsUtil.findItemDeltasSubPath(
+                modifications.getCandidates(itemPath, false, false, true), itemPath);
     }
 
     private <D extends ItemDelta> void removeModification(ItemPath propertyPath, Class<D> deltaType) {
         checkMutable();
-        ItemDeltaCollectionsUtil.removeItemDelta(modifications, propertyPath, deltaType);
+        List<ItemDelta<?, ?>> toRemove = new ArrayList<>();
+        for (ItemDelta<?, ?> delta : modifications.getCandidates(propertyPath, false, true, false)) {
+            if (deltaType.isAssignableFrom(delta.getClass()) && delta.getPath().equivalent(propertyPath)) {
+                toRemove.add(delta);
+            }
+        }
+        modifications.removeAllIdentical(toRemove);
     }
 
     @Override
@@ -648,9 +658,8 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
         }
     }
 
-    private Collection<? extends ItemDelta<?, ?>> createEmptyModifications() {
-        // Lists are easier to debug
-        return new ArrayList<>();
+    private IndexedModifications createEmptyModifications() {
+        return new IndexedModifications();
     }
 
     public <X> PropertyDelta<X> createPropertyModification(ItemPath path) {
@@ -1306,12 +1315,12 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
         } else if (isDelete()) {
             return Collections.emptyList();
         } else {
-            ItemDelta itemDelta = ItemDeltaCollectionsUtil.findItemDelta(modifications, itemPath, ItemDelta.class, false);
+            ItemDelta itemDelta = findModification(itemPath, ItemDelta.class, false);
             if (itemDelta != null) {
                 if (itemDelta.getValuesToReplace() != null) {
-                    return (List<PrismValue>) itemDelta.getValuesToReplace();
+                    return new ArrayList<>(itemDelta.getValuesToReplace());
                 } else if (itemDelta.getValuesToAdd() != null) {
-                    return (List<PrismValue>) itemDelta.getValuesToAdd();
+                    return new ArrayList<>(itemDelta.getValuesToAdd());
                 } else {
                     return Collections.emptyList();
                 }
@@ -1336,10 +1345,10 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
         } else if (isDelete()) {
             return Collections.emptyList();
         } else {
-            ItemDelta itemDelta = ItemDeltaCollectionsUtil.findItemDelta(modifications, itemPath, ItemDelta.class, false);
+            ItemDelta itemDelta = findModification(itemPath, ItemDelta.class, false);
             if (itemDelta != null) {
                 if (itemDelta.getValuesToDelete() != null) {
-                    return (List<PrismValue>) itemDelta.getValuesToDelete();
+                    return new ArrayList<>(itemDelta.getValuesToDelete());
                 } else {
                     return Collections.emptyList();
                 }
@@ -95,6 +95,15 @@ public class LexicalProcessorRegistry {
         return (LexicalProcessor<T>) lexicalProcessor;
     }
 
+    @NotNull
+    public TextLexicalProcessor textProcessorFor(String language) {
+        LexicalProcessor<?> lexicalProcessor = processorFor(language);
+        if (!(lexicalProcessor instanceof TextLexicalProcessor)) {
+            throw new SystemException("No text lexical processor for language '" + language + "'");
+        }
+        return (TextLexicalProcessor) lexicalProcessor;
+    }
+
     @NotNull
     public LexicalProcessor<?> findProcessor(@NotNull ParserSource source) throws IOException {
         if (source instanceof ParserXNodeSource) {
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.ParsingContext;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeImpl;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.util.QNameUtil;
+
+/**
+ * Selection of items to be read by lexical processors, derived from included and excluded paths
+ * in the parsing context (see {@link ParsingContext#getIncludedPaths()}).
+ *
+ * Each instance corresponds to a position in the tree being read (i.e. to a map/object) and tells which
+ * of its children are to be read, and with what projection. Values of a list share the projection of the list.
+ *
+ * Infrastructure children (OID, version, container ID) are always read.
+ */
+public class LexicalProjection {
+
+    /** Selects everything. */
+    public static final LexicalProjection ALL = new LexicalProjection();
+
+    private static final List<QName> ALWAYS_SELECTED =
+            List.of(XNodeImpl.KEY_OID, XNodeImpl.KEY_VERSION, XNodeImpl.KEY_CONTAINER_ID);
+
+    /** Children mentioned explicitly. Null value means the child is excluded. */
+    private final Map<QName, LexicalProjection> children = new LinkedHashMap<>();
+
+    /** Projection for children that are not mentioned explicitly. Null means they are skipped. */
+    private LexicalProjection others;
+
+    private LexicalProjection() {
+        this.others = this;
+    }
+
+    private LexicalProjection(LexicalProjection others) {
+        this.others = others;
+    }
+
+    @NotNull
+    public static LexicalProjection create(@NotNull ParsingContext parsingContext) {
+        return create(parsingContext.getIncludedPaths(), parsingContext.getExcludedPaths());
+    }
+
+    @NotNull
+    public static LexicalProjection create(@NotNull Collection<ItemPath> includedPaths,
+            @NotNull Collection<ItemPath> excludedPaths) {
+        if (includedPaths.isEmpty() && excludedPaths.isEmpty()) {
+            return ALL;
+        }
+        LexicalProjection root = new LexicalProjection(includedPaths.isEmpty() ? ALL : null);
+        for (ItemPath path : includedPaths) {
+            root.include(names(path), 0);
+        }
+        for (ItemPath path : excludedPaths) {
+            root.exclude(names(path), 0);
+        }
+        return root;
+    }
+
+    /**
+     * Returns projection for a structure that wraps the value with this projection under any name,
+     * e.g. JSON/YAML root object containing the (single) root element.
+     */
+    @NotNull
+    public LexicalProjection wrapped() {
+        return this == ALL ? ALL : new LexicalProjection(this);
+    }
+
+    /**
+     * Returns projection for given child, or null if the child is to be skipped.
+     */
+    @Nullable
+    public LexicalProjection select(@NotNull QName childName) {
+        if (this == ALL) {
+            return ALL;
+        }
+        for (Map.Entry<QName, LexicalProjection> entry : children.entrySet()) {
+            if (QNameUtil.match(childName, entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        for (QName alwaysSelected : ALWAYS_SELECTED) {
+            if (QNameUtil.match(childName, alwaysSelected)) {
+                return ALL;
+            }
+        }
+        return others;
+    }
+
+    private void include(List<QName> names, int index) {
+        if (names.isEmpty()) {
+            children.clear();
+            others = ALL;
+            return;
+        }
+        QName name = names.get(index);
+        QName key = findKey(name);
+        if (index == names.size() - 1) {
+            children.remove(key);
+            children.put(name, ALL);
+            return;
+        }
+        LexicalProjection child = key != null ? children.get(key) : null;
+        if (child == ALL) {
+            return; // already included as a whole
+        }
+        if (child == null) {
+            child = new LexicalProjection(null);
+            children.put(name, child);
+        }
+        child.include(names, index + 1);
+    }
+
+    private void exclude(List<QName> names, int index) {
+        if (names.isEmpty()) {
+            children.clear();
+            others = null;
+            return;
+        }
+        QName name = names.get(index);
+        QName key = findKey(name);
+        if (index == names.size() - 1) {
+            children.remove(key);
+            children.put(name, null);
+            return;
+        }
+        LexicalProjection current = key != null ? children.get(key) : others;
+        if (current == null) {
+            return; // not selected anyway
+        }
+        LexicalProjection refined = current == ALL ? new LexicalProjection(ALL) : current;
+        if (key == null || refined != current) {
+            children.remove(key);
+            children.put(key != null ? key : name, refined);
+        }
+        refined.exclude(names, index + 1);
+    }
+
+    private QName findKey(QName name) {
+        for (QName key : children.keySet()) {
+            if (QNameUtil.match(name, key)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Container IDs are ignored, as values cannot be selected at the lexical level.
+     */
+    private static List<QName> names(ItemPath path) {
+        List<QName> names = new ArrayList<>();
+        for (Object segment : path.getSegments()) {
+            if (ItemPath.isName(segment)) {
+                names.add(ItemPath.toName(segment));
+            } else if (!ItemPath.isId(segment)) {
+                throw new IllegalArgumentException("Only names and container IDs are supported in projection paths: " + path);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        if (this == ALL) {
+            return "ALL";
+        }
+        return "LexicalProjection{children=" + children + ", others=" + (others == ALL ? "ALL" : others) + "}";
+    }
+}
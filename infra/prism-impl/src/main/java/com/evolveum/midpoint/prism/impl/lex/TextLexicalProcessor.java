@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.xnode.RootXNode;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Lexical processor with textual representation (XML, JSON, YAML) that can be written directly to a {@link Writer},
+ * i.e. without building the whole string in memory.
+ */
+public interface TextLexicalProcessor extends LexicalProcessor<String> {
+
+    /**
+     * Serializes a root node directly to given writer. The writer is flushed but not closed.
+     */
+    void write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext, @NotNull Writer out)
+            throws SchemaException, IOException;
+
+    /**
+     * Serializes a list of objects directly to given writer. The writer is flushed but not closed.
+     */
+    void write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context, @NotNull Writer out)
+            throws SchemaException, IOException;
+
+    /**
+     * Creates a writer that serializes objects to given writer one by one. The output is the same as
+     * if {@link #write(List, SerializationContext, Writer)} were called for all of them.
+     */
+    @NotNull
+    ObjectsWriter objectsWriter(@Nullable SerializationContext context, @NotNull Writer out) throws SchemaException, IOException;
+
+    /**
+     * Incremental writer of objects. Only one object is kept in memory at any time.
+     */
+    interface ObjectsWriter extends AutoCloseable {
+
+        /**
+         * Writes the object and flushes the output.
+         */
+        void write(@NotNull RootXNodeImpl root) throws SchemaException, IOException;
+
+        /**
+         * Finishes the output. The underlying writer is flushed but not closed.
+         */
+        @Override
+        void close() throws SchemaException, IOException;
+    }
+}
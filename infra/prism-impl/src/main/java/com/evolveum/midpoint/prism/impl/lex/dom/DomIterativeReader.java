@@ -20,32 +20,39 @@ import javax.xml.stream.XMLStreamReader;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
 
 import org.apache.commons.io.IOUtils;
-import org.codehaus.staxmate.dom.DOMConverter;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.apache.commons.lang3.StringUtils;
 
 import com.evolveum.midpoint.prism.ParserSource;
-import com.evolveum.midpoint.prism.PrismNamespaceContext;
 import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProjection;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
-import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SystemException;
 
 /**
+ * Reads objects one by one from the StAX stream, passing them to the handler.
  *
+ * The objects are read directly into XNode trees (see {@link StaxReader}); no DOM is built for them.
  */
 class DomIterativeReader {
 
+    /**
+     * The factory is thread-safe once configured, so there is no need to create it for each parsing.
+     */
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXMLInputFactory();
+
     private final ParserSource source;
     private final LexicalProcessor.RootXNodeHandler handler;
     private final SchemaRegistry schemaRegistry;
+    private final LexicalProjection projection;
 
-    DomIterativeReader(ParserSource source, LexicalProcessor.RootXNodeHandler handler, SchemaRegistry schemaRegistry) {
+    DomIterativeReader(ParserSource source, LexicalProcessor.RootXNodeHandler handler, SchemaRegistry schemaRegistry,
+            LexicalProjection projection) {
         this.source = source;
         this.handler = handler;
         this.schemaRegistry = schemaRegistry;
+        this.projection = projection;
     }
 
     // code taken from Validator class
@@ -53,26 +60,28 @@ class DomIterativeReader {
         InputStream is = source.getInputStream();
         XMLStreamReader stream = null;
         try {
-            stream = getXMLInputFactory().createXMLStreamReader(is);
+            stream = XML_INPUT_FACTORY.createXMLStreamReader(is);
 
             int eventType = stream.nextTag();
             if (eventType != XMLStreamConstants.START_ELEMENT) {
                 throw new SystemException("StAX Malfunction?");
             }
-            DOMConverter domConverter = new DOMConverter();
+            StaxReader reader = new StaxReader(stream, schemaRegistry, projection);
             Map<String, String> rootNamespaceDeclarations = new HashMap<>();
 
             QName objectsMarker = schemaRegistry.getPrismContext().getObjectsElementName();
             if (objectsMarker != null && !QNameUtil.match(stream.getName(), objectsMarker)) {
-                readSingleObjectIteratively(stream, rootNamespaceDeclarations, domConverter, handler);
+                readSingleObjectIteratively(reader, rootNamespaceDeclarations, handler);
             }
             for (int i = 0; i < stream.getNamespaceCount(); i++) {
-                rootNamespaceDeclarations.put(stream.getNamespacePrefix(i), stream.getNamespaceURI(i));
+                rootNamespaceDeclarations.put(
+                        StringUtils.defaultString(stream.getNamespacePrefix(i)),
+                        StringUtils.defaultString(stream.getNamespaceURI(i)));
             }
             while (stream.hasNext()) {
                 eventType = stream.next();
                 if (eventType == XMLStreamConstants.START_ELEMENT) {
-                    if (!readSingleObjectIteratively(stream, rootNamespaceDeclarations, domConverter, handler)) {
+                    if (!readSingleObjectIteratively(reader, rootNamespaceDeclarations, handler)) {
                         return;
                     }
                 }
@@ -92,21 +101,17 @@ class DomIterativeReader {
     }
 
     private boolean readSingleObjectIteratively(
-            XMLStreamReader stream, Map<String, String> rootNamespaceDeclarations,
-            DOMConverter domConverter, LexicalProcessor.RootXNodeHandler handler)
+            StaxReader reader, Map<String, String> rootNamespaceDeclarations,
+            LexicalProcessor.RootXNodeHandler handler)
             throws XMLStreamException, SchemaException {
-        Document objectDoc = domConverter.buildDocument(stream);
-        Element objectElement = DOMUtil.getFirstChildElement(objectDoc);
-        DOMUtil.setNamespaceDeclarations(objectElement, rootNamespaceDeclarations);
-        RootXNodeImpl rootNode = new DomReader(objectElement, schemaRegistry, PrismNamespaceContext.EMPTY).read();
+        RootXNodeImpl rootNode = reader.read(rootNamespaceDeclarations);
         return handler.handleData(rootNode);
     }
 
-    private XMLInputFactory getXMLInputFactory() {
+    private static XMLInputFactory createXMLInputFactory() {
         XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
         xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
         xmlInputFactory.setProperty("javax.xml.stream.isSupportingExternalEntities", false);
-        // TODO: cache? static? prism context?
         return xmlInputFactory;
     }
 }
@@ -9,6 +9,7 @@ package com.evolveum.midpoint.prism.impl.lex.dom;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.util.*;
 import java.util.regex.Pattern;
 import javax.xml.namespace.QName;
@@ -23,7 +24,8 @@ import org.w3c.dom.Element;
 
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.impl.ParserElementSource;
-import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.TextLexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProjection;
 import com.evolveum.midpoint.prism.impl.lex.LexicalUtils;
 import com.evolveum.midpoint.prism.impl.xnode.*;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
@@ -34,7 +36,7 @@ import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 
-public class DomLexicalProcessor implements LexicalProcessor<String> {
+public class DomLexicalProcessor implements TextLexicalProcessor {
 
     public static final Trace LOGGER = TraceManager.getTrace(DomLexicalProcessor.class);
 
@@ -49,12 +51,13 @@ public class DomLexicalProcessor implements LexicalProcessor<String> {
     public RootXNodeImpl read(@NotNull ParserSource source, @NotNull ParsingContext parsingContext) throws SchemaException, IOException {
         if (source instanceof ParserElementSource) {
             Element root = ((ParserElementSource) source).getElement();
-            return new DomReader(root, schemaRegistry, PrismNamespaceContext.EMPTY).read();
+            return new DomReader(root, schemaRegistry, PrismNamespaceContext.EMPTY, LexicalProjection.create(parsingContext))
+                    .read();
         } else {
             InputStream is = source.getInputStream();
             try {
                 Document document = DOMUtil.parse(is);
-                return new DomReader(document, schemaRegistry).read();
+                return new DomReader(document, schemaRegistry, LexicalProjection.create(parsingContext)).read();
             } finally {
                 if (source.closeStreamAfterParsing()) {
                     IOUtils.closeQuietly(is);
@@ -69,7 +72,7 @@ public class DomLexicalProcessor implements LexicalProcessor<String> {
         InputStream is = source.getInputStream();
         try {
             Document document = DOMUtil.parse(is);
-            return new DomReader(document, schemaRegistry).readObjects();
+            return new DomReader(document, schemaRegistry, LexicalProjection.create(parsingContext)).readObjects();
         } finally {
             if (source.closeStreamAfterParsing()) {
                 IOUtils.closeQuietly(is);
@@ -81,7 +84,7 @@ public class DomLexicalProcessor implements LexicalProcessor<String> {
     public void readObjectsIteratively(@NotNull ParserSource source,
             @NotNull ParsingContext parsingContext, RootXNodeHandler handler)
             throws SchemaException, IOException {
-        new DomIterativeReader(source, handler, schemaRegistry)
+        new DomIterativeReader(source, handler, schemaRegistry, LexicalProjection.create(parsingContext))
                 .readObjectsIteratively();
     }
 
@@ -125,6 +128,33 @@ public class DomLexicalProcessor implements LexicalProcessor<String> {
         return DOMUtil.serializeDOMToString(element);
     }
 
+    @Override
+    public void write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext, @NotNull Writer out)
+            throws SchemaException, IOException {
+        Element element =
+                new DomWriter(schemaRegistry, serializationContext)
+                        .writeRoot(xnode);
+        DOMUtil.serializeDOM(element, out);
+        out.flush();
+    }
+
+    @Override
+    public void write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context, @NotNull Writer out)
+            throws SchemaException, IOException {
+        // Written object by object, so the DOM of the whole list is not built.
+        try (ObjectsWriter objectsWriter = objectsWriter(context, out)) {
+            for (RootXNodeImpl root : roots) {
+                objectsWriter.write(root);
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    public ObjectsWriter objectsWriter(@Nullable SerializationContext context, @NotNull Writer out) throws IOException {
+        return new DomObjectsWriter(schemaRegistry, context, out);
+    }
+
     @NotNull
     public Element writeXRootListToElement(@NotNull List<RootXNodeImpl> roots) throws SchemaException {
         return new DomWriter(schemaRegistry, null)
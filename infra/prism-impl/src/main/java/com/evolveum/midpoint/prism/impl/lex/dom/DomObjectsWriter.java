@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.impl.lex.dom;
+
+import java.io.IOException;
+import java.io.Writer;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Element;
+
+import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.TextLexicalProcessor;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.schema.SchemaRegistry;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Writes objects to XML one by one, wrapped in the "objects" element.
+ *
+ * The wrapping element is written using StAX; objects are written as individual DOM fragments, so only the DOM
+ * of the object being written is kept in memory. Unlike {@link DomWriter#writeRoots(java.util.List)}, each object
+ * carries its own namespace declarations; the result is equivalent but not textually identical.
+ */
+class DomObjectsWriter implements TextLexicalProcessor.ObjectsWriter {
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    @NotNull private final SchemaRegistry schemaRegistry;
+    @Nullable private final SerializationContext context;
+    @NotNull private final Writer out;
+    @NotNull private final XMLStreamWriter xmlWriter;
+
+    DomObjectsWriter(@NotNull SchemaRegistry schemaRegistry, @Nullable SerializationContext context, @NotNull Writer out)
+            throws IOException {
+        this.schemaRegistry = schemaRegistry;
+        this.context = context;
+        this.out = out;
+
+        Element aggregateElement = new DomWriter(schemaRegistry, context).createObjectsElement();
+        String prefix = StringUtils.defaultString(aggregateElement.getPrefix());
+        String namespace = StringUtils.defaultString(aggregateElement.getNamespaceURI());
+        try {
+            xmlWriter = XML_OUTPUT_FACTORY.createXMLStreamWriter(out);
+            xmlWriter.writeStartElement(prefix, aggregateElement.getLocalName(), namespace);
+            if (!namespace.isEmpty()) {
+                if (prefix.isEmpty()) {
+                    xmlWriter.writeDefaultNamespace(namespace);
+                } else {
+                    xmlWriter.writeNamespace(prefix, namespace);
+                }
+            }
+            writeNewLine(); // this also closes the start tag, so objects can be written directly to the output
+        } catch (XMLStreamException e) {
+            throw new IOException("Couldn't write the start of objects element: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void write(@NotNull RootXNodeImpl root) throws SchemaException, IOException {
+        Element element = new DomWriter(schemaRegistry, context).writeRoot(root);
+        DOMUtil.serializeDOM(element, out);
+        try {
+            writeNewLine();
+        } catch (XMLStreamException e) {
+            throw new IOException("Couldn't write objects: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xmlWriter.writeEndElement();
+            writeNewLine();
+            xmlWriter.close(); // does not close the underlying writer
+        } catch (XMLStreamException e) {
+            throw new IOException("Couldn't write the end of objects element: " + e.getMessage(), e);
+        }
+        out.flush();
+    }
+
+    private void writeNewLine() throws XMLStreamException {
+        xmlWriter.writeCharacters("\n");
+        xmlWriter.flush();
+    }
+}
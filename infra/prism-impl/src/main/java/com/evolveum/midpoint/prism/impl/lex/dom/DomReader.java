@@ -10,6 +10,7 @@ package com.evolveum.midpoint.prism.impl.lex.dom;
 import com.evolveum.midpoint.prism.ItemDefinition;
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.PrismNamespaceContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProjection;
 import com.evolveum.midpoint.prism.impl.xnode.*;
 
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
@@ -43,7 +44,7 @@ class DomReader {
 
     public static final Trace LOGGER = TraceManager.getTrace(DomLexicalProcessor.class);
 
-    private static final QName SCHEMA_ELEMENT_QNAME = DOMUtil.XSD_SCHEMA_ELEMENT;
+    static final QName SCHEMA_ELEMENT_QNAME = DOMUtil.XSD_SCHEMA_ELEMENT;
     static final String VALUE_LOCAL_PART = "_value";
     static final String METADATA_LOCAL_PART = "_metadata";
 
@@ -52,12 +53,15 @@ class DomReader {
     private final SchemaRegistry schemaRegistry;
     private final XNodeDefinition.Root schema;
     private final PrismNamespaceContext rootContext;
+    @NotNull private final LexicalProjection projection;
 
     @NotNull private final QName valueElementName;
     @NotNull private final QName metadataElementName;
 
-    DomReader(@NotNull Element root, SchemaRegistry schemaRegistry, PrismNamespaceContext rootContext) {
+    DomReader(@NotNull Element root, SchemaRegistry schemaRegistry, PrismNamespaceContext rootContext,
+            @NotNull LexicalProjection projection) {
         this.root = root;
+        this.projection = projection;
         this.rootElementName = DOMUtil.getQName(root);
         this.schemaRegistry = schemaRegistry;
         this.valueElementName = new QName(schemaRegistry.getDefaultNamespace(), VALUE_LOCAL_PART);
@@ -66,12 +70,8 @@ class DomReader {
         this.schema = XNodeDefinition.root(schemaRegistry);
     }
 
-    DomReader(Document document, SchemaRegistry schemaRegistry) {
-        this(document, schemaRegistry, PrismNamespaceContext.EMPTY);
-    }
-
-    DomReader(Document document, SchemaRegistry schemaRegistry, PrismNamespaceContext nsContext) {
-        this(DOMUtil.getFirstChildElement(document), schemaRegistry, nsContext);
+    DomReader(Document document, SchemaRegistry schemaRegistry, @NotNull LexicalProjection projection) {
+        this(DOMUtil.getFirstChildElement(document), schemaRegistry, PrismNamespaceContext.EMPTY, projection);
     }
 
     @NotNull
@@ -82,7 +82,7 @@ class DomReader {
             List<RootXNodeImpl> rv = new ArrayList<>();
             PrismNamespaceContext context = rootContext.childContext(DOMUtil.getNamespaceDeclarationsNonNull(root));
             for (Element child : DOMUtil.listChildElements(root)) {
-                rv.add(new DomReader(child, schemaRegistry, context.inherited()).read());
+                rv.add(new DomReader(child, schemaRegistry, context.inherited(), projection).read());
             }
             return rv;
         }
@@ -90,7 +90,7 @@ class DomReader {
 
     @NotNull RootXNodeImpl read() throws SchemaException {
         RootXNodeImpl xroot = new RootXNodeImpl(rootElementName, rootContext);
-        XNodeImpl xnode = readElementContent(root, null, schema, rootContext, false);
+        XNodeImpl xnode = readElementContent(root, null, schema, rootContext, false, projection);
         xroot.setSubnode(xnode);
         return xroot;
     }
@@ -105,9 +105,11 @@ class DomReader {
      *
      * @param knownElementName Pre-fetched element name. Might be null (this is expected if storeElementName is true).
      * @param parentContext
+     * @param projection Projection of the element content.
      */
     @NotNull
-    private XNodeImpl readElementContent(@NotNull Element element, @Nullable XNodeDefinition itemDef, @NotNull XNodeDefinition parentDef, PrismNamespaceContext parentContext, boolean storeElementName) throws SchemaException {
+    private XNodeImpl readElementContent(@NotNull Element element, @Nullable XNodeDefinition itemDef, @NotNull XNodeDefinition parentDef, PrismNamespaceContext parentContext, boolean storeElementName,
+            @NotNull LexicalProjection projection) throws SchemaException {
         XNodeImpl node;
         // If definition is not resolved already, resolve it
         itemDef = itemDef != null ? itemDef : parentDef.child(DOMUtil.getQName(element));
@@ -124,12 +126,12 @@ class DomReader {
 
         Element valueChild = DOMUtil.getMatchingChildElement(element, valueElementName);
         if (valueChild != null) {
-            node = readElementContent(valueChild, itemDef.valueDef(), parentDef, localNsCtx, false);
+            node = readElementContent(valueChild, itemDef.valueDef(), parentDef, localNsCtx, false, projection);
         } else if (DOMUtil.hasChildElements(element) || DOMUtil.hasApplicationAttributes(element)) {
             if (isList(element, itemDef, xsiType)) {
-                node = readElementContentToList(element, itemDef, localNsCtx);
+                node = readElementContentToList(element, itemDef, localNsCtx, projection);
             } else {
-                node = readElementContentToMap(element, itemDef, localNsCtx);
+                node = readElementContentToMap(element, itemDef, localNsCtx, projection);
             }
         } else if (DOMUtil.isMarkedAsIncomplete(element)) {
             // Note that it is of no use to check for "incomplete" on non-leaf elements. In XML the incomplete attribute
@@ -148,7 +150,8 @@ class DomReader {
     private void readMetadata(@NotNull Element element, XNodeImpl node, PrismNamespaceContext parentNsContext) throws SchemaException {
         List<Element> metadataChildren = DOMUtil.getMatchingChildElements(element, metadataElementName);
         for (Element metadataChild : metadataChildren) {
-            XNodeImpl metadata = readElementContent(metadataChild, schema.metadataDef(), schema, parentNsContext, false);
+            XNodeImpl metadata = readElementContent(metadataChild, schema.metadataDef(), schema, parentNsContext, false,
+                    LexicalProjection.ALL);
             if (metadata instanceof MapXNode) {
                 if (node instanceof MetadataAware) {
                     ((MetadataAware) node).addMetadataNode((MapXNode) metadata);
@@ -166,12 +169,12 @@ class DomReader {
                 PrismConstants.A_MAX_OCCURS.getNamespaceURI(),
                 PrismConstants.A_MAX_OCCURS.getLocalPart());
         if (!StringUtils.isBlank(maxOccursString)) {
-            int maxOccurs = parseMultiplicity(maxOccursString, element);
+            int maxOccurs = parseMultiplicity(maxOccursString, DOMUtil.getQName(element));
             xnode.setMaxOccurs(maxOccurs);
         }
     }
 
-    private int parseMultiplicity(String maxOccursString, Element element) throws SchemaException {
+    static int parseMultiplicity(String maxOccursString, QName elementName) throws SchemaException {
         if (PrismConstants.MULTIPLICITY_UNBOUNDED.equals(maxOccursString)) {
             return -1;
         }
@@ -182,7 +185,7 @@ class DomReader {
             return Integer.parseInt(maxOccursString);
         } else {
             throw new SchemaException("Expected numeric value for " + PrismConstants.A_MAX_OCCURS.getLocalPart()
-                    + " attribute on " + DOMUtil.getQName(element) + " but got " + maxOccursString);
+                    + " attribute on " + elementName + " but got " + maxOccursString);
         }
     }
 
@@ -197,14 +200,16 @@ class DomReader {
     }
 
     // all the sub-elements should be compatible (this is not enforced here, however)
-    private ListXNodeImpl readElementContentToList(Element element, XNodeDefinition parentDef, PrismNamespaceContext parentNsContext) throws SchemaException {
+    private ListXNodeImpl readElementContentToList(Element element, XNodeDefinition parentDef, PrismNamespaceContext parentNsContext,
+            LexicalProjection projection) throws SchemaException {
         if (DOMUtil.hasApplicationAttributes(element)) {
             throw new SchemaException("List should have no application attributes: " + element);
         }
-        return parseElementList(DOMUtil.listChildElements(element), null, parentDef, parentNsContext, true);
+        return parseElementList(DOMUtil.listChildElements(element), null, parentDef, parentNsContext, true, projection);
     }
 
-    private MapXNodeImpl readElementContentToMap(Element element, @NotNull XNodeDefinition parentDef, PrismNamespaceContext localNsContext) throws SchemaException {
+    private MapXNodeImpl readElementContentToMap(Element element, @NotNull XNodeDefinition parentDef, PrismNamespaceContext localNsContext,
+            @NotNull LexicalProjection projection) throws SchemaException {
         MapXNodeImpl xmap = new MapXNodeImpl(localNsContext);
 
         // Attributes
@@ -223,13 +228,13 @@ class DomReader {
                 continue;
             }
             if (!match(childName, lastName)) {
-                parseSubElementsGroupAsMapEntry(xmap, lastElements, lastName, parentDef, localNsContext);
+                parseSubElementsGroupAsMapEntry(xmap, lastElements, lastName, parentDef, localNsContext, projection);
                 lastName = childName;
                 lastElements = new ArrayList<>();
             }
             lastElements.add(childElement);
         }
-        parseSubElementsGroupAsMapEntry(xmap, lastElements, lastName, parentDef, localNsContext);
+        parseSubElementsGroupAsMapEntry(xmap, lastElements, lastName, parentDef, localNsContext, projection);
         return xmap;
     }
 
@@ -253,13 +258,17 @@ class DomReader {
             return false;        // TODO - or should we fail in this case?
         }
         //System.out.println("Elements are compatible: " + DOMUtil.listChildElements(element) + ": " + rv);
-        return elementsAreCompatible(DOMUtil.listChildElements(element));
+        List<QName> childNames = new ArrayList<>();
+        for (Element child : DOMUtil.listChildElements(element)) {
+            childNames.add(DOMUtil.getQName(child));
+        }
+        return elementsAreCompatible(childNames, schemaRegistry);
     }
 
-    private boolean elementsAreCompatible(List<Element> elements) {
+    static boolean elementsAreCompatible(List<QName> elementNames, SchemaRegistry schemaRegistry) {
         QName unified = null;
-        for (Element element : elements) {
-            QName root = getHierarchyRoot(DOMUtil.getQName(element));
+        for (QName elementName : elementNames) {
+            QName root = getHierarchyRoot(elementName, schemaRegistry);
             if (unified == null) {
                 unified = root;
             } else if (!QNameUtil.match(unified, root)) {
@@ -271,7 +280,7 @@ class DomReader {
         return true;
     }
 
-    private QName getHierarchyRoot(QName name) {
+    private static QName getHierarchyRoot(QName name, SchemaRegistry schemaRegistry) {
         ItemDefinition<?> def = schemaRegistry.findItemDefinitionByElementName(name);
         if (def == null || !def.isHeterogeneousListItem()) {
             return name;
@@ -289,12 +298,17 @@ class DomReader {
     }
 
     // All elements share the same elementName
-    private void parseSubElementsGroupAsMapEntry(MapXNodeImpl xmap, List<Element> elements, QName itemName, @NotNull XNodeDefinition parentDef, PrismNamespaceContext parentNsContext) throws SchemaException {
+    private void parseSubElementsGroupAsMapEntry(MapXNodeImpl xmap, List<Element> elements, QName itemName, @NotNull XNodeDefinition parentDef, PrismNamespaceContext parentNsContext,
+            @NotNull LexicalProjection parentProjection) throws SchemaException {
         if (elements == null || elements.isEmpty()) {
             return;
         }
         XNodeImpl xsub;
         XNodeDefinition itemDef = parentDef.child(itemName);
+        LexicalProjection projection = parentProjection.select(itemDef.getName());
+        if (projection == null) {
+            return;
+        }
 
         // We really want to have equals here, not match
         // we want to be very explicit about namespace here
@@ -305,9 +319,9 @@ class DomReader {
                 throw new SchemaException("Too many schema elements");
             }
         } else if (elements.size() == 1) {
-            xsub = readElementContent(elements.get(0), itemDef, parentDef, parentNsContext, false);
+            xsub = readElementContent(elements.get(0), itemDef, parentDef, parentNsContext, false, projection);
         } else {
-            xsub = parseElementList(elements, itemDef, parentDef, parentNsContext, false);
+            xsub = parseElementList(elements, itemDef, parentDef, parentNsContext, false, projection);
         }
         xmap.merge(itemDef.getName(), xsub);
     }
@@ -320,14 +334,15 @@ class DomReader {
      * @param parentDef
      */
     @NotNull
-    @Contract("!null, null, false -> fail")
-    private ListXNodeImpl parseElementList(List<Element> elements, @Nullable XNodeDefinition itemDef, @NotNull XNodeDefinition parentDef, PrismNamespaceContext parentNsContext, boolean storeElementNames) throws SchemaException {
+    @Contract("!null, null, false, _ -> fail")
+    private ListXNodeImpl parseElementList(List<Element> elements, @Nullable XNodeDefinition itemDef, @NotNull XNodeDefinition parentDef, PrismNamespaceContext parentNsContext, boolean storeElementNames,
+            @NotNull LexicalProjection projection) throws SchemaException {
         if (!storeElementNames && itemDef == null) {
             throw new IllegalArgumentException("When !storeElementNames the element name must be specified");
         }
         ListXNodeImpl xlist = new ListXNodeImpl(parentNsContext);
         for (Element element : elements) {
-            xlist.add(readElementContent(element, itemDef, parentDef, parentNsContext, storeElementNames));
+            xlist.add(readElementContent(element, itemDef, parentDef, parentNsContext, storeElementNames, projection));
         }
         return xlist;
     }
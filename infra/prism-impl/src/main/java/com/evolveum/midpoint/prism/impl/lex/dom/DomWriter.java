@@ -72,17 +72,25 @@ class DomWriter {
     }
 
     Element writeRoots(@NotNull List<RootXNodeImpl> roots) throws SchemaException {
-        QName aggregateElementName = schemaRegistry.getPrismContext().getObjectsElementName();
-        if (aggregateElementName == null) {
-            throw new IllegalStateException("Couldn't serialize list of objects because the aggregated element name is not set");
-        }
-        Element aggregateElement = createElement(aggregateElementName, null);
+        Element aggregateElement = createObjectsElement();
         for (RootXNodeImpl root : roots) {
             writeRootInternal(root, aggregateElement);
         }
         return aggregateElement;
     }
 
+    /**
+     * Creates an empty element that aggregates a list of objects.
+     */
+    @NotNull
+    Element createObjectsElement() {
+        QName aggregateElementName = schemaRegistry.getPrismContext().getObjectsElementName();
+        if (aggregateElementName == null) {
+            throw new IllegalStateException("Couldn't serialize list of objects because the aggregated element name is not set");
+        }
+        return createElement(aggregateElementName, null);
+    }
+
     /**
      * Seems to be used in strange circumstances (called from various hacks).
      * To be reconsidered eventually. Avoid using in new code.
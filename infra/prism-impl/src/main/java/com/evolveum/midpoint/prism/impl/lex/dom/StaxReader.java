@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.dom;
+
+import java.util.*;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.staxmate.dom.DOMConverter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismNamespaceContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProjection;
+import com.evolveum.midpoint.prism.impl.xnode.*;
+import com.evolveum.midpoint.prism.schema.SchemaRegistry;
+import com.evolveum.midpoint.prism.xnode.MapXNode;
+import com.evolveum.midpoint.prism.xnode.MetadataAware;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Reads XNode trees directly from StAX stream, i.e. without building intermediate DOM for each object.
+ *
+ * Follows the rules of {@link DomReader}. The differences are:
+ *
+ * 1. The decision whether an element is a list or a map is done after all its children are read.
+ * So the children are parsed first (using the definitions derived from the parent one, just like DomReader does)
+ * and assembled into map or list afterwards.
+ *
+ * 2. Metadata elements (`_metadata`) are never treated as list items.
+ *
+ * 3. XSD schema elements are recognized by their name when encountered; only they are converted to DOM.
+ *
+ * Elements that are not selected by the {@link LexicalProjection} are skipped in the stream. As children are read
+ * before the map/list decision, the projection is applied only to children of elements that are known to be maps
+ * upfront (from `list` attribute or the schema); this is the case for objects and almost all containers.
+ */
+class StaxReader {
+
+    @NotNull private final XMLStreamReader stream;
+    @NotNull private final SchemaRegistry schemaRegistry;
+    @NotNull private final XNodeDefinition.Root schema;
+    @NotNull private final LexicalProjection projection;
+
+    @NotNull private final QName valueElementName;
+    @NotNull private final QName metadataElementName;
+
+    private DOMConverter domConverter;
+
+    StaxReader(@NotNull XMLStreamReader stream, @NotNull SchemaRegistry schemaRegistry,
+            @NotNull LexicalProjection projection) {
+        this.stream = stream;
+        this.projection = projection;
+        this.schemaRegistry = schemaRegistry;
+        this.schema = XNodeDefinition.root(schemaRegistry);
+        this.valueElementName = new QName(schemaRegistry.getDefaultNamespace(), DomReader.VALUE_LOCAL_PART);
+        this.metadataElementName = new QName(schemaRegistry.getDefaultNamespace(), DomReader.METADATA_LOCAL_PART);
+    }
+
+    /**
+     * Reads the element the stream is positioned at (START_ELEMENT). When finished, the stream is positioned
+     * at the corresponding END_ELEMENT.
+     *
+     * @param inheritedNamespaces Namespace declarations of the enclosing (e.g. objects) element. Declarations
+     * on the element itself take precedence.
+     */
+    @NotNull
+    RootXNodeImpl read(@NotNull Map<String, String> inheritedNamespaces) throws XMLStreamException, SchemaException {
+        RootXNodeImpl xroot = new RootXNodeImpl(stream.getName(), PrismNamespaceContext.EMPTY);
+        XNodeImpl xnode = readElement(null, schema, PrismNamespaceContext.EMPTY, inheritedNamespaces, projection).node;
+        xroot.setSubnode(xnode);
+        return xroot;
+    }
+
+    @NotNull
+    private ParsedElement readElement(@Nullable XNodeDefinition itemDef, @NotNull XNodeDefinition parentDef,
+            PrismNamespaceContext parentContext, @Nullable Map<String, String> inheritedNamespaces,
+            @NotNull LexicalProjection projection) throws XMLStreamException, SchemaException {
+        QName streamElementName = stream.getName();
+        itemDef = itemDef != null ? itemDef : parentDef.child(streamElementName);
+
+        Map<String, String> localNamespaces = inheritedNamespaces != null ? new HashMap<>(inheritedNamespaces) : new HashMap<>();
+        for (int i = 0; i < stream.getNamespaceCount(); i++) {
+            localNamespaces.put(
+                    StringUtils.defaultString(stream.getNamespacePrefix(i)),
+                    StringUtils.defaultString(stream.getNamespaceURI(i)));
+        }
+        PrismNamespaceContext localNsCtx = parentContext.childContext(localNamespaces);
+
+        ElementAttributes attributes = readAttributes();
+        QName xsiType = DOMUtil.resolveQName(
+                prefix -> localNsCtx.namespaceFor(prefix).orElse(null),
+                attributes.getXsiType());
+        if (xsiType != null) {
+            itemDef = itemDef.withType(xsiType);
+        }
+        QName elementName = itemDef.getName();
+        SchemaRegistry.IsList knownAsList = projection != LexicalProjection.ALL
+                ? isListUpfront(attributes, itemDef, xsiType)
+                : SchemaRegistry.IsList.MAYBE;
+
+        XNodeImpl valueNode = null;
+        List<XNodeImpl> metadataNodes = new ArrayList<>();
+        List<QName> childNames = new ArrayList<>();
+        List<ParsedElement> children = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (;;) {
+            int eventType = stream.next();
+            if (eventType == XMLStreamConstants.START_ELEMENT) {
+                QName childName = stream.getName();
+                childNames.add(childName);
+                if (valueNode == null && QNameUtil.match(childName, valueElementName)) {
+                    valueNode = readElement(itemDef.valueDef(), parentDef, localNsCtx, null, projection).node;
+                } else if (QNameUtil.match(childName, metadataElementName)) {
+                    metadataNodes.add(readElement(schema.metadataDef(), schema, localNsCtx, null, LexicalProjection.ALL).node);
+                } else {
+                    XNodeDefinition childDef = itemDef.child(childName);
+                    LexicalProjection childProjection = childProjection(projection, knownAsList, childDef.getName());
+                    if (childProjection == null) {
+                        skipElement();
+                    } else if (childDef.getName().equals(DomReader.SCHEMA_ELEMENT_QNAME)) {
+                        // We really want to have equals here, not match
+                        // we want to be very explicit about namespace here
+                        children.add(new ParsedElement(childName, childDef.getName(), readSchemaElement(localNsCtx)));
+                    } else {
+                        children.add(readElement(childDef, itemDef, localNsCtx, null, childProjection));
+                    }
+                }
+            } else if (eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.CDATA
+                    || eventType == XMLStreamConstants.SPACE) {
+                if (childNames.isEmpty()) {
+                    text.append(stream.getText());
+                }
+            } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+        }
+
+        XNodeImpl node;
+        if (valueNode != null) {
+            node = valueNode;
+        } else if (!childNames.isEmpty() || attributes.hasApplicationAttributes()) {
+            if (isList(attributes, itemDef, xsiType, childNames)) {
+                node = toList(streamElementName, attributes, children, localNsCtx);
+            } else {
+                node = toMap(attributes, children, itemDef, localNsCtx);
+            }
+        } else if (Boolean.parseBoolean(attributes.incomplete)) {
+            // Note that it is of no use to check for "incomplete" on non-leaf elements. In XML the incomplete attribute
+            // must be attached to an empty element.
+            node = new IncompleteMarkerXNodeImpl();
+        } else {
+            node = primitive(text.toString(), localNsCtx);
+        }
+        addMetadata(node, metadataNodes);
+        if (!StringUtils.isBlank(attributes.maxOccurs)) {
+            node.setMaxOccurs(DomReader.parseMultiplicity(attributes.maxOccurs, streamElementName));
+        }
+        if (xsiType != null) {
+            node.setTypeQName(xsiType);
+            node.setExplicitTypeDeclaration(true);
+        }
+        return new ParsedElement(streamElementName, elementName, node);
+    }
+
+    private ElementAttributes readAttributes() {
+        ElementAttributes attributes = new ElementAttributes();
+        for (int i = 0; i < stream.getAttributeCount(); i++) {
+            QName name = stream.getAttributeName(i);
+            String value = stream.getAttributeValue(i);
+            String namespace = name.getNamespaceURI();
+            if (StringUtils.isEmpty(namespace)) {
+                switch (name.getLocalPart()) {
+                    case DOMUtil.HACKED_XSI_TYPE:
+                        attributes.hackedXsiType = value;
+                        break;
+                    case DOMUtil.IS_LIST_ATTRIBUTE_NAME:
+                        attributes.list = value;
+                        break;
+                    case DOMUtil.IS_INCOMPLETE_ATTRIBUTE_NAME:
+                        attributes.incomplete = value;
+                        break;
+                }
+            } else if (DOMUtil.XSI_TYPE.getNamespaceURI().equals(namespace)
+                    && DOMUtil.XSI_TYPE.getLocalPart().equals(name.getLocalPart())) {
+                attributes.xsiType = value;
+            } else if (PrismConstants.A_MAX_OCCURS.getNamespaceURI().equals(namespace)
+                    && PrismConstants.A_MAX_OCCURS.getLocalPart().equals(name.getLocalPart())) {
+                attributes.maxOccurs = value;
+            }
+            if (DOMUtil.isApplicationAttribute(namespace, name.getLocalPart())) {
+                attributes.addApplicationAttribute(name, value);
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Determines whether the element is a list without looking at its children (if possible).
+     */
+    private SchemaRegistry.IsList isListUpfront(ElementAttributes attributes, @NotNull XNodeDefinition itemDef,
+            @Nullable QName xsiType) {
+        if (StringUtils.isNotEmpty(attributes.list)) {
+            return Boolean.parseBoolean(attributes.list) ? SchemaRegistry.IsList.YES : SchemaRegistry.IsList.NO;
+        }
+        SchemaRegistry.IsList fromSchema = schemaRegistry.isList(xsiType, itemDef.getName());
+        if (fromSchema == SchemaRegistry.IsList.MAYBE && attributes.hasApplicationAttributes()) {
+            return SchemaRegistry.IsList.NO;
+        }
+        return fromSchema;
+    }
+
+    /**
+     * Children of a list are its values, so they share its projection. Children of a map are items to be selected.
+     * If we do not know yet, we have to read the children completely.
+     */
+    @Nullable
+    private LexicalProjection childProjection(@NotNull LexicalProjection projection, SchemaRegistry.IsList knownAsList,
+            @NotNull QName childName) {
+        if (projection == LexicalProjection.ALL) {
+            return LexicalProjection.ALL;
+        }
+        switch (knownAsList) {
+            case YES:
+                return projection;
+            case NO:
+                return projection.select(childName);
+            default:
+                return LexicalProjection.ALL;
+        }
+    }
+
+    /**
+     * Skips the element the stream is positioned at (START_ELEMENT), leaving the stream at its END_ELEMENT.
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int eventType = stream.next();
+            if (eventType == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private boolean isList(ElementAttributes attributes, @NotNull XNodeDefinition itemDef, @Nullable QName xsiType,
+            List<QName> childNames) {
+        if (StringUtils.isNotEmpty(attributes.list)) {
+            return Boolean.parseBoolean(attributes.list);
+        }
+        SchemaRegistry.IsList fromSchema = schemaRegistry.isList(xsiType, itemDef.getName());
+        if (fromSchema != SchemaRegistry.IsList.MAYBE) {
+            return fromSchema == SchemaRegistry.IsList.YES;
+        }
+        if (attributes.hasApplicationAttributes()) {
+            return false;
+        }
+        return DomReader.elementsAreCompatible(childNames, schemaRegistry);
+    }
+
+    // all the sub-elements should be compatible (this is not enforced here, however)
+    private ListXNodeImpl toList(QName listElementName, ElementAttributes attributes, List<ParsedElement> children,
+            PrismNamespaceContext localNsContext) throws SchemaException {
+        if (attributes.hasApplicationAttributes()) {
+            throw new SchemaException("List should have no application attributes: " + listElementName);
+        }
+        ListXNodeImpl xlist = new ListXNodeImpl(localNsContext);
+        for (ParsedElement child : children) {
+            child.node.setElementName(child.elementName);
+            xlist.add(child.node);
+        }
+        return xlist;
+    }
+
+    private MapXNodeImpl toMap(ElementAttributes attributes, List<ParsedElement> children,
+            @NotNull XNodeDefinition parentDef, PrismNamespaceContext localNsContext) throws SchemaException {
+        MapXNodeImpl xmap = new MapXNodeImpl(localNsContext);
+
+        // Attributes
+        for (Map.Entry<QName, String> attribute : attributes.getApplicationAttributes()) {
+            PrimitiveXNodeImpl<?> subnode = primitive(attribute.getValue(), localNsContext.inherited());
+            subnode.setAttribute(true);
+            xmap.put(attribute.getKey(), subnode);
+        }
+
+        // Sub-elements, grouped by (consecutive) names
+        int groupStart = 0;
+        for (int i = 1; i <= children.size(); i++) {
+            if (i == children.size()
+                    || !QNameUtil.match(children.get(i).streamName, children.get(groupStart).streamName)) {
+                addGroupAsMapEntry(xmap, children.subList(groupStart, i), parentDef, localNsContext);
+                groupStart = i;
+            }
+        }
+        return xmap;
+    }
+
+    // All elements share the same elementName
+    private void addGroupAsMapEntry(MapXNodeImpl xmap, List<ParsedElement> group, @NotNull XNodeDefinition parentDef,
+            PrismNamespaceContext parentNsContext) throws SchemaException {
+        if (group.isEmpty()) {
+            return;
+        }
+        QName itemName = parentDef.child(group.get(0).streamName).getName();
+        XNodeImpl xsub;
+        if (group.size() == 1) {
+            xsub = group.get(0).node;
+        } else if (itemName.equals(DomReader.SCHEMA_ELEMENT_QNAME)) {
+            throw new SchemaException("Too many schema elements");
+        } else {
+            ListXNodeImpl xlist = new ListXNodeImpl(parentNsContext);
+            for (ParsedElement element : group) {
+                xlist.add(element.node);
+            }
+            xsub = xlist;
+        }
+        xmap.merge(itemName, xsub);
+    }
+
+    private void addMetadata(XNodeImpl node, List<XNodeImpl> metadataNodes) throws SchemaException {
+        for (XNodeImpl metadata : metadataNodes) {
+            if (metadata instanceof MapXNode) {
+                if (node instanceof MetadataAware) {
+                    ((MetadataAware) node).addMetadataNode((MapXNode) metadata);
+                } else {
+                    throw new SchemaException("Attempt to add metadata to non-metadata-aware XNode: " + node);
+                }
+            } else {
+                throw new SchemaException("Metadata is not of Map type: " + metadata);
+            }
+        }
+    }
+
+    private <T> PrimitiveXNodeImpl<T> primitive(String value, PrismNamespaceContext nsContext) {
+        PrimitiveXNodeImpl<T> xnode = new PrimitiveXNodeImpl<>(nsContext);
+        xnode.setValueParser(new NamespaceAwareValueParser<>(value, nsContext));
+        return xnode;
+    }
+
+    /**
+     * Schema is kept as DOM, so we build it from the stream. Namespaces declared above the schema element
+     * are copied to it, as they would be visible if the schema element were a part of the whole DOM document.
+     */
+    @NotNull
+    private SchemaXNodeImpl readSchemaElement(PrismNamespaceContext parentNsContext) throws XMLStreamException {
+        if (domConverter == null) {
+            domConverter = new DOMConverter();
+        }
+        Document schemaDoc = domConverter.buildDocument(stream);
+        Element schemaElement = DOMUtil.getFirstChildElement(schemaDoc);
+        for (Map.Entry<String, String> entry : parentNsContext.allPrefixes().entrySet()) {
+            String prefix = StringUtils.isEmpty(entry.getKey()) ? null : entry.getKey();
+            if (schemaElement.lookupNamespaceURI(prefix) == null && !XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                DOMUtil.setNamespaceDeclaration(schemaElement, prefix, entry.getValue());
+            }
+        }
+        SchemaXNodeImpl xschema = new SchemaXNodeImpl(parentNsContext);
+        xschema.setSchemaElement(schemaElement);
+        return xschema;
+    }
+
+    private static class ParsedElement {
+
+        /** Element name as present in the stream. */
+        @NotNull private final QName streamName;
+
+        /** Element name as determined by the definition. */
+        @NotNull private final QName elementName;
+
+        @NotNull private final XNodeImpl node;
+
+        private ParsedElement(@NotNull QName streamName, @NotNull QName elementName, @NotNull XNodeImpl node) {
+            this.streamName = streamName;
+            this.elementName = elementName;
+            this.node = node;
+        }
+    }
+
+    /**
+     * Attributes of the element being read.
+     */
+    private static class ElementAttributes {
+
+        private String xsiType;
+        private String hackedXsiType;
+        private String list;
+        private String incomplete;
+        private String maxOccurs;
+
+        /**
+         * Application attributes sorted by their qualified names, just like DOM (Xerces) keeps them.
+         */
+        private TreeMap<String, Map.Entry<QName, String>> applicationAttributes;
+
+        private String getXsiType() {
+            return StringUtils.isEmpty(xsiType) ? hackedXsiType : xsiType;
+        }
+
+        private void addApplicationAttribute(QName name, String value) {
+            if (applicationAttributes == null) {
+                applicationAttributes = new TreeMap<>();
+            }
+            String qualifiedName = StringUtils.isEmpty(name.getPrefix())
+                    ? name.getLocalPart()
+                    : name.getPrefix() + ":" + name.getLocalPart();
+            applicationAttributes.put(qualifiedName, new AbstractMap.SimpleImmutableEntry<>(name, value));
+        }
+
+        private boolean hasApplicationAttributes() {
+            return applicationAttributes != null;
+        }
+
+        private Collection<Map.Entry<QName, String>> getApplicationAttributes() {
+            return applicationAttributes != null ? applicationAttributes.values() : Collections.emptyList();
+        }
+    }
+}
@@ -12,7 +12,7 @@ import javax.xml.namespace.QName;
 import com.evolveum.midpoint.prism.ParserSource;
 import com.evolveum.midpoint.prism.ParsingContext;
 import com.evolveum.midpoint.prism.SerializationContext;
-import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.TextLexicalProcessor;
 
 import com.evolveum.midpoint.prism.impl.lex.json.reader.AbstractReader;
 import com.evolveum.midpoint.prism.impl.lex.json.writer.AbstractWriter;
@@ -26,9 +26,10 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
-public class DelegatingLexicalProcessor implements LexicalProcessor<String> {
+public class DelegatingLexicalProcessor implements TextLexicalProcessor {
 
     @NotNull private final AbstractReader reader;
     @NotNull private final AbstractWriter writer;
@@ -84,4 +85,22 @@ public class DelegatingLexicalProcessor implements LexicalProcessor<String> {
     public String write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context) throws SchemaException {
         return writer.write(roots, context);
     }
+
+    @Override
+    public void write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext, @NotNull Writer out)
+            throws SchemaException, IOException {
+        writer.write(xnode, serializationContext, out);
+    }
+
+    @Override
+    public void write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context, @NotNull Writer out)
+            throws SchemaException, IOException {
+        writer.write(roots, context, out);
+    }
+
+    @NotNull
+    @Override
+    public ObjectsWriter objectsWriter(@Nullable SerializationContext context, @NotNull Writer out) throws IOException {
+        return writer.objectsWriter(context, out);
+    }
 }
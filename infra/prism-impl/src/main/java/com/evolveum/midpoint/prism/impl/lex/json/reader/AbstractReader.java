@@ -44,6 +44,9 @@ public abstract class AbstractReader {
 
     private final PrismNamespaceContext namespaceContext;
 
+    /** Thread-safe and expensive to create, so it is shared by all parsing operations. */
+    private final ObjectMapper mapper = createMapper();
+
     AbstractReader(@NotNull SchemaRegistry schemaRegistry) {
         this.schemaRegistry = schemaRegistry;
         // Parsing legacy namespace-less JSON with default namespace declared
@@ -161,14 +164,18 @@ public abstract class AbstractReader {
     }
 
     private JsonParser configureParser(JsonParser parser) {
+        parser.setCodec(mapper);
+        return parser;
+    }
+
+    private static ObjectMapper createMapper() {
         ObjectMapper mapper = new ObjectMapper();
         SimpleModule sm = new SimpleModule();
         sm.addDeserializer(QName.class, new QNameDeserializer());
         sm.addDeserializer(PolyString.class, new PolyStringDeserializer());
 
         mapper.registerModule(sm);
-        parser.setCodec(mapper);
-        return parser;
+        return mapper;
     }
 
     protected abstract QName tagToTypeName(Object tid, JsonReadingContext ctx) throws IOException, SchemaException;
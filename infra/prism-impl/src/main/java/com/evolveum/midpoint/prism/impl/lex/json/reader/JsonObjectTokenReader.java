@@ -32,6 +32,7 @@ import com.google.common.collect.ImmutableMap.Builder;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.PrismNamespaceContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProjection;
 import com.evolveum.midpoint.prism.impl.lex.json.JsonInfraItems;
 import com.evolveum.midpoint.prism.marshaller.XNodeProcessorEvaluationMode;
 import com.evolveum.midpoint.util.DOMUtil;
@@ -95,6 +96,11 @@ class JsonObjectTokenReader {
 
     private XNodeImpl containerId;
 
+    /**
+     * Selection of fields to be read. Infrastructure fields (@type, @ns, ...) are always read.
+     */
+    @NotNull private final LexicalProjection projection;
+
     private static final Map<QName, ItemProcessor> PROCESSORS = ImmutableMap.<QName, ItemProcessor>builder()
             // Namespace definition processing
             .put(PROP_NAMESPACE_QNAME, JsonObjectTokenReader::processNamespaceDeclaration)
@@ -114,8 +120,10 @@ class JsonObjectTokenReader {
 
     private static final ItemProcessor STANDARD_PROCESSOR = namespaceSensitive(JsonObjectTokenReader::processStandardFieldValue);
 
-    JsonObjectTokenReader(@NotNull JsonReadingContext ctx, PrismNamespaceContext parentContext, @NotNull XNodeDefinition definition, @NotNull XNodeDefinition parentDefinition) {
+    JsonObjectTokenReader(@NotNull JsonReadingContext ctx, PrismNamespaceContext parentContext, @NotNull XNodeDefinition definition, @NotNull XNodeDefinition parentDefinition,
+            @NotNull LexicalProjection projection) {
         this.ctx = ctx;
+        this.projection = projection;
         this.parser = ctx.parser;
         this.parentContext = parentContext;
         this.definition = definition;
@@ -175,13 +183,18 @@ class JsonObjectTokenReader {
 
     private void processFieldValue(XNodeDefinition name) throws IOException, SchemaException {
         assert name != null;
-        XNodeImpl value = readValue(name);
-        PROCESSORS.getOrDefault(name.getName(), STANDARD_PROCESSOR).apply(this, name.getName(), value);
-
+        ItemProcessor processor = PROCESSORS.get(name.getName());
+        LexicalProjection valueProjection = processor != null ? LexicalProjection.ALL : projection.select(name.getName());
+        if (valueProjection == null) {
+            parser.skipChildren();
+            return;
+        }
+        XNodeImpl value = readValue(name, valueProjection);
+        (processor != null ? processor : STANDARD_PROCESSOR).apply(this, name.getName(), value);
     }
 
-    private XNodeImpl readValue(XNodeDefinition fieldDef) throws IOException, SchemaException {
-        return new JsonOtherTokenReader(ctx,namespaceContext().inherited(), fieldDef, definition).readValue();
+    private XNodeImpl readValue(XNodeDefinition fieldDef, LexicalProjection valueProjection) throws IOException, SchemaException {
+        return new JsonOtherTokenReader(ctx,namespaceContext().inherited(), fieldDef, definition, valueProjection).readValue();
     }
 
     private PrismNamespaceContext namespaceContext() {
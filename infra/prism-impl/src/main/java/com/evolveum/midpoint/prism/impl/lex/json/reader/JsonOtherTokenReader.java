@@ -19,6 +19,7 @@ import org.apache.commons.lang3.Validate;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.PrismNamespaceContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProjection;
 import com.evolveum.midpoint.prism.impl.lex.json.JsonNullValueParser;
 import com.evolveum.midpoint.prism.impl.lex.json.JsonValueParser;
 import com.evolveum.midpoint.prism.impl.xnode.ListXNodeImpl;
@@ -46,8 +47,13 @@ class JsonOtherTokenReader {
 
     private @NotNull XNodeDefinition parentDef;
 
-    JsonOtherTokenReader(JsonReadingContext ctx, PrismNamespaceContext context, XNodeDefinition def, @NotNull XNodeDefinition parentDef) {
+    /** Projection of the value being read. For lists, it applies to each of their values. */
+    @NotNull private final LexicalProjection projection;
+
+    JsonOtherTokenReader(JsonReadingContext ctx, PrismNamespaceContext context, XNodeDefinition def, @NotNull XNodeDefinition parentDef,
+            @NotNull LexicalProjection projection) {
         this.ctx = ctx;
+        this.projection = projection;
         this.parser = ctx.parser;
         this.parentContext = context;
         this.def = def;
@@ -59,7 +65,7 @@ class JsonOtherTokenReader {
 
         switch (currentToken) {
             case START_OBJECT:
-                return new JsonObjectTokenReader(ctx, parentContext, def, parentDef).read();
+                return new JsonObjectTokenReader(ctx, parentContext, def, parentDef, projection).read();
             case START_ARRAY:
                 return parseToList();
             case VALUE_STRING:
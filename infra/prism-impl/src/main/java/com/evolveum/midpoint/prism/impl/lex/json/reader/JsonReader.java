@@ -19,6 +19,9 @@ import com.evolveum.midpoint.prism.schema.SchemaRegistry;
 
 public class JsonReader extends AbstractReader {
 
+    /** Thread-safe, so it is shared by all parsing operations. */
+    private final JsonFactory factory = new JsonFactory();
+
     public JsonReader(@NotNull SchemaRegistry schemaRegistry) {
         super(schemaRegistry);
     }
@@ -36,7 +39,7 @@ public class JsonReader extends AbstractReader {
 
     @Override
     protected com.fasterxml.jackson.core.JsonParser createJacksonParser(InputStream stream) throws IOException {
-        return new JsonFactory().createParser(stream);
+        return factory.createParser(stream);
     }
 
     @Override
@@ -9,6 +9,7 @@ package com.evolveum.midpoint.prism.impl.lex.json.reader;
 
 import com.evolveum.midpoint.prism.impl.ParsingContextImpl;
 import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProjection;
 import com.evolveum.midpoint.prism.impl.xnode.XNodeDefinition;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
 import com.fasterxml.jackson.core.JsonParser;
@@ -24,6 +25,7 @@ class JsonReadingContext {
     @NotNull final ParsingContextImpl prismParsingContext;
     @NotNull final LexicalProcessor.RootXNodeHandler objectHandler;
     @NotNull final AbstractReader.YamlTagResolver yamlTagResolver;
+    @NotNull final LexicalProjection projection;
 
     private boolean aborted;
     private final XNodeDefinition.Root rootContext;
@@ -35,6 +37,7 @@ class JsonReadingContext {
         this.prismParsingContext = prismParsingContext;
         this.objectHandler = objectHandler;
         this.yamlTagResolver = yamlTagResolver;
+        this.projection = LexicalProjection.create(prismParsingContext);
         this.rootContext = XNodeDefinition.root(schemaRegistry);
     }
 
@@ -18,10 +18,14 @@ import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
 
 public class QNameDeserializer extends JsonDeserializer<QName> implements Serializable {
 
+    /** Immutable and thread-safe; creating a mapper for each value is expensive. */
+    private static final ObjectReader NODE_READER = new ObjectMapper().readerFor(JsonNode.class);
+
     @Override
     public QName deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
             JsonProcessingException {
@@ -35,8 +39,7 @@ public class QNameDeserializer extends JsonDeserializer<QName> implements Serial
 
 //        }
 //        jp.
-        ObjectMapper m = new ObjectMapper();
-        JsonNode node = m.readValue(jp, JsonNode.class);
+        JsonNode node = NODE_READER.readValue(jp);
 //        JsonNode node = jp.readValueAsTree();
 //        jp.
         switch (node.getNodeType()) {
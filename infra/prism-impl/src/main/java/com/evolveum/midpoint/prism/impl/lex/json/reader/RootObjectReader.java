@@ -39,7 +39,8 @@ class RootObjectReader {
     }
 
     void read() throws SchemaException, IOException {
-        XNodeImpl xnode = new JsonOtherTokenReader(ctx, nsContext, def, def).readValue();
+        // The root object wraps the real root value under the root element name
+        XNodeImpl xnode = new JsonOtherTokenReader(ctx, nsContext, def, def, ctx.projection.wrapped()).readValue();
         RootXNodeImpl root = postProcessValueToRoot(xnode, null);
         if (!ctx.objectHandler.handleData(root)) {
             ctx.setAborted();
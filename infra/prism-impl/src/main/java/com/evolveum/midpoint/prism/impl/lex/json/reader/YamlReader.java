@@ -32,6 +32,9 @@ public class YamlReader extends AbstractReader {
     private static final String TAG_BINARY = YAML + "binary";       // base64-encoded string
     private static final String TAG_NULL = YAML + "null";
 
+    /** Thread-safe, so it is shared by all parsing operations. */
+    private final MidpointYAMLFactory factory = new MidpointYAMLFactory();
+
     public YamlReader(@NotNull SchemaRegistry schemaRegistry) {
         super(schemaRegistry);
     }
@@ -48,7 +51,7 @@ public class YamlReader extends AbstractReader {
 
     @Override
     protected MidpointYAMLParser createJacksonParser(InputStream stream) throws IOException {
-        return (MidpointYAMLParser) new MidpointYAMLFactory().createParser(stream);
+        return (MidpointYAMLParser) factory.createParser(stream);
     }
 
     @Override
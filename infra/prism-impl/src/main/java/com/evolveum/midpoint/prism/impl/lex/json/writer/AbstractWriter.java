@@ -8,6 +8,8 @@
 package com.evolveum.midpoint.prism.impl.lex.json.writer;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 import javax.xml.namespace.QName;
 
@@ -16,6 +18,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.TextLexicalProcessor;
 import com.evolveum.midpoint.prism.impl.lex.LexicalUtils;
 import com.evolveum.midpoint.prism.impl.xnode.ListXNodeImpl;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
@@ -54,16 +57,49 @@ abstract public class AbstractWriter {
 
     @NotNull
     public String write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext prismSerializationContext) throws SchemaException {
+        return writeInternal(toObjectsList(roots), prismSerializationContext, true);
+    }
+
+    public void write(@NotNull RootXNode root, SerializationContext prismSerializationContext, @NotNull Writer out)
+            throws SchemaException, IOException {
+        writeInternal((RootXNodeImpl) root, prismSerializationContext, false, out);
+    }
+
+    public void write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext prismSerializationContext,
+            @NotNull Writer out) throws SchemaException, IOException {
+        writeInternal(toObjectsList(roots), prismSerializationContext, true, out);
+    }
+
+    @NotNull
+    public TextLexicalProcessor.ObjectsWriter objectsWriter(@Nullable SerializationContext prismSerializationContext,
+            @NotNull Writer out) throws IOException {
+        return new ObjectsWriterImpl(createWritingContext(prismSerializationContext, out), schema);
+    }
+
+    @NotNull
+    private ListXNodeImpl toObjectsList(@NotNull List<RootXNodeImpl> roots) {
         ListXNodeImpl objectsList = new ListXNodeImpl();
         for (RootXNodeImpl root : roots) {
             objectsList.add(root.toMapXNode());
         }
-        return writeInternal(objectsList, prismSerializationContext, true);
+        return objectsList;
     }
 
     @NotNull
     private String writeInternal(@NotNull XNodeImpl root, SerializationContext prismSerializationContext, boolean useMultiDocument) throws SchemaException {
-        try (WritingContext<?> ctx = createWritingContext(prismSerializationContext)) {
+        StringWriter out = new StringWriter();
+        try {
+            writeInternal(root, prismSerializationContext, useMultiDocument, out);
+        } catch (IOException ioe) {
+            // There should be no IOExceptions as we are serializing to a string.
+            throw new SystemException("Error during writing to JSON/YAML: " + ioe.getMessage(), ioe);
+        }
+        return out.toString();
+    }
+
+    private void writeInternal(@NotNull XNodeImpl root, SerializationContext prismSerializationContext,
+            boolean useMultiDocument, @NotNull Writer out) throws SchemaException, IOException {
+        try (WritingContext<?> ctx = createWritingContext(prismSerializationContext, out)) {
             DocumentWriter documentWriter = new DocumentWriter(ctx, schema);
             if (root instanceof ListXNodeImpl && !root.isEmpty() && useMultiDocument && ctx.supportsMultipleDocuments()) {
                 // Note we cannot serialize empty lists in multi-document mode.
@@ -73,14 +109,11 @@ abstract public class AbstractWriter {
                 documentWriter.write(root);
             }
             ctx.close(); // in order to get complete output
-            return ctx.getOutput();
+            out.flush();
         } catch (JsonProcessingException ex) {
             throw new SchemaException("Error during writing to JSON/YAML: " + ex.getMessage(), ex);
-        } catch (IOException ioe) {
-            // There should be no IOExceptions as we are serializing to a string.
-            throw new SystemException("Error during writing to JSON/YAML: " + ioe.getMessage(), ioe);
         }
     }
 
-    abstract WritingContext<?> createWritingContext(SerializationContext prismSerializationContext);
+    abstract WritingContext<?> createWritingContext(SerializationContext prismSerializationContext, Writer out);
 }
@@ -7,6 +7,10 @@
 
 package com.evolveum.midpoint.prism.impl.lex.json.writer;
 
+import java.io.Writer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.SerializationContext;
@@ -14,6 +18,10 @@ import com.evolveum.midpoint.prism.schema.SchemaRegistry;
 
 public class JsonWriter extends AbstractWriter {
 
+    // Both are thread-safe and expensive to create, so they are shared by all serializations.
+    private final JsonFactory factory = new JsonFactory();
+    private final ObjectMapper mapper = JsonWritingContext.createMapper();
+
     @Deprecated
     public JsonWriter() {
         this(null);
@@ -24,7 +32,7 @@ public class JsonWriter extends AbstractWriter {
     }
 
     @Override
-    WritingContext createWritingContext(SerializationContext prismSerializationContext) {
-        return new JsonWritingContext(prismSerializationContext);
+    WritingContext createWritingContext(SerializationContext prismSerializationContext, Writer out) {
+        return new JsonWritingContext(prismSerializationContext, out, factory, mapper);
     }
 }
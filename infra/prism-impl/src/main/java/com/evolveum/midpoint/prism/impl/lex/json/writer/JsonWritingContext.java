@@ -24,31 +24,34 @@ import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.Writer;
 
 /**
  * TODO
  */
 class JsonWritingContext extends WritingContext<JsonGenerator> {
 
-    JsonWritingContext(SerializationContext prismSerializationContext) {
-        super(prismSerializationContext);
+    /**
+     * @param factory Shared factory; it is thread-safe.
+     * @param mapper Shared mapper, created by {@link #createMapper()}. It must not be reconfigured after creation.
+     */
+    JsonWritingContext(SerializationContext prismSerializationContext, Writer out, JsonFactory factory,
+            ObjectMapper mapper) {
+        super(prismSerializationContext, out, o -> createJacksonGenerator(o, factory, mapper));
     }
 
-    @Override
-    JsonGenerator createJacksonGenerator(StringWriter out) {
+    private static JsonGenerator createJacksonGenerator(Writer out, JsonFactory factory, ObjectMapper mapper) {
         try {
-            JsonFactory factory = new JsonFactory();
             JsonGenerator generator = factory.createGenerator(out);
-            generator.setPrettyPrinter(new DefaultPrettyPrinter());
-            generator.setCodec(configureMapperForSerialization());
+            generator.setPrettyPrinter(new DefaultPrettyPrinter()); // pretty printer is stateful, so it cannot be shared
+            generator.setCodec(mapper);
             return generator;
         } catch (IOException ex) {
             throw new SystemException("Couldn't create Jackson generator for JSON: " + ex.getMessage(), ex);
         }
     }
 
-    private ObjectMapper configureMapperForSerialization() {
+    static ObjectMapper createMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
@@ -57,7 +60,7 @@ class JsonWritingContext extends WritingContext<JsonGenerator> {
         return mapper;
     }
 
-    private Module createSerializerModule() {
+    private static Module createSerializerModule() {
         SimpleModule module = new SimpleModule("MidpointModule", new Version(0, 0, 0, "aa"));
         module.addSerializer(QName.class, new QNameSerializer());
         module.addSerializer(PolyString.class, new PolyStringSerializer());
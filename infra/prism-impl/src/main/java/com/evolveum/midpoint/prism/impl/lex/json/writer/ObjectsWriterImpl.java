@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.json.writer;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.impl.lex.TextLexicalProcessor;
+import com.evolveum.midpoint.prism.impl.xnode.ListXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeDefinition;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Writes objects to JSON/YAML one by one.
+ *
+ * The output is the same as when writing the whole list of objects at once: a list (JSON)
+ * or a sequence of documents (YAML).
+ */
+class ObjectsWriterImpl implements TextLexicalProcessor.ObjectsWriter {
+
+    @NotNull private final WritingContext<?> ctx;
+    @NotNull private final DocumentWriter documentWriter;
+    private final boolean multiDocument;
+    private int objectsWritten;
+
+    ObjectsWriterImpl(@NotNull WritingContext<?> ctx, XNodeDefinition.Root schema) throws IOException {
+        this.ctx = ctx;
+        this.documentWriter = new DocumentWriter(ctx, schema);
+        this.multiDocument = ctx.supportsMultipleDocuments();
+        if (!multiDocument) {
+            ctx.generator.writeStartArray();
+        }
+    }
+
+    @Override
+    public void write(@NotNull RootXNodeImpl root) throws SchemaException, IOException {
+        try {
+            if (multiDocument && objectsWritten > 0) {
+                ctx.newDocument();
+            }
+            documentWriter.write(root.toMapXNode());
+            objectsWritten++;
+            ctx.generator.flush();
+        } catch (JsonProcessingException ex) {
+            throw new SchemaException("Error during writing to JSON/YAML: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!multiDocument) {
+            ctx.generator.writeEndArray();
+        } else if (objectsWritten == 0) {
+            // Empty list cannot be written as a sequence of documents.
+            documentWriter.write(new ListXNodeImpl());
+        }
+        ctx.close();
+    }
+}
@@ -17,30 +17,27 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.xml.namespace.QName;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.Writer;
+import java.util.function.Function;
 
 /**
  * TODO
  */
 abstract class WritingContext<G extends JsonGenerator> implements AutoCloseable {
 
-    @NotNull private final StringWriter out = new StringWriter();
     @NotNull final G generator;
     @NotNull final SerializationContext prismSerializationContext;
 
-    WritingContext(@Nullable SerializationContext prismSerializationContext) {
-        this.generator = createJacksonGenerator(out);
+    WritingContext(@Nullable SerializationContext prismSerializationContext, @NotNull Writer out,
+            @NotNull Function<Writer, G> generatorCreator) {
+        this.generator = generatorCreator.apply(out);
+        // The writer may be supplied by the caller, who is responsible for closing it.
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
         this.prismSerializationContext = prismSerializationContext != null ?
                 prismSerializationContext :
                 new SerializationContext(null);
     }
 
-    abstract G createJacksonGenerator(StringWriter out);
-
-    String getOutput() {
-        return out.toString();
-    }
-
     @Override
     public void close() {
         try {
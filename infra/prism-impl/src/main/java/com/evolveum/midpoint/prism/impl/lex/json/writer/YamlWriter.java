@@ -7,13 +7,20 @@
 
 package com.evolveum.midpoint.prism.impl.lex.json.writer;
 
+import java.io.Writer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.json.yaml.MidpointYAMLFactory;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
 
 public class YamlWriter extends AbstractWriter {
 
+    // Both are thread-safe and expensive to create, so they are shared by all serializations.
+    private final MidpointYAMLFactory factory = new MidpointYAMLFactory();
+    private final ObjectMapper mapper = YamlWritingContext.createMapper();
 
     @Deprecated
     public YamlWriter() {
@@ -25,7 +32,7 @@ public class YamlWriter extends AbstractWriter {
     }
 
     @Override
-    YamlWritingContext createWritingContext(SerializationContext prismSerializationContext) {
-        return new YamlWritingContext(prismSerializationContext);
+    YamlWritingContext createWritingContext(SerializationContext prismSerializationContext, Writer out) {
+        return new YamlWritingContext(prismSerializationContext, out, factory, mapper);
     }
 }
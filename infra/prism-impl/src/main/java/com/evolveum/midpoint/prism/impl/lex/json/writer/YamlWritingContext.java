@@ -8,7 +8,7 @@
 package com.evolveum.midpoint.prism.impl.lex.json.writer;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.Writer;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
 
@@ -30,24 +30,28 @@ import com.evolveum.midpoint.util.exception.SystemException;
 
 public class YamlWritingContext extends WritingContext<MidpointYAMLGenerator> {
 
-    YamlWritingContext(@Nullable SerializationContext prismSerializationContext) {
-        super(prismSerializationContext);
+    /**
+     * @param factory Shared factory; it is thread-safe.
+     * @param mapper Shared mapper, created by {@link #createMapper()}. It must not be reconfigured after creation.
+     */
+    YamlWritingContext(@Nullable SerializationContext prismSerializationContext, Writer out,
+            MidpointYAMLFactory factory, ObjectMapper mapper) {
+        super(prismSerializationContext, out, o -> createJacksonGenerator(o, factory, mapper));
     }
 
-    @Override
-    MidpointYAMLGenerator createJacksonGenerator(StringWriter out) {
+    private static MidpointYAMLGenerator createJacksonGenerator(Writer out, MidpointYAMLFactory factory,
+            ObjectMapper mapper) {
         try {
-            MidpointYAMLFactory factory = new MidpointYAMLFactory();
             MidpointYAMLGenerator generator = (MidpointYAMLGenerator) factory.createGenerator(out);
-            generator.setPrettyPrinter(new DefaultPrettyPrinter());
-            generator.setCodec(configureMapperForSerialization());
+            generator.setPrettyPrinter(new DefaultPrettyPrinter()); // pretty printer is stateful, so it cannot be shared
+            generator.setCodec(mapper);
             return generator;
         } catch (IOException ex) {
             throw new SystemException("Couldn't create Jackson generator for YAML: " + ex.getMessage(), ex);
         }
     }
 
-    private ObjectMapper configureMapperForSerialization() {
+    static ObjectMapper createMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
 //        mapper.enableDefaultTyping(DefaultTyping.NON_CONCRETE_AND_ARRAYS, As.EXISTING_PROPERTY);
@@ -65,7 +69,7 @@ public class YamlWritingContext extends WritingContext<MidpointYAMLGenerator> {
         return mapper;
     }
 
-    private Module createSerializerModule(){
+    private static Module createSerializerModule(){
         SimpleModule module = new SimpleModule("MidpointModule", new Version(0, 0, 0, "aa"));
         module.addSerializer(QName.class, new QNameSerializer());
         module.addSerializer(PolyString.class, new PolyStringSerializer());
@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.marshaller;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.bind.annotation.XmlEnumValue;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.exception.SystemException;
+
+/**
+ * Information needed to marshal and unmarshal beans of given class, computed once per class
+ * (see {@link PrismBeanInspector#getBindingPlan(Class)}) instead of being looked up for each bean and property.
+ *
+ * For marshalling, it contains properties in the order of serialization, with their getters, fields,
+ * element names and "attribute" flags. For enums, it contains the mapping between XML values and Java constant names.
+ * Schema-dependent information (e.g. type names or item definitions) is not part of the plan.
+ *
+ * For unmarshalling, accessors for individual elements are resolved on first use (as element names can
+ * also denote substitutions or "any" content), and then kept in the plan.
+ *
+ * Getters and setters are invoked via method handles, if the methods are accessible; otherwise
+ * the reflection is used.
+ */
+class BeanBindingPlan {
+
+    @NotNull private final Class<?> beanClass;
+
+    /** Namespace of the bean type, as determined from JAXB annotations. */
+    @Nullable private final String namespace;
+
+    /** Properties in the order of serialization. Null if the class is not an XML type. */
+    @Nullable private final List<PropertyBinding> properties;
+
+    /**
+     * Problems encountered when determining the namespace and the properties. They are reported only when
+     * the respective information is requested, as the plan is used also in contexts where it is not needed.
+     */
+    @Nullable private final RuntimeException namespaceProblem;
+    @Nullable private final RuntimeException propertiesProblem;
+
+    /** Enum constant names keyed by XML values. Empty for non-enum classes. */
+    @NotNull private final Map<String, String> enumFieldNames;
+
+    /** XML values of enum constants keyed by constant names. Empty for non-enum classes. */
+    @NotNull private final Map<String, String> enumFieldValues;
+
+    /** Names of all fields declared by the class (used for enums without XML values). */
+    @NotNull private final Set<String> declaredFieldNames;
+
+    /** Accessors used for unmarshalling, keyed by element (property) name. Filled-in on demand. */
+    @NotNull private final Map<String, PropertyAccess> propertyAccesses = new ConcurrentHashMap<>();
+
+    private BeanBindingPlan(@NotNull Class<?> beanClass, @Nullable String namespace,
+            @Nullable List<PropertyBinding> properties, @Nullable RuntimeException namespaceProblem,
+            @Nullable RuntimeException propertiesProblem, @NotNull Map<String, String> enumFieldNames,
+            @NotNull Map<String, String> enumFieldValues, @NotNull Set<String> declaredFieldNames) {
+        this.beanClass = beanClass;
+        this.namespace = namespace;
+        this.properties = properties;
+        this.namespaceProblem = namespaceProblem;
+        this.propertiesProblem = propertiesProblem;
+        this.enumFieldNames = enumFieldNames;
+        this.enumFieldValues = enumFieldValues;
+        this.declaredFieldNames = declaredFieldNames;
+    }
+
+    static BeanBindingPlan create(@NotNull Class<?> beanClass, @NotNull PrismBeanInspector inspector) {
+        String namespace = null;
+        RuntimeException namespaceProblem = null;
+        try {
+            namespace = inspector.determineNamespace(beanClass);
+        } catch (RuntimeException e) {
+            namespaceProblem = e;
+        }
+        List<PropertyBinding> properties = null;
+        RuntimeException propertiesProblem = null;
+        if (beanClass.isAnnotationPresent(XmlType.class)) {
+            try {
+                List<PropertyBinding> propertyList = new ArrayList<>();
+                for (String fieldName : inspector.getPropOrder(beanClass)) {
+                    propertyList.add(new PropertyBinding(fieldName, beanClass, namespace, inspector));
+                }
+                properties = Collections.unmodifiableList(propertyList);
+            } catch (RuntimeException e) {
+                propertiesProblem = e;
+            }
+        }
+        Map<String, String> enumFieldNames = new HashMap<>();
+        Map<String, String> enumFieldValues = new HashMap<>();
+        Set<String> declaredFieldNames = new HashSet<>();
+        for (Field field : beanClass.getDeclaredFields()) {
+            declaredFieldNames.add(field.getName());
+            if (beanClass.isEnum()) {
+                XmlEnumValue xmlEnumValue = field.getAnnotation(XmlEnumValue.class);
+                if (xmlEnumValue != null) {
+                    enumFieldNames.putIfAbsent(xmlEnumValue.value(), field.getName());
+                    enumFieldValues.putIfAbsent(field.getName(), xmlEnumValue.value());
+                }
+            }
+        }
+        return new BeanBindingPlan(beanClass, namespace, properties, namespaceProblem, propertiesProblem,
+                Collections.unmodifiableMap(enumFieldNames), Collections.unmodifiableMap(enumFieldValues),
+                Collections.unmodifiableSet(declaredFieldNames));
+    }
+
+    @Nullable
+    String getNamespace() {
+        if (namespaceProblem != null) {
+            throw namespaceProblem;
+        }
+        return namespace;
+    }
+
+    @NotNull
+    List<PropertyBinding> getProperties() {
+        if (propertiesProblem != null) {
+            throw propertiesProblem;
+        }
+        if (properties == null) {
+            throw new IllegalArgumentException("Cannot marshall " + beanClass + " it does not have @XmlType annotation");
+        }
+        return properties;
+    }
+
+    @Nullable
+    PropertyBinding findProperty(String fieldName) {
+        for (PropertyBinding property : getProperties()) {
+            if (property.getFieldName().equals(fieldName)) {
+                return property;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of the enum constant for given XML value (from @XmlEnumValue), or for the constant
+     * name itself, if there is such field in the class.
+     */
+    @Nullable
+    String findEnumFieldName(String xmlValue) {
+        String fieldName = enumFieldNames.get(xmlValue);
+        if (fieldName != null) {
+            return fieldName;
+        } else if (declaredFieldNames.contains(xmlValue)) {
+            return xmlValue;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the XML value (from @XmlEnumValue) for given enum constant name, or null if there's none.
+     */
+    @Nullable
+    String findEnumFieldValue(String fieldName) {
+        return enumFieldValues.get(fieldName);
+    }
+
+    @Nullable
+    PropertyAccess getPropertyAccess(String propName) {
+        return propertyAccesses.get(propName);
+    }
+
+    @NotNull
+    PropertyAccess putPropertyAccess(String propName, @NotNull PropertyAccess access) {
+        PropertyAccess existing = propertyAccesses.putIfAbsent(propName, access);
+        return existing != null ? existing : access;
+    }
+
+    /**
+     * Property to be marshalled.
+     */
+    static class PropertyBinding {
+
+        @NotNull private final String fieldName;
+        @Nullable private final Method getter;
+        @Nullable private final MethodHandle getterHandle;
+        @Nullable private final Field field;
+        private final boolean attribute;
+        @NotNull private final QName elementName;
+
+        /**
+         * Type of the values returned by the getter, i.e. with collections and JAXB elements unwrapped.
+         * Null if it cannot be determined; the problem is then reported when the type is needed.
+         */
+        @Nullable private final Class<?> unwrappedReturnType;
+
+        private PropertyBinding(@NotNull String fieldName, @NotNull Class<?> beanClass, String namespace,
+                @NotNull PrismBeanInspector inspector) {
+            this.fieldName = fieldName;
+            this.getter = inspector.findPropertyGetter(beanClass, fieldName);
+            this.getterHandle = getter != null ? toGetterHandle(getter) : null;
+            this.field = inspector.findPropertyField(beanClass, fieldName);
+            this.attribute = inspector.isAttribute(field, getter);
+            this.elementName = inspector.findFieldElementQName(fieldName, beanClass, namespace);
+            this.unwrappedReturnType = getter != null ? computeUnwrappedReturnType(getter, inspector) : null;
+        }
+
+        @NotNull
+        String getFieldName() {
+            return fieldName;
+        }
+
+        @Nullable
+        Method getGetter() {
+            return getter;
+        }
+
+        @Nullable
+        Field getField() {
+            return field;
+        }
+
+        boolean isAttribute() {
+            return attribute;
+        }
+
+        @NotNull
+        QName getElementName() {
+            return elementName;
+        }
+
+        @Nullable
+        Class<?> getUnwrappedReturnType() {
+            return unwrappedReturnType;
+        }
+
+        Object getValue(@NotNull Object bean) {
+            assert getter != null;
+            try {
+                return invokeGetter(getter, getterHandle, bean);
+            } catch (Throwable t) {
+                throw new SystemException("Cannot invoke method for field/property " + fieldName + " in "
+                        + bean.getClass() + ": " + t.getMessage(), t);
+            }
+        }
+
+        @Nullable
+        private static Class<?> computeUnwrappedReturnType(Method getter, PrismBeanInspector inspector) {
+            try {
+                return unwrappedReturnType(getter, inspector);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * How a value of given element is put into the bean when unmarshalling.
+     */
+    static class PropertyAccess {
+
+        enum Kind {
+            /** The value is put into the property using setter or collection getter. */
+            PROPERTY,
+            /** The value is put into "any" field (as it is a global element that is not a substitution). */
+            ANY_FIELD,
+            /** The value is put using "any" method, if there's one. */
+            ANY_METHOD,
+            /** There is neither setter nor getter for the property. */
+            NO_ACCESSOR
+        }
+
+        @NotNull final Kind kind;
+
+        /** Name of the property really used (considering e.g. substitutions). */
+        final String actualPropertyName;
+
+        /** Whether the data will be stored as RawType. */
+        final boolean storeAsRawType;
+
+        /** JAXB object factory instance (e.g. xxxx.common-3.ObjectFactory). */
+        final Object objectFactory;
+
+        /** Method in object factory that creates a given JAXB element (e.g. createAsIs(value)). */
+        final Method elementFactoryMethod;
+
+        /** Getter or setter that will be used to put a value (getter in case of collections). */
+        final Method getter, setter;
+        private final MethodHandle getterHandle, setterHandle;
+
+        /** Actual parameter type; unwrapped: Collection<X> -> X, JAXBElement<X> -> X. */
+        final Class<?> paramType;
+
+        /** If the paramType contained JAXBElement, i.e. if the value should be wrapped into it before using. */
+        final boolean wrapInJaxbElement;
+
+        /** The "any" field or method (for ANY_FIELD and ANY_METHOD kinds). */
+        final Field anyField;
+        final Method anyMethod;
+
+        PropertyAccess(@NotNull Kind kind, String actualPropertyName, boolean storeAsRawType, Object objectFactory,
+                Method elementFactoryMethod, Method getter, Method setter, Class<?> paramType, boolean wrapInJaxbElement,
+                Field anyField, Method anyMethod) {
+            this.kind = kind;
+            this.actualPropertyName = actualPropertyName;
+            this.storeAsRawType = storeAsRawType;
+            this.objectFactory = objectFactory;
+            this.elementFactoryMethod = elementFactoryMethod;
+            this.getter = getter;
+            this.getterHandle = getter != null ? toGetterHandle(getter) : null;
+            this.setter = setter;
+            this.setterHandle = setter != null ? toSetterHandle(setter) : null;
+            this.paramType = paramType;
+            this.wrapInJaxbElement = wrapInJaxbElement;
+            this.anyField = anyField;
+            this.anyMethod = anyMethod;
+        }
+
+        Object invokeGetter(Object bean) throws Throwable {
+            return BeanBindingPlan.invokeGetter(getter, getterHandle, bean);
+        }
+
+        void invokeSetter(Object bean, Object value) throws Throwable {
+            if (setterHandle != null) {
+                setterHandle.invokeExact(bean, value);
+            } else {
+                try {
+                    setter.invoke(bean, value);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause() != null ? e.getCause() : e;
+                }
+            }
+        }
+    }
+
+    private static Object invokeGetter(Method getter, MethodHandle getterHandle, Object bean) throws Throwable {
+        if (getterHandle != null) {
+            return (Object) getterHandle.invokeExact(bean);
+        } else {
+            try {
+                return getter.invoke(bean);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+        }
+    }
+
+    @Nullable
+    private static MethodHandle toGetterHandle(Method getter) {
+        try {
+            return MethodHandles.publicLookup().unreflect(getter)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static MethodHandle toSetterHandle(Method setter) {
+        try {
+            return MethodHandles.publicLookup().unreflect(setter)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Type of the values returned by the getter: Collection<X> -> X, Collection<JAXBElement<? extends X>> -> X.
+     */
+    static Class<?> unwrappedReturnType(Method getter, PrismBeanInspector inspector) {
+        Class<?> getterType = getter.getReturnType();
+        if (Collection.class.isAssignableFrom(getterType)) {
+            Type genericReturnType = getter.getGenericReturnType();
+            if (genericReturnType instanceof ParameterizedType) {
+                Type actualType = inspector.getTypeArgument(genericReturnType, "explicit type declaration");
+                if (actualType instanceof Class) {
+                    getterType = (Class<?>) actualType;
+                } else if (actualType instanceof ParameterizedType) {
+                    ParameterizedType parameterizedType = (ParameterizedType) actualType;
+                    Type typeArgument = inspector.getTypeArgument(parameterizedType, "JAXBElement return type");
+                    getterType = inspector.getUpperBound(typeArgument, "JAXBElement return type");
+                }
+            }
+        }
+        return getterType;
+    }
+}
@@ -15,7 +15,6 @@ import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.Handler;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
-import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.util.exception.TunnelException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
@@ -192,8 +191,11 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
         // structurally similar to a specific path through marshalXmlTypeToMap
         Class<?> beanClass = bean.getClass();
         QName propertyName = getHeterogeneousListPropertyName(beanClass);
-        Method getter = inspector.findPropertyGetter(beanClass, propertyName.getLocalPart());
-        Object getterResult = getValue(bean, getter, propertyName.getLocalPart());
+        BeanBindingPlan.PropertyBinding property = inspector.getBindingPlan(beanClass).findProperty(propertyName.getLocalPart());
+        if (property == null) {
+            throw new IllegalStateException("No property " + propertyName.getLocalPart() + " in " + beanClass);
+        }
+        Object getterResult = getValue(bean, property);
         if (!(getterResult instanceof Collection)) {
             throw new IllegalStateException("Heterogeneous list property " + propertyName
                     + " does not contain a collection but " + MiscUtil.getObjectName(getterResult));
@@ -231,26 +233,19 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
             xmap = new MapXNodeImpl();
         }
 
-        String namespace = inspector.determineNamespace(beanClass);
-        if (namespace == null) {
+        BeanBindingPlan plan = inspector.getBindingPlan(beanClass);
+        if (plan.getNamespace() == null) {
             throw new IllegalArgumentException("Cannot determine namespace of "+beanClass);
         }
 
-        List<String> propOrder = inspector.getPropOrder(beanClass);
-
-        for (String fieldName: propOrder) {
-            Method getter = inspector.findPropertyGetter(beanClass, fieldName);
-            if (getter == null) {
-                throw new IllegalStateException("No getter for field "+fieldName+" in "+beanClass);
-            }
-            Object getterResult = getValue(bean, getter, fieldName);
+        for (BeanBindingPlan.PropertyBinding property : plan.getProperties()) {
+            Object getterResult = getValue(bean, property);
 
             if (getterResult == null) {
                 continue;
             }
 
-            Field field = inspector.findPropertyField(beanClass, fieldName);
-            Map.Entry<QName,XNodeImpl> marshalled = marshallField(getterResult, field, fieldName, getter, namespace, ctd, beanClass, ctx);
+            Map.Entry<QName,XNodeImpl> marshalled = marshallField(getterResult, property, plan.getNamespace(), ctd, ctx);
             if (marshalled != null) {
                 xmap.put(marshalled.getKey(), marshalled.getValue());
             }
@@ -258,10 +253,10 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
         return xmap;
     }
 
-    private Map.Entry<QName, XNodeImpl> marshallField(Object getterResult,Field field, String fieldName, Method getter, String namespace, @Nullable ComplexTypeDefinition ctd, Class<?> beanClass, SerializationContext ctx) throws SchemaException {
+    private Map.Entry<QName, XNodeImpl> marshallField(Object getterResult, BeanBindingPlan.PropertyBinding property, String namespace, @Nullable ComplexTypeDefinition ctd, SerializationContext ctx) throws SchemaException {
 
-            boolean isAttribute = inspector.isAttribute(field, getter);
-            QName elementName = inspector.findFieldElementQName(fieldName, beanClass, namespace);
+            boolean isAttribute = property.isAttribute();
+            QName elementName = property.getElementName();
             ItemDefinition<?> propDef = ctd != null ? ctd.findLocalItemDefinition(elementName) : null;
 
             if (getterResult instanceof Collection<?>) {
@@ -286,7 +281,7 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
                     if (value == null) {
                         continue;
                     }
-                    XNodeImpl marshaled = marshalSingleValue(value, field, fieldName, isAttribute, ctx, getter, propDef);
+                    XNodeImpl marshaled = marshalSingleValue(value, property, namespace, isAttribute, ctx, propDef);
                     xlist.add(marshaled);
                 }
                 return new AbstractMap.SimpleEntry<>(elementName, xlist);
@@ -295,38 +290,36 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
             if (getterResult instanceof JAXBElement) {
                 elementName = ((JAXBElement<?>) getterResult).getName();
             }
-            XNodeImpl marshaled = marshalSingleValue(getterResult, field, fieldName, isAttribute, ctx, getter, propDef);
+            XNodeImpl marshaled = marshalSingleValue(getterResult, property, namespace, isAttribute, ctx, propDef);
             if (marshaled != null) {
                 return new AbstractMap.SimpleEntry<>(elementName, marshaled);
             }
             return null;
     }
 
-    private XNodeImpl marshalSingleValue(Object value, Field field, String namespace, boolean isAttribute, SerializationContext ctx, Method getter, ItemDefinition<?> propDef) throws SchemaException {
+    private XNodeImpl marshalSingleValue(Object value, BeanBindingPlan.PropertyBinding property, String namespace, boolean isAttribute, SerializationContext ctx, ItemDefinition<?> propDef) throws SchemaException {
         Object valueToMarshal = value;
         if (value instanceof JAXBElement) {
             valueToMarshal = ((JAXBElement<?>) value).getValue();
         }
-        QName typeName = inspector.findTypeName(field, valueToMarshal.getClass(), namespace);
+        // namespace of the bean is used only if the namespace of the value type cannot be determined
+        QName typeName = inspector.findTypeName(property.getField(), valueToMarshal.getClass(), namespace);
         // note: fieldTypeName is used only for attribute values here (when constructing PrimitiveXNode)
         XNodeImpl marshaled = marshallValue(valueToMarshal, typeName, isAttribute, ctx);
-        updateExplicitType(marshaled, valueToMarshal.getClass(), typeName, unwrappedReturnType(getter), propDef);
+        updateExplicitType(marshaled, valueToMarshal.getClass(), typeName, unwrappedReturnType(property), propDef);
         return marshaled;
     }
 
-    private Object getValue(Object bean, Method getter, String fieldOrPropertyName) {
-        Object getterResult;
-        try {
-            getterResult = getter.invoke(bean);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            throw new SystemException("Cannot invoke method for field/property "+fieldOrPropertyName+" in "+bean.getClass()+": "+e.getMessage(), e);
+    private Object getValue(Object bean, BeanBindingPlan.PropertyBinding property) {
+        if (property.getGetter() == null) {
+            throw new IllegalStateException("No getter for field "+property.getFieldName()+" in "+bean.getClass());
         }
-        return getterResult;
+        return property.getValue(bean);
     }
 
     private XNodeImpl marshalEnum(Enum<?> enumValue, SerializationContext ctx) {
         var enumClass = enumValue.getClass();
-        String enumStringValue = inspector.findEnumFieldValue(enumClass, enumValue.toString());
+        String enumStringValue = inspector.getBindingPlan(enumClass).findEnumFieldValue(enumValue.toString());
         if (StringUtils.isEmpty(enumStringValue)){
             enumStringValue = enumValue.toString();
         }
@@ -382,13 +375,8 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
             return;
         }
 
-        List<String> propOrder = inspector.getPropOrder(beanClass);
-        for (String fieldName: propOrder) {
-            Method getter = inspector.findPropertyGetter(beanClass, fieldName);
-            if (getter == null) {
-                throw new IllegalStateException("No getter for field "+fieldName+" in "+beanClass);
-            }
-            Object getterResult = getValue(bean, getter, fieldName);
+        for (BeanBindingPlan.PropertyBinding property : inspector.getBindingPlan(beanClass).getProperties()) {
+            Object getterResult = getValue(bean, property);
 
             if (getterResult == null) {
                 continue;
@@ -480,22 +468,14 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
         }
     }
 
-    private Class<?> unwrappedReturnType(Method getter) {
-        Class<?> getterType = getter.getReturnType();
-        if (Collection.class.isAssignableFrom(getterType)) {
-            Type genericReturnType = getter.getGenericReturnType();
-            if (genericReturnType instanceof ParameterizedType) {
-                Type actualType = inspector.getTypeArgument(genericReturnType, "explicit type declaration");
-                if (actualType instanceof Class) {
-                    getterType = (Class<?>) actualType;
-                } else if (actualType instanceof ParameterizedType) {
-                    ParameterizedType parameterizedType = (ParameterizedType) actualType;
-                    Type typeArgument = inspector.getTypeArgument(parameterizedType, "JAXBElement return type");
-                    getterType = inspector.getUpperBound(typeArgument, "JAXBElement return type");
-                }
-            }
+    private Class<?> unwrappedReturnType(BeanBindingPlan.PropertyBinding property) {
+        Class<?> precomputed = property.getUnwrappedReturnType();
+        if (precomputed != null) {
+            return precomputed;
+        } else {
+            // reports the problem
+            return BeanBindingPlan.unwrappedReturnType(property.getGetter(), inspector);
         }
-        return getterType;
     }
 
     // bean should have only two features: "list" attribute and multivalued property into which we should store the elements
@@ -9,6 +9,7 @@ package com.evolveum.midpoint.prism.impl.marshaller;
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.impl.PrismContextImpl;
 import com.evolveum.midpoint.prism.impl.lex.dom.DomLexicalProcessor;
+import com.evolveum.midpoint.prism.impl.marshaller.BeanBindingPlan.PropertyAccess;
 import com.evolveum.midpoint.prism.impl.xnode.*;
 import com.evolveum.midpoint.prism.marshaller.ParsingMigrator;
 import com.evolveum.midpoint.prism.path.ItemPath;
@@ -440,10 +441,19 @@ public class BeanUnmarshaller {
         //System.out.println("bean=" + bean.getClass().getSimpleName() + ", key=" + key.getLocalPart() + ", node=" + node + ", isHeteroListProperty=" + isHeteroListProperty);
         final String propName = key.getLocalPart();
 
-        // this code is just to keep this method reasonably short
-        PropertyAccessMechanism mechanism = new PropertyAccessMechanism();
-        if (!mechanism.compute(bean, beanClass, propName, key, node, pc)) {
-            return;
+        PropertyAccess mechanism = getPropertyAccess(beanClass, propName);
+        switch (mechanism.kind) {
+            case ANY_FIELD:
+                unmarshalToAnyUsingField(bean, mechanism.anyField, key, node, pc);
+                return;
+            case ANY_METHOD:
+                unmarshalToAnyUsingGetterIfExists(bean, mechanism.anyMethod, key, node, pc, propName);
+                return;
+            case NO_ACCESSOR:
+                pc.warnOrThrow(LOGGER, "Cannot find setter or getter for field " + mechanism.actualPropertyName + " in " + beanClass);
+                return;
+            default:
+                // PROPERTY: continuing below
         }
 
         final String actualPropertyName = mechanism.actualPropertyName;
@@ -569,17 +579,17 @@ public class BeanUnmarshaller {
 
         if (setter != null) {
             try {
-                setter.invoke(bean, propValue);
-            } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-                throw new SystemException("Cannot invoke setter "+setter+" on bean of type "+beanClass+": "+e.getMessage(), e);
+                mechanism.invokeSetter(bean, propValue);
+            } catch (Throwable t) {
+                throw new SystemException("Cannot invoke setter "+setter+" on bean of type "+beanClass+": "+t.getMessage(), t);
             }
         } else if (getter != null) {
             Object getterReturn;
             Collection<Object> col;
             try {
-                getterReturn = getter.invoke(bean);
-            } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-                throw new SystemException("Cannot invoke getter "+getter+" on bean of type "+beanClass+": "+e.getMessage(), e);
+                getterReturn = mechanism.invokeGetter(bean);
+            } catch (Throwable t) {
+                throw new SystemException("Cannot invoke getter "+getter+" on bean of type "+beanClass+": "+t.getMessage(), t);
             }
             try {
                 col = (Collection<Object>)getterReturn;
@@ -630,6 +640,22 @@ public class BeanUnmarshaller {
         }
     }
 
+    /**
+     * Returns information on how to put a value of given property (element) into beans of given class.
+     * It is computed on first use and then kept in the binding plan of the class.
+     */
+    @NotNull
+    private PropertyAccess getPropertyAccess(@NotNull Class<?> beanClass, @NotNull String propName) throws SchemaException {
+        BeanBindingPlan plan = inspector.getBindingPlan(beanClass);
+        PropertyAccess access = plan.getPropertyAccess(propName);
+        if (access != null) {
+            return access;
+        } else {
+            return plan.putPropertyAccess(propName, new PropertyAccessMechanism().compute(beanClass, propName));
+        }
+    }
+
+    // Computes the property access. Does not depend on the bean instance nor on the data being parsed.
     private class PropertyAccessMechanism {
 
         Class<?> beanClass;
@@ -645,25 +671,34 @@ public class BeanUnmarshaller {
         Class<?> paramType;                // Actual parameter type; unwrapped: Collection<X> -> X, JAXBElement<X> -> X
         boolean wrapInJaxbElement;        // If the paramType contained JAXBElement, i.e. if the value should be wrapped into it before using
 
-        // returns true if the processing is to be continued;
-        // false in case of using alternative way of unmarshalling (e.g. use of "any" method), or in case of error (in COMPAT mode)
-        private <T> boolean compute(T bean, Class<T> beanClass, String propName, QName key, XNodeImpl node, ParsingContext pc)
-                throws SchemaException {
+        // alternative ways of unmarshalling (e.g. use of "any" field or method)
+        Field anyField;
+        Method anyMethod;
+
+        private PropertyAccess compute(Class<?> beanClass, String propName) throws SchemaException {
 
             this.beanClass = beanClass;
 
             // phase1
-            if (!computeActualPropertyName(bean, propName, key, node, pc)) {
-                return false;
+            if (!computeActualPropertyName(propName)) {
+                return createAccess(anyField != null ? PropertyAccess.Kind.ANY_FIELD : PropertyAccess.Kind.ANY_METHOD);
             }
             // phase2
-            return computeGetterAndSetter(propName, pc);
+            if (!computeGetterAndSetter(propName)) {
+                return createAccess(PropertyAccess.Kind.NO_ACCESSOR);
+            }
+            return createAccess(PropertyAccess.Kind.PROPERTY);
+        }
+
+        private PropertyAccess createAccess(PropertyAccess.Kind kind) {
+            return new PropertyAccess(kind, actualPropertyName, storeAsRawType, objectFactory, elementFactoryMethod,
+                    getter, setter, paramType, wrapInJaxbElement, anyField, anyMethod);
         }
 
         // computes actualPropertyName + storeAsRawType
         // if necessary, fills-in also objectFactory + elementFactoryMethod
-        private <T> boolean computeActualPropertyName(T bean, String propName, QName key, XNodeImpl node, ParsingContext pc)
-                throws SchemaException {
+        // returns false in case of using alternative way of unmarshalling (e.g. use of "any" field or method)
+        private boolean computeActualPropertyName(String propName) {
             Field propertyField = inspector.findPropertyField(beanClass, propName);
             Method propertyGetter = null;
             if (propertyField == null) {
@@ -685,16 +720,14 @@ public class BeanUnmarshaller {
                     // great - global element found, let's look up the field
                     propertyField = inspector.lookupSubstitution(beanClass, elementFactoryMethod);
                     if (propertyField == null) {
-                        propertyField = inspector.findAnyField(beanClass);        // Check for "any" field
-                        if (propertyField != null) {
-                            unmarshalToAnyUsingField(bean, propertyField, key, node, pc);
-                        } else {
-                            unmarshalToAnyUsingGetterIfExists(bean, key, node, pc, propName);
+                        anyField = inspector.findAnyField(beanClass);        // Check for "any" field
+                        if (anyField == null) {
+                            anyMethod = inspector.findAnyMethod(beanClass);
                         }
                         return false;
                     }
                 } else {
-                    unmarshalToAnyUsingGetterIfExists(bean, key, node, pc, propName);        // e.g. "getAny()"
+                    anyMethod = inspector.findAnyMethod(beanClass);        // e.g. "getAny()"
                     return false;
                 }
             }
@@ -727,7 +760,7 @@ public class BeanUnmarshaller {
             return inspector.findElementMethodInObjectFactory(objectFactoryClass, propName);
         }
 
-        private boolean computeGetterAndSetter(String propName, ParsingContext pc) throws SchemaException {
+        private boolean computeGetterAndSetter(String propName) throws SchemaException {
             setter = inspector.findSetter(beanClass, actualPropertyName);
             wrapInJaxbElement = false;
             paramType = null;
@@ -736,7 +769,6 @@ public class BeanUnmarshaller {
                 // for a getter that returns a collection (Collection<Whatever>)
                 getter = inspector.findPropertyGetter(beanClass, actualPropertyName);
                 if (getter == null) {
-                    pc.warnOrThrow(LOGGER, "Cannot find setter or getter for field " + actualPropertyName + " in " + beanClass);
                     return false;
                 }
                 computeParamTypeFromGetter(propName, getter.getReturnType());
@@ -876,9 +908,8 @@ public class BeanUnmarshaller {
         }
     }
 
-    private <T> void unmarshalToAnyUsingGetterIfExists(@NotNull T bean, @NotNull QName key, @NotNull XNodeImpl node,
-            @NotNull ParsingContext pc, String propName) throws SchemaException {
-        Method elementMethod = inspector.findAnyMethod(bean.getClass());
+    private <T> void unmarshalToAnyUsingGetterIfExists(@NotNull T bean, @Nullable Method elementMethod, @NotNull QName key,
+            @NotNull XNodeImpl node, @NotNull ParsingContext pc, String propName) throws SchemaException {
         if (elementMethod != null) {
             unmarshallToAnyUsingGetter(bean, elementMethod, key, node, pc);
         } else {
@@ -1249,15 +1280,7 @@ public class BeanUnmarshaller {
             return null;
         }
 
-        String javaEnumString = inspector.findEnumFieldName(beanClass, primValue);
-        if (javaEnumString == null) {
-            for (Field field: beanClass.getDeclaredFields()) {
-                if (field.getName().equals(primValue)) {
-                    javaEnumString = field.getName();
-                    break;
-                }
-            }
-        }
+        String javaEnumString = inspector.getBindingPlan(beanClass).findEnumFieldName(primValue);
         if (javaEnumString == null) {
             pc.warnOrThrow(LOGGER, "Cannot find enum value for string '"+primValue+"' in "+beanClass);
             return null;
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.marshaller;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.util.ShortDumpable;
+
+/**
+ * Lock-free memoization of results of one kind of {@link PrismBeanInspector} lookup.
+ *
+ * Lookups depend on classes, fields and methods only, so their results never change. We do not use
+ * {@link ConcurrentHashMap#computeIfAbsent(Object, java.util.function.Function)} because the lookups
+ * recursively call other lookups of the same kind (e.g. for superclasses), which is not allowed there.
+ * Instead, the value is computed without any lock and then published using putIfAbsent. Threads racing
+ * for the same key may compute the value more than once, but all of them get the same (first published)
+ * instance.
+ *
+ * Null keys and "not found" (null) results are represented by special markers, so they are cached as well.
+ *
+ * @param <V> Type of the cached values.
+ */
+public class InspectionCache<V> implements ShortDumpable {
+
+    private static final Object NULL_KEY = new Object();
+    private static final Object NOT_FOUND = new Object();
+
+    @NotNull private final String name;
+    @NotNull private final ConcurrentMap<Object, Object> map = new ConcurrentHashMap<>();
+
+    @NotNull private final LongAdder hits = new LongAdder();
+    @NotNull private final LongAdder misses = new LongAdder();
+
+    /** Misses where another thread published the value while we were computing it. */
+    @NotNull private final LongAdder races = new LongAdder();
+
+    InspectionCache(@NotNull String name) {
+        this.name = name;
+    }
+
+    @NotNull
+    String getName() {
+        return name;
+    }
+
+    V get(Object key, @NotNull Supplier<V> computer) {
+        Object mapKey = key != null ? key : NULL_KEY;
+        Object cached = map.get(mapKey);
+        if (cached != null) {
+            hits.increment();
+            return unwrap(cached);
+        }
+        misses.increment();
+        V computed = computer.get();
+        Object existing = map.putIfAbsent(mapKey, computed != null ? computed : NOT_FOUND);
+        if (existing != null) {
+            races.increment();
+            return unwrap(existing);
+        } else {
+            return computed;
+        }
+    }
+
+    /**
+     * Creates a key composed of more values (any of them can be null).
+     */
+    static Object key(Object first, Object second) {
+        return new CompositeKey(first, second, null);
+    }
+
+    static Object key(Object first, Object second, Object third) {
+        return new CompositeKey(first, second, third);
+    }
+
+    @NotNull
+    Statistics getStatistics() {
+        return new Statistics(hits.sum(), misses.sum(), races.sum(), map.size());
+    }
+
+    void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        races.reset();
+    }
+
+    @Override
+    public void shortDump(StringBuilder sb) {
+        getStatistics().shortDump(sb);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V unwrap(Object cached) {
+        return cached != NOT_FOUND ? (V) cached : null;
+    }
+
+    private static class CompositeKey {
+
+        private final Object first;
+        private final Object second;
+        private final Object third;
+        private final int hashCode;
+
+        private CompositeKey(Object first, Object second, Object third) {
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.hashCode = Objects.hash(first, second, third);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CompositeKey)) {
+                return false;
+            }
+            CompositeKey that = (CompositeKey) o;
+            return hashCode == that.hashCode
+                    && Objects.equals(first, that.first)
+                    && Objects.equals(second, that.second)
+                    && Objects.equals(third, that.third);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Snapshot of cache statistics.
+     */
+    public static class Statistics implements ShortDumpable {
+
+        private final long hits;
+        private final long misses;
+        private final long races;
+        private final int size;
+
+        private Statistics(long hits, long misses, long races, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.races = races;
+            this.size = size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Number of values that were computed concurrently by more threads (all but the first one being wasted).
+         */
+        public long getRaces() {
+            return races;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0;
+        }
+
+        @Override
+        public void shortDump(StringBuilder sb) {
+            sb.append("hits: ").append(hits)
+                    .append(", misses: ").append(misses)
+                    .append(String.format(" (hit rate %.1f%%)", getHitRate() * 100))
+                    .append(", races: ").append(races)
+                    .append(", size: ").append(size);
+        }
+
+        @Override
+        public String toString() {
+            return shortDump();
+        }
+    }
+}
@@ -43,14 +43,23 @@ public final class ItemPathHolder {
     private List<PathHolderSegment> segments;
     private final Map<String, String> explicitNamespaceDeclarations = new HashMap<>();
 
+    /**
+     * Prefixes that were resolved using externally specified namespace map during parsing.
+     * The parsed path can be reused for the same text only if these prefixes resolve to the same namespaces.
+     */
+    private final Map<String, String> externallyResolvedPrefixes = new HashMap<>();
+
+    /** True if the path was resolved using DOM node or it contains undeclared prefixes. */
+    private boolean notReusable;
+
     //region Parsing
 
     public static UniformItemPath parseFromString(String path) {
-        return new ItemPathHolder(path).toItemPath();
+        return ItemPathParsingCache.parse(path, null);
     }
 
     public static UniformItemPath parseFromString(String path, Map<String, String> namespaces) {
-        return new ItemPathHolder(path, namespaces).toItemPath();
+        return ItemPathParsingCache.parse(path, namespaces);
     }
 
     public static UniformItemPath parseFromElement(Element element) {
@@ -64,7 +73,7 @@ public final class ItemPathHolder {
         parse(xpath, null, null);
     }
 
-    private ItemPathHolder(String path, Map<String, String> namespaces) {
+    ItemPathHolder(String path, Map<String, String> namespaces) {
         parse(path, null, namespaces);
     }
 
@@ -159,6 +168,7 @@ public final class ItemPathHolder {
                 String namespacePrefix = qnameArray[0];
                 String namespace = findNamespace(namespacePrefix, domNode, namespaceMap);
                 if (namespace == null) {
+                    notReusable = true;
                     QNameUtil.reportUndeclaredNamespacePrefix(namespacePrefix, itemPath);
                     namespacePrefix = QNameUtil.markPrefixAsUndeclared(namespacePrefix);
                 }
@@ -197,12 +207,32 @@ public final class ItemPathHolder {
         // one of namespaceMap or domNode is always null.
         if (namespaceMap != null) {
             ns = namespaceMap.get(prefix);
+            externallyResolvedPrefixes.put(prefix, ns);
         } else if (domNode != null) {
             ns = domNode.lookupNamespaceURI(prefix);
+            notReusable = true;
         }
 
         return ns;
     }
+
+    /**
+     * Can be the parsed form reused for the same path text (provided that {@link #externallyResolvedPrefixes}
+     * resolve to the same namespaces)?
+     */
+    boolean isReusable() {
+        return !notReusable;
+    }
+
+    @NotNull
+    Map<String, String> getExternallyResolvedPrefixes() {
+        return externallyResolvedPrefixes;
+    }
+
+    @NotNull
+    Map<String, String> getExplicitNamespaceDeclarations() {
+        return explicitNamespaceDeclarations;
+    }
     //endregion
 
     //region Serializing
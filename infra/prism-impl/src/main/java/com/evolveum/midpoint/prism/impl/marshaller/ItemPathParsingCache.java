@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.marshaller;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.path.ItemPathSegment;
+import com.evolveum.midpoint.prism.path.NameItemPathSegment;
+import com.evolveum.midpoint.prism.path.UniformItemPath;
+
+/**
+ * Bounded cache of parsed item paths, keyed by the path text. The same paths (in mappings, queries, deltas)
+ * are typically parsed over and over again.
+ *
+ * A cached entry is reused only if the prefixes it has taken from the externally specified namespace map
+ * resolve to the same namespaces in the current map. Paths with undeclared prefixes are not cached.
+ *
+ * Cached segments are immutable and shared. Callers get a new {@link UniformItemPath} instance each time,
+ * as item paths (and their namespace maps) can be modified. Name segments are interned, so the same names
+ * in different paths share the segment instances.
+ *
+ * Hits and misses are counted locally (see {@link #getHitCount()} and {@link #getMissCount()}), as reporting them
+ * to the global performance collector on each parsing would cost more than the lookup.
+ */
+public class ItemPathParsingCache {
+
+    private static final int MAX_SIZE = 10000;
+
+    private static final Cache<String, ParsedPath> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .build();
+
+    private static final Interner<ItemPathSegment> SEGMENT_INTERNER = Interners.newWeakInterner();
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    static UniformItemPath parse(String path, Map<String, String> namespaces) {
+        if (path == null) {
+            return new ItemPathHolder(null, namespaces).toItemPath();
+        }
+        ParsedPath cached = CACHE.getIfPresent(path);
+        if (cached != null && cached.isApplicableTo(namespaces)) {
+            HITS.increment();
+            return cached.toItemPath();
+        }
+        MISSES.increment();
+        ItemPathHolder holder = new ItemPathHolder(path, namespaces);
+        UniformItemPath itemPath = holder.toItemPath();
+        if (holder.isReusable()) {
+            CACHE.put(path, new ParsedPath(itemPath.getSegments(), holder));
+        }
+        return itemPath;
+    }
+
+    /**
+     * Clears the cache. Useful mainly for tests.
+     */
+    public static void clear() {
+        CACHE.invalidateAll();
+    }
+
+    /**
+     * Number of cache hits since the start. Not reset by {@link #clear()}.
+     */
+    public static long getHitCount() {
+        return HITS.sum();
+    }
+
+    /**
+     * Number of cache misses (including paths that cannot be cached) since the start. Not reset by {@link #clear()}.
+     */
+    public static long getMissCount() {
+        return MISSES.sum();
+    }
+
+    private static ItemPathSegment intern(ItemPathSegment segment) {
+        if (segment instanceof NameItemPathSegment) {
+            // Equal name segments are interchangeable: the equality covers namespace, local name, prefix and the wildcard flag.
+            return SEGMENT_INTERNER.intern(segment);
+        } else {
+            return segment;
+        }
+    }
+
+    private static class ParsedPath {
+
+        @NotNull private final List<ItemPathSegment> segments;
+        @NotNull private final Map<String, String> explicitNamespaceDeclarations;
+        @NotNull private final Map<String, String> externallyResolvedPrefixes;
+
+        private ParsedPath(@NotNull List<ItemPathSegment> segments, @NotNull ItemPathHolder holder) {
+            List<ItemPathSegment> internedSegments = new ArrayList<>(segments.size());
+            for (ItemPathSegment segment : segments) {
+                internedSegments.add(intern(segment));
+            }
+            this.segments = Collections.unmodifiableList(internedSegments);
+            this.explicitNamespaceDeclarations = new HashMap<>(holder.getExplicitNamespaceDeclarations());
+            this.externallyResolvedPrefixes = new HashMap<>(holder.getExternallyResolvedPrefixes());
+        }
+
+        private boolean isApplicableTo(Map<String, String> namespaces) {
+            for (Map.Entry<String, String> entry : externallyResolvedPrefixes.entrySet()) {
+                String current = namespaces != null ? namespaces.get(entry.getKey()) : null;
+                if (!Objects.equals(current, entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private UniformItemPath toItemPath() {
+            UniformItemPath path = UniformItemPath.create(segments);
+            path.setNamespaceMap(new HashMap<>(explicitNamespaceDeclarations));
+            return path;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.marshaller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.ParallelParsingOptions;
+import com.evolveum.midpoint.prism.ParsingContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismParser.ObjectHandler;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor.RootXNodeHandler;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Parses objects iteratively in more threads:
+ *
+ * 1. The reader thread runs the lexical processor, which splits the input into per-object XNode trees.
+ * (Tokenizing cannot be parallelized, as the object boundaries are known only after reading.)
+ *
+ * 2. Worker threads unmarshal the XNode trees into prism objects.
+ *
+ * 3. The calling thread passes the objects to the handler, in input order or as they are completed.
+ *
+ * The number of objects read but not yet passed to the handler is limited by the queue size.
+ * Each object is unmarshalled with its own clone of the parsing context; the warnings are collected
+ * into the original context when the object is passed to the handler.
+ *
+ * Errors are reported to the handler in the same way as in the sequential parsing: exceptions thrown by
+ * {@link ObjectHandler#handleData(PrismObject)} are passed to {@link ObjectHandler#handleError(Throwable)}.
+ * If the processing is stopped (by the handler or by an exception), the reader thread is interrupted
+ * and waited for at most {@link #READER_STOP_TIMEOUT} milliseconds.
+ */
+class ParallelObjectsParser {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ParallelObjectsParser.class);
+
+    private static final AtomicInteger PARSER_COUNTER = new AtomicInteger();
+
+    /** How long to wait for the reader thread to finish after the processing was stopped (in milliseconds). */
+    private static final long READER_STOP_TIMEOUT = 10000;
+
+    @FunctionalInterface
+    interface ObjectsReader {
+        void read(ParsingContext pc, RootXNodeHandler handler) throws SchemaException, IOException;
+    }
+
+    @FunctionalInterface
+    interface ObjectUnmarshaller {
+        PrismObject<?> unmarshal(RootXNodeImpl root, ParsingContext pc) throws SchemaException;
+    }
+
+    @NotNull private final ParallelParsingOptions options;
+    @NotNull private final ObjectHandler handler;
+    @NotNull private final ParsingContext context;
+    @NotNull private final ObjectsReader reader;
+    @NotNull private final ObjectUnmarshaller unmarshaller;
+
+    /** Outcomes to be passed to the handler. In ordered mode, they are put here in input order (maybe not completed yet). */
+    @NotNull private final BlockingQueue<CompletableFuture<Outcome>> outcomes = new LinkedBlockingQueue<>();
+
+    /** Limits the number of objects read but not yet passed to the handler. */
+    @NotNull private final Semaphore permits;
+
+    private volatile boolean stopped;
+
+    ParallelObjectsParser(@NotNull ParallelParsingOptions options, @NotNull ObjectHandler handler,
+            @NotNull ParsingContext context, @NotNull ObjectsReader reader, @NotNull ObjectUnmarshaller unmarshaller) {
+        this.options = options.clone();
+        this.handler = handler;
+        this.context = context;
+        this.reader = reader;
+        this.unmarshaller = unmarshaller;
+        this.permits = new Semaphore(this.options.getQueueSize());
+    }
+
+    void parse() throws SchemaException, IOException {
+        int parserNumber = PARSER_COUNTER.incrementAndGet();
+        ExecutorService workers = Executors.newFixedThreadPool(options.getThreads(),
+                new NamedThreadFactory("prism-parser-" + parserNumber + "-worker-"));
+        ParsingContext readerContext = context.clone();
+        int readerWarningsBefore = readerContext.getWarnings().size();
+        Thread readerThread = new NamedThreadFactory("prism-parser-" + parserNumber + "-reader")
+                .newThread(() -> runReader(workers, readerContext));
+        LOGGER.trace("Starting parallel parsing with {}", options);
+        readerThread.start();
+        Outcome end = null;
+        try {
+            end = deliverOutcomes();
+        } finally {
+            stop();
+            workers.shutdownNow();
+            if (end == null) {
+                // Stopped before the end of the input: the reader may be still running.
+                readerThread.interrupt();
+            }
+            joinReader(readerThread);
+            copyWarnings(readerContext, readerWarningsBefore);
+        }
+        if (end != null && end.error != null) {
+            throwReaderError(end.error);
+        }
+    }
+
+    private void runReader(ExecutorService workers, ParsingContext readerContext) {
+        AtomicInteger submitted = new AtomicInteger();
+        Throwable error = null;
+        try {
+            reader.read(readerContext, root -> {
+                if (!acquirePermit()) {
+                    return false;
+                }
+                submit(workers, root);
+                submitted.incrementAndGet();
+                return true;
+            });
+        } catch (Throwable t) {
+            error = t;
+        }
+        outcomes.add(CompletableFuture.completedFuture(Outcome.end(submitted.get(), error)));
+    }
+
+    private boolean acquirePermit() {
+        if (stopped) {
+            return false;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !stopped;
+    }
+
+    private void submit(ExecutorService workers, RootXNodeImpl root) {
+        CompletableFuture<Outcome> future = CompletableFuture.supplyAsync(() -> unmarshal(root), workers);
+        if (options.isPreserveOrder()) {
+            outcomes.add(future);
+        } else {
+            future.whenComplete((outcome, t) -> outcomes.add(future));
+        }
+    }
+
+    private Outcome unmarshal(RootXNodeImpl root) {
+        ParsingContext objectContext = context.clone();
+        int warningsBefore = objectContext.getWarnings().size();
+        try {
+            return Outcome.object(unmarshaller.unmarshal(root, objectContext), objectContext, warningsBefore);
+        } catch (Throwable t) {
+            return Outcome.error(t, objectContext, warningsBefore);
+        }
+    }
+
+    /**
+     * Returns the end outcome, or null if the processing was stopped by the handler.
+     */
+    private Outcome deliverOutcomes() {
+        Outcome end = null;
+        int delivered = 0;
+        for (;;) {
+            if (end != null && delivered == end.submitted) {
+                return end;
+            }
+            Outcome outcome;
+            try {
+                outcome = outcomes.take().join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SystemException("Interrupted while waiting for parsed objects", e);
+            } catch (CancellationException | CompletionException e) {
+                // Should not occur, as the unmarshalling tasks catch all exceptions
+                throw new SystemException("Unexpected failure of parsing task: " + e.getMessage(), e);
+            }
+            if (outcome.end) {
+                end = outcome;
+                continue;
+            }
+            copyWarnings(outcome.context, outcome.warningsBefore);
+            boolean cont = outcome.error == null ? handleData(outcome.object) : handler.handleError(outcome.error);
+            delivered++;
+            permits.release();
+            if (!cont) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The same as in sequential parsing: failures of the handler are reported as errors.
+     */
+    private boolean handleData(PrismObject<?> object) {
+        try {
+            return handler.handleData(object);
+        } catch (Throwable t) {
+            return handler.handleError(t);
+        }
+    }
+
+    private void stop() {
+        stopped = true;
+        permits.release(); // in case the reader waits for a permit
+    }
+
+    private void joinReader(Thread readerThread) {
+        try {
+            readerThread.join(READER_STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for the reader thread to finish");
+            return;
+        }
+        if (readerThread.isAlive()) {
+            // It is a daemon thread, so it will not prevent JVM from exiting.
+            LOGGER.warn("Reader thread {} did not finish in {} ms, leaving it running", readerThread.getName(),
+                    READER_STOP_TIMEOUT);
+        }
+    }
+
+    private void copyWarnings(ParsingContext from, int warningsBefore) {
+        List<String> warnings = from.getWarnings();
+        for (String warning : warnings.subList(warningsBefore, warnings.size())) {
+            context.warn(warning);
+        }
+    }
+
+    private void throwReaderError(Throwable error) throws SchemaException, IOException {
+        if (error instanceof SchemaException) {
+            throw (SchemaException) error;
+        } else if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error instanceof Error) {
+            throw (Error) error;
+        } else {
+            throw new SystemException(error.getMessage(), error);
+        }
+    }
+
+    private static class Outcome {
+        private final PrismObject<?> object;
+        private final Throwable error;
+        private final ParsingContext context;
+        private final int warningsBefore;
+
+        /** Marks the end of the input. */
+        private final boolean end;
+
+        /** Number of objects read from the input (for the end outcome). */
+        private final int submitted;
+
+        private Outcome(PrismObject<?> object, Throwable error, ParsingContext context, int warningsBefore,
+                boolean end, int submitted) {
+            this.object = object;
+            this.error = error;
+            this.context = context;
+            this.warningsBefore = warningsBefore;
+            this.end = end;
+            this.submitted = submitted;
+        }
+
+        private static Outcome object(PrismObject<?> object, ParsingContext context, int warningsBefore) {
+            return new Outcome(object, null, context, warningsBefore, false, 0);
+        }
+
+        private static Outcome error(Throwable error, ParsingContext context, int warningsBefore) {
+            return new Outcome(null, error, context, warningsBefore, false, 0);
+        }
+
+        private static Outcome end(int submitted, Throwable error) {
+            return new Outcome(null, error, null, 0, true, submitted);
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final boolean numbered;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private NamedThreadFactory(String name) {
+            this.prefix = name;
+            this.numbered = name.endsWith("-");
+        }
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, numbered ? prefix + counter.incrementAndGet() : prefix);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -14,6 +14,8 @@ import com.evolveum.midpoint.prism.schema.PrismSchema;
 import com.evolveum.midpoint.prism.schema.SchemaDescription;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
 import com.evolveum.midpoint.prism.xml.XsdTypeMapper;
+import com.evolveum.midpoint.util.DebugDumpable;
+import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.Handler;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.prism.xml.ns._public.types_3.RawType;
@@ -43,7 +45,7 @@ import static java.util.Comparator.nullsLast;
 /**
  * @author mederly
  */
-public class PrismBeanInspector {
+public class PrismBeanInspector implements DebugDumpable {
 
     @NotNull private PrismContext prismContext;
 
@@ -54,19 +56,22 @@ public class PrismBeanInspector {
 
     //region Caching mechanism (multiple dimensions)
 
+    /** All the caches, for the purpose of statistics. */
+    private final List<InspectionCache<?>> caches = new ArrayList<>();
+
+    private <V> InspectionCache<V> createCache(String name) {
+        InspectionCache<V> cache = new InspectionCache<>(name);
+        caches.add(cache);
+        return cache;
+    }
+
     @FunctionalInterface
     interface Getter1<V, P1> {
         V get(P1 param1);
     }
 
-    private <V, P1> V find1(Map<P1,V> cache, P1 param1, Getter1<V, P1> getter) {
-        if (cache.containsKey(param1)) {
-            return cache.get(param1);
-        } else {
-            V value = getter.get(param1);
-            cache.put(param1, value);
-            return value;
-        }
+    private <V, P1> V find1(InspectionCache<V> cache, P1 param1, Getter1<V, P1> getter) {
+        return cache.get(param1, () -> getter.get(param1));
     }
 
     @FunctionalInterface
@@ -74,9 +79,8 @@ public class PrismBeanInspector {
         V get(P1 param1, P2 param2);
     }
 
-    private <V, P1, P2> V find2(final Map<P1,Map<P2,V>> cache, final P1 param1, final P2 param2, final Getter2<V, P1, P2> getter) {
-        Map<P2, V> cache2 = cache.computeIfAbsent(param1, k -> Collections.synchronizedMap(new HashMap<>()));
-        return find1(cache2, param2, p -> getter.get(param1, p));
+    private <V, P1, P2> V find2(InspectionCache<V> cache, P1 param1, P2 param2, Getter2<V, P1, P2> getter) {
+        return cache.get(InspectionCache.key(param1, param2), () -> getter.get(param1, param2));
     }
 
     @FunctionalInterface
@@ -84,81 +88,114 @@ public class PrismBeanInspector {
         V get(P1 param1, P2 param2, P3 param3);
     }
 
-    private <V, P1, P2, P3> V find3(final Map<P1,Map<P2,Map<P3,V>>> cache, final P1 param1, final P2 param2, final P3 param3, final Getter3<V, P1, P2, P3> getter) {
-        Map<P2, Map<P3, V>> cache2 = cache.computeIfAbsent(param1, k -> Collections.synchronizedMap(new HashMap<>()));
-        return find2(cache2, param2, param3, (p, q) -> getter.get(param1, p, q));
+    private <V, P1, P2, P3> V find3(InspectionCache<V> cache, P1 param1, P2 param2, P3 param3, Getter3<V, P1, P2, P3> getter) {
+        return cache.get(InspectionCache.key(param1, param2, param3), () -> getter.get(param1, param2, param3));
+    }
+
+    /**
+     * Returns statistics (hits, misses, concurrent computations, size) of individual caches, keyed by cache name.
+     */
+    @NotNull
+    public Map<String, InspectionCache.Statistics> getCacheStatistics() {
+        Map<String, InspectionCache.Statistics> statistics = new LinkedHashMap<>();
+        for (InspectionCache<?> cache : caches) {
+            statistics.put(cache.getName(), cache.getStatistics());
+        }
+        return statistics;
+    }
+
+    public void resetCacheStatistics() {
+        caches.forEach(InspectionCache::resetStatistics);
+    }
+
+    @Override
+    public String debugDump(int indent) {
+        StringBuilder sb = DebugUtil.createTitleStringBuilderLn(PrismBeanInspector.class, indent);
+        for (InspectionCache<?> cache : caches) {
+            DebugUtil.debugDumpWithLabelLn(sb, cache.getName(), cache.shortDump(), indent + 1);
+        }
+        return sb.toString();
     }
     //endregion
 
     //region Individual inspection methods - cached versions
 
-    private Map<Class<?>, String> determineNamespace = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<BeanBindingPlan> bindingPlans = createCache("bindingPlan");
+
+    /**
+     * Returns the binding plan for given class, creating it if needed.
+     */
+    @NotNull
+    BeanBindingPlan getBindingPlan(@NotNull Class<?> beanClass) {
+        return find1(bindingPlans, beanClass, c -> BeanBindingPlan.create(c, this));
+    }
+
+    private final InspectionCache<String> determineNamespace = createCache("determineNamespace");
 
     String determineNamespace(Class<?> paramType) {
         return find1(determineNamespace, paramType, this::determineNamespaceUncached);
     }
 
-    private Map<Class<?>, QName> determineTypeForClass = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<QName> determineTypeForClass = createCache("determineTypeForClass");
 
     QName determineTypeForClass(Class<?> paramType) {
         return find1(determineTypeForClass, paramType, PrismBeanInspector::determineTypeForClassUncached);
     }
 
-    private Map<Field,Map<Method,Boolean>> isAttribute = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<Boolean> isAttribute = createCache("isAttribute");
 
     boolean isAttribute(Field field, Method getter) {
         return find2(isAttribute, field, getter, this::isAttributeUncached);
     }
 
-    private Map<Class,Map<String,Method>> findSetter = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<Method> findSetter = createCache("findSetter");
 
     <T> Method findSetter(Class<T> beanClass, String fieldName) {
-        //noinspection unchecked
-        return find2(findSetter, beanClass, fieldName, (c, f) -> findSetterUncached(c, f));
+        return find2(findSetter, beanClass, fieldName, this::findSetterUncached);
     }
 
-    private Map<Package,Class> getObjectFactoryClassPackage = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<Class> getObjectFactoryClassPackage = createCache("getObjectFactoryClass(package)");
     Class getObjectFactoryClass(Package aPackage) {
         return find1(getObjectFactoryClassPackage, aPackage, p -> getObjectFactoryClassUncached(p));
     }
 
-    private Map<String,Class> getObjectFactoryClassNamespace = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<Class> getObjectFactoryClassNamespace = createCache("getObjectFactoryClass(namespace)");
     Class getObjectFactoryClass(String namespaceUri) {
         return find1(getObjectFactoryClassNamespace, namespaceUri, s -> getObjectFactoryClassUncached(s));
     }
 
-    private Map<Class<?>, List<String>> getPropOrder = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<List<String>> getPropOrder = createCache("getPropOrder");
 
     List<String> getPropOrder(Class<?> beanClass) {
         return find1(getPropOrder, beanClass, this::getPropOrderUncached);
     }
 
-    private Map<Class,Map<String,Method>> findElementMethodInObjectFactory = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<Method> findElementMethodInObjectFactory = createCache("findElementMethodInObjectFactory");
 
     Method findElementMethodInObjectFactory(Class objectFactoryClass, String propName) {
         return find2(findElementMethodInObjectFactory, objectFactoryClass, propName,
                 (c, p) -> findElementMethodInObjectFactoryUncached(c, p));
     }
 
-    private Map<Class,Map<Method,Field>> lookupSubstitution = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<Field> lookupSubstitution = createCache("lookupSubstitution");
 
     <T> Field lookupSubstitution(Class<T> beanClass, Method elementMethod) {
         return find2(lookupSubstitution, beanClass, elementMethod, this::lookupSubstitutionUncached);
     }
 
-    private Map<Class,Map<String,String>> findEnumFieldName = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<String> findEnumFieldName = createCache("findEnumFieldName");
 
     <T> String findEnumFieldName(Class<T> classType, String primValue) {
         return find2(findEnumFieldName, classType, primValue, (c, v) -> findEnumFieldNameUncached(c, v));
     }
 
-    private Map<Class,Map<String,String>> findEnumFieldValue = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<String> findEnumFieldValue = createCache("findEnumFieldValue");
 
     <T> String findEnumFieldValue(Class<T> classType, String toStringValue) {
         return find2(findEnumFieldValue, classType, toStringValue, (c, v) -> findEnumFieldValueUncached(c, v));
     }
 
-    private Map<Field,Map<Class<?>,Map<String,QName>>> findTypeName = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<QName> findTypeName = createCache("findTypeName");
 
     // Determines type for field/content combination. Field information is used only for simple XSD types.
     QName findTypeName(Field field, Class<?> contentClass, String defaultNamespacePlaceholder) {
@@ -166,7 +203,7 @@ public class PrismBeanInspector {
                 this::findTypeNameUncached);
     }
 
-    private Map<String,Map<Class<?>,Map<String,QName>>> findFieldElementQName = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<QName> findFieldElementQName = createCache("findFieldElementQName");
 
     QName findFieldElementQName(String fieldName, Class<?> beanClass, String defaultNamespace) {
         return find3(findFieldElementQName, fieldName, beanClass, defaultNamespace,
@@ -174,13 +211,13 @@ public class PrismBeanInspector {
                         defaultNamespace1));
     }
 
-    private Map<Class,Map<String,Method>> findPropertyGetter = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<Method> findPropertyGetter = createCache("findPropertyGetter");
 
     public <T> Method findPropertyGetter(Class<T> beanClass, String propName) {
         return find2(findPropertyGetter, beanClass, propName, this::findPropertyGetterUncached);
     }
 
-    private Map<Class,Map<String,Field>> findPropertyField = Collections.synchronizedMap(new HashMap<>());
+    private final InspectionCache<Field> findPropertyField = createCache("findPropertyField");
 
     public <T> Field findPropertyField(Class<T> beanClass, String propName) {
         return find2(findPropertyField, beanClass, propName, this::findPropertyFieldUncached);
@@ -11,6 +11,7 @@ import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.impl.PrismContextImpl;
 import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
@@ -103,6 +104,24 @@ abstract class PrismParserImpl implements PrismParser {
         return create(source, language, context.clone().compat(), prismContext, itemDefinition, itemName, typeName, typeClass);
     }
 
+    @NotNull
+    @Override
+    public PrismParser lazy() {
+        return create(source, language, context.clone().lazy(), prismContext, itemDefinition, itemName, typeName, typeClass);
+    }
+
+    @NotNull
+    @Override
+    public PrismParser include(ItemPath... paths) {
+        return create(source, language, context.clone().include(paths), prismContext, itemDefinition, itemName, typeName, typeClass);
+    }
+
+    @NotNull
+    @Override
+    public PrismParser exclude(ItemPath... paths) {
+        return create(source, language, context.clone().exclude(paths), prismContext, itemDefinition, itemName, typeName, typeClass);
+    }
+
     @NotNull
     @Override
     public PrismParser definition(ItemDefinition<?> itemDefinition) {
@@ -197,6 +216,15 @@ abstract class PrismParserImpl implements PrismParser {
         });
     }
 
+    void doParseObjectsIteratively(ObjectHandler handler, ParallelParsingOptions options) throws IOException, SchemaException {
+        // caller must make sure that itemDefinition, itemName, typeName, typeClass apply to all the objects
+        new ParallelObjectsParser(options, handler, context,
+                (pc, rootHandler) -> getLexicalProcessor().readObjectsIteratively(source, pc, rootHandler),
+                (root, pc) -> prismContext.getPrismUnmarshaller()
+                        .parseObject(root, itemDefinition, itemName, typeName, typeClass, pc))
+                .parse();
+    }
+
     Object doParseItemOrRealValue() throws IOException, SchemaException {
         RootXNodeImpl xnode = getLexicalProcessor().read(source, context);
         if (itemDefinition != null || itemName != null || typeName != null || typeClass != null) {
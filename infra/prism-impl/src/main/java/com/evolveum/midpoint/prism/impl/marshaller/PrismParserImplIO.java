@@ -75,6 +75,12 @@ public class PrismParserImplIO extends PrismParserImpl {
         doParseObjectsIteratively(handler);
     }
 
+    @Override
+    public void parseObjectsIteratively(@NotNull ObjectHandler handler, @NotNull ParallelParsingOptions options)
+            throws SchemaException, IOException {
+        doParseObjectsIteratively(handler, options);
+    }
+
     @Override
     public Object parseItemOrRealValue() throws IOException, SchemaException {
         return doParseItemOrRealValue();
@@ -10,6 +10,7 @@ package com.evolveum.midpoint.prism.impl.marshaller;
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.impl.PrismContextImpl;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -71,6 +72,24 @@ public class PrismParserImplNoIO extends PrismParserImpl implements PrismParserN
         return (PrismParserNoIO) super.compat();
     }
 
+    @NotNull
+    @Override
+    public PrismParserNoIO lazy() {
+        return (PrismParserNoIO) super.lazy();
+    }
+
+    @NotNull
+    @Override
+    public PrismParserNoIO include(ItemPath... paths) {
+        return (PrismParserNoIO) super.include(paths);
+    }
+
+    @NotNull
+    @Override
+    public PrismParserNoIO exclude(ItemPath... paths) {
+        return (PrismParserNoIO) super.exclude(paths);
+    }
+
     @NotNull
     @Override
     public PrismParserNoIO definition(ItemDefinition<?> itemDefinition) {
@@ -178,6 +197,16 @@ public class PrismParserImplNoIO extends PrismParserImpl implements PrismParserN
         }
     }
 
+    @Override
+    public void parseObjectsIteratively(@NotNull ObjectHandler handler, @NotNull ParallelParsingOptions options)
+            throws SchemaException {
+        try {
+            doParseObjectsIteratively(handler, options);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     public Object parseItemOrRealValue() throws SchemaException {
         try {
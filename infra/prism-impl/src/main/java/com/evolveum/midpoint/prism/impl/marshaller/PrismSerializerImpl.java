@@ -11,14 +11,18 @@ import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.impl.PrismContextImpl;
 import com.evolveum.midpoint.prism.impl.PrismPropertyValueImpl;
 import com.evolveum.midpoint.prism.impl.SerializerTarget;
+import com.evolveum.midpoint.prism.impl.SerializerWriterTarget;
+import com.evolveum.midpoint.prism.impl.lex.TextLexicalProcessor;
 import com.evolveum.midpoint.prism.xnode.RootXNode;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
 import com.evolveum.midpoint.prism.impl.xnode.XNodeImpl;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
 import org.jetbrains.annotations.NotNull;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.namespace.QName;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -47,22 +51,31 @@ public class PrismSerializerImpl<T> implements PrismSerializer<T> {
         this.itemsToSkip = itemsToSkip;
     }
 
+    /**
+     * Creates a serializer with the same target and given settings. Overridden by subclasses to keep their type.
+     */
+    @NotNull
+    protected PrismSerializerImpl<T> create(QName itemName, ItemDefinition itemDefinition, SerializationContext context,
+            Collection<? extends QName> itemsToSkip) {
+        return new PrismSerializerImpl<>(target, itemName, itemDefinition, context, prismContext, itemsToSkip);
+    }
+
     @NotNull
     @Override
     public PrismSerializerImpl<T> context(SerializationContext context) {
-        return new PrismSerializerImpl<>(this.target, itemName, itemDefinition, context, prismContext, itemsToSkip);
+        return create(itemName, itemDefinition, context, itemsToSkip);
     }
 
     @NotNull
     @Override
     public PrismSerializerImpl<T> root(QName elementName) {
-        return new PrismSerializerImpl<>(this.target, elementName, itemDefinition, this.context, prismContext, itemsToSkip);
+        return create(elementName, itemDefinition, this.context, itemsToSkip);
     }
 
     @NotNull
     @Override
-    public PrismSerializer<T> definition(ItemDefinition itemDefinition) {
-        return new PrismSerializerImpl<>(this.target, itemName, itemDefinition, this.context, prismContext, itemsToSkip);
+    public PrismSerializerImpl<T> definition(ItemDefinition itemDefinition) {
+        return create(itemName, itemDefinition, this.context, itemsToSkip);
     }
 
     @NotNull
@@ -75,13 +88,13 @@ public class PrismSerializerImpl<T> implements PrismSerializer<T> {
         } else {
             context = new SerializationContext(options);
         }
-        return new PrismSerializerImpl<>(target, itemName, itemDefinition, context, prismContext, itemsToSkip);
+        return create(itemName, itemDefinition, context, itemsToSkip);
     }
 
     @NotNull
     @Override
-    public PrismSerializer<T> itemsToSkip(Collection<? extends QName> itemsToSkip) {
-        return new PrismSerializerImpl<>(target, itemName, itemDefinition, context, prismContext, itemsToSkip);
+    public PrismSerializerImpl<T> itemsToSkip(Collection<? extends QName> itemsToSkip) {
+        return create(itemName, itemDefinition, context, itemsToSkip);
     }
 
     //endregion
@@ -140,14 +153,46 @@ public class PrismSerializerImpl<T> implements PrismSerializer<T> {
     public T serializeObjects(@NotNull List<PrismObject<?>> objects) throws SchemaException {
         List<RootXNodeImpl> roots = new ArrayList<>();
         for (PrismObject<?> object : objects) {
-            // itemName and itemDefinition might be set only if they apply to all the objects
-            RootXNodeImpl xroot = getMarshaller().marshalItemAsRoot(object, itemName, itemDefinition, context, itemsToSkip);
-            checkPostconditions(xroot);            // TODO find better way
-            roots.add(xroot);
+            roots.add(marshalObject(object));
         }
         return target.write(roots, context);
     }
 
+    private RootXNodeImpl marshalObject(PrismObject<?> object) throws SchemaException {
+        // itemName and itemDefinition might be set only if they apply to all the objects
+        RootXNodeImpl xroot = getMarshaller().marshalItemAsRoot(object, itemName, itemDefinition, context, itemsToSkip);
+        checkPostconditions(xroot);            // TODO find better way
+        return xroot;
+    }
+
+    /**
+     * Creates objects writer for targets that support it (i.e. writer-based ones).
+     */
+    @NotNull
+    PrismObjectsWriter createObjectsWriter(@NotNull SerializerWriterTarget<T> writerTarget) throws SchemaException {
+        TextLexicalProcessor.ObjectsWriter objectsWriter = writerTarget.objectsWriter(context);
+        return new PrismObjectsWriter() {
+            @Override
+            public void write(@NotNull PrismObject<?> object) throws SchemaException {
+                RootXNodeImpl xroot = marshalObject(object);
+                try {
+                    objectsWriter.write(xroot);
+                } catch (IOException e) {
+                    throw new SystemException("Couldn't write serialized data: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void close() throws SchemaException {
+                try {
+                    objectsWriter.close();
+                } catch (IOException e) {
+                    throw new SystemException("Couldn't write serialized data: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
     @Override
     public T serializeRealValue(Object realValue) throws SchemaException {
         PrismValue prismValue;
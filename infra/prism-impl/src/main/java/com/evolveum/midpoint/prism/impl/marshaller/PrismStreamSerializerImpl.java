@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.marshaller;
+
+import java.util.Collection;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.impl.PrismContextImpl;
+import com.evolveum.midpoint.prism.impl.SerializerWriterTarget;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Serializer writing to a writer or stream. Unlike other serializers, it can write objects incrementally.
+ */
+public class PrismStreamSerializerImpl<T> extends PrismSerializerImpl<T> implements PrismStreamSerializer<T> {
+
+    @NotNull private final SerializerWriterTarget<T> writerTarget;
+
+    public PrismStreamSerializerImpl(@NotNull SerializerWriterTarget<T> target, QName itemName,
+            ItemDefinition itemDefinition, SerializationContext context, @NotNull PrismContextImpl prismContext,
+            Collection<? extends QName> itemsToSkip) {
+        super(target, itemName, itemDefinition, context, prismContext, itemsToSkip);
+        this.writerTarget = target;
+    }
+
+    @NotNull
+    @Override
+    protected PrismStreamSerializerImpl<T> create(QName itemName, ItemDefinition itemDefinition,
+            SerializationContext context, Collection<? extends QName> itemsToSkip) {
+        return new PrismStreamSerializerImpl<>(writerTarget, itemName, itemDefinition, context,
+                writerTarget.prismContext, itemsToSkip);
+    }
+
+    @NotNull
+    @Override
+    public PrismStreamSerializerImpl<T> context(SerializationContext context) {
+        return (PrismStreamSerializerImpl<T>) super.context(context);
+    }
+
+    @NotNull
+    @Override
+    public PrismStreamSerializerImpl<T> root(QName elementName) {
+        return (PrismStreamSerializerImpl<T>) super.root(elementName);
+    }
+
+    @NotNull
+    @Override
+    public PrismStreamSerializerImpl<T> definition(ItemDefinition itemDefinition) {
+        return (PrismStreamSerializerImpl<T>) super.definition(itemDefinition);
+    }
+
+    @NotNull
+    @Override
+    public PrismStreamSerializerImpl<T> options(SerializationOptions options) {
+        return (PrismStreamSerializerImpl<T>) super.options(options);
+    }
+
+    @NotNull
+    @Override
+    public PrismStreamSerializerImpl<T> itemsToSkip(Collection<? extends QName> itemsToSkip) {
+        return (PrismStreamSerializerImpl<T>) super.itemsToSkip(itemsToSkip);
+    }
+
+    @NotNull
+    @Override
+    public PrismObjectsWriter objectsWriter() throws SchemaException {
+        return createObjectsWriter(writerTarget);
+    }
+}
@@ -309,7 +309,13 @@ public class PrismUnmarshaller {
             @NotNull PrismContainerDefinition<C> containerDef, @NotNull ParsingContext pc) throws SchemaException {
 
         ValueWithDefinition<C> vd = createContainerValueWithDefinition(map, containerDef, pc);
-        parseContainerChildren(vd.value, map, containerDef, vd.complexTypeDefinition, pc);
+        if (pc.isLazy() && !map.isEmpty() && vd.value instanceof PrismContainerValueImpl) {
+            // The map is kept until the items are needed. We assume nobody modifies the XNode tree after parsing.
+            ((PrismContainerValueImpl<C>) vd.value).setDeferredItems(
+                    cval -> parseContainerChildren(cval, map, containerDef, vd.complexTypeDefinition, pc));
+        } else {
+            parseContainerChildren(vd.value, map, containerDef, vd.complexTypeDefinition, pc);
+        }
         return vd.value;
     }
 
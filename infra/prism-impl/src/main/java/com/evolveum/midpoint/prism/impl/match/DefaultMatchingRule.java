@@ -8,13 +8,13 @@ package com.evolveum.midpoint.prism.impl.match;
 
 import java.lang.reflect.Array;
 import java.util.Arrays;
-import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.prism.Matchable;
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.match.MatchingRule;
+import com.evolveum.midpoint.util.caching.PatternCache;
 
 /**
  * Default matching rule used as a fall-back if no explicit matching rule is specified.
@@ -71,7 +71,7 @@ public class DefaultMatchingRule<T> implements MatchingRule<T> {
             valueToMatch = String.valueOf(a);
         }
 
-        return Pattern.matches(regex, valueToMatch);
+        return PatternCache.matches(regex, valueToMatch);
     }
 
     @Override
@@ -14,20 +14,36 @@ import javax.naming.ldap.LdapName;
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.prism.match.MatchingRule;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.apache.commons.lang.StringUtils;
 
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.caching.PatternCache;
 
 /**
  * Matching rule for LDAP distinguished name (DN).
  *
+ * Parsed DNs are kept in a bounded cache keyed by the original string, as the same DNs are typically
+ * compared over and over again (e.g. during reconciliation). Hits and misses are counted by the cache itself
+ * (see {@link #getCacheStats()}); reporting them to the global performance collector on each comparison
+ * would cost more than the lookup.
+ *
  * @author Radovan Semancik
  *
  */
 public class DistinguishedNameMatchingRule implements MatchingRule<String> {
 
+    private static final int DN_CACHE_MAX_SIZE = 10000;
+
+    private static final Cache<String, ParsedDn> DN_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(DN_CACHE_MAX_SIZE)
+            .recordStats()
+            .build();
+
     @Override
     public QName getName() {
         return PrismConstants.DISTINGUISHED_NAME_MATCHING_RULE_NAME;
@@ -49,19 +65,9 @@ public class DistinguishedNameMatchingRule implements MatchingRule<String> {
         if (StringUtils.isBlank(a) || StringUtils.isBlank(b)) {
             return false;
         }
-        LdapName dnA;
-        try {
-            dnA = new LdapName(a);
-        } catch (InvalidNameException e) {
-            throw new SchemaException("String '"+a+"' is not a DN: "+e.getMessage(), e);
-        }
-        LdapName dnB;
-        try {
-            dnB = new LdapName(b);
-        } catch (InvalidNameException e) {
-            throw new SchemaException("String '"+b+"' is not a DN: "+e.getMessage(), e);
-        }
-        return dnA.equals(dnB);
+        ParsedDn dnA = parse(a);
+        ParsedDn dnB = parse(b);
+        return dnA == dnB || dnA.name.equals(dnB.name);
     }
 
     /* (non-Javadoc)
@@ -72,13 +78,37 @@ public class DistinguishedNameMatchingRule implements MatchingRule<String> {
         if (StringUtils.isBlank(original)) {
             return null;
         }
+        return parse(original).normalized;
+    }
+
+    private ParsedDn parse(String original) throws SchemaException {
+        ParsedDn cached = DN_CACHE.getIfPresent(original);
+        if (cached != null) {
+            return cached;
+        }
         LdapName dn;
         try {
             dn = new LdapName(original);
         } catch (InvalidNameException e) {
             throw new SchemaException("String '"+original+"' is not a DN: "+e.getMessage(), e);
         }
-        return StringUtils.lowerCase(dn.toString());
+        ParsedDn parsed = new ParsedDn(dn);
+        DN_CACHE.put(original, parsed);
+        return parsed;
+    }
+
+    /**
+     * Clears the cache of parsed DNs. Useful mainly for tests.
+     */
+    public static void clearCache() {
+        DN_CACHE.invalidateAll();
+    }
+
+    /**
+     * Returns hit/miss statistics of the cache of parsed DNs. They are cumulative, i.e. not reset by {@link #clearCache()}.
+     */
+    public static CacheStats getCacheStats() {
+        return DN_CACHE.stats();
     }
 
     @Override
@@ -91,7 +121,7 @@ public class DistinguishedNameMatchingRule implements MatchingRule<String> {
         }
 
         // Simple case-insensitive match
-        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        Pattern pattern = PatternCache.get(regex, Pattern.CASE_INSENSITIVE);
         Matcher matcher = pattern.matcher(a);
         return matcher.matches();
     }
@@ -100,4 +130,17 @@ public class DistinguishedNameMatchingRule implements MatchingRule<String> {
     public String toString() {
         return "DistinguishedNameMatchingRule{}";
     }
+
+    /**
+     * Parsed DN along with its normalized form. The LDAP name is never modified after being put into the cache.
+     */
+    private static class ParsedDn {
+        private final LdapName name;
+        private final String normalized;
+
+        private ParsedDn(LdapName name) {
+            this.name = name;
+            this.normalized = StringUtils.lowerCase(name.toString());
+        }
+    }
 }
@@ -9,10 +9,10 @@ package com.evolveum.midpoint.prism.impl.match;
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.match.MatchingRule;
 import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.caching.PatternCache;
 import org.apache.commons.lang.StringUtils;
 
 import javax.xml.namespace.QName;
-import java.util.regex.Pattern;
 
 /**
  * A specific matching rule for Microsoft Exchange EmailAddresses attribute consisting of SMTP:/smtp: prefix and email address.
@@ -93,7 +93,7 @@ public class ExchangeEmailAddressesMatchingRule implements MatchingRule<String>
         if (a == null) {
             return false;
         }
-        return Pattern.matches(regex, a);            // we ignore case-insensitiveness of the email address
+        return PatternCache.matches(regex, a);            // we ignore case-insensitiveness of the email address
     }
 
     @Override
@@ -6,14 +6,13 @@
  */
 package com.evolveum.midpoint.prism.impl.match;
 
-import java.util.regex.Pattern;
-
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.match.MatchingRule;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.util.MiscUtil;
+import com.evolveum.midpoint.util.caching.PatternCache;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 
 /**
@@ -54,7 +53,7 @@ public class PolyStringOrigMatchingRule implements MatchingRule<PolyString> {
             return false;
         }
 
-        return Pattern.matches(regex, a.getOrig());
+        return PatternCache.matches(regex, a.getOrig());
     }
 
     @Override
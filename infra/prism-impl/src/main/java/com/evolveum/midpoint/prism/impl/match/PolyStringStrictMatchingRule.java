@@ -6,13 +6,12 @@
  */
 package com.evolveum.midpoint.prism.impl.match;
 
-import java.util.regex.Pattern;
-
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.match.MatchingRule;
 import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.util.caching.PatternCache;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 
 /**
@@ -55,7 +54,7 @@ public class PolyStringStrictMatchingRule implements MatchingRule<PolyString> {
             return false;
         }
 
-        return Pattern.matches(regex, a.getOrig());
+        return PatternCache.matches(regex, a.getOrig());
     }
 
     @Override
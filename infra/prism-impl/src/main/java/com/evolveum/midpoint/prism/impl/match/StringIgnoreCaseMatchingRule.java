@@ -16,6 +16,7 @@ import org.apache.commons.lang.StringUtils;
 
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.caching.PatternCache;
 
 /**
  * String matching rule that ignores the case.
@@ -57,7 +58,7 @@ public class StringIgnoreCaseMatchingRule implements MatchingRule<String> {
             return false;
         }
 
-        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        Pattern pattern = PatternCache.get(regex, Pattern.CASE_INSENSITIVE);
         Matcher matcher = pattern.matcher(a);
         return matcher.matches();
     }
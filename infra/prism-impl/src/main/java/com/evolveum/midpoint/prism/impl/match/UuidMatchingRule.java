@@ -16,6 +16,7 @@ import org.apache.commons.lang.StringUtils;
 
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.caching.PatternCache;
 
 /**
  * Matching rule for universally unique identifier (UUID).
@@ -62,7 +63,7 @@ public class UuidMatchingRule implements MatchingRule<String> {
             return false;
         }
 
-        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        Pattern pattern = PatternCache.get(regex, Pattern.CASE_INSENSITIVE);
         Matcher matcher = pattern.matcher(a);
         return matcher.matches();
     }
@@ -63,6 +63,11 @@ public class AllFilterImpl extends ObjectFilterImpl implements AllFilter {
         return true;
     }
 
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        return CompiledFilter.ALL;
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return obj instanceof AllFilter;
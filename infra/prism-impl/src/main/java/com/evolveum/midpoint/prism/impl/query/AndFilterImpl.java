@@ -59,6 +59,11 @@ public class AndFilterImpl extends NaryLogicalFilterImpl implements AndFilter {
         return true;
     }
 
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        return CompiledFilter.and(getConditions(), matchingRuleRegistry);
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return super.equals(obj, exact) && obj instanceof AndFilter;
@@ -31,6 +31,8 @@ import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
 
 import static com.evolveum.midpoint.prism.PrismConstants.*;
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_COMPARISON;
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_PER_PATH_SEGMENT;
 import static com.evolveum.midpoint.util.MiscUtil.emptyIfNull;
 
 public abstract class ComparativeFilterImpl<T> extends PropertyValueFilterImpl<T> implements PropertyValueFilter<T> {
@@ -88,6 +90,32 @@ public abstract class ComparativeFilterImpl<T> extends PropertyValueFilterImpl<T
     @Override
     public boolean match(PrismContainerValue object, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
         Collection<PrismValue> objectItemValues = getObjectItemValues(object);
+        Object filterRealValue = getFilterRealValue();
+        MatchingRule<?> matchingRule = getMatchingRuleFromRegistry(matchingRuleRegistry);
+        return matchesAny(objectItemValues, filterRealValue, matchingRule);
+    }
+
+    /**
+     * Unlike {@link #match(PrismContainerValue, MatchingRuleRegistry)}, a filter without a single value
+     * is reported already when compiling.
+     */
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        if (getDefinition() == null || isRaw()) {
+            return CompiledFilter.interpreted(this, matchingRuleRegistry);
+        }
+        Object filterRealValue = getFilterRealValue();
+        MatchingRule<?> matchingRule = getMatchingRuleFromRegistry(matchingRuleRegistry);
+        ItemPathAccessor accessor = ItemPathAccessor.create(getFullPath());
+        return new CompiledFilter(COST_COMPARISON + COST_PER_PATH_SEGMENT * accessor.size()) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                return matchesAny(accessor.getValues(value), filterRealValue, matchingRule);
+            }
+        };
+    }
+
+    private Object getFilterRealValue() throws SchemaException {
         Collection<? extends PrismValue> filterItemValues = emptyIfNull(getValues());
         if (filterItemValues.isEmpty()) {
             throw new SchemaException("Couldn't evaluate the comparison: the value is missing");
@@ -95,24 +123,22 @@ public abstract class ComparativeFilterImpl<T> extends PropertyValueFilterImpl<T
             throw new SchemaException("Couldn't evaluate the comparison: there is more than one value: " + filterItemValues);
         }
         PrismValue filterValue = filterItemValues.iterator().next();
-
-        MatchingRule<?> matchingRule = getMatchingRuleFromRegistry(matchingRuleRegistry);
         checkPrismPropertyValue(filterValue);
-        for (Object objectItemValue : objectItemValues) {
+        return filterValue.getRealValue();
+    }
+
+    private boolean matchesAny(Collection<? extends PrismValue> objectItemValues, Object filterRealValue,
+            MatchingRule<?> matchingRule) throws SchemaException {
+        for (PrismValue objectItemValue : objectItemValues) {
             checkPrismPropertyValue(objectItemValue);
-            if (matches((PrismPropertyValue<?>) objectItemValue, (PrismPropertyValue<?>) filterValue, matchingRule)) {
+            if (matches(objectItemValue.getRealValue(), filterRealValue, matchingRule)) {
                 return true;
             }
         }
         return false;
     }
 
-    private boolean matches(PrismPropertyValue<?> objectItemValue, PrismPropertyValue<?> filterValue, MatchingRule<?> matchingRule) throws SchemaException {
-        assert filterValue != null;
-        assert objectItemValue != null;
-
-        Object filterRealValue = filterValue.getRealValue();
-        Object objectRealValue = objectItemValue.getRealValue();
+    private boolean matches(Object objectRealValue, Object filterRealValue, MatchingRule<?> matchingRule) throws SchemaException {
         assert filterRealValue != null;
         assert objectRealValue != null;
 
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Compiled form of {@link ObjectFilterImpl}.
+ *
+ * Besides the predicate itself it carries a rough estimate of the evaluation cost, so that conditions
+ * of AND/OR filters can be evaluated from the cheapest ones. (For the result it does not matter in which
+ * order the conditions are evaluated; only exceptions thrown by conditions may become different.)
+ */
+public abstract class CompiledFilter implements CompiledObjectFilter {
+
+    static final int COST_CONSTANT = 0;
+    static final int COST_IDENTIFIER = 1;
+    static final int COST_TYPE = 2;
+    static final int COST_ITEM = 10;
+    static final int COST_PER_PATH_SEGMENT = 2;
+    static final int COST_COMPARISON = 15;
+    static final int COST_REGEX = 25;
+    static final int COST_INTERPRETED = 100;
+
+    static final CompiledFilter ALL = new CompiledFilter(COST_CONSTANT) {
+        @Override
+        public boolean match(PrismContainerValue<?> value) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "ALL";
+        }
+    };
+
+    static final CompiledFilter NONE = new CompiledFilter(COST_CONSTANT) {
+        @Override
+        public boolean match(PrismContainerValue<?> value) {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "NONE";
+        }
+    };
+
+    private final int cost;
+
+    protected CompiledFilter(int cost) {
+        this.cost = cost;
+    }
+
+    /**
+     * Relative cost of the evaluation. Used to order conditions of logical filters.
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * Compiles any filter. Null filter (e.g. missing subfilter of TYPE or EXISTS filter) matches everything.
+     */
+    @NotNull
+    static CompiledFilter compile(ObjectFilter filter, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        if (filter == null) {
+            return ALL;
+        } else if (filter instanceof ObjectFilterImpl) {
+            return ((ObjectFilterImpl) filter).compile(matchingRuleRegistry);
+        } else {
+            return interpreted(filter, matchingRuleRegistry);
+        }
+    }
+
+    /**
+     * Fallback for filters (or their variants) that have no specific compiled form.
+     */
+    @NotNull
+    static CompiledFilter interpreted(ObjectFilter filter, MatchingRuleRegistry matchingRuleRegistry) {
+        return new CompiledFilter(COST_INTERPRETED) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                return filter.match(value, matchingRuleRegistry);
+            }
+
+            @Override
+            public String toString() {
+                return "INTERPRETED(" + filter + ")";
+            }
+        };
+    }
+
+    @NotNull
+    static CompiledFilter and(List<ObjectFilter> conditions, MatchingRuleRegistry matchingRuleRegistry)
+            throws SchemaException {
+        List<CompiledFilter> compiled = new ArrayList<>(conditions.size());
+        for (ObjectFilter condition : conditions) {
+            CompiledFilter compiledCondition = compile(condition, matchingRuleRegistry);
+            if (compiledCondition == NONE) {
+                return NONE;
+            } else if (compiledCondition != ALL) {
+                compiled.add(compiledCondition);
+            }
+        }
+        if (compiled.isEmpty()) {
+            return ALL;
+        } else if (compiled.size() == 1) {
+            return compiled.get(0);
+        }
+        CompiledFilter[] sorted = sortByCost(compiled);
+        return new CompiledFilter(totalCost(sorted)) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                for (CompiledFilter condition : sorted) {
+                    if (!condition.match(value)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                return "AND" + List.of(sorted);
+            }
+        };
+    }
+
+    @NotNull
+    static CompiledFilter or(List<ObjectFilter> conditions, MatchingRuleRegistry matchingRuleRegistry)
+            throws SchemaException {
+        List<CompiledFilter> compiled = new ArrayList<>(conditions.size());
+        for (ObjectFilter condition : conditions) {
+            CompiledFilter compiledCondition = compile(condition, matchingRuleRegistry);
+            if (compiledCondition == ALL) {
+                return ALL;
+            } else if (compiledCondition != NONE) {
+                compiled.add(compiledCondition);
+            }
+        }
+        if (compiled.isEmpty()) {
+            return NONE;
+        } else if (compiled.size() == 1) {
+            return compiled.get(0);
+        }
+        CompiledFilter[] sorted = sortByCost(compiled);
+        return new CompiledFilter(totalCost(sorted)) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                for (CompiledFilter condition : sorted) {
+                    if (condition.match(value)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "OR" + List.of(sorted);
+            }
+        };
+    }
+
+    @NotNull
+    static CompiledFilter not(ObjectFilter negated, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        CompiledFilter compiled = compile(negated, matchingRuleRegistry);
+        if (compiled == ALL) {
+            return NONE;
+        } else if (compiled == NONE) {
+            return ALL;
+        }
+        return new CompiledFilter(compiled.getCost()) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                return !compiled.match(value);
+            }
+
+            @Override
+            public String toString() {
+                return "NOT(" + compiled + ")";
+            }
+        };
+    }
+
+    private static CompiledFilter[] sortByCost(List<CompiledFilter> filters) {
+        filters.sort(Comparator.comparingInt(CompiledFilter::getCost)); // stable, so equally expensive ones keep their order
+        return filters.toArray(new CompiledFilter[0]);
+    }
+
+    private static int totalCost(CompiledFilter[] filters) {
+        int sum = 0;
+        for (CompiledFilter filter : filters) {
+            sum += filter.getCost();
+        }
+        return sum;
+    }
+}
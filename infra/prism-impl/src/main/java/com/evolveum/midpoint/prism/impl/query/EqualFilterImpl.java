@@ -19,14 +19,19 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.xml.namespace.QName;
-import java.util.Collection;
-import java.util.List;
+import java.math.BigInteger;
+import java.util.*;
 
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_ITEM;
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_PER_PATH_SEGMENT;
 import static com.evolveum.midpoint.util.MiscUtil.emptyIfNull;
 
 public class EqualFilterImpl<T> extends PropertyValueFilterImpl<T> implements EqualFilter<T> {
     private static final long serialVersionUID = 3284478412180258355L;
 
+    /** Minimal number of filter values for which the compiled filter indexes them. */
+    private static final int INDEX_THRESHOLD = 4;
+
     /*
      *  The pattern for factory methods and constructors signatures is:
      *   - path and definition
@@ -123,8 +128,10 @@ public class EqualFilterImpl<T> extends PropertyValueFilterImpl<T> implements Eq
     }
 
     private <T1> boolean matches(PrismPropertyValue<?> filterValue, PrismPropertyValue<?> objectValue, MatchingRule<T1> matchingRule) {
-        Object filterRealValue = filterValue.getRealValue();
-        Object objectRealValue = objectValue.getRealValue();
+        return matchesRealValues(filterValue.getRealValue(), objectValue.getRealValue(), matchingRule);
+    }
+
+    private <T1> boolean matchesRealValues(Object filterRealValue, Object objectRealValue, MatchingRule<T1> matchingRule) {
         try {
             if (!(objectRealValue instanceof RawType)) {
                 //noinspection unchecked
@@ -145,6 +152,85 @@ public class EqualFilterImpl<T> extends PropertyValueFilterImpl<T> implements Eq
         }
     }
 
+    /**
+     * Filter values are extracted in advance. If there are more of them, they are indexed by their normalized
+     * form (see {@link MatchingRule#normalize(Object)}), so only the values with matching normalized form
+     * have to be compared with the object value using the matching rule.
+     */
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        if (getDefinition() == null || isRaw()) {
+            return CompiledFilter.interpreted(this, matchingRuleRegistry);
+        }
+        MatchingRule<Object> matchingRule = getMatchingRuleFromRegistry(matchingRuleRegistry);
+        List<Object> filterRealValues = new ArrayList<>();
+        for (PrismPropertyValue<T> filterValue : emptyIfNull(getValues())) {
+            filterRealValues.add(filterValue.getRealValue());
+        }
+        Map<Object, List<Object>> index = createIndex(filterRealValues, matchingRule);
+        ItemPathAccessor accessor = ItemPathAccessor.create(getFullPath());
+        return new CompiledFilter(COST_ITEM + COST_PER_PATH_SEGMENT * accessor.size()) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                Collection<? extends PrismValue> objectItemValues = accessor.getValues(value);
+                if (objectItemValues.isEmpty()) {
+                    return filterRealValues.isEmpty();
+                } else if (filterRealValues.isEmpty()) {
+                    return false;
+                }
+                for (PrismValue objectItemValue : objectItemValues) {
+                    checkPrismPropertyValue(objectItemValue);
+                    Object objectRealValue = ((PrismPropertyValue<?>) objectItemValue).getRealValue();
+                    for (Object filterRealValue : getCandidates(objectRealValue, filterRealValues, index, matchingRule)) {
+                        if (matchesRealValues(filterRealValue, objectRealValue, matchingRule)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    private static Map<Object, List<Object>> createIndex(List<Object> filterRealValues, MatchingRule<Object> matchingRule)
+            throws SchemaException {
+        if (filterRealValues.size() < INDEX_THRESHOLD) {
+            return null;
+        }
+        Map<Object, List<Object>> index = new HashMap<>();
+        for (Object filterRealValue : filterRealValues) {
+            Object normalized = matchingRule.normalize(filterRealValue);
+            if (!isIndexable(normalized)) {
+                return null;
+            }
+            index.computeIfAbsent(normalized, k -> new ArrayList<>(1)).add(filterRealValue);
+        }
+        return index;
+    }
+
+    private static List<Object> getCandidates(Object objectRealValue, List<Object> filterRealValues,
+            Map<Object, List<Object>> index, MatchingRule<Object> matchingRule) throws SchemaException {
+        if (index == null || objectRealValue instanceof RawType) {
+            return filterRealValues;
+        }
+        Object normalized = matchingRule.normalize(objectRealValue);
+        if (!isIndexable(normalized)) {
+            return filterRealValues;
+        }
+        return index.getOrDefault(normalized, List.of());
+    }
+
+    /**
+     * Only types with equals/hashCode consistent with the default matching rule are indexed.
+     */
+    static boolean isIndexable(Object normalized) {
+        return normalized instanceof String || normalized instanceof QName || normalized instanceof Enum
+                || normalized instanceof Boolean || normalized instanceof Character
+                || normalized instanceof Integer || normalized instanceof Long
+                || normalized instanceof Short || normalized instanceof Byte
+                || normalized instanceof BigInteger;
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return obj instanceof EqualFilter && super.equals(obj, exact);
@@ -6,6 +6,9 @@
  */
 package com.evolveum.midpoint.prism.impl.query;
 
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_ITEM;
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_PER_PATH_SEGMENT;
+
 import java.util.Objects;
 
 import org.jetbrains.annotations.NotNull;
@@ -109,6 +112,37 @@ public final class ExistsFilterImpl extends ObjectFilterImpl implements ExistsFi
         return false;
     }
 
+    /**
+     * The item is looked up in the same way as in {@link #match(PrismContainerValue, MatchingRuleRegistry)},
+     * only the subfilter is compiled.
+     */
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        CompiledFilter compiledFilter = CompiledFilter.compile(filter, matchingRuleRegistry);
+        if (compiledFilter == CompiledFilter.NONE) {
+            return CompiledFilter.NONE;
+        }
+        int cost = COST_ITEM + COST_PER_PATH_SEGMENT * fullPath.size() + compiledFilter.getCost();
+        return new CompiledFilter(cost) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                Item<?, ?> itemToFind = value.findItem(fullPath);
+                if (itemToFind == null || itemToFind.getValues().isEmpty()) {
+                    return false;
+                }
+                if (!(itemToFind instanceof PrismContainer)) {
+                    throw new SchemaException("Couldn't use exists query to search for items other than containers: " + itemToFind);
+                }
+                for (PrismContainerValue<?> pcv : ((PrismContainer<?>) itemToFind).getValues()) {
+                    if (compiledFilter.match(pcv)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
     @Override
     public void checkConsistence(boolean requireDefinitions) {
         if (fullPath.isEmpty()) {
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query;
+
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.*;
+
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismPropertyValue;
+import com.evolveum.midpoint.prism.query.*;
+
+/**
+ * Creates a simplified equivalent of an object filter:
+ *
+ * 1. Nested AND/OR filters are flattened; NOT(NOT(x)) is replaced by x.
+ * 2. ALL and NONE conditions are removed from AND/OR filters, or they replace the whole filter
+ * (e.g. x AND NONE is NONE); the same for TYPE and EXISTS subfilters.
+ * 3. Equivalent conditions of AND/OR filters are removed.
+ * 4. EQUAL filters on the same item (with the same definition and matching rule) in an OR filter are merged
+ * into a single multi-valued EQUAL filter; IN OID filters are merged likewise.
+ * 5. Conditions of AND/OR filters are ordered by estimated evaluation cost: OID and type checks first,
+ * substring filters and unsupported ones last.
+ *
+ * The original filter is not modified; the result may share unchanged parts with it.
+ *
+ * Note that merged EQUAL filters are multi-valued, so the result is meant for in-memory evaluation
+ * and for query interpreters that support multi-valued EQUAL filters (IN semantics).
+ */
+public class FilterOptimizer {
+
+    public static ObjectFilter optimize(ObjectFilter filter) {
+        if (filter instanceof AndFilter) {
+            return optimizeAnd((AndFilter) filter);
+        } else if (filter instanceof OrFilter) {
+            return optimizeOr((OrFilter) filter);
+        } else if (filter instanceof NotFilter) {
+            return optimizeNot((NotFilter) filter);
+        } else if (filter instanceof TypeFilter) {
+            return optimizeType((TypeFilter) filter);
+        } else if (filter instanceof ExistsFilter) {
+            return optimizeExists((ExistsFilter) filter);
+        } else {
+            return filter;
+        }
+    }
+
+    private static ObjectFilter optimizeAnd(AndFilter filter) {
+        List<ObjectFilter> conditions = new ArrayList<>();
+        for (ObjectFilter condition : filter.getConditions()) {
+            ObjectFilter optimized = optimize(condition);
+            if (optimized instanceof NoneFilter) {
+                return NoneFilterImpl.createNone();
+            } else if (optimized instanceof AndFilter) {
+                addAllDistinct(conditions, ((AndFilter) optimized).getConditions());
+            } else if (!(optimized instanceof AllFilter)) {
+                addDistinct(conditions, optimized);
+            }
+        }
+        if (conditions.isEmpty()) {
+            return AllFilterImpl.createAll();
+        } else if (conditions.size() == 1) {
+            return conditions.get(0);
+        } else {
+            return AndFilterImpl.createAnd(sortByCost(conditions));
+        }
+    }
+
+    private static ObjectFilter optimizeOr(OrFilter filter) {
+        List<ObjectFilter> conditions = new ArrayList<>();
+        for (ObjectFilter condition : filter.getConditions()) {
+            ObjectFilter optimized = optimize(condition);
+            if (optimized instanceof AllFilter) {
+                return AllFilterImpl.createAll();
+            } else if (optimized instanceof OrFilter) {
+                addAllDistinct(conditions, ((OrFilter) optimized).getConditions());
+            } else if (!(optimized instanceof NoneFilter)) {
+                addDistinct(conditions, optimized);
+            }
+        }
+        conditions = mergeAlternatives(conditions);
+        if (conditions.isEmpty()) {
+            return NoneFilterImpl.createNone();
+        } else if (conditions.size() == 1) {
+            return conditions.get(0);
+        } else {
+            return OrFilterImpl.createOr(sortByCost(conditions));
+        }
+    }
+
+    private static ObjectFilter optimizeNot(NotFilter filter) {
+        ObjectFilter optimized = optimize(filter.getFilter());
+        if (optimized instanceof AllFilter) {
+            return NoneFilterImpl.createNone();
+        } else if (optimized instanceof NoneFilter) {
+            return AllFilterImpl.createAll();
+        } else if (optimized instanceof NotFilter) {
+            return ((NotFilter) optimized).getFilter();
+        } else if (optimized == filter.getFilter()) {
+            return filter;
+        } else {
+            return NotFilterImpl.createNot(optimized);
+        }
+    }
+
+    private static ObjectFilter optimizeType(TypeFilter filter) {
+        ObjectFilter inner = filter.getFilter();
+        ObjectFilter optimized = optimizeSubfilter(inner);
+        if (optimized instanceof NoneFilter) {
+            return NoneFilterImpl.createNone();
+        } else if (optimized == inner) {
+            return filter;
+        } else {
+            return TypeFilterImpl.createType(filter.getType(), optimized);
+        }
+    }
+
+    private static ObjectFilter optimizeExists(ExistsFilter filter) {
+        ObjectFilter inner = filter.getFilter();
+        ObjectFilter optimized = optimizeSubfilter(inner);
+        if (optimized instanceof NoneFilter) {
+            return NoneFilterImpl.createNone();
+        } else if (optimized == inner) {
+            return filter;
+        } else {
+            ExistsFilter copy = filter.cloneEmpty();
+            copy.setFilter(optimized);
+            return copy;
+        }
+    }
+
+    /**
+     * Null subfilter (of TYPE or EXISTS filter) means "all", so ALL is replaced by null.
+     */
+    private static ObjectFilter optimizeSubfilter(ObjectFilter inner) {
+        if (inner == null) {
+            return null;
+        }
+        ObjectFilter optimized = optimize(inner);
+        return optimized instanceof AllFilter ? null : optimized;
+    }
+
+    private static void addAllDistinct(List<ObjectFilter> conditions, List<ObjectFilter> toAdd) {
+        for (ObjectFilter condition : toAdd) {
+            addDistinct(conditions, condition);
+        }
+    }
+
+    private static void addDistinct(List<ObjectFilter> conditions, ObjectFilter condition) {
+        for (ObjectFilter existing : conditions) {
+            if (existing.equals(condition, true)) {
+                return;
+            }
+        }
+        conditions.add(condition);
+    }
+
+    /**
+     * Merges EQUAL and IN OID filters that are alternatives of each other. The merged filter takes
+     * the position of the first one.
+     */
+    private static List<ObjectFilter> mergeAlternatives(List<ObjectFilter> conditions) {
+        List<ObjectFilter> merged = new ArrayList<>(conditions.size());
+        for (ObjectFilter condition : conditions) {
+            if (!mergeIntoExisting(merged, condition)) {
+                merged.add(condition);
+            }
+        }
+        return merged;
+    }
+
+    private static boolean mergeIntoExisting(List<ObjectFilter> merged, ObjectFilter condition) {
+        for (int i = 0; i < merged.size(); i++) {
+            ObjectFilter existing = merged.get(i);
+            if (areMergeableEquals(existing, condition)) {
+                merged.set(i, mergeEquals((EqualFilterImpl<?>) existing, (EqualFilterImpl<?>) condition));
+                return true;
+            } else if (areMergeableInOids(existing, condition)) {
+                merged.set(i, mergeInOids((InOidFilter) existing, (InOidFilter) condition));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean areMergeableEquals(ObjectFilter first, ObjectFilter second) {
+        if (first.getClass() != EqualFilterImpl.class || second.getClass() != EqualFilterImpl.class) {
+            return false;
+        }
+        EqualFilterImpl<?> firstEqual = (EqualFilterImpl<?>) first;
+        EqualFilterImpl<?> secondEqual = (EqualFilterImpl<?>) second;
+        // Filters without values match empty items, so they cannot be merged.
+        return hasValuesOnly(firstEqual) && hasValuesOnly(secondEqual)
+                && firstEqual.getFullPath().equivalent(secondEqual.getFullPath())
+                && Objects.equals(firstEqual.getDefinition(), secondEqual.getDefinition())
+                && Objects.equals(firstEqual.getMatchingRule(), secondEqual.getMatchingRule());
+    }
+
+    private static boolean hasValuesOnly(EqualFilterImpl<?> filter) {
+        return filter.getValues() != null && !filter.getValues().isEmpty()
+                && filter.getExpression() == null && filter.getRightHandSidePath() == null;
+    }
+
+    @NotNull
+    private static <T> EqualFilterImpl<T> mergeEquals(EqualFilterImpl<T> first, EqualFilterImpl<?> second) {
+        List<PrismPropertyValue<T>> values = new ArrayList<>(first.getClonedValues());
+        //noinspection unchecked
+        for (PrismPropertyValue<T> value : ((EqualFilterImpl<T>) second).getClonedValues()) {
+            if (!values.contains(value)) {
+                values.add(value);
+            }
+        }
+        return new EqualFilterImpl<>(first.getFullPath(), first.getDefinition(), first.getMatchingRule(),
+                values, null, null, null);
+    }
+
+    private static boolean areMergeableInOids(ObjectFilter first, ObjectFilter second) {
+        if (!(first instanceof InOidFilter) || !(second instanceof InOidFilter)) {
+            return false;
+        }
+        InOidFilter firstInOid = (InOidFilter) first;
+        InOidFilter secondInOid = (InOidFilter) second;
+        return firstInOid.getOids() != null && firstInOid.getExpression() == null
+                && secondInOid.getOids() != null && secondInOid.getExpression() == null
+                && firstInOid.isConsiderOwner() == secondInOid.isConsiderOwner();
+    }
+
+    @NotNull
+    private static InOidFilter mergeInOids(InOidFilter first, InOidFilter second) {
+        Set<String> oids = new LinkedHashSet<>(first.getOids());
+        oids.addAll(second.getOids());
+        return InOidFilterImpl.createInOid(first.isConsiderOwner(), oids);
+    }
+
+    private static List<ObjectFilter> sortByCost(List<ObjectFilter> conditions) {
+        conditions.sort(Comparator.comparingInt(FilterOptimizer::estimateCost)); // stable
+        return conditions;
+    }
+
+    /**
+     * Rough estimate of the cost of in-memory evaluation of the filter, in the units used by {@link CompiledFilter}.
+     */
+    public static int estimateCost(ObjectFilter filter) {
+        if (filter == null || filter instanceof AllFilter || filter instanceof NoneFilter
+                || filter instanceof UndefinedFilter) {
+            return COST_CONSTANT;
+        } else if (filter instanceof InOidFilter) {
+            return COST_IDENTIFIER;
+        } else if (filter instanceof TypeFilter) {
+            return COST_TYPE + estimateCost(((TypeFilter) filter).getFilter());
+        } else if (filter instanceof NotFilter) {
+            return estimateCost(((NotFilter) filter).getFilter());
+        } else if (filter instanceof LogicalFilter) {
+            int sum = 0;
+            for (ObjectFilter condition : ((LogicalFilter) filter).getConditions()) {
+                sum += estimateCost(condition);
+            }
+            return sum;
+        } else if (filter instanceof ExistsFilter) {
+            ExistsFilter exists = (ExistsFilter) filter;
+            return COST_ITEM + COST_PER_PATH_SEGMENT * exists.getFullPath().size() + estimateCost(exists.getFilter());
+        } else if (filter instanceof OrgFilter) {
+            return COST_ITEM + COST_IDENTIFIER;
+        } else if (filter instanceof SubstringFilter) {
+            return COST_REGEX + COST_PER_PATH_SEGMENT * ((ValueFilter<?, ?>) filter).getFullPath().size();
+        } else if (filter instanceof GreaterFilter || filter instanceof LessFilter) {
+            return COST_COMPARISON + COST_PER_PATH_SEGMENT * ((ValueFilter<?, ?>) filter).getFullPath().size();
+        } else if (filter instanceof ValueFilter) {
+            return COST_ITEM + COST_PER_PATH_SEGMENT * ((ValueFilter<?, ?>) filter).getFullPath().size();
+        } else {
+            return COST_INTERPRETED;
+        }
+    }
+}
@@ -6,9 +6,9 @@
  */
 package com.evolveum.midpoint.prism.impl.query;
 
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Objects;
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_INTERPRETED;
+
+import java.util.*;
 
 import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang.StringUtils;
@@ -16,7 +16,9 @@ import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.ExpressionWrapper;
 import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.polystring.PolyStringNormalizer;
 import com.evolveum.midpoint.prism.query.FullTextFilter;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -124,9 +126,40 @@ public final class FullTextFilterImpl extends ObjectFilterImpl implements FullTe
         return clone;
     }
 
+    /**
+     * Evaluates the filter against all string and poly string values in the container value.
+     * See {@link FullTextTokens} for the details.
+     */
     @Override
     public boolean match(PrismContainerValue value, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
-        throw new UnsupportedOperationException("match is not supported for " + this);
+        PolyStringNormalizer normalizer = getNormalizer();
+        return FullTextTokens.matches(getFilterTokens(normalizer), FullTextTokens.ofValue(value, normalizer));
+    }
+
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        PolyStringNormalizer normalizer = getNormalizer();
+        List<Set<String>> filterTokens = getFilterTokens(normalizer);
+        return new CompiledFilter(COST_INTERPRETED) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) {
+                return FullTextTokens.matches(filterTokens, FullTextTokens.ofValue(value, normalizer));
+            }
+        };
+    }
+
+    @NotNull
+    List<Set<String>> getFilterTokens(@NotNull PolyStringNormalizer normalizer) {
+        if (values == null) {
+            throw new UnsupportedOperationException("Full text filter without values cannot be evaluated in memory: " + this);
+        }
+        return FullTextTokens.ofFilterValues(values, normalizer);
+    }
+
+    @NotNull
+    private PolyStringNormalizer getNormalizer() {
+        PrismContext prismContext = getPrismContext();
+        return (prismContext != null ? prismContext : PrismContext.get()).getDefaultPolyStringNormalizer();
     }
 
     @Override
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query;
+
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.polystring.PolyStringNormalizer;
+import com.evolveum.midpoint.prism.query.FullTextFilter;
+
+/**
+ * Inverted index of full text tokens (see {@link FullTextTokens}) of objects stored in {@link InMemoryObjectCollection}.
+ *
+ * A lookup checks the filter tokens against the vocabulary of the index (i.e. distinct tokens of all objects),
+ * not against the objects. Like {@link ItemIndex}, it returns candidates that still have to be checked by the filter.
+ *
+ * Not thread safe; the collection takes care of the synchronization.
+ */
+class FullTextIndex {
+
+    @NotNull private final PolyStringNormalizer normalizer;
+
+    @NotNull private final Map<String, Set<String>> oidsByToken = new HashMap<>();
+
+    FullTextIndex(@NotNull PolyStringNormalizer normalizer) {
+        this.normalizer = normalizer;
+    }
+
+    void add(@NotNull String oid, @NotNull PrismObject<?> object) {
+        for (String token : FullTextTokens.ofValue(object.getValue(), normalizer)) {
+            oidsByToken.computeIfAbsent(token, k -> new HashSet<>()).add(oid);
+        }
+    }
+
+    void remove(@NotNull String oid, @NotNull PrismObject<?> object) {
+        for (String token : FullTextTokens.ofValue(object.getValue(), normalizer)) {
+            Set<String> oids = oidsByToken.get(token);
+            if (oids != null) {
+                oids.remove(oid);
+                if (oids.isEmpty()) {
+                    oidsByToken.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns objects that may match the filter, or null if the index cannot be used.
+     */
+    @Nullable
+    Set<String> lookup(@NotNull FullTextFilter filter) {
+        if (filter.getValues() == null || filter.getExpression() != null) {
+            return null;
+        }
+        Set<String> candidates = new HashSet<>();
+        for (Set<String> valueTokens : FullTextTokens.ofFilterValues(filter.getValues(), normalizer)) {
+            if (valueTokens.isEmpty()) {
+                return null; // matches everything
+            }
+            candidates.addAll(lookupAll(valueTokens));
+        }
+        return candidates;
+    }
+
+    /**
+     * Objects having all the tokens (as parts of their tokens).
+     */
+    private Set<String> lookupAll(Set<String> valueTokens) {
+        Set<String> intersection = null;
+        for (String valueToken : valueTokens) {
+            Set<String> oids = lookup(valueToken);
+            if (intersection == null) {
+                intersection = oids;
+            } else {
+                intersection.retainAll(oids);
+            }
+            if (intersection.isEmpty()) {
+                break;
+            }
+        }
+        return intersection;
+    }
+
+    private Set<String> lookup(String valueToken) {
+        Set<String> oids = new HashSet<>();
+        for (Map.Entry<String, Set<String>> entry : oidsByToken.entrySet()) {
+            if (entry.getKey().contains(valueToken)) {
+                oids.addAll(entry.getValue());
+            }
+        }
+        return oids;
+    }
+
+    @Override
+    public String toString() {
+        return "FullTextIndex(" + oidsByToken.size() + " tokens)";
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query;
+
+import java.util.*;
+
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.polystring.PolyStringNormalizer;
+
+/**
+ * Tokenization used for in-memory evaluation of {@link FullTextFilterImpl}.
+ *
+ * Texts are normalized by the poly string normalizer and split into tokens at whitespace.
+ * Object tokens are taken from all string and poly string properties (at any depth).
+ *
+ * A filter value matches an object if each of its tokens is contained in some token of the object.
+ * This corresponds to "LIKE %token%" conditions on the full text data kept by the repository.
+ * Filter values are alternatives.
+ */
+final class FullTextTokens {
+
+    private FullTextTokens() {
+    }
+
+    /**
+     * Returns tokens of each filter value.
+     */
+    @NotNull
+    static List<Set<String>> ofFilterValues(@NotNull Collection<String> values, @NotNull PolyStringNormalizer normalizer) {
+        List<Set<String>> tokens = new ArrayList<>(values.size());
+        for (String value : values) {
+            Set<String> valueTokens = new HashSet<>();
+            addTokens(value, normalizer, valueTokens);
+            tokens.add(valueTokens);
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns tokens of all string and poly string values in the container value.
+     */
+    @NotNull
+    static Set<String> ofValue(@NotNull PrismContainerValue<?> value, @NotNull PolyStringNormalizer normalizer) {
+        Set<String> tokens = new HashSet<>();
+        collectTokens(value, normalizer, tokens);
+        return tokens;
+    }
+
+    private static void collectTokens(PrismContainerValue<?> value, PolyStringNormalizer normalizer, Set<String> tokens) {
+        for (Item<?, ?> item : value.getItems()) {
+            if (item instanceof PrismProperty) {
+                for (PrismPropertyValue<?> propertyValue : ((PrismProperty<?>) item).getValues()) {
+                    Object realValue = propertyValue.getRealValue();
+                    if (realValue instanceof String) {
+                        addTokens((String) realValue, normalizer, tokens);
+                    } else if (realValue instanceof PolyString) {
+                        // orig, because norm may have been computed by a different normalizer
+                        addTokens(((PolyString) realValue).getOrig(), normalizer, tokens);
+                    }
+                }
+            } else if (item instanceof PrismContainer) {
+                for (PrismContainerValue<?> containerValue : ((PrismContainer<?>) item).getValues()) {
+                    collectTokens(containerValue, normalizer, tokens);
+                }
+            }
+        }
+    }
+
+    private static void addTokens(String text, PolyStringNormalizer normalizer, Collection<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        String normalized = normalizer.normalize(text);
+        if (normalized != null) {
+            tokens.addAll(Arrays.asList(StringUtils.split(normalized)));
+        }
+    }
+
+    static boolean matches(@NotNull List<Set<String>> filterTokens, @NotNull Set<String> objectTokens) {
+        for (Set<String> valueTokens : filterTokens) {
+            if (matchesAll(valueTokens, objectTokens)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAll(Set<String> valueTokens, Set<String> objectTokens) {
+        for (String valueToken : valueTokens) {
+            if (!objectTokens.contains(valueToken) && !containedInAny(valueToken, objectTokens)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containedInAny(String valueToken, Set<String> objectTokens) {
+        for (String objectToken : objectTokens) {
+            if (objectToken.contains(valueToken)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
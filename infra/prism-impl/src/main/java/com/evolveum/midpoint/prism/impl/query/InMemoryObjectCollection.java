@@ -0,0 +1,612 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.match.MatchingRule;
+import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.query.*;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Collection of prism objects that can be searched by object queries, e.g. a cache of roles or archetypes,
+ * or a simple stand-in for the repository in tests.
+ *
+ * Searching works like this:
+ *
+ * 1. The filter is optimized (see {@link FilterOptimizer}) and compiled (see {@link CompiledFilter}).
+ * 2. Candidate objects are determined using the indexes: hash indexes for EQUAL and REF filters (see {@link #addHashIndex(ItemPath)}),
+ * sorted indexes for GREATER and LESS filters on numbers and timestamps (see {@link #addSortedIndex(ItemPath)}),
+ * full text index for FULLTEXT filters (see {@link #addFullTextIndex()}).
+ * IN OID and TYPE filters need no index. Candidates of AND/OR conditions are intersected/united;
+ * for other filters all objects are candidates.
+ * 3. Candidates are checked by the compiled filter. So the indexes influence only the performance, not the result.
+ * 4. Offset and maximum size from the paging are applied, using the ordering instructions
+ * (by the first value of the item; null values are treated as greater than any other ones).
+ * If there is a maximum size, only the top (offset + maxSize) objects are kept during the search.
+ * Without ordering, objects are returned in the order they were added. Grouping and paging cookies are ignored.
+ *
+ * Objects are stored as immutable clones. The objects returned are these stored clones, so they must be cloned
+ * by the caller before modification. Changes are done by {@link #add(PrismObject)}, {@link #applyDelta(ObjectDelta)}
+ * and {@link #delete(String)}.
+ *
+ * Thread safe. Searches can run concurrently; changes are exclusive.
+ */
+public class InMemoryObjectCollection<O extends Objectable> {
+
+    @NotNull private final MatchingRuleRegistry matchingRuleRegistry;
+
+    /** Stored objects by OID, in the order of addition. */
+    @NotNull private final Map<String, StoredObject<O>> objects = new LinkedHashMap<>();
+
+    /** OIDs by the type name of the object. Objects without a definition are under null key. */
+    @NotNull private final Map<QName, Set<String>> oidsByType = new HashMap<>();
+
+    @NotNull private final List<ItemIndex.Hash> hashIndexes = new ArrayList<>();
+    @NotNull private final List<ItemIndex.Sorted> sortedIndexes = new ArrayList<>();
+    @Nullable private FullTextIndex fullTextIndex;
+
+    @NotNull private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long lastSequence;
+
+    public InMemoryObjectCollection(@NotNull MatchingRuleRegistry matchingRuleRegistry) {
+        this.matchingRuleRegistry = matchingRuleRegistry;
+    }
+
+    //region Indexes
+
+    /**
+     * Adds a hash index for EQUAL filters with the default matching rule, and for REF filters.
+     */
+    public void addHashIndex(@NotNull ItemPath path) throws SchemaException {
+        addHashIndex(path, null);
+    }
+
+    /**
+     * Adds a hash index for EQUAL filters with given matching rule (null means the default one).
+     */
+    public void addHashIndex(@NotNull ItemPath path, @Nullable QName matchingRuleName) throws SchemaException {
+        MatchingRule<Object> matchingRule = matchingRuleRegistry.getMatchingRule(matchingRuleName, null);
+        addIndex(new ItemIndex.Hash(path, matchingRule), hashIndexes);
+    }
+
+    /**
+     * Adds a sorted index for GREATER and LESS filters on numeric and timestamp items.
+     */
+    public void addSortedIndex(@NotNull ItemPath path) {
+        addIndex(new ItemIndex.Sorted(path), sortedIndexes);
+    }
+
+    /**
+     * Adds an inverted index of tokens for FULLTEXT filters. Tokens are normalized by the default normalizer
+     * of the prism context, like in the filters themselves (see {@link FullTextFilterImpl}).
+     */
+    public void addFullTextIndex() {
+        FullTextIndex index = new FullTextIndex(PrismContext.get().getDefaultPolyStringNormalizer());
+        lock.writeLock().lock();
+        try {
+            for (StoredObject<O> stored : objects.values()) {
+                index.add(stored.oid, stored.object);
+            }
+            fullTextIndex = index;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <I extends ItemIndex> void addIndex(I index, List<I> indexes) {
+        lock.writeLock().lock();
+        try {
+            for (StoredObject<O> stored : objects.values()) {
+                index.add(stored.oid, stored.object);
+            }
+            indexes.add(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<ItemIndex> getAllIndexes() {
+        List<ItemIndex> all = new ArrayList<>(hashIndexes);
+        all.addAll(sortedIndexes);
+        return all;
+    }
+    //endregion
+
+    //region Changes
+
+    /**
+     * Adds an immutable clone of the object. If the object has no OID, a random one is generated (for the clone).
+     *
+     * @return OID of the object
+     */
+    @NotNull
+    public String add(@NotNull PrismObject<O> object) throws ObjectAlreadyExistsException {
+        PrismObject<O> clone = object.clone();
+        if (clone.getOid() == null) {
+            clone.setOid(UUID.randomUUID().toString());
+        }
+        clone.freeze();
+        String oid = clone.getOid();
+
+        lock.writeLock().lock();
+        try {
+            if (objects.containsKey(oid)) {
+                throw new ObjectAlreadyExistsException("Object with OID " + oid + " already exists");
+            }
+            objects.put(oid, new StoredObject<>(clone, ++lastSequence));
+            oidsByType.computeIfAbsent(getTypeName(clone), k -> new HashSet<>()).add(oid);
+            for (ItemIndex index : getAllIndexes()) {
+                index.add(oid, clone);
+            }
+            if (fullTextIndex != null) {
+                fullTextIndex.add(oid, clone);
+            }
+            return oid;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(@NotNull String oid) throws ObjectNotFoundException {
+        lock.writeLock().lock();
+        try {
+            StoredObject<O> stored = objects.remove(oid);
+            if (stored == null) {
+                throw new ObjectNotFoundException("Object with OID " + oid + " was not found", oid);
+            }
+            QName typeName = getTypeName(stored.object);
+            Set<String> oidsOfType = oidsByType.get(typeName);
+            oidsOfType.remove(oid);
+            if (oidsOfType.isEmpty()) {
+                oidsByType.remove(typeName);
+            }
+            for (ItemIndex index : getAllIndexes()) {
+                index.remove(oid, stored.object);
+            }
+            if (fullTextIndex != null) {
+                fullTextIndex.remove(oid, stored.object);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies ADD, MODIFY or DELETE delta. Only indexes whose items may be touched by the modifications are updated.
+     */
+    public void applyDelta(@NotNull ObjectDelta<O> delta)
+            throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+        if (delta.isAdd()) {
+            add(delta.getObjectToAdd());
+        } else if (delta.isDelete()) {
+            delete(delta.getOid());
+        } else if (delta.isModify()) {
+            modify(delta);
+        }
+    }
+
+    private void modify(@NotNull ObjectDelta<O> delta) throws SchemaException, ObjectNotFoundException {
+        String oid = delta.getOid();
+        lock.writeLock().lock();
+        try {
+            StoredObject<O> stored = objects.get(oid);
+            if (stored == null) {
+                throw new ObjectNotFoundException("Object with OID " + oid + " was not found", oid);
+            }
+            PrismObject<O> updated = stored.object.clone();
+            delta.applyTo(updated);
+            updated.freeze();
+            for (ItemIndex index : getAllIndexes()) {
+                if (index.isAffectedBy(delta.getModifications())) {
+                    index.remove(oid, stored.object);
+                    index.add(oid, updated);
+                }
+            }
+            if (fullTextIndex != null) {
+                fullTextIndex.remove(oid, stored.object);
+                fullTextIndex.add(oid, updated);
+            }
+            objects.put(oid, new StoredObject<>(updated, stored.sequence)); // keeps the position in the map
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static QName getTypeName(PrismObject<?> object) {
+        PrismObjectDefinition<?> definition = object.getDefinition();
+        return definition != null ? definition.getTypeName() : null;
+    }
+    //endregion
+
+    //region Retrieval
+
+    /**
+     * Returns the stored (immutable) object, or null if there is none.
+     */
+    @Nullable
+    public PrismObject<O> get(@NotNull String oid) {
+        lock.readLock().lock();
+        try {
+            StoredObject<O> stored = objects.get(oid);
+            return stored != null ? stored.object : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return objects.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int count(@Nullable ObjectFilter filter) throws SchemaException {
+        ObjectFilter optimized = FilterOptimizer.optimize(filter);
+        CompiledFilter compiled = CompiledFilter.compile(optimized, matchingRuleRegistry);
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (StoredObject<O> candidate : getCandidates(optimized)) {
+                if (compiled.match(candidate.object.getValue())) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns stored (immutable) objects matching the query filter, ordered and paged according to the query paging.
+     */
+    @NotNull
+    public List<PrismObject<O>> search(@Nullable ObjectQuery query) throws SchemaException {
+        ObjectFilter optimized = FilterOptimizer.optimize(query != null ? query.getFilter() : null);
+        CompiledFilter compiled = CompiledFilter.compile(optimized, matchingRuleRegistry);
+        ObjectPaging paging = query != null ? query.getPaging() : null;
+        int offset = paging != null && paging.getOffset() != null ? Math.max(paging.getOffset(), 0) : 0;
+        Integer maxSize = paging != null ? paging.getMaxSize() : null;
+        List<? extends ObjectOrdering> orderings = paging != null ? paging.getOrderingInstructions() : List.of();
+        HitComparator comparator = new HitComparator(orderings);
+
+        List<Hit<O>> hits;
+        lock.readLock().lock();
+        try {
+            if (maxSize != null) {
+                hits = selectTop(optimized, compiled, comparator, (long) offset + Math.max(maxSize, 0));
+            } else {
+                hits = selectAll(optimized, compiled, comparator);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(comparator);
+
+        List<PrismObject<O>> result = new ArrayList<>(Math.max(hits.size() - offset, 0));
+        for (int i = offset; i < hits.size(); i++) {
+            result.add(hits.get(i).stored.object);
+        }
+        return result;
+    }
+
+    private List<Hit<O>> selectAll(ObjectFilter filter, CompiledFilter compiled, HitComparator comparator)
+            throws SchemaException {
+        List<Hit<O>> hits = new ArrayList<>();
+        for (StoredObject<O> candidate : getCandidates(filter)) {
+            if (compiled.match(candidate.object.getValue())) {
+                hits.add(new Hit<>(candidate, comparator.getSortKeys(candidate.object)));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Keeps only the first `limit` hits, using a heap with the "worst" hit on the top.
+     */
+    private List<Hit<O>> selectTop(ObjectFilter filter, CompiledFilter compiled, HitComparator comparator, long limit)
+            throws SchemaException {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Hit<O>> top = new PriorityQueue<>(comparator.reversed());
+        for (StoredObject<O> candidate : getCandidates(filter)) {
+            if (compiled.match(candidate.object.getValue())) {
+                top.add(new Hit<>(candidate, comparator.getSortKeys(candidate.object)));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+        return new ArrayList<>(top);
+    }
+    //endregion
+
+    //region Candidates
+
+    private Collection<StoredObject<O>> getCandidates(ObjectFilter filter) {
+        Set<String> oids = getCandidateOids(filter);
+        if (oids == null) {
+            return objects.values();
+        }
+        List<StoredObject<O>> candidates = new ArrayList<>(oids.size());
+        for (String oid : oids) {
+            StoredObject<O> stored = objects.get(oid);
+            if (stored != null) {
+                candidates.add(stored);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns OIDs of objects that may match the filter, or null if all objects may match.
+     */
+    @Nullable
+    private Set<String> getCandidateOids(ObjectFilter filter) {
+        if (filter instanceof NoneFilter) {
+            return Set.of();
+        } else if (filter instanceof InOidFilter) {
+            return getInOidCandidates((InOidFilter) filter);
+        } else if (filter instanceof TypeFilter) {
+            return getTypeCandidates((TypeFilter) filter);
+        } else if (filter instanceof EqualFilter) {
+            return getEqualCandidates((EqualFilter<?>) filter);
+        } else if (filter instanceof RefFilter) {
+            return getRefCandidates((RefFilter) filter);
+        } else if (filter instanceof GreaterFilter) {
+            return getRangeCandidates((GreaterFilter<?>) filter, true);
+        } else if (filter instanceof LessFilter) {
+            return getRangeCandidates((LessFilter<?>) filter, false);
+        } else if (filter instanceof FullTextFilter) {
+            return fullTextIndex != null ? fullTextIndex.lookup((FullTextFilter) filter) : null;
+        } else if (filter instanceof AndFilter) {
+            return getAndCandidates((AndFilter) filter);
+        } else if (filter instanceof OrFilter) {
+            return getOrCandidates((OrFilter) filter);
+        } else {
+            return null;
+        }
+    }
+
+    private Set<String> getAndCandidates(AndFilter filter) {
+        Set<String> intersection = null;
+        for (ObjectFilter condition : filter.getConditions()) {
+            Set<String> candidates = getCandidateOids(condition);
+            if (candidates == null) {
+                continue;
+            }
+            if (intersection == null) {
+                intersection = new HashSet<>(candidates);
+            } else {
+                intersection.retainAll(candidates);
+            }
+            if (intersection.isEmpty()) {
+                break;
+            }
+        }
+        return intersection;
+    }
+
+    private Set<String> getOrCandidates(OrFilter filter) {
+        Set<String> union = new HashSet<>();
+        for (ObjectFilter condition : filter.getConditions()) {
+            Set<String> candidates = getCandidateOids(condition);
+            if (candidates == null) {
+                return null;
+            }
+            union.addAll(candidates);
+        }
+        return union;
+    }
+
+    private Set<String> getInOidCandidates(InOidFilter filter) {
+        if (filter.isConsiderOwner() || filter.getExpression() != null || filter.getOids() == null) {
+            return null;
+        } else {
+            return new HashSet<>(filter.getOids());
+        }
+    }
+
+    private Set<String> getTypeCandidates(TypeFilter filter) {
+        Set<String> ofType = new HashSet<>();
+        for (Map.Entry<QName, Set<String>> entry : oidsByType.entrySet()) {
+            // objects without definition are left to the filter
+            if (entry.getKey() == null || QNameUtil.match(entry.getKey(), filter.getType())) {
+                ofType.addAll(entry.getValue());
+            }
+        }
+        Set<String> inner = getCandidateOids(filter.getFilter());
+        if (inner != null) {
+            ofType.retainAll(inner);
+        }
+        return ofType;
+    }
+
+    private Set<String> getEqualCandidates(EqualFilter<?> filter) {
+        if (!isPlainValueFilter(filter)) {
+            return null;
+        }
+        for (ItemIndex.Hash index : hashIndexes) {
+            if (index.path.equivalent(filter.getFullPath()) && index.supportsMatchingRule(filter.getMatchingRule())) {
+                List<Object> keys = new ArrayList<>();
+                for (PrismPropertyValue<?> value : filter.getValues()) {
+                    keys.add(index.getKey(value.getRealValue()));
+                }
+                return index.lookup(keys);
+            }
+        }
+        return null;
+    }
+
+    private Set<String> getRefCandidates(RefFilter filter) {
+        if (!isPlainValueFilter(filter)) {
+            return null;
+        }
+        for (ItemIndex.Hash index : hashIndexes) {
+            if (index.path.equivalent(filter.getFullPath())) {
+                List<Object> keys = new ArrayList<>();
+                for (PrismReferenceValue value : filter.getValues()) {
+                    keys.add(value.getOid()); // null OID means the index cannot be used
+                }
+                return index.lookup(keys);
+            }
+        }
+        return null;
+    }
+
+    private Set<String> getRangeCandidates(ComparativeFilter<?> filter, boolean greater) {
+        if (!isPlainValueFilter(filter) || filter.getValues().size() != 1) {
+            return null;
+        }
+        Object realValue = filter.getValues().get(0).getRealValue();
+        BigDecimal bound = ItemIndex.Sorted.toSortKey(realValue);
+        if (bound == null) {
+            return null;
+        }
+        for (ItemIndex.Sorted index : sortedIndexes) {
+            if (index.path.equivalent(filter.getFullPath())) {
+                return greater ?
+                        index.lookup(realValue, bound, null) :
+                        index.lookup(realValue, null, bound);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Filter with values to be compared; not an "is null" one, not using an expression nor a right-hand side path.
+     */
+    private boolean isPlainValueFilter(ValueFilter<?, ?> filter) {
+        return filter.getValues() != null && !filter.getValues().isEmpty()
+                && filter.getExpression() == null && filter.getRightHandSidePath() == null;
+    }
+    //endregion
+
+    private static class StoredObject<O extends Objectable> {
+
+        @NotNull private final String oid;
+        @NotNull private final PrismObject<O> object;
+
+        /** Order of addition; used when there is no (or incomplete) ordering. */
+        private final long sequence;
+
+        private StoredObject(@NotNull PrismObject<O> object, long sequence) {
+            this.oid = object.getOid();
+            this.object = object;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class Hit<O extends Objectable> {
+
+        @NotNull private final StoredObject<O> stored;
+        @NotNull private final Object[] sortKeys;
+
+        private Hit(@NotNull StoredObject<O> stored, @NotNull Object[] sortKeys) {
+            this.stored = stored;
+            this.sortKeys = sortKeys;
+        }
+    }
+
+    /**
+     * Compares hits by the ordering instructions, then by the order of addition.
+     * Sort keys are extracted once per hit, see {@link #getSortKeys(PrismObject)}.
+     */
+    private static class HitComparator implements Comparator<Hit<?>> {
+
+        @NotNull private final ItemPathAccessor[] accessors;
+        @NotNull private final boolean[] descending;
+
+        private HitComparator(@NotNull List<? extends ObjectOrdering> orderings) {
+            accessors = new ItemPathAccessor[orderings.size()];
+            descending = new boolean[orderings.size()];
+            for (int i = 0; i < accessors.length; i++) {
+                ObjectOrdering ordering = orderings.get(i);
+                accessors[i] = ItemPathAccessor.create(ordering.getOrderBy());
+                descending[i] = ordering.getDirection() == OrderDirection.DESCENDING;
+            }
+        }
+
+        /**
+         * Returns comparable forms of the first values of the ordering items (null if there is no value).
+         */
+        private Object[] getSortKeys(PrismObject<?> object) {
+            Object[] keys = new Object[accessors.length];
+            for (int i = 0; i < accessors.length; i++) {
+                Collection<? extends PrismValue> values = accessors[i].getValues(object.getValue());
+                if (!values.isEmpty()) {
+                    keys[i] = toComparable(values.iterator().next());
+                }
+            }
+            return keys;
+        }
+
+        private static Object toComparable(PrismValue value) {
+            if (value instanceof PrismReferenceValue) {
+                return ((PrismReferenceValue) value).getOid();
+            }
+            Object realValue = value.getRealValue();
+            BigDecimal numeric = ItemIndex.Sorted.toSortKey(realValue);
+            if (numeric != null) {
+                return numeric;
+            } else if (realValue instanceof PolyString) {
+                return ((PolyString) realValue).getOrig();
+            } else if (realValue instanceof Comparable) {
+                return realValue;
+            } else {
+                return realValue != null ? realValue.toString() : null;
+            }
+        }
+
+        @Override
+        public int compare(Hit<?> hit1, Hit<?> hit2) {
+            for (int i = 0; i < accessors.length; i++) {
+                int result = compareKeys(hit1.sortKeys[i], hit2.sortKeys[i]);
+                if (result != 0) {
+                    return descending[i] ? -result : result;
+                }
+            }
+            return Long.compare(hit1.stored.sequence, hit2.stored.sequence);
+        }
+
+        /**
+         * Nulls are greater than any value. Values of different classes are ordered by the class name.
+         */
+        private static int compareKeys(Object key1, Object key2) {
+            if (key1 == null || key2 == null) {
+                return key1 == null ? (key2 == null ? 0 : 1) : -1;
+            } else if (key1.getClass() != key2.getClass()) {
+                return key1.getClass().getName().compareTo(key2.getClass().getName());
+            } else {
+                //noinspection unchecked,rawtypes
+                return ((Comparable) key1).compareTo(key2);
+            }
+        }
+    }
+}
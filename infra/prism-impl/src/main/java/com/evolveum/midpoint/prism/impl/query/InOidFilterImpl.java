@@ -188,6 +188,41 @@ public final class InOidFilterImpl extends ObjectFilterImpl implements InOidFilt
                 && oids.contains(pcvToConsider.getId().toString());
     }
 
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        if (oids == null || oids.isEmpty()) {
+            return CompiledFilter.interpreted(this, matchingRuleRegistry);
+        }
+        Set<String> oidSet = new HashSet<>(oids);
+        return new CompiledFilter(CompiledFilter.COST_IDENTIFIER) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) {
+                if (value == null) {
+                    return false;
+                }
+                if (value.getParent() instanceof PrismObject) {
+                    if (considerOwner) {
+                        return false;
+                    }
+                    String oid = ((PrismObject<?>) value.getParent()).getOid();
+                    return StringUtils.isNotBlank(oid) && oidSet.contains(oid);
+                }
+                PrismContainerValue<?> pcvToConsider;
+                if (considerOwner) {
+                    if (!(value.getParent() instanceof PrismContainer)) {
+                        return false;
+                    }
+                    pcvToConsider = ((PrismContainer<?>) value.getParent()).getParent();
+                } else {
+                    pcvToConsider = value;
+                }
+                return pcvToConsider != null
+                        && pcvToConsider.getId() != null
+                        && oidSet.contains(pcvToConsider.getId().toString());
+            }
+        };
+    }
+
     @Override
     public boolean equals(Object o, boolean exact) {
         if (this == o) {
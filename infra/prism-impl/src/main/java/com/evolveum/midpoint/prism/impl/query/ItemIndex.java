@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.match.MatchingRule;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.prism.xml.ns._public.types_3.RawType;
+
+/**
+ * Index of values of an item in objects stored in {@link InMemoryObjectCollection}.
+ *
+ * The index is used only to narrow the set of objects that have to be checked by the filter.
+ * So it is sufficient if a lookup returns a superset of the objects matching the condition.
+ * Objects having values that cannot be indexed are returned by each lookup.
+ *
+ * Not thread safe; the collection takes care of the synchronization.
+ */
+abstract class ItemIndex {
+
+    @NotNull final ItemPath path;
+    @NotNull private final ItemPathAccessor accessor;
+
+    /** Null if the path contains other than name segments, so we cannot tell which modifications touch it. */
+    @Nullable private final ItemPath namedPath;
+
+    @NotNull final Map<Object, Set<String>> entries;
+
+    /** Objects having values that cannot be indexed. */
+    @NotNull private final Set<String> unindexed = new HashSet<>();
+
+    ItemIndex(@NotNull ItemPath path, @NotNull Map<Object, Set<String>> entries) {
+        this.path = path;
+        this.accessor = ItemPathAccessor.create(path);
+        ItemPath named = path.namedSegmentsOnly();
+        this.namedPath = named.size() == path.size() ? named : null;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the index key for given item value, or null if the value cannot be indexed.
+     */
+    abstract Object getKey(@NotNull PrismValue value);
+
+    /**
+     * Called for each indexed value added (delta = 1) or removed (delta = -1).
+     */
+    void valueCounted(@NotNull PrismValue value, int delta) {
+    }
+
+    void add(@NotNull String oid, @NotNull PrismObject<?> object) {
+        for (PrismValue value : accessor.getValues(object.getValue())) {
+            Object key = getKey(value);
+            if (key != null) {
+                entries.computeIfAbsent(key, k -> new HashSet<>()).add(oid);
+                valueCounted(value, 1);
+            } else {
+                unindexed.add(oid);
+            }
+        }
+    }
+
+    void remove(@NotNull String oid, @NotNull PrismObject<?> object) {
+        for (PrismValue value : accessor.getValues(object.getValue())) {
+            Object key = getKey(value);
+            if (key != null) {
+                Set<String> oids = entries.get(key);
+                if (oids != null) {
+                    oids.remove(oid);
+                    if (oids.isEmpty()) {
+                        entries.remove(key);
+                    }
+                }
+                valueCounted(value, -1);
+            } else {
+                unindexed.remove(oid);
+            }
+        }
+    }
+
+    /**
+     * Can given modifications change the values of the indexed item?
+     */
+    boolean isAffectedBy(@NotNull Collection<? extends ItemDelta<?, ?>> modifications) {
+        if (namedPath == null) {
+            return !modifications.isEmpty();
+        }
+        for (ItemDelta<?, ?> modification : modifications) {
+            ItemPath modifiedPath = modification.getPath().namedSegmentsOnly();
+            if (modifiedPath.isSubPathOrEquivalent(namedPath) || modifiedPath.isSuperPathOrEquivalent(namedPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    Set<String> collect(@NotNull Collection<Set<String>> matchingEntries) {
+        Set<String> candidates = new HashSet<>(unindexed);
+        for (Set<String> oids : matchingEntries) {
+            candidates.addAll(oids);
+        }
+        return candidates;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + path + ": " + entries.size() + " keys, "
+                + unindexed.size() + " unindexed)";
+    }
+
+    /**
+     * Supports equality lookups for EQUAL filters (using the matching rule of the index) and REF filters (by OID).
+     *
+     * Keys are values normalized by the matching rule, limited to types whose equals() is consistent
+     * with the rule (see {@link EqualFilterImpl#isIndexable(Object)}). Poly strings are indexed by their norm
+     * if the rule compares norms. References are indexed by target OID.
+     */
+    static class Hash extends ItemIndex {
+
+        @NotNull private final MatchingRule<Object> matchingRule;
+        private final boolean indexPolyStringNorm;
+
+        Hash(@NotNull ItemPath path, @NotNull MatchingRule<Object> matchingRule) {
+            super(path, new HashMap<>());
+            this.matchingRule = matchingRule;
+            this.indexPolyStringNorm = QNameUtil.match(PrismConstants.DEFAULT_MATCHING_RULE_NAME, matchingRule.getName())
+                    || QNameUtil.match(PrismConstants.POLY_STRING_NORM_MATCHING_RULE_NAME, matchingRule.getName());
+        }
+
+        boolean supportsMatchingRule(QName matchingRuleName) {
+            return QNameUtil.match(
+                    matchingRuleName != null ? matchingRuleName : PrismConstants.DEFAULT_MATCHING_RULE_NAME,
+                    matchingRule.getName());
+        }
+
+        @Override
+        Object getKey(@NotNull PrismValue value) {
+            if (value instanceof PrismReferenceValue) {
+                return ((PrismReferenceValue) value).getOid();
+            } else if (value instanceof PrismPropertyValue) {
+                return getKey(((PrismPropertyValue<?>) value).getRealValue());
+            } else {
+                return null;
+            }
+        }
+
+        Object getKey(Object realValue) {
+            if (realValue == null || realValue instanceof RawType) {
+                return null;
+            } else if (realValue instanceof PolyString) {
+                return indexPolyStringNorm ? ((PolyString) realValue).getNorm() : null;
+            }
+            try {
+                Object normalized = matchingRule.normalize(realValue);
+                return EqualFilterImpl.isIndexable(normalized) ? normalized : null;
+            } catch (SchemaException | RuntimeException e) {
+                return null; // the filter will complain (if needed)
+            }
+        }
+
+        /**
+         * Returns objects that may have any of given keys, or null if some of the keys cannot be looked up.
+         */
+        @Nullable
+        Set<String> lookup(@NotNull Collection<?> keys) {
+            List<Set<String>> matchingEntries = new ArrayList<>();
+            for (Object key : keys) {
+                if (key == null) {
+                    return null;
+                }
+                Set<String> oids = entries.get(key);
+                if (oids != null) {
+                    matchingEntries.add(oids);
+                }
+            }
+            return collect(matchingEntries);
+        }
+    }
+
+    /**
+     * Supports range lookups for GREATER and LESS filters on numbers and timestamps.
+     *
+     * Both are indexed as {@link BigDecimal} (timestamps as milliseconds), so the index can be used only
+     * if all the indexed values are of the same kind as the filter value. The ranges are always inclusive,
+     * because the millisecond precision is not exact enough for strict comparisons.
+     */
+    static class Sorted extends ItemIndex {
+
+        private int numbers;
+        private int timestamps;
+
+        Sorted(@NotNull ItemPath path) {
+            super(path, new TreeMap<>());
+        }
+
+        @Override
+        Object getKey(@NotNull PrismValue value) {
+            if (value instanceof PrismPropertyValue) {
+                return toSortKey(((PrismPropertyValue<?>) value).getRealValue());
+            } else {
+                return null;
+            }
+        }
+
+        @Override
+        void valueCounted(@NotNull PrismValue value, int delta) {
+            if (value.getRealValue() instanceof XMLGregorianCalendar) {
+                timestamps += delta;
+            } else {
+                numbers += delta;
+            }
+        }
+
+        /**
+         * Returns objects having a value between the bounds (both inclusive, null meaning unbounded),
+         * or null if the index cannot be used for the comparison with given filter value.
+         */
+        @Nullable
+        Set<String> lookup(Object filterRealValue, BigDecimal from, BigDecimal to) {
+            if (filterRealValue instanceof Number && timestamps > 0
+                    || filterRealValue instanceof XMLGregorianCalendar && numbers > 0) {
+                return null;
+            }
+            //noinspection unchecked
+            NavigableMap<Object, Set<String>> sorted = (NavigableMap<Object, Set<String>>) entries;
+            NavigableMap<Object, Set<String>> range;
+            if (from != null && to != null) {
+                range = sorted.subMap(from, true, to, true);
+            } else if (from != null) {
+                range = sorted.tailMap(from, true);
+            } else if (to != null) {
+                range = sorted.headMap(to, true);
+            } else {
+                range = sorted;
+            }
+            return collect(range.values());
+        }
+
+        /**
+         * Returns the comparable form of a number or timestamp, or null for other values.
+         */
+        static BigDecimal toSortKey(Object realValue) {
+            if (realValue instanceof XMLGregorianCalendar) {
+                return BigDecimal.valueOf(XmlTypeConverter.toMillis((XMLGregorianCalendar) realValue));
+            } else if (realValue instanceof BigDecimal) {
+                return (BigDecimal) realValue;
+            } else if (realValue instanceof BigInteger) {
+                return new BigDecimal((BigInteger) realValue);
+            } else if (realValue instanceof Double || realValue instanceof Float) {
+                double d = ((Number) realValue).doubleValue();
+                return Double.isFinite(d) ? BigDecimal.valueOf(d) : null;
+            } else if (realValue instanceof Long || realValue instanceof Integer
+                    || realValue instanceof Short || realValue instanceof Byte) {
+                return BigDecimal.valueOf(((Number) realValue).longValue());
+            } else {
+                return null;
+            }
+        }
+    }
+}
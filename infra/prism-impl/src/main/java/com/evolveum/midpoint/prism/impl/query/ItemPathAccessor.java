@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query;
+
+import static java.util.Collections.emptyList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.Item;
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.PrismValue;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.prism.path.ItemPath;
+
+/**
+ * Provides values of given item path in container values, like {@link PrismContainerValue#getAllValues(ItemPath)} does.
+ *
+ * For paths consisting of names only the path is split into item names in advance, and the values are
+ * collected without creating intermediate paths. (The values of the last item are returned directly, if possible.)
+ * Other paths (e.g. ones containing "#") are delegated to {@link PrismContainerValue#getAllValues(ItemPath)}.
+ *
+ * Immutable, so it can be shared by more threads.
+ */
+final class ItemPathAccessor {
+
+    @NotNull private final ItemPath path;
+
+    /** Null if the path cannot be walked by names. */
+    private final ItemName[] names;
+
+    private ItemPathAccessor(@NotNull ItemPath path, ItemName[] names) {
+        this.path = path;
+        this.names = names;
+    }
+
+    @NotNull
+    static ItemPathAccessor create(@NotNull ItemPath path) {
+        List<?> segments = path.getSegments();
+        ItemName[] names = new ItemName[segments.size()];
+        for (int i = 0; i < names.length; i++) {
+            Object segment = segments.get(i);
+            if (!ItemPath.isName(segment)) {
+                return new ItemPathAccessor(path, null);
+            }
+            names[i] = ItemName.fromQName(ItemPath.toName(segment));
+        }
+        return new ItemPathAccessor(path, names);
+    }
+
+    /**
+     * Number of path segments; used for cost estimates.
+     */
+    int size() {
+        return path.size();
+    }
+
+    /**
+     * Returns values of the path. The returned collection must not be modified.
+     */
+    @NotNull
+    Collection<? extends PrismValue> getValues(@NotNull PrismContainerValue<?> root) {
+        if (names == null) {
+            return root.getAllValues(path);
+        }
+        PrismContainerValue<?> current = root;
+        for (int i = 0; i < names.length; i++) {
+            Item<?, ?> item = current.findItem(names[i], Item.class);
+            if (item == null) {
+                return emptyList();
+            }
+            List<? extends PrismValue> values = item.getValues();
+            if (i == names.length - 1) {
+                return values;
+            } else if (values.size() == 1) {
+                PrismValue single = values.get(0);
+                if (!(single instanceof PrismContainerValue)) {
+                    return emptyList();
+                }
+                current = (PrismContainerValue<?>) single;
+            } else {
+                return collectValues(values, i + 1);
+            }
+        }
+        throw new AssertionError("Empty path in accessor: " + path);
+    }
+
+    private List<PrismValue> collectValues(List<? extends PrismValue> parents, int index) {
+        List<PrismValue> collected = new ArrayList<>();
+        for (PrismValue parent : parents) {
+            if (parent instanceof PrismContainerValue) {
+                collectValues((PrismContainerValue<?>) parent, index, collected);
+            }
+        }
+        return collected;
+    }
+
+    private void collectValues(PrismContainerValue<?> parent, int index, List<PrismValue> collected) {
+        Item<?, ?> item = parent.findItem(names[index], Item.class);
+        if (item == null) {
+            return;
+        }
+        if (index == names.length - 1) {
+            collected.addAll(item.getValues());
+        } else {
+            for (PrismValue value : item.getValues()) {
+                if (value instanceof PrismContainerValue) {
+                    collectValues((PrismContainerValue<?>) value, index + 1, collected);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
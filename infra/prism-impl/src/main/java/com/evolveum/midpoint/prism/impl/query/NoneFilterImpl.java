@@ -63,6 +63,11 @@ public class NoneFilterImpl extends ObjectFilterImpl implements NoneFilter {
         return false;
     }
 
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        return CompiledFilter.NONE;
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return obj instanceof NoneFilter;
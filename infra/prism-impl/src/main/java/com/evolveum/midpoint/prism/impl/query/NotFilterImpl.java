@@ -43,6 +43,11 @@ public class NotFilterImpl extends UnaryLogicalFilterImpl implements NotFilter {
         return !getFilter().match(value, matchingRuleRegistry);
     }
 
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        return CompiledFilter.not(getFilter(), matchingRuleRegistry);
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return super.equals(obj, exact) && obj instanceof NotFilter;
@@ -9,8 +9,10 @@ package com.evolveum.midpoint.prism.impl.query;
 
 import com.evolveum.midpoint.prism.AbstractFreezable;
 import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.Visitor;
+import com.evolveum.midpoint.util.exception.SchemaException;
 
 public abstract class ObjectFilterImpl extends AbstractFreezable implements ObjectFilter {
 
@@ -35,6 +37,14 @@ public abstract class ObjectFilterImpl extends AbstractFreezable implements Obje
         this.prismContext = prismContext;
     }
 
+    /**
+     * Filters without specific compiled form are evaluated by calling their match method.
+     */
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        return CompiledFilter.interpreted(this, matchingRuleRegistry);
+    }
+
     @Override
     protected abstract void performFreeze();
 
@@ -59,6 +59,11 @@ public class OrFilterImpl extends NaryLogicalFilterImpl implements OrFilter {
         return false;
     }
 
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        return CompiledFilter.or(getConditions(), matchingRuleRegistry);
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return super.equals(obj, exact) && obj instanceof OrFilter;
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query;
+
+import static java.util.Collections.emptySet;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.prism.query.OrgHierarchyProvider;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Default {@link OrgHierarchyProvider}: a closure table (the set of all ancestors for each org)
+ * built from parent org references of the orgs it is given.
+ *
+ * Ancestor checks are simple lookups. When parents of an org change, ancestors of the org and its descendants
+ * are recomputed (parents before children). It is sufficient to feed the closure with orgs; other objects
+ * are evaluated by their own parent org references.
+ *
+ * Cycles in the hierarchy should not exist, but they are not rejected. Ancestors of orgs in a cycle (and below it)
+ * are computed by iterating to a fixpoint, so each org in a cycle has all the other orgs of the cycle,
+ * and their ancestors, as its ancestors. An org is never its own ancestor.
+ *
+ * Thread safe.
+ */
+public class OrgClosure implements OrgHierarchyProvider {
+
+    @NotNull private final ItemName parentOrgRefName;
+
+    /** Parent org references of the orgs, as detached (immutable) items. Used to apply the deltas. */
+    @NotNull private final Map<String, PrismReference> parentOrgRefs = new HashMap<>();
+
+    @NotNull private final Map<String, Set<String>> parents = new HashMap<>();
+    @NotNull private final Map<String, Set<String>> children = new HashMap<>();
+
+    /** Strict ancestors of the orgs that have any. */
+    @NotNull private final Map<String, Set<String>> ancestors = new HashMap<>();
+
+    @NotNull private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public OrgClosure(@NotNull ItemName parentOrgRefName) {
+        this.parentOrgRefName = parentOrgRefName;
+    }
+
+    @Override
+    public @NotNull ItemName getParentOrgRefName() {
+        return parentOrgRefName;
+    }
+
+    @Override
+    public boolean isAncestor(@NotNull String ancestorOid, @NotNull String descendantOid) {
+        lock.readLock().lock();
+        try {
+            Set<String> ancestorsOfDescendant = ancestors.get(descendantOid);
+            return ancestorsOfDescendant != null && ancestorsOfDescendant.contains(ancestorOid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the org, or updates it if it is already known.
+     */
+    public void add(@NotNull PrismObject<?> org) {
+        PrismReference parentOrgRef = org.findReference(parentOrgRefName);
+        setParentOrgRef(Objects.requireNonNull(org.getOid(), "No OID"),
+                parentOrgRef != null ? parentOrgRef.createImmutableClone() : null);
+    }
+
+    /**
+     * Removes the org. Its children keep it as their ancestor, as they still refer to it.
+     */
+    public void remove(@NotNull String oid) {
+        setParentOrgRef(oid, null);
+    }
+
+    /**
+     * Applies ADD, MODIFY or DELETE delta of an org. MODIFY delta of an org not known yet is applied as if the org
+     * had no parents, i.e. the parents it adds become its only parents.
+     */
+    public void applyDelta(@NotNull ObjectDelta<?> delta) throws SchemaException {
+        if (delta.isAdd()) {
+            add(delta.getObjectToAdd());
+        } else if (delta.isDelete()) {
+            remove(delta.getOid());
+        } else if (delta.isModify()) {
+            String oid = delta.getOid();
+            for (ItemDelta<?, ?> modification : delta.getModifications()) {
+                if (modification.getPath().equivalent(parentOrgRefName)) {
+                    // Reading the old value and storing the new one must be atomic, so no concurrent update is lost.
+                    lock.writeLock().lock();
+                    try {
+                        //noinspection unchecked,rawtypes
+                        Item<?, ?> newRef = ((ItemDelta) modification).getItemNewMatchingPath(parentOrgRefs.get(oid));
+                        if (newRef != null) {
+                            newRef.freeze();
+                        }
+                        setParentOrgRefLocked(oid, (PrismReference) newRef);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            }
+        }
+    }
+
+    private void setParentOrgRef(@NotNull String oid, @Nullable PrismReference parentOrgRef) {
+        lock.writeLock().lock();
+        try {
+            setParentOrgRefLocked(oid, parentOrgRef);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setParentOrgRefLocked(@NotNull String oid, @Nullable PrismReference parentOrgRef) {
+        Set<String> newParents = new HashSet<>();
+        if (parentOrgRef != null) {
+            for (PrismReferenceValue value : parentOrgRef.getValues()) {
+                if (value.getOid() != null) {
+                    newParents.add(value.getOid());
+                }
+            }
+        }
+        if (parentOrgRef != null) {
+            parentOrgRefs.put(oid, parentOrgRef);
+        } else {
+            parentOrgRefs.remove(oid);
+        }
+        Set<String> oldParents = parents.getOrDefault(oid, emptySet());
+        if (oldParents.equals(newParents)) {
+            return;
+        }
+        for (String oldParent : oldParents) {
+            if (!newParents.contains(oldParent)) {
+                removeFromMultimap(children, oldParent, oid);
+            }
+        }
+        for (String newParent : newParents) {
+            if (!oldParents.contains(newParent)) {
+                children.computeIfAbsent(newParent, k -> new HashSet<>()).add(oid);
+            }
+        }
+        if (newParents.isEmpty()) {
+            parents.remove(oid);
+        } else {
+            parents.put(oid, newParents);
+        }
+        recomputeAncestors(oid);
+    }
+
+    /**
+     * Recomputes ancestors of the org and all its descendants, in topological order.
+     */
+    private void recomputeAncestors(String oid) {
+        Set<String> affected = new LinkedHashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>();
+        toVisit.add(oid);
+        while (!toVisit.isEmpty()) {
+            String current = toVisit.poll();
+            if (affected.add(current)) {
+                toVisit.addAll(children.getOrDefault(current, emptySet()));
+            }
+        }
+
+        Map<String, Integer> affectedParentsCount = new HashMap<>();
+        Deque<String> ready = new ArrayDeque<>();
+        for (String org : affected) {
+            int count = 0;
+            for (String parent : parents.getOrDefault(org, emptySet())) {
+                if (affected.contains(parent)) {
+                    count++;
+                }
+            }
+            affectedParentsCount.put(org, count);
+            if (count == 0) {
+                ready.add(org);
+            }
+        }
+        while (!ready.isEmpty()) {
+            String org = ready.poll();
+            computeAncestors(org);
+            affected.remove(org);
+            for (String child : children.getOrDefault(org, emptySet())) {
+                if (affectedParentsCount.merge(child, -1, Integer::sum) == 0) {
+                    ready.add(child);
+                }
+            }
+        }
+        // Only orgs in cycles and their descendants remain here. Their ancestors are computed from scratch,
+        // as the old ones (possibly no longer valid) would otherwise sustain themselves around the cycle.
+        for (String org : affected) {
+            ancestors.remove(org);
+        }
+        boolean changed = !affected.isEmpty();
+        while (changed) {
+            changed = false;
+            for (String org : affected) {
+                changed |= computeAncestors(org);
+            }
+        }
+    }
+
+    /**
+     * @return true if the ancestors of the org changed
+     */
+    private boolean computeAncestors(String org) {
+        Set<String> orgAncestors = new HashSet<>();
+        for (String parent : parents.getOrDefault(org, emptySet())) {
+            orgAncestors.add(parent);
+            orgAncestors.addAll(ancestors.getOrDefault(parent, emptySet()));
+        }
+        orgAncestors.remove(org); // for cycles
+        if (orgAncestors.isEmpty()) {
+            return ancestors.remove(org) != null;
+        } else {
+            return !orgAncestors.equals(ancestors.put(org, orgAncestors));
+        }
+    }
+
+    private static void removeFromMultimap(Map<String, Set<String>> map, String key, String value) {
+        Set<String> values = map.get(key);
+        if (values != null) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OrgClosure(" + parents.size() + " orgs with parents)";
+    }
+}
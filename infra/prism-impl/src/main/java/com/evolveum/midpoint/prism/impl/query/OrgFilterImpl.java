@@ -7,12 +7,16 @@
 package com.evolveum.midpoint.prism.impl.query;
 
 import java.util.Objects;
+import javax.xml.namespace.QName;
 
-import com.evolveum.midpoint.prism.PrismContainerValue;
-import com.evolveum.midpoint.prism.PrismReferenceValue;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.impl.PrismReferenceValueImpl;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.query.OrgFilter;
+import com.evolveum.midpoint.prism.query.OrgHierarchyProvider;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
 
@@ -155,8 +159,89 @@ public final class OrgFilterImpl extends ObjectFilterImpl implements OrgFilter {
         return sb.toString();
     }
 
+    /**
+     * Evaluates the filter using parent org references of the object and {@link OrgHierarchyProvider}
+     * set in the prism context. ROOT and ONE_LEVEL scopes need no hierarchy information.
+     */
     @Override
     public boolean match(PrismContainerValue value, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
-        throw new UnsupportedOperationException("Matching object and ORG filter is not supported yet");
+        PrismContext prismContext = getPrismContextOrDefault();
+        return matches(value, getOrgHierarchyProvider(prismContext), prismContext);
+    }
+
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        PrismContext prismContext = getPrismContextOrDefault();
+        OrgHierarchyProvider provider = getOrgHierarchyProvider(prismContext);
+        return new CompiledFilter(getMatchingCost()) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) {
+                return matches(value, provider, prismContext);
+            }
+        };
+    }
+
+    private boolean matches(PrismContainerValue<?> value, OrgHierarchyProvider provider, PrismContext prismContext) {
+        ItemName parentOrgRefName = provider.getParentOrgRefName();
+        if (root) {
+            PrismReference parentOrgRef = value.findReference(parentOrgRefName);
+            return parentOrgRef == null || parentOrgRef.hasNoValues();
+        }
+        String baseOid = baseOrgRef.getOid();
+        QName relation = baseOrgRef.getRelation();
+        switch (scope) {
+            case ONE_LEVEL:
+            case SUBTREE:
+                PrismReference parentOrgRef = value.findReference(parentOrgRefName);
+                if (parentOrgRef != null) {
+                    for (PrismReferenceValue parent : parentOrgRef.getValues()) {
+                        String parentOid = parent.getOid();
+                        if (parentOid != null
+                                && relationMatches(relation, parent.getRelation(), prismContext)
+                                && (baseOid.equals(parentOid)
+                                        || scope == Scope.SUBTREE && provider.isAncestor(baseOid, parentOid))) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            case ANCESTORS:
+                String oid = value.getParent() instanceof PrismObject
+                        ? ((PrismObject<?>) value.getParent()).getOid()
+                        : null;
+                return oid != null && provider.isAncestor(oid, baseOid);
+            default:
+                throw new AssertionError(scope);
+        }
+    }
+
+    private int getMatchingCost() {
+        if (root || scope == Scope.ONE_LEVEL) {
+            return CompiledFilter.COST_ITEM;
+        } else if (scope == Scope.SUBTREE) {
+            return CompiledFilter.COST_ITEM + CompiledFilter.COST_IDENTIFIER;
+        } else {
+            return CompiledFilter.COST_IDENTIFIER;
+        }
+    }
+
+    private PrismContext getPrismContextOrDefault() {
+        return getPrismContext() != null ? getPrismContext() : PrismContext.get();
+    }
+
+    @NotNull
+    private static OrgHierarchyProvider getOrgHierarchyProvider(PrismContext prismContext) {
+        OrgHierarchyProvider provider = prismContext.getOrgHierarchyProvider();
+        if (provider == null) {
+            throw new UnsupportedOperationException("Matching object and ORG filter is not supported without org hierarchy provider");
+        }
+        return provider;
+    }
+
+    /**
+     * Relation in the filter (if specified) restricts the relation of the parent org reference of the object itself.
+     */
+    private static boolean relationMatches(QName filterRelation, QName parentRelation, PrismContext prismContext) {
+        return filterRelation == null || prismContext.relationMatches(filterRelation, parentRelation);
     }
 }
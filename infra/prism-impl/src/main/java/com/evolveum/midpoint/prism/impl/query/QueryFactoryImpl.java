@@ -183,6 +183,11 @@ public class QueryFactoryImpl implements QueryFactory {
         return NotFilterImpl.createNot(inner);
     }
 
+    @Override
+    public ObjectFilter optimize(ObjectFilter filter) {
+        return FilterOptimizer.optimize(filter);
+    }
+
     @NotNull
     @Override
     public <C extends Containerable> ExistsFilter createExists(ItemName path, Class<C> containerType, PrismContext prismContext,
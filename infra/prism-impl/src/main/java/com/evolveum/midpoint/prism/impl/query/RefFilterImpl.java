@@ -6,12 +6,11 @@
  */
 package com.evolveum.midpoint.prism.impl.query;
 
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_ITEM;
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_PER_PATH_SEGMENT;
 import static com.evolveum.midpoint.util.MiscUtil.emptyIfNull;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 import javax.xml.namespace.QName;
 
 import org.jetbrains.annotations.NotNull;
@@ -84,6 +83,51 @@ public class RefFilterImpl extends ValueFilterImpl<PrismReferenceValue, PrismRef
         return false;
     }
 
+    /**
+     * If all filter values have OIDs, they are indexed by them, so only the values with the same OID
+     * as the object value have to be compared with it.
+     */
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        List<PrismReferenceValue> filterValues = List.copyOf(emptyIfNull(getValues()));
+        Map<String, List<PrismReferenceValue>> byOid = indexByOid(filterValues);
+        ItemPathAccessor accessor = ItemPathAccessor.create(getFullPath());
+        return new CompiledFilter(COST_ITEM + COST_PER_PATH_SEGMENT * accessor.size()) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) {
+                Collection<? extends PrismValue> objectItemValues = accessor.getValues(value);
+                if (objectItemValues.isEmpty()) {
+                    return filterValues.isEmpty();
+                } else if (filterValues.isEmpty()) {
+                    return false;
+                }
+                for (PrismValue objectItemValue : objectItemValues) {
+                    checkPrismReferenceValue(objectItemValue);
+                    PrismReferenceValue objectRefValue = (PrismReferenceValue) objectItemValue;
+                    List<PrismReferenceValue> candidates = byOid != null ?
+                            byOid.getOrDefault(objectRefValue.getOid(), List.of()) : filterValues;
+                    for (PrismReferenceValue filterValue : candidates) {
+                        if (valuesMatch(filterValue, objectRefValue)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    private static Map<String, List<PrismReferenceValue>> indexByOid(List<PrismReferenceValue> filterValues) {
+        Map<String, List<PrismReferenceValue>> byOid = new HashMap<>();
+        for (PrismReferenceValue filterValue : filterValues) {
+            if (filterValue.getOid() == null) {
+                return null; // matches either any OID or null OID, depending on oidNullAsAny
+            }
+            byOid.computeIfAbsent(filterValue.getOid(), k -> new ArrayList<>(1)).add(filterValue);
+        }
+        return byOid;
+    }
+
     private void checkPrismReferenceValue(Object value) {
         if (!(value instanceof PrismReferenceValue)) {
             throw new IllegalArgumentException("Not supported prism value for ref filter."
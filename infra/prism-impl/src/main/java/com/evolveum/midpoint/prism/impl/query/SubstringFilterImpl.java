@@ -6,6 +6,10 @@
  */
 package com.evolveum.midpoint.prism.impl.query;
 
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_PER_PATH_SEGMENT;
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_REGEX;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -17,9 +21,11 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.impl.match.DefaultMatchingRule;
 import com.evolveum.midpoint.prism.match.MatchingRule;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.SubstringFilter;
 import com.evolveum.midpoint.util.exception.SchemaException;
 
@@ -85,35 +91,150 @@ public final class SubstringFilterImpl<T> extends PropertyValueFilterImpl<T>
     @Override
     public boolean match(PrismContainerValue containerValue, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
         Collection<PrismValue> objectItemValues = getObjectItemValues(containerValue);
+        if (objectItemValues.isEmpty()) {
+            return false;
+        }
+        // Patterns are created once per match call, not once per each object value.
+        return new SubstringMatcher(getMatchingRuleFromRegistry(matchingRuleRegistry), false)
+                .matchesAny(objectItemValues);
+    }
 
-        MatchingRule<Object> matching = getMatchingRuleFromRegistry(matchingRuleRegistry);
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        if (getDefinition() == null) {
+            return CompiledFilter.interpreted(this, matchingRuleRegistry);
+        }
+        SubstringMatcher matcher = new SubstringMatcher(getMatchingRuleFromRegistry(matchingRuleRegistry), true);
+        ItemPathAccessor accessor = ItemPathAccessor.create(getFullPath());
+        return new CompiledFilter(COST_REGEX + COST_PER_PATH_SEGMENT * accessor.size()) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                return matcher.matchesAny(accessor.getValues(value));
+            }
+        };
+    }
 
-        for (Object val : objectItemValues) {
-            if (val instanceof PrismPropertyValue) {
-                Object value = ((PrismPropertyValue) val).getValue();
-                for (Object o : toRealValues()) {
-                    if (o == null) {
-                        continue;            // shouldn't occur
-                    }
-                    StringBuilder sb = new StringBuilder();
-                    if (!anchorStart) {
-                        sb.append(".*");
-                    }
-                    sb.append(Pattern.quote(o.toString()));
-                    if (!anchorEnd) {
-                        sb.append(".*");
-                    }
-                    if (matching.matchRegex(value, sb.toString())) {
-                        return true;
+    /**
+     * Substrings of the filter prepared for matching. For compiled filters, the patterns are compiled
+     * in advance (used for values that cannot be matched without regular expressions).
+     */
+    private class SubstringMatcher {
+
+        private final MatchingRule<Object> matching;
+        private final boolean plainMatchingPossible;
+        private final List<String> substrings = new ArrayList<>();
+        private final List<String> regexes = new ArrayList<>();
+        private final List<Pattern> patterns;
+
+        private SubstringMatcher(MatchingRule<Object> matching, boolean compilePatterns) {
+            this.matching = matching;
+            this.plainMatchingPossible = matching instanceof DefaultMatchingRule;
+            for (Object o : toRealValues()) {
+                if (o == null) {
+                    continue;            // shouldn't occur
+                }
+                substrings.add(o.toString());
+                regexes.add(toRegex(o.toString()));
+            }
+            if (compilePatterns && plainMatchingPossible) {
+                patterns = new ArrayList<>(regexes.size());
+                for (String regex : regexes) {
+                    patterns.add(Pattern.compile(regex));
+                }
+            } else {
+                patterns = null;
+            }
+        }
+
+        private boolean matchesAny(Collection<? extends PrismValue> objectItemValues) throws SchemaException {
+            for (PrismValue val : objectItemValues) {
+                if (val instanceof PrismPropertyValue) {
+                    Object value = ((PrismPropertyValue<?>) val).getValue();
+                    for (int i = 0; i < regexes.size(); i++) {
+                        if (matches(value, i)) {
+                            return true;
+                        }
                     }
                 }
+                if (val instanceof PrismReferenceValue) {
+                    throw new UnsupportedOperationException(
+                            "matching substring on the prism reference value not supported yet");
+                }
             }
-            if (val instanceof PrismReferenceValue) {
-                throw new UnsupportedOperationException(
-                        "matching substring on the prism reference value not supported yet");
+            return false;
+        }
+
+        private boolean matches(Object value, int i) throws SchemaException {
+            Boolean plainResult = plainMatchingPossible ? matchPlain(value, substrings.get(i)) : null;
+            if (plainResult != null) {
+                return plainResult;
+            } else if (patterns != null && value instanceof String) {
+                // This is what the default matching rule does for strings, only without pattern cache lookup.
+                return patterns.get(i).matcher((String) value).matches();
+            } else {
+                return matching.matchRegex(value, regexes.get(i));
+            }
+        }
+    }
+
+    private String toRegex(String substring) {
+        StringBuilder sb = new StringBuilder();
+        if (!anchorStart) {
+            sb.append(".*");
+        }
+        sb.append(Pattern.quote(substring));
+        if (!anchorEnd) {
+            sb.append(".*");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Evaluates the default matching rule without regular expressions, if possible.
+     * Returns null if the value has to be matched using regex.
+     */
+    private Boolean matchPlain(Object value, String substring) {
+        if (value instanceof String) {
+            return matchPlain((String) value, substring);
+        } else if (value instanceof PolyString) {
+            // This is what PolyString.matches(regex) does.
+            PolyString polyString = (PolyString) value;
+            Boolean normResult = matchPlain(polyString.getNorm(), substring);
+            if (Boolean.TRUE.equals(normResult)) {
+                return true;
             }
+            Boolean origResult = matchPlain(polyString.getOrig(), substring);
+            return normResult != null && origResult != null ? origResult : null;
+        } else {
+            return null;
         }
+    }
 
+    /**
+     * Note that "." in the regex does not match line terminators, so strings containing them are left for the regex.
+     */
+    private Boolean matchPlain(String value, String substring) {
+        if (value == null || containsLineTerminator(value)) {
+            return null;
+        }
+        if (anchorStart && anchorEnd) {
+            return value.equals(substring);
+        } else if (anchorStart) {
+            return value.startsWith(substring);
+        } else if (anchorEnd) {
+            return value.endsWith(substring);
+        } else {
+            return value.contains(substring);
+        }
+    }
+
+    private static boolean containsLineTerminator(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
         return false;
     }
 
@@ -7,6 +7,8 @@
 
 package com.evolveum.midpoint.prism.impl.query;
 
+import static com.evolveum.midpoint.prism.impl.query.CompiledFilter.COST_TYPE;
+
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
@@ -76,6 +78,31 @@ public class TypeFilterImpl extends ObjectFilterImpl implements TypeFilter {
     // untested; TODO test this method
     @Override
     public boolean match(PrismContainerValue value, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        if (!matchType(value)) {
+            return false;
+        }
+        if (filter == null) {
+            return true;
+        } else {
+            return filter.match(value, matchingRuleRegistry);
+        }
+    }
+
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        CompiledFilter compiledFilter = CompiledFilter.compile(filter, matchingRuleRegistry);
+        if (compiledFilter == CompiledFilter.NONE) {
+            return CompiledFilter.NONE;
+        }
+        return new CompiledFilter(COST_TYPE + compiledFilter.getCost()) {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                return matchType(value) && compiledFilter.match(value);
+            }
+        };
+    }
+
+    private boolean matchType(PrismContainerValue<?> value) {
         if (value == null) {
             return false;           // just for safety
         }
@@ -86,7 +113,7 @@ public class TypeFilterImpl extends ObjectFilterImpl implements TypeFilter {
                 return false;
             }
             PrismContainer<?> container = (PrismContainer<?>) value.getParent();
-            PrismContainerDefinition pcd = container.getDefinition();
+            PrismContainerDefinition<?> pcd = container.getDefinition();
             if (pcd == null) {
                 LOGGER.trace("Parent of {} has no definition, returning false", value);
                 return false;
@@ -94,14 +121,7 @@ public class TypeFilterImpl extends ObjectFilterImpl implements TypeFilter {
             definition = pcd.getComplexTypeDefinition();
         }
         // TODO TODO TODO subtypes!!!!!!!!
-        if (!QNameUtil.match(definition.getTypeName(), type)) {
-            return false;
-        }
-        if (filter == null) {
-            return true;
-        } else {
-            return filter.match(value, matchingRuleRegistry);
-        }
+        return QNameUtil.match(definition.getTypeName(), type);
     }
 
     @Override
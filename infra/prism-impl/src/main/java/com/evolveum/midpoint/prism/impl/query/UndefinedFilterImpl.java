@@ -57,6 +57,11 @@ public class UndefinedFilterImpl extends ObjectFilterImpl implements UndefinedFi
         return true;
     }
 
+    @Override
+    public CompiledFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        return CompiledFilter.ALL;
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return obj instanceof UndefinedFilter;
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.schema;
+
+import java.util.*;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.Definition;
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.TypeDefinition;
+import com.evolveum.midpoint.prism.schema.PrismSchema;
+import com.evolveum.midpoint.prism.schema.SchemaDescription;
+
+/**
+ * Indexes over schemas registered in {@link SchemaRegistryImpl}: schema descriptions by compile-time classes package,
+ * and schemas by local names of their global item and type definitions.
+ *
+ * The local name indexes only narrow down the set of schemas to be asked; the lookup itself is still done
+ * by the schemas. Schemas are kept in the order of registration, so the results (including the detection
+ * of ambiguities) are the same as if all the schemas were asked.
+ *
+ * Immutable. Built when the registry is initialized, thrown away when registry caches are invalidated.
+ */
+class GlobalDefinitionsIndex {
+
+    @NotNull private final Map<Package, SchemaDescription> descriptionsByPackage = new HashMap<>();
+    @NotNull private final Map<String, List<PrismSchema>> schemasByItemLocalName = new HashMap<>();
+    @NotNull private final Map<String, List<PrismSchema>> schemasByTypeLocalName = new HashMap<>();
+
+    GlobalDefinitionsIndex(@NotNull Collection<? extends SchemaDescription> schemaDescriptions,
+            @NotNull Collection<? extends SchemaDescription> parsedSchemas) {
+        for (SchemaDescription description : schemaDescriptions) {
+            Package compileTimeClassesPackage = description.getCompileTimeClassesPackage();
+            if (compileTimeClassesPackage != null) {
+                descriptionsByPackage.putIfAbsent(compileTimeClassesPackage, description);
+            }
+        }
+        for (SchemaDescription description : parsedSchemas) {
+            PrismSchema schema = description.getSchema();
+            if (schema != null) {
+                indexSchema(schema);
+            }
+        }
+    }
+
+    private void indexSchema(PrismSchema schema) {
+        if (schema instanceof PrismSchemaImpl) {
+            PrismSchemaImpl schemaImpl = (PrismSchemaImpl) schema;
+            indexNames(schemasByItemLocalName, schemaImpl.getItemDefinitionNames(), schema);
+            indexNames(schemasByTypeLocalName, schemaImpl.getTypeDefinitionNames(), schema);
+        } else {
+            for (Definition definition : schema.getDefinitions()) {
+                if (definition instanceof ItemDefinition) {
+                    indexName(schemasByItemLocalName, ((ItemDefinition<?>) definition).getItemName(), schema);
+                } else if (definition instanceof TypeDefinition) {
+                    indexName(schemasByTypeLocalName, definition.getTypeName(), schema);
+                }
+            }
+        }
+    }
+
+    private static void indexNames(Map<String, List<PrismSchema>> index, Collection<QName> names, PrismSchema schema) {
+        for (QName name : names) {
+            indexName(index, name, schema);
+        }
+    }
+
+    private static void indexName(Map<String, List<PrismSchema>> index, QName name, PrismSchema schema) {
+        List<PrismSchema> schemas = index.computeIfAbsent(name.getLocalPart(), k -> new ArrayList<>(1));
+        // the same schema is indexed under more names with the same local part only once, and always as the last one
+        if (schemas.isEmpty() || schemas.get(schemas.size() - 1) != schema) {
+            schemas.add(schema);
+        }
+    }
+
+    @Nullable
+    SchemaDescription findDescriptionByPackage(@NotNull Package compileTimeClassesPackage) {
+        return descriptionsByPackage.get(compileTimeClassesPackage);
+    }
+
+    /**
+     * Schemas that may contain global item definition with given local name.
+     */
+    @NotNull
+    List<PrismSchema> getSchemasForItem(@NotNull String localPart) {
+        return schemasByItemLocalName.getOrDefault(localPart, Collections.emptyList());
+    }
+
+    /**
+     * Schemas that may contain type definition with given local name.
+     */
+    @NotNull
+    List<PrismSchema> getSchemasForType(@NotNull String localPart) {
+        return schemasByTypeLocalName.getOrDefault(localPart, Collections.emptyList());
+    }
+}
@@ -60,6 +60,13 @@ public class PrismSchemaImpl extends AbstractFreezable implements MutablePrismSc
 
     private final Multimap<QName, ItemDefinition<?>> substitutions = HashMultimap.create();
 
+    /**
+     * Definitions indexed by their compile-time class (for property definitions it is the class determined
+     * for their type). Lazily built when the schema is frozen, see {@link #getCompileTimeClassIndex()}.
+     * Dropped when schema registry caches are invalidated, as classes of types are resolved by the registry.
+     */
+    private volatile Map<Class<?>, List<Definition>> compileTimeClassIndex;
+
     public PrismSchemaImpl(@NotNull String namespace, PrismContext prismContext) {
         if (StringUtils.isEmpty(namespace)) {
             throw new IllegalArgumentException("Namespace can't be null or empty.");
@@ -110,6 +117,19 @@ public class PrismSchemaImpl extends AbstractFreezable implements MutablePrismSc
         return definitions.isEmpty();
     }
 
+    /**
+     * Names of global item definitions, including names from schema migrations.
+     */
+    @NotNull
+    Set<QName> getItemDefinitionNames() {
+        return Collections.unmodifiableSet(itemDefinitionMap.keySet());
+    }
+
+    @NotNull
+    Set<QName> getTypeDefinitionNames() {
+        return Collections.unmodifiableSet(typeDefinitionMap.keySet());
+    }
+
     @Override
     public void add(@NotNull Definition def) {
         checkMutable();
@@ -351,7 +371,7 @@ public class PrismSchemaImpl extends AbstractFreezable implements MutablePrismSc
     public <ID extends ItemDefinition> List<ID> findItemDefinitionsByCompileTimeClass(
             @NotNull Class<?> compileTimeClass, @NotNull Class<ID> definitionClass) {
         List<ID> found = new ArrayList<>();
-        for (Definition def: definitions) {
+        for (Definition def: getDefinitionsByCompileTimeClass(compileTimeClass)) {
             if (definitionClass.isAssignableFrom(def.getClass())) {
                 if (def instanceof PrismContainerDefinition) {
                     @SuppressWarnings("unchecked")
@@ -432,7 +452,7 @@ public class PrismSchemaImpl extends AbstractFreezable implements MutablePrismSc
 
     @Override
     public <C extends Containerable> ComplexTypeDefinition findComplexTypeDefinitionByCompileTimeClass(@NotNull Class<C> compileTimeClass) {
-        for (Definition def: definitions) {
+        for (Definition def: getDefinitionsByCompileTimeClass(compileTimeClass)) {
             if (def instanceof ComplexTypeDefinition) {
                 ComplexTypeDefinition ctd = (ComplexTypeDefinition) def;
                 if (compileTimeClass.equals(ctd.getCompileTimeClass())) {
@@ -475,7 +495,7 @@ public class PrismSchemaImpl extends AbstractFreezable implements MutablePrismSc
     @Override
     public <TD extends TypeDefinition> TD findTypeDefinitionByCompileTimeClass(@NotNull Class<?> compileTimeClass, @NotNull Class<TD> definitionClass) {
         // TODO: check for multiple definition with the same type
-        for (Definition definition : definitions) {
+        for (Definition definition : getDefinitionsByCompileTimeClass(compileTimeClass)) {
             if (definitionClass.isAssignableFrom(definition.getClass()) && compileTimeClass.equals(((TD) definition).getCompileTimeClass())) {
                 return (TD) definition;
             }
@@ -483,6 +503,49 @@ public class PrismSchemaImpl extends AbstractFreezable implements MutablePrismSc
         return null;
     }
 
+    /**
+     * Returns definitions that can have given compile-time class. For mutable schemas these are all the definitions,
+     * so the callers have to check the class themselves.
+     */
+    @NotNull
+    private Collection<Definition> getDefinitionsByCompileTimeClass(@NotNull Class<?> compileTimeClass) {
+        if (isMutable()) {
+            return definitions;
+        }
+        return getCompileTimeClassIndex().getOrDefault(compileTimeClass, Collections.emptyList());
+    }
+
+    @NotNull
+    private Map<Class<?>, List<Definition>> getCompileTimeClassIndex() {
+        Map<Class<?>, List<Definition>> index = compileTimeClassIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (Definition def : definitions) {
+                Class<?> compileTimeClass;
+                if (def instanceof PrismContainerDefinition) {
+                    compileTimeClass = ((PrismContainerDefinition<?>) def).getCompileTimeClass();
+                } else if (def instanceof PrismPropertyDefinition) {
+                    compileTimeClass = prismContext.getSchemaRegistry().determineClassForType(def.getTypeName());
+                } else if (def instanceof TypeDefinition) {
+                    compileTimeClass = ((TypeDefinition) def).getCompileTimeClass();
+                } else {
+                    compileTimeClass = null;
+                }
+                if (compileTimeClass != null) {
+                    index.computeIfAbsent(compileTimeClass, k -> new ArrayList<>(1)).add(def);
+                }
+            }
+            compileTimeClassIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Called by the schema registry when its caches are invalidated.
+     */
+    void invalidateCaches() {
+        compileTimeClassIndex = null;
+    }
     //endregion
 
     @Override
@@ -175,6 +175,12 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
      */
     private static final Class<?> NO_CLASS = Void.class;
 
+    /**
+     * Index of schemas by compile-time classes package and by local names of global definitions.
+     * Lazily built after the registry is initialized, see {@link #getGlobalDefinitionsIndex()}.
+     */
+    private volatile GlobalDefinitionsIndex globalDefinitionsIndex;
+
     /**
      * Marker value for "no object definition": cached value that indicates that we have executed the search
      * but found no matching definition.
@@ -502,9 +508,43 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
         isListByElementName.clear();
         classForTypeIncludingXsd.clear();
         classForTypeExcludingXsd.clear();
+        globalDefinitionsIndex = null;
+        for (SchemaDescription description : schemaDescriptions) {
+            if (description.getSchema() instanceof PrismSchemaImpl) {
+                ((PrismSchemaImpl) description.getSchema()).invalidateCaches();
+            }
+        }
         invalidationListeners.forEach(InvalidationListener::invalidate);
     }
 
+    /**
+     * Returns the index, or null if the registry is not initialized yet (schemas can change during initialization).
+     */
+    @Nullable
+    private GlobalDefinitionsIndex getGlobalDefinitionsIndex() {
+        if (!initialized) {
+            return null;
+        }
+        GlobalDefinitionsIndex index = globalDefinitionsIndex;
+        if (index == null) {
+            index = new GlobalDefinitionsIndex(schemaDescriptions, parsedSchemas.values());
+            globalDefinitionsIndex = index;
+        }
+        return index;
+    }
+
+    @NotNull
+    private Collection<PrismSchema> getSchemasForItem(String localPart) {
+        GlobalDefinitionsIndex index = getGlobalDefinitionsIndex();
+        return index != null ? index.getSchemasForItem(localPart) : getSchemas();
+    }
+
+    @NotNull
+    private Collection<PrismSchema> getSchemasForType(String localPart) {
+        GlobalDefinitionsIndex index = getGlobalDefinitionsIndex();
+        return index != null ? index.getSchemasForType(localPart) : getSchemas();
+    }
+
     private void parseJavaxSchema() throws SAXException {
         SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
         Source[] sources = new Source[schemaDescriptions.size()];
@@ -1189,11 +1229,7 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
 
     private <TD extends TypeDefinition> TD resolveGlobalTypeDefinitionWithoutNamespace(String typeLocalName, Class<TD> definitionClass) {
         TD found = null;
-        for (SchemaDescription schemaDescription : parsedSchemas.values()) {
-            PrismSchema schema = schemaDescription.getSchema();
-            if (schema == null) {       // is this possible?
-                continue;
-            }
+        for (PrismSchema schema : getSchemasForType(typeLocalName)) {
             TD def = schema.findTypeDefinitionByType(new QName(schema.getNamespace(), typeLocalName), definitionClass);
             if (def != null) {
                 if (found != null) {
@@ -1209,11 +1245,8 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
     @NotNull
     private <TD extends TypeDefinition> Collection<TD> resolveGlobalTypeDefinitionsWithoutNamespace(String typeLocalName, Class<TD> definitionClass) {
         List<TD> rv = new ArrayList<>();
-        for (SchemaDescription schemaDescription : parsedSchemas.values()) {
-            PrismSchema schema = schemaDescription.getSchema();
-            if (schema != null) {
-                rv.addAll(schema.findTypeDefinitionsByType(new QName(schema.getNamespace(), typeLocalName), definitionClass));
-            }
+        for (PrismSchema schema : getSchemasForType(typeLocalName)) {
+            rv.addAll(schema.findTypeDefinitionsByType(new QName(schema.getNamespace(), typeLocalName), definitionClass));
         }
         return rv;
     }
@@ -1251,11 +1284,7 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
     @NotNull
     private <ID extends ItemDefinition> List<ID> resolveGlobalItemDefinitionsWithoutNamespace(String localPart, Class<ID> definitionClass, @Nullable List<String> ignoredNamespaces) {
         List<ID> found = new ArrayList<>();
-        for (SchemaDescription schemaDescription : parsedSchemas.values()) {
-            PrismSchema schema = schemaDescription.getSchema();
-            if (schema == null) {       // is this possible?
-                continue;
-            }
+        for (PrismSchema schema : getSchemasForItem(localPart)) {
             if (namespaceMatches(schema.getNamespace(), ignoredNamespaces)) {
                 continue;
             }
@@ -1306,6 +1335,11 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
         if (compileTimePackage == null) {
             return null;            // e.g. for arrays
         }
+        GlobalDefinitionsIndex index = getGlobalDefinitionsIndex();
+        if (index != null) {
+            SchemaDescription desc = index.findDescriptionByPackage(compileTimePackage);
+            return desc != null ? desc.getSchema() : null;
+        }
         for (SchemaDescription desc : schemaDescriptions) {
             if (compileTimePackage.equals(desc.getCompileTimeClassesPackage())) {
                 return desc.getSchema();
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism;
+
+import static org.testng.AssertJUnit.*;
+
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.NS_FOO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.namespace.QName;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.foo.EventHandlerType;
+import com.evolveum.midpoint.prism.foo.EventOperationFilterType;
+import com.evolveum.midpoint.prism.impl.xnode.ListXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.MapXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.PrimitiveXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeImpl;
+import com.evolveum.midpoint.prism.xnode.RootXNode;
+
+/**
+ * Marshalling and unmarshalling of beans (driven by per-class binding plans).
+ * The expected XNode structure is the one produced before the binding plans were introduced.
+ */
+public class TestBeanMarshalling extends AbstractPrismTest {
+
+    private static final QName ROOT_NAME = new QName(NS_FOO, "bindingTest");
+
+    private static final QName F_HANDLER = new QName(NS_FOO, "handler");
+    private static final QName F_ITEM = new QName(NS_FOO, "item");
+    private static final QName F_NOTE = new QName(NS_FOO, "note");
+    private static final QName F_NAME = new QName(NS_FOO, "name");
+    private static final QName F_OPERATION = new QName(NS_FOO, "operation");
+    private static final QName EVENT_OPERATION_FILTER_TYPE = new QName(NS_FOO, "EventOperationFilterType");
+
+    @Test
+    public void test100MarshalBean() throws Exception {
+        given();
+        BindingTestType bean = createBean();
+
+        when();
+        RootXNode root = getPrismContext().xnodeSerializer().serializeAnyData(bean, ROOT_NAME);
+
+        then();
+        displayValue("marshalled", root);
+        assertEquals("Wrong root name", ROOT_NAME, root.getRootElementName());
+        MapXNodeImpl map = (MapXNodeImpl) ((RootXNodeImpl) root).getSubnode();
+
+        // Order is given by propOrder (not by the order of field declarations), element name by @XmlElement.
+        assertEquals("Wrong keys", Arrays.asList(F_HANDLER, F_ITEM, F_NOTE), new ArrayList<>(map.keySet()));
+
+        MapXNodeImpl handler = (MapXNodeImpl) map.get(F_HANDLER);
+        assertEquals("Wrong handler type", EVENT_OPERATION_FILTER_TYPE, handler.getTypeQName());
+        assertTrue("Subtype is not declared explicitly", handler.isExplicitTypeDeclaration());
+        assertEquals("Wrong handler keys", Arrays.asList(F_NAME, F_OPERATION), new ArrayList<>(handler.keySet()));
+        PrimitiveXNodeImpl<?> name = (PrimitiveXNodeImpl<?>) handler.get(F_NAME);
+        assertTrue("Handler name is not an attribute", name.isAttribute());
+        assertEquals("Wrong handler name", "filter", name.getValue());
+        assertEquals("Wrong operations", Arrays.asList("add", "delete"), primitiveValues(handler.get(F_OPERATION)));
+
+        assertEquals("Wrong items", Arrays.asList("first", "second"), primitiveValues(map.get(F_ITEM)));
+
+        PrimitiveXNodeImpl<?> note = (PrimitiveXNodeImpl<?>) map.get(F_NOTE);
+        assertFalse("Note is an attribute", note.isAttribute());
+        assertEquals("Wrong note", "a note", note.getValue());
+    }
+
+    @Test
+    public void test110UnmarshalBean() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        RootXNode root = prismContext.xnodeSerializer().serializeAnyData(createBean(), ROOT_NAME);
+
+        when();
+        BindingTestType parsed = prismContext.parserFor(root).parseRealValue(BindingTestType.class);
+
+        then();
+        assertBean(parsed);
+    }
+
+    @Test
+    public void test120RoundTripXml() throws Exception {
+        roundTrip(PrismContext.LANG_XML);
+    }
+
+    @Test
+    public void test130RoundTripJson() throws Exception {
+        roundTrip(PrismContext.LANG_JSON);
+    }
+
+    @Test
+    public void test140RoundTripYaml() throws Exception {
+        roundTrip(PrismContext.LANG_YAML);
+    }
+
+    private void roundTrip(String language) throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+
+        when();
+        String serialized = prismContext.serializerFor(language).serializeAnyData(createBean(), ROOT_NAME);
+        displayValue("serialized", serialized);
+        BindingTestType parsed = prismContext.parserFor(serialized).language(language)
+                .parseRealValue(BindingTestType.class);
+
+        then();
+        assertBean(parsed);
+    }
+
+    private BindingTestType createBean() {
+        EventOperationFilterType handler = new EventOperationFilterType();
+        handler.setName("filter");
+        handler.getOperation().add("add");
+        handler.getOperation().add("delete");
+
+        BindingTestType bean = new BindingTestType();
+        bean.setDescription("a note");
+        bean.getItem().add("first");
+        bean.getItem().add("second");
+        bean.setHandler(handler);
+        return bean;
+    }
+
+    private void assertBean(BindingTestType bean) {
+        assertNotNull("No bean", bean);
+        assertEquals("Wrong description", "a note", bean.getDescription());
+        assertEquals("Wrong items", Arrays.asList("first", "second"), bean.getItem());
+        assertTrue("Wrong handler class: " + bean.getHandler(), bean.getHandler() instanceof EventOperationFilterType);
+        EventOperationFilterType handler = (EventOperationFilterType) bean.getHandler();
+        assertEquals("Wrong handler name", "filter", handler.getName());
+        assertEquals("Wrong operations", Arrays.asList("add", "delete"), handler.getOperation());
+    }
+
+    private List<Object> primitiveValues(XNodeImpl node) {
+        List<Object> values = new ArrayList<>();
+        for (XNodeImpl item : (ListXNodeImpl) node) {
+            values.add(((PrimitiveXNodeImpl<?>) item).getValue());
+        }
+        return values;
+    }
+
+    /**
+     * Bean with a list, a renamed element and a polymorphic property; fields are declared in other order than propOrder.
+     */
+    @XmlAccessorType(XmlAccessType.FIELD)
+    @XmlType(name = "BindingTestType", namespace = NS_FOO, propOrder = {
+            "handler",
+            "item",
+            "description"
+    })
+    public static class BindingTestType {
+
+        @XmlElement(name = "note")
+        protected String description;
+
+        protected List<String> item;
+
+        protected EventHandlerType handler;
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public List<String> getItem() {
+            if (item == null) {
+                item = new ArrayList<>();
+            }
+            return item;
+        }
+
+        public EventHandlerType getHandler() {
+            return handler;
+        }
+
+        public void setHandler(EventHandlerType handler) {
+            this.handler = handler;
+        }
+    }
+}
@@ -12,9 +12,9 @@ import static org.testng.AssertJUnit.*;
 
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
 
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.*;
 import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
 
 import org.jetbrains.annotations.NotNull;
 import org.testng.AssertJUnit;
@@ -31,6 +31,7 @@ import com.evolveum.midpoint.prism.impl.delta.ContainerDeltaImpl;
 import com.evolveum.midpoint.prism.impl.delta.ObjectDeltaImpl;
 import com.evolveum.midpoint.prism.impl.delta.PropertyDeltaImpl;
 import com.evolveum.midpoint.prism.impl.delta.ReferenceDeltaImpl;
+import com.evolveum.midpoint.prism.impl.xnode.PrimitiveXNodeImpl;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
@@ -399,6 +400,98 @@ public class TestDelta extends AbstractPrismTest {
         PrismAsserts.assertNoDelete(delta1);
     }
 
+    /**
+     * Merging of "add/delete" deltas with many values (values are indexed).
+     */
+    @Test
+    public void testPropertyDeltaMergeManyValues() {
+        given();
+        PrismPropertyDefinition<String> propertyDefinition = createDescriptionDefinition();
+
+        PropertyDelta<String> delta1 = createPropertyDelta(propertyDefinition);
+        PropertyDelta<String> delta2 = createPropertyDelta(propertyDefinition);
+        for (int i = 0; i < 20; i++) {
+            delta1.addRealValuesToAdd("add" + i);
+            delta1.addRealValuesToDelete("del" + i);
+            delta2.addRealValuesToAdd("del" + i);
+        }
+        delta1.addRealValuesToAdd("add5"); // this is a duplicate
+        delta2.addRealValuesToAdd("add20");
+        delta2.addRealValuesToDelete("add7");
+
+        when();
+        delta1.merge(delta2);
+
+        then();
+        System.out.println("Merged delta:");
+        System.out.println(delta1.debugDump());
+
+        PrismAsserts.assertNoReplace(delta1);
+        assertEquals("Wrong # of values to add", 20, delta1.getValuesToAdd().size());
+        assertTrue(delta1.isValueToAdd(new PrismPropertyValueImpl<>("add20")));
+        assertFalse(delta1.isValueToAdd(new PrismPropertyValueImpl<>("add7")));
+        assertFalse(delta1.isValueToAdd(new PrismPropertyValueImpl<>("del3")));
+        assertTrue(delta1.getValuesToDelete() == null || delta1.getValuesToDelete().isEmpty());
+    }
+
+    /**
+     * Removing a value that was parsed in place while being in a delta with many (indexed) values.
+     */
+    @Test
+    public void testPropertyDeltaManyValuesRemoveParsedRawValue() throws Exception {
+        given();
+        PrismPropertyDefinition<String> propertyDefinition = createDescriptionDefinition();
+        PropertyDelta<String> delta = createPropertyDelta(propertyDefinition);
+        for (int i = 0; i < 20; i++) {
+            delta.addRealValuesToAdd("add" + i);
+        }
+        PrismPropertyValue<String> rawValue =
+                getPrismContext().itemFactory().createPropertyValue(new PrimitiveXNodeImpl<>("raw"));
+        delta.addValueToAdd(rawValue);
+        assertTrue("Value is not raw", rawValue.isRaw());
+
+        when("the value is parsed in place");
+        rawValue.applyDefinition(propertyDefinition);
+        assertFalse("Value is still raw", rawValue.isRaw());
+        assertTrue("Parsed value is not to be added", delta.isValueToAdd(new PrismPropertyValueImpl<>("raw")));
+
+        and("the value is removed");
+        boolean removed = delta.removeValueToAdd(new PrismPropertyValueImpl<>("raw"));
+
+        then();
+        assertTrue("Value was not removed", removed);
+        assertEquals("Wrong # of values to add", 20, delta.getValuesToAdd().size());
+        assertFalse("Removed value is still to be added", delta.isValueToAdd(new PrismPropertyValueImpl<>("raw")));
+        assertTrue("Other value is not to be added", delta.isValueToAdd(new PrismPropertyValueImpl<>("add10")));
+    }
+
+    /**
+     * Reference deltas with many values (values are indexed by OID).
+     */
+    @Test
+    public void testReferenceDeltaManyValues() {
+        given();
+        PrismReferenceDefinition referenceDefinition = new PrismReferenceDefinitionImpl(UserType.F_PARENT_ORG_REF,
+                OBJECT_REFERENCE_TYPE_QNAME, PrismTestUtil.getPrismContext());
+        ReferenceDelta delta = new ReferenceDeltaImpl(referenceDefinition, PrismTestUtil.getPrismContext());
+
+        when();
+        for (int i = 0; i < 20; i++) {
+            delta.addValueToAdd(new PrismReferenceValueImpl("oid" + i));
+        }
+        delta.addValueToAdd(new PrismReferenceValueImpl("oid5")); // this is a duplicate
+        boolean removed = delta.removeValueToAdd(new PrismReferenceValueImpl("oid7"));
+        boolean removedNonExisting = delta.removeValueToAdd(new PrismReferenceValueImpl("oid99"));
+
+        then();
+        assertTrue("Value was not removed", removed);
+        assertFalse("Non-existing value was removed", removedNonExisting);
+        assertEquals("Wrong # of values to add", 19, delta.getValuesToAdd().size());
+        assertTrue(delta.isValueToAdd(new PrismReferenceValueImpl("oid5")));
+        assertFalse(delta.isValueToAdd(new PrismReferenceValueImpl("oid7")));
+        assertFalse(delta.isValueToAdd(new PrismReferenceValueImpl("oid20")));
+    }
+
     /**
      * Checks swallowing of add-delta to existing add-delta.
      */
@@ -1787,4 +1880,98 @@ public class TestDelta extends AbstractPrismTest {
         assertAssignmentReplace(narrowedDelta, 0);
     }
 
+    /**
+     * Many modifications (the path index is used) - finding, merging and removing them by paths.
+     */
+    @Test
+    public void testObjectDeltaManyModifications() throws Exception {
+        given();
+        PrismObjectDefinition<UserType> userDef = getUserTypeDefinition();
+        ObjectDelta<UserType> userDelta = getPrismContext().deltaFactory().object()
+                .createEmptyModifyDelta(UserType.class, USER_FOO_OID);
+
+        when();
+        for (long id = 100; id < 120; id++) {
+            userDelta.addModification(getPrismContext().deltaFactory().property().createModificationReplaceProperty(
+                    ItemPath.create(UserType.F_ASSIGNMENT, id, AssignmentType.F_DESCRIPTION), userDef, "desc " + id));
+        }
+        userDelta.addModification(getPrismContext().deltaFactory().property().createModificationReplaceProperty(
+                UserType.F_FULL_NAME, userDef, "Foo"));
+        // this one is merged with the existing one
+        userDelta.addModification(getPrismContext().deltaFactory().property().createModificationReplaceProperty(
+                ItemPath.create(UserType.F_ASSIGNMENT, 105L, AssignmentType.F_DESCRIPTION), userDef, "merged"));
+
+        then();
+        displayValue("userDelta", userDelta);
+        PrismAsserts.assertModifications(userDelta, 21);
+        assertPath(userDelta.getModifications().iterator().next(),
+                ItemPath.create(UserType.F_ASSIGNMENT, 100L, AssignmentType.F_DESCRIPTION));
+
+        ItemPath unqualifiedPath = ItemPath.create(new QName("assignment"), 105L, new QName("description"));
+        PropertyDelta<String> found = userDelta.findPropertyDelta(unqualifiedPath);
+        assertNotNull("No delta for " + unqualifiedPath, found);
+        PrismAsserts.assertReplace(found, "merged");
+
+        assertEquals("Wrong # of deltas under assignment 107", 1,
+                userDelta.findItemDeltasSubPath(ItemPath.create(UserType.F_ASSIGNMENT, 107L)).size());
+        assertEquals("Wrong # of deltas under assignment", 20,
+                userDelta.findItemDeltasSubPath(UserType.F_ASSIGNMENT).size());
+        assertEquals("Wrong # of partial deltas for assignment", 20,
+                userDelta.findPartial(UserType.F_ASSIGNMENT).size());
+        assertTrue(userDelta.hasItemOrSubitemDelta(
+                ItemPath.create(UserType.F_ASSIGNMENT, 107L, AssignmentType.F_DESCRIPTION)));
+        assertFalse(userDelta.hasItemOrSubitemDelta(
+                ItemPath.create(UserType.F_ASSIGNMENT, 999L, AssignmentType.F_DESCRIPTION)));
+        assertFalse(userDelta.hasItemOrSubitemDelta(UserType.F_ASSIGNMENT));
+
+        when("removing modification");
+        userDelta.removePropertyModification(unqualifiedPath);
+
+        then("removing modification");
+        PrismAsserts.assertModifications(userDelta, 20);
+        assertNull(userDelta.findPropertyDelta(unqualifiedPath));
+        assertNotNull(userDelta.findPropertyDelta(UserType.F_FULL_NAME));
+    }
+
+    @Test
+    public void testObjectDeltaNewAndDeletedValues() throws Exception {
+        given();
+        PolyString foo = PrismTestUtil.createPolyString("foo");
+        PolyString bar = PrismTestUtil.createPolyString("bar");
+        PolyString baz = PrismTestUtil.createPolyString("baz");
+        ObjectDelta<UserType> addDelta = DeltaFactory.Object.createAddDelta(createUserFooPatlama());
+        ObjectDelta<UserType> addDeleteDelta = getPrismContext().deltaFor(UserType.class)
+                .item(UserType.F_ADDITIONAL_NAMES).add(foo, bar).delete(baz)
+                .asObjectDelta(USER_FOO_OID);
+        ObjectDelta<UserType> replaceDelta = getPrismContext().deltaFor(UserType.class)
+                .item(UserType.F_ADDITIONAL_NAMES).replace(baz)
+                .asObjectDelta(USER_FOO_OID);
+
+        when();
+        List<PrismValue> added = addDeleteDelta.getNewValuesFor(UserType.F_ADDITIONAL_NAMES);
+        List<PrismValue> deleted = addDeleteDelta.getDeletedValuesFor(UserType.F_ADDITIONAL_NAMES);
+        List<PrismValue> replaced = replaceDelta.getNewValuesFor(UserType.F_ADDITIONAL_NAMES);
+
+        then();
+        assertEquals("Wrong new values in add delta", 1, addDelta.getNewValuesFor(UserType.F_ASSIGNMENT).size());
+        assertEquals("Wrong deleted values in add delta", 0, addDelta.getDeletedValuesFor(UserType.F_ASSIGNMENT).size());
+
+        assertEquals("Wrong new values in add/delete delta", Arrays.asList("foo", "bar"), realValues(added));
+        assertEquals("Wrong deleted values in add/delete delta", Collections.singletonList("baz"), realValues(deleted));
+
+        assertEquals("Wrong new values in replace delta", Collections.singletonList("baz"), realValues(replaced));
+        assertEquals("Wrong deleted values in replace delta", 0,
+                replaceDelta.getDeletedValuesFor(UserType.F_ADDITIONAL_NAMES).size());
+        assertEquals("Wrong new values for unrelated item", 0,
+                replaceDelta.getNewValuesFor(UserType.F_FULL_NAME).size());
+    }
+
+    /** Poly strings are compared by their orig values. */
+    private List<String> realValues(List<PrismValue> values) {
+        List<String> realValues = new ArrayList<>();
+        for (PrismValue value : values) {
+            realValues.add(String.valueOf((Object) value.getRealValue()));
+        }
+        return realValues;
+    }
 }
@@ -459,4 +459,43 @@ public class TestDiff extends AbstractPrismTest {
                 "chamalalia patlama paprtala");
         ItemDeltaCollectionsUtil.checkConsistence(modifications);
     }
+
+    /**
+     * Large multi-valued containers are matched using an index (by IDs and hash codes).
+     * The result must be the same as for the pairwise comparison.
+     */
+    @Test
+    public void testContainerDiffManyValues() throws Exception {
+        // GIVEN
+        PrismObjectDefinition<UserType> userDef = getUserTypeDefinition();
+        PrismContainerDefinition<AssignmentType> assignmentContDef = userDef.findContainerDefinition(UserType.F_ASSIGNMENT);
+
+        PrismContainer<AssignmentType> ass1 = assignmentContDef.instantiate();
+        PrismContainer<AssignmentType> ass2 = assignmentContDef.instantiate();
+        for (long id = 1; id <= 20; id++) {
+            PrismContainerValue<AssignmentType> ass1cval = ass1.createNewValue();
+            ass1cval.setId(id);
+            ass1cval.setPropertyRealValue(AssignmentType.F_DESCRIPTION, "assignment " + id, PrismTestUtil.getPrismContext());
+        }
+        // reversed order, so the values do not match by position
+        for (long id = 20; id >= 1; id--) {
+            PrismContainerValue<AssignmentType> ass2cval = ass2.createNewValue();
+            ass2cval.setId(id);
+            String description = id == 7 ? "changed" : "assignment " + id;
+            ass2cval.setPropertyRealValue(AssignmentType.F_DESCRIPTION, description, PrismTestUtil.getPrismContext());
+        }
+
+        // WHEN
+        Collection<? extends ItemDelta> modifications = ass1.diffModifications(ass2, EquivalenceStrategy.IGNORE_METADATA);
+
+        // THEN
+        assertNotNull(modifications);
+        System.out.println(DebugUtil.debugDump(modifications));
+        assertEquals("Unexpected number of modifications", 1, modifications.size());
+        PrismAsserts.assertPropertyReplace(
+                modifications,
+                ItemPath.create(UserType.F_ASSIGNMENT, 7L, AssignmentType.F_DESCRIPTION),
+                "changed");
+        ItemDeltaCollectionsUtil.checkConsistence(modifications);
+    }
 }
@@ -160,6 +160,7 @@ public class TestPath extends AbstractPrismTest {
         assertTrue(pathFoo.isSubPath(pathFooBar));
         assertTrue(pathFooBar.isSuperPath(pathFoo));
         assertTrue(pathFooBar.equivalent(pathFooNullBar));
+        assertEquals(pathFooBar.equivalenceHashCode(), pathFooNullBar.equivalenceHashCode());
         assertTrue(empty.isSubPath(pathFoo));
         assertFalse(pathFoo.isSubPath(empty));
 
@@ -217,6 +218,47 @@ public class TestPath extends AbstractPrismTest {
         return creators.get(source.charAt(index)).apply(components);
     }
 
+    @Test
+    public void testPathKeyedCollections() {
+        given();
+        ItemPath pathFooBar = ItemPath.create(new QName(NS, "foo"), new QName(NS, "bar"));
+        ItemPath pathFooNullBarUnqualified = ItemPath.create(new QName("foo"), null, new QName("bar"));
+        ItemPath pathFoo123Bar = ItemPath.create(new QName(NS, "foo"), 123L, new QName(NS, "bar"));
+
+        PathKeyedMap<String> map = new PathKeyedMap<>();
+        PathSet set = new PathSet();
+
+        when();
+        for (int i = 0; i < 100; i++) {
+            ItemPath path = ItemPath.create(new QName(NS, "foo"), (long) i, new QName(NS, "bar"));
+            map.put(path, "value" + i);
+            set.add(path);
+        }
+        map.put(pathFooBar, "foo-bar");
+        set.add(pathFooBar);
+        map.put(pathFooNullBarUnqualified, "foo-null-bar");
+        set.add(pathFooNullBarUnqualified);
+
+        then();
+        assertEquals("Wrong map size", 101, map.size());
+        assertEquals("Wrong set size", 101, set.size());
+        assertEquals("foo-null-bar", map.get(pathFooBar));
+        assertNull(map.get(pathFoo123Bar));
+        assertEquals("value99", map.get(ItemPath.create(new QName("foo"), 99L, new QName("bar"))));
+        assertTrue(set.contains(ItemPath.create(new QName("foo"), 42L, new QName(NS, "bar"))));
+        assertFalse(set.contains(pathFoo123Bar));
+
+        when("removing");
+        map.remove(pathFooNullBarUnqualified);
+        set.remove(pathFooNullBarUnqualified);
+
+        then("removing");
+        assertEquals("Wrong map size", 100, map.size());
+        assertEquals("Wrong set size", 100, set.size());
+        assertFalse(map.containsKey(pathFooBar));
+        assertFalse(set.contains(pathFooBar));
+    }
+
     @Test
     public void testPathRemainder() {
         PrismContext prismContext = getPrismContext();
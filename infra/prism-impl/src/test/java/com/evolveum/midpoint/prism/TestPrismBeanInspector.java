@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism;
+
+import static org.testng.AssertJUnit.*;
+
+import java.lang.reflect.Field;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.impl.marshaller.InspectionCache;
+import com.evolveum.midpoint.prism.impl.marshaller.PrismBeanInspector;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
+
+/**
+ * Caching of bean inspection results and the cache statistics.
+ */
+public class TestPrismBeanInspector extends AbstractPrismTest {
+
+    private static final String FIND_PROPERTY_FIELD = "findPropertyField";
+
+    @Test
+    public void test100CacheFoundValue() {
+        given();
+        PrismBeanInspector inspector = new PrismBeanInspector(getPrismContext());
+
+        when();
+        Field first = inspector.findPropertyField(PolyStringType.class, "orig");
+        Field second = inspector.findPropertyField(PolyStringType.class, "orig");
+
+        then();
+        assertNotNull("No field", first);
+        assertSame("Field is not cached", first, second);
+        assertStatistics(inspector, 1, 1, 1);
+    }
+
+    @Test
+    public void test110CacheNotFound() {
+        given();
+        PrismBeanInspector inspector = new PrismBeanInspector(getPrismContext());
+
+        when();
+        Field first = inspector.findPropertyField(PolyStringType.class, "nonExistent");
+        Field second = inspector.findPropertyField(PolyStringType.class, "nonExistent");
+
+        then();
+        assertNull("Non-existent field found", first);
+        assertNull("Non-existent field found (cached)", second);
+        assertStatistics(inspector, 1, 1, 1);
+    }
+
+    @Test
+    public void test120ResetStatistics() {
+        given();
+        PrismBeanInspector inspector = new PrismBeanInspector(getPrismContext());
+        inspector.findPropertyField(PolyStringType.class, "orig");
+        inspector.findPropertyField(PolyStringType.class, "nonExistent");
+        inspector.findPropertyField(PolyStringType.class, "nonExistent");
+        assertStatistics(inspector, 1, 2, 2);
+
+        when();
+        inspector.resetCacheStatistics();
+
+        then();
+        assertStatistics(inspector, 0, 0, 2);
+
+        when("cached values are kept");
+        inspector.findPropertyField(PolyStringType.class, "orig");
+        inspector.findPropertyField(PolyStringType.class, "nonExistent");
+
+        then("cached values are kept");
+        assertStatistics(inspector, 2, 0, 2);
+    }
+
+    private void assertStatistics(PrismBeanInspector inspector, long hits, long misses, int size) {
+        InspectionCache.Statistics statistics = inspector.getCacheStatistics().get(FIND_PROPERTY_FIELD);
+        displayValue("statistics", statistics);
+        assertNotNull("No statistics for " + FIND_PROPERTY_FIELD, statistics);
+        assertEquals("Wrong # of hits", hits, statistics.getHits());
+        assertEquals("Wrong # of misses", misses, statistics.getMisses());
+        assertEquals("Wrong size", size, statistics.getSize());
+        assertEquals("Unexpected races", 0, statistics.getRaces());
+    }
+}
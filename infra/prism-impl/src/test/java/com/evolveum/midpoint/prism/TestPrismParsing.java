@@ -13,6 +13,7 @@ import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -27,13 +28,16 @@ import org.testng.annotations.Test;
 import com.evolveum.midpoint.prism.delta.DiffUtil;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.prism.foo.AccountType;
+import com.evolveum.midpoint.prism.foo.ActivationType;
 import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.PrismContainerValueImpl;
 import com.evolveum.midpoint.prism.impl.PrismReferenceValueImpl;
 import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.SerializationUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
 
 /**
@@ -119,6 +123,92 @@ public abstract class TestPrismParsing extends AbstractPrismTest {
         assertUserAdhoc(user, true, false);
     }
 
+    @Test
+    public void test150PrismParseFileLazily() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> eagerUser = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+
+        // WHEN
+        PrismObject<UserType> user = prismContext.parserFor(getFile(USER_JACK_FILE_BASENAME)).lazy().parse();
+
+        // THEN
+        assertNotNull(user);
+        PrismContainerValueImpl<UserType> userValue = (PrismContainerValueImpl<UserType>) user.getValue();
+        assertTrue("Items were parsed eagerly", userValue.hasDeferredItems());
+        assertEquals("Wrong OID", eagerUser.getOid(), user.getOid());
+
+        // WHEN (materialization)
+        PrismProperty<Object> name = user.findProperty(UserType.F_NAME);
+
+        // THEN
+        assertFalse("Items were not materialized", userValue.hasDeferredItems());
+        assertNotNull("No name", name);
+        assertEquals("Wrong name", eagerUser.getName().getOrig(), user.getName().getOrig());
+
+        PrismContainer<Containerable> activation = user.findContainer(UserType.F_ACTIVATION);
+        assertNotNull("No activation", activation);
+        PrismContainerValueImpl<?> activationValue = (PrismContainerValueImpl<?>) activation.getValue();
+        assertTrue("Activation items were parsed eagerly", activationValue.hasDeferredItems());
+        PrismProperty<Boolean> enabled = activation.findProperty(ActivationType.F_ENABLED);
+        assertFalse("Activation items were not materialized", activationValue.hasDeferredItems());
+        assertNotNull("No enabled", enabled);
+        assertEquals("Wrong enabled", Boolean.TRUE, enabled.getRealValue());
+
+        assertUserJack(user, true, true);
+        PrismAsserts.assertEquivalent("User jack", eagerUser, user);
+    }
+
+    @Test
+    public void test155SerializeLazilyParsedObject() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> eagerUser = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+        PrismObject<UserType> user = prismContext.parserFor(getFile(USER_JACK_FILE_BASENAME)).lazy().parse();
+        PrismContainerValueImpl<UserType> userValue = (PrismContainerValueImpl<UserType>) user.getValue();
+        assertTrue("Items were parsed eagerly", userValue.hasDeferredItems());
+
+        // WHEN
+        PrismObject<UserType> deserializedUser = SerializationUtil.fromString(SerializationUtil.toString(user));
+
+        // THEN
+        assertFalse("Items were not materialized", userValue.hasDeferredItems());
+        assertFalse("Deserialized items are deferred",
+                ((PrismContainerValueImpl<UserType>) deserializedUser.getValue()).hasDeferredItems());
+        PrismAsserts.assertEquivalent("Deserialized user jack", eagerUser, deserializedUser);
+    }
+
+    @Test
+    public void test160PrismParseFileProjected() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+
+        // WHEN
+        PrismObject<UserType> user = prismContext.parserFor(getFile(USER_JACK_FILE_BASENAME))
+                .include(USER_NAME_QNAME, USER_ACTIVATION_QNAME, USER_ASSIGNMENT_QNAME)
+                .exclude(USER_VALID_FROM_PATH, USER_ASSIGNMENT_DESCRIPTION_PATH)
+                .parse();
+
+        // THEN
+        System.out.println("User:");
+        System.out.println(user.debugDump());
+
+        assertEquals("Wrong OID", USER_JACK_OID, user.getOid());
+        assertEquals("Wrong name", "jack", user.getName().getOrig());
+        PrismAsserts.assertPropertyValue(user, USER_ENABLED_PATH, true);
+        assertNull("Excluded validFrom is present", user.findProperty(USER_VALID_FROM_PATH));
+        assertNull("Non-included fullName is present", user.findProperty(USER_FULLNAME_QNAME));
+        assertNull("Non-included extension is present", user.findContainer(USER_EXTENSION_QNAME));
+
+        PrismContainer<?> assignment = user.findContainer(USER_ASSIGNMENT_QNAME);
+        assertNotNull("No assignment", assignment);
+        assertFalse("No assignment values", assignment.isEmpty());
+        for (PrismContainerValue<?> assignmentValue : assignment.getValues()) {
+            assertNotNull("No assignment ID", assignmentValue.getId());
+            assertNull("Excluded assignment description is present", assignmentValue.findItem(USER_DESCRIPTION_QNAME));
+        }
+    }
+
     @Test
     public void test200RoundTrip() throws Exception {
         roundTrip(getFile(USER_JACK_FILE_BASENAME), true, true);
@@ -214,6 +304,27 @@ public abstract class TestPrismParsing extends AbstractPrismTest {
         assertTrue("Users not equal", originalUser.equals(parsedUser));
     }
 
+    /**
+     * Serializers share factories and mappers, so no state may leak from one serialization to another.
+     */
+    @Test
+    public void test240SerializeRepeatedly() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> jack = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+        PrismObject<UserType> will = prismContext.parseObject(getFile(USER_WILL_FILE_BASENAME));
+
+        // WHEN
+        String jackSerialized = prismContext.serializerFor(getOutputFormat()).serialize(jack);
+        String willSerialized = prismContext.serializerFor(getOutputFormat()).serialize(will);
+        String jackSerializedAgain = prismContext.serializerFor(getOutputFormat()).serialize(jack);
+
+        // THEN
+        assertEquals("Repeated serialization differs", jackSerialized, jackSerializedAgain);
+        PrismAsserts.assertEquivalent("User jack", jack, prismContext.parseObject(jackSerializedAgain));
+        PrismAsserts.assertEquivalent("User will", will, prismContext.parseObject(willSerialized));
+    }
+
     @Test
     public void test300MeleeContext() throws Exception {
         // GIVEN
@@ -432,6 +543,287 @@ public abstract class TestPrismParsing extends AbstractPrismTest {
         assertSingleMetadata(singleStringType, "loa", "low");
     }
 
+    @Test
+    public void test800SerializeObjectsToWriter() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> jack = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+        PrismObject<UserType> will = prismContext.parseObject(getFile(USER_WILL_FILE_BASENAME));
+
+        // WHEN
+        StringWriter writer = new StringWriter();
+        try (PrismObjectsWriter objectsWriter = prismContext.serializerFor(getOutputFormat(), writer).objectsWriter()) {
+            objectsWriter.write(jack);
+            objectsWriter.write(will);
+        }
+        StringWriter singleObjectWriter = new StringWriter();
+        prismContext.serializerFor(getOutputFormat(), singleObjectWriter).serialize(jack);
+
+        // THEN
+        String serialized = writer.toString();
+        displayValue("serialized", serialized);
+        List<PrismObject<? extends Objectable>> reparsed = prismContext.parserFor(serialized).parseObjects();
+        assertEquals("Wrong # of objects", 2, reparsed.size());
+        PrismAsserts.assertEquivalent("User jack", jack, reparsed.get(0));
+        PrismAsserts.assertEquivalent("User will", will, reparsed.get(1));
+
+        assertEquals("Object written to a writer differs from the string one",
+                prismContext.serializerFor(getOutputFormat()).serialize(jack), singleObjectWriter.toString());
+    }
+
+    @Test
+    public void test810ParseObjectsInParallel() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> jack = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+        PrismObject<UserType> will = prismContext.parseObject(getFile(USER_WILL_FILE_BASENAME));
+
+        StringWriter writer = new StringWriter();
+        try (PrismObjectsWriter objectsWriter = prismContext.serializerFor(getOutputFormat(), writer).objectsWriter()) {
+            for (int i = 0; i < 20; i++) {
+                objectsWriter.write(jack);
+                objectsWriter.write(will);
+            }
+        }
+        String serialized = writer.toString();
+
+        // WHEN
+        List<PrismObject<?>> parsed = new ArrayList<>();
+        prismContext.parserFor(serialized).parseObjectsIteratively(new PrismParser.ObjectHandler() {
+            @Override
+            public boolean handleData(PrismObject<?> object) {
+                parsed.add(object);
+                return true;
+            }
+
+            @Override
+            public boolean handleError(Throwable t) {
+                throw new AssertionError("Unexpected error", t);
+            }
+        }, ParallelParsingOptions.create().threads(4).queueSize(3));
+
+        // THEN
+        assertEquals("Wrong # of objects", 40, parsed.size());
+        for (int i = 0; i < parsed.size(); i += 2) {
+            PrismAsserts.assertEquivalent("User jack #" + i, jack, parsed.get(i));
+            PrismAsserts.assertEquivalent("User will #" + i, will, parsed.get(i + 1));
+        }
+    }
+
+    @Test
+    public void test812ParseObjectsInParallelUnordered() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> jack = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+        PrismObject<UserType> will = prismContext.parseObject(getFile(USER_WILL_FILE_BASENAME));
+        String serialized = serializeObjects(jack, will, 20);
+
+        // WHEN
+        List<PrismObject<?>> parsed = new ArrayList<>();
+        prismContext.parserFor(serialized).parseObjectsIteratively(new PrismParser.ObjectHandler() {
+            @Override
+            public boolean handleData(PrismObject<?> object) {
+                parsed.add(object);
+                return true;
+            }
+
+            @Override
+            public boolean handleError(Throwable t) {
+                throw new AssertionError("Unexpected error", t);
+            }
+        }, ParallelParsingOptions.create().threads(4).queueSize(3).preserveOrder(false));
+
+        // THEN
+        assertEquals("Wrong # of objects", 40, parsed.size());
+        int jacks = 0;
+        for (PrismObject<?> object : parsed) {
+            if (jack.getOid().equals(object.getOid())) {
+                PrismAsserts.assertEquivalent("User jack", jack, object);
+                jacks++;
+            } else {
+                PrismAsserts.assertEquivalent("User will", will, object);
+            }
+        }
+        assertEquals("Wrong # of jacks", 20, jacks);
+    }
+
+    /**
+     * The handler stops the processing; no more objects may be passed to it, and the parsing must finish.
+     */
+    @Test
+    public void test814ParseObjectsInParallelStopped() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> jack = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+        PrismObject<UserType> will = prismContext.parseObject(getFile(USER_WILL_FILE_BASENAME));
+        String serialized = serializeObjects(jack, will, 50);
+
+        // WHEN
+        List<PrismObject<?>> parsed = new ArrayList<>();
+        prismContext.parserFor(serialized).parseObjectsIteratively(new PrismParser.ObjectHandler() {
+            @Override
+            public boolean handleData(PrismObject<?> object) {
+                parsed.add(object);
+                return parsed.size() < 5;
+            }
+
+            @Override
+            public boolean handleError(Throwable t) {
+                throw new AssertionError("Unexpected error", t);
+            }
+        }, ParallelParsingOptions.create().threads(4).queueSize(3));
+
+        // THEN
+        assertEquals("Wrong # of objects", 5, parsed.size());
+        PrismAsserts.assertEquivalent("User jack", jack, parsed.get(0));
+        PrismAsserts.assertEquivalent("User will", will, parsed.get(1));
+    }
+
+    /**
+     * An object in the middle of the input cannot be parsed. The error is reported to the handler
+     * and the processing continues, as in the sequential parsing. The same holds for exceptions
+     * thrown by the handler itself.
+     */
+    @Test
+    public void test816ParseObjectsInParallelWithErrors() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> jack = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+        PrismObject<UserType> will = prismContext.parseObject(getFile(USER_WILL_FILE_BASENAME));
+        PrismObject<UserType> invalid = will.clone();
+        invalid.setOid("c0c010c0-d34d-b33f-f00d-999999999999");
+        invalid.asObjectable().setLocality("Tortuga");
+
+        StringWriter writer = new StringWriter();
+        try (PrismObjectsWriter objectsWriter = prismContext.serializerFor(getOutputFormat(), writer).objectsWriter()) {
+            objectsWriter.write(jack);
+            objectsWriter.write(invalid);
+            objectsWriter.write(will);
+            objectsWriter.write(jack);
+        }
+        // The locality is present only in the invalid object; the renamed item has no definition.
+        String serialized = writer.toString().replace("locality", "nonExistingItem");
+
+        // WHEN
+        List<PrismObject<?>> parsed = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        prismContext.parserFor(serialized).strict().parseObjectsIteratively(new PrismParser.ObjectHandler() {
+            @Override
+            public boolean handleData(PrismObject<?> object) {
+                if (parsed.size() == 2) {
+                    throw new IllegalStateException("Handler failure"); // for the last object
+                }
+                parsed.add(object);
+                return true;
+            }
+
+            @Override
+            public boolean handleError(Throwable t) {
+                errors.add(t);
+                return true;
+            }
+        }, ParallelParsingOptions.create().threads(4).queueSize(3));
+
+        // THEN
+        assertEquals("Wrong # of objects", 2, parsed.size());
+        PrismAsserts.assertEquivalent("User jack", jack, parsed.get(0));
+        PrismAsserts.assertEquivalent("User will", will, parsed.get(1));
+        assertEquals("Wrong # of errors: " + errors, 2, errors.size());
+        assertTrue("Unexpected parsing error: " + errors.get(0),
+                errors.get(0).getMessage().contains("nonExistingItem"));
+        assertTrue("Unexpected handler error: " + errors.get(1), errors.get(1) instanceof IllegalStateException);
+    }
+
+    private String serializeObjects(PrismObject<?> first, PrismObject<?> second, int pairs) throws SchemaException {
+        StringWriter writer = new StringWriter();
+        try (PrismObjectsWriter objectsWriter = getPrismContext().serializerFor(getOutputFormat(), writer).objectsWriter()) {
+            for (int i = 0; i < pairs; i++) {
+                objectsWriter.write(first);
+                objectsWriter.write(second);
+            }
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Projection applied when parsing objects one by one (for XML this is the StAX-based reader that skips
+     * non-selected elements in the stream). The result must be the same as for the standard projected parsing.
+     */
+    @Test
+    public void test820ParseObjectsIterativelyProjected() throws Exception {
+        // GIVEN
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> jack = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+        PrismObject<UserType> will = prismContext.parseObject(getFile(USER_WILL_FILE_BASENAME));
+
+        StringWriter writer = new StringWriter();
+        try (PrismObjectsWriter objectsWriter = prismContext.serializerFor(getOutputFormat(), writer).objectsWriter()) {
+            objectsWriter.write(jack);
+            objectsWriter.write(will);
+        }
+        String serialized = writer.toString();
+
+        // WHEN
+        List<PrismObject<?>> parsed = new ArrayList<>();
+        createProjectedParser(prismContext, serialized).parseObjectsIteratively(new PrismParser.ObjectHandler() {
+            @Override
+            public boolean handleData(PrismObject<?> object) {
+                parsed.add(object);
+                return true;
+            }
+
+            @Override
+            public boolean handleError(Throwable t) {
+                throw new AssertionError("Unexpected error", t);
+            }
+        });
+
+        // THEN
+        List<PrismObject<? extends Objectable>> parsedStandard = createProjectedParser(prismContext, serialized).parseObjects();
+        assertEquals("Wrong # of objects", 2, parsed.size());
+        assertEquals("Wrong # of objects (standard)", 2, parsedStandard.size());
+        assertProjected(jack, parsed.get(0));
+        assertProjected(will, parsed.get(1));
+        PrismAsserts.assertEquivalent("User jack", parsedStandard.get(0), parsed.get(0));
+        PrismAsserts.assertEquivalent("User will", parsedStandard.get(1), parsed.get(1));
+    }
+
+    private PrismParser createProjectedParser(PrismContext prismContext, String serialized) {
+        return prismContext.parserFor(serialized)
+                .language(getOutputFormat())
+                .include(USER_NAME_QNAME, USER_ADDITIONALNAMES_QNAME, USER_ACTIVATION_QNAME, USER_ASSIGNMENT_QNAME)
+                .exclude(USER_VALID_FROM_PATH, USER_ASSIGNMENT_DESCRIPTION_PATH);
+    }
+
+    private void assertProjected(PrismObject<UserType> original, PrismObject<?> parsed) {
+        assertEquals("Wrong OID", original.getOid(), parsed.getOid());
+        assertEquals("Wrong name", original.getName().getOrig(), parsed.getName().getOrig());
+        assertEquals("Wrong additional names", realValues(original, USER_ADDITIONALNAMES_QNAME),
+                realValues(parsed, USER_ADDITIONALNAMES_QNAME));
+        assertEquals("Wrong enabled flag", realValues(original, USER_ENABLED_PATH), realValues(parsed, USER_ENABLED_PATH));
+        assertNull("Excluded validFrom is present", parsed.findProperty(USER_VALID_FROM_PATH));
+        assertNull("Non-included fullName is present", parsed.findProperty(USER_FULLNAME_QNAME));
+        assertNull("Non-included extension is present", parsed.findContainer(USER_EXTENSION_QNAME));
+
+        PrismContainer<?> originalAssignment = original.findContainer(USER_ASSIGNMENT_QNAME);
+        PrismContainer<?> assignment = parsed.findContainer(USER_ASSIGNMENT_QNAME);
+        if (originalAssignment == null || originalAssignment.isEmpty()) {
+            assertTrue("Unexpected assignment values", assignment == null || assignment.isEmpty());
+        } else {
+            assertNotNull("No assignment", assignment);
+            assertEquals("Wrong # of assignment values", originalAssignment.size(), assignment.size());
+            for (PrismContainerValue<?> assignmentValue : assignment.getValues()) {
+                assertNotNull("No assignment ID", assignmentValue.getId());
+                assertNull("Excluded assignment description is present", assignmentValue.findItem(USER_DESCRIPTION_QNAME));
+            }
+        }
+    }
+
+    private Set<Object> realValues(PrismObject<?> object, ItemPath path) {
+        PrismProperty<?> property = object.findProperty(path);
+        return property != null ? new HashSet<>(property.getRealValues()) : Collections.emptySet();
+    }
+
     private void assertSingleMetadata(XNode node, String name, String expected) throws SchemaException {
         assertThat(node).isInstanceOf(MetadataAware.class);
         List<MapXNode> metadataNodes = ((MetadataAware) node).getMetadataNodes();
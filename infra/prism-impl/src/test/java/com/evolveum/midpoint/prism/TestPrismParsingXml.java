@@ -7,7 +7,9 @@
 package com.evolveum.midpoint.prism;
 
 import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.PrismContainerValueImpl;
 import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SystemException;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
 import org.w3c.dom.Document;
@@ -104,4 +106,35 @@ public class TestPrismParsingXml extends TestPrismParsing {
             assertTrue("Unexpected exception message: "+e.getMessage(), e.getMessage().contains("DOCTYPE"));
         }
     }
+
+    /**
+     * Children of a lazily parsed value fail to parse. Each access to the items has to fail,
+     * not only the first one (that attempts to materialize them).
+     */
+    @Test
+    public void testPrismParseLazilyInvalidItems() throws Exception {
+        // GIVEN
+        String xml = "<user oid='c0c010c0-d34d-b33f-f00d-111111111111' xmlns='" + NS_FOO + "'>"
+                + "<name>jack</name>"
+                + "<nonExistingItem>value</nonExistingItem>"
+                + "</user>";
+        PrismObject<UserType> user = getPrismContext().parserFor(xml).xml().strict().lazy().parse();
+        PrismContainerValueImpl<UserType> userValue = (PrismContainerValueImpl<UserType>) user.getValue();
+        assertTrue("Items were parsed eagerly", userValue.hasDeferredItems());
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                // WHEN
+                user.findProperty(UserType.F_NAME);
+
+                AssertJUnit.fail("Unexpected success in attempt #" + (i + 1));
+            } catch (SystemException e) {
+                // THEN
+                displayExpectedException(e);
+                assertTrue("Unexpected exception message: " + e.getMessage(),
+                        e.getMessage().contains("nonExistingItem"));
+            }
+        }
+        assertTrue("Items are not deferred any more", userValue.hasDeferredItems());
+    }
 }
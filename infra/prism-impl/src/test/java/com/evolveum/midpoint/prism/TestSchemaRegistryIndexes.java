@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism;
+
+import static org.testng.AssertJUnit.*;
+
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.xml.namespace.QName;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.foo.AssignmentType;
+import com.evolveum.midpoint.prism.foo.ObjectFactory;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.schema.PrismSchema;
+import com.evolveum.midpoint.prism.schema.SchemaRegistry;
+
+/**
+ * Tests lookups in the initialized schema registry that use indexes: definitions by compile-time class
+ * and global definitions by names without namespace.
+ */
+public class TestSchemaRegistryIndexes extends AbstractPrismTest {
+
+    private static final String STRING_TYPE = "stringType"; // defined in both extension namespaces
+
+    @Test
+    public void test100KnownCompileTimeClass() {
+        SchemaRegistry schemaRegistry = getPrismContext().getSchemaRegistry();
+
+        expect();
+        PrismSchema schema = schemaRegistry.findSchemaByCompileTimeClass(UserType.class);
+        assertNotNull("No schema for UserType", schema);
+        assertEquals("Wrong schema namespace", NS_FOO, schema.getNamespace());
+
+        List<PrismObjectDefinition> objectDefinitions =
+                schemaRegistry.findItemDefinitionsByCompileTimeClass(UserType.class, PrismObjectDefinition.class);
+        assertEquals("Wrong # of object definitions", 1, objectDefinitions.size());
+        assertEquals("Wrong element name", USER_QNAME, objectDefinitions.get(0).getItemName());
+
+        ComplexTypeDefinition userType = schemaRegistry.findTypeDefinitionByCompileTimeClass(UserType.class, ComplexTypeDefinition.class);
+        assertNotNull("No type definition for UserType", userType);
+        assertEquals("Wrong type name", USER_TYPE_QNAME, userType.getTypeName());
+
+        ComplexTypeDefinition assignmentType = schemaRegistry.findComplexTypeDefinitionByCompileTimeClass(AssignmentType.class);
+        assertNotNull("No type definition for AssignmentType", assignmentType);
+        assertEquals("Wrong compile-time class", AssignmentType.class, assignmentType.getCompileTimeClass());
+        assertEquals("Wrong type namespace", NS_FOO, assignmentType.getTypeName().getNamespaceURI());
+    }
+
+    @Test
+    public void test110UnknownCompileTimeClass() {
+        SchemaRegistry schemaRegistry = getPrismContext().getSchemaRegistry();
+
+        expect("class from a package without schema");
+        assertNull("Unexpected schema", schemaRegistry.findSchemaByCompileTimeClass(String.class));
+        assertTrue("Unexpected item definitions",
+                schemaRegistry.findItemDefinitionsByCompileTimeClass(String.class, ItemDefinition.class).isEmpty());
+        assertNull("Unexpected type definition",
+                schemaRegistry.findTypeDefinitionByCompileTimeClass(String.class, TypeDefinition.class));
+
+        and("class from a schema package but without definition");
+        assertNotNull("No schema for the package", schemaRegistry.findSchemaByCompileTimeClass(ObjectFactory.class));
+        assertTrue("Unexpected item definitions",
+                schemaRegistry.findItemDefinitionsByCompileTimeClass(ObjectFactory.class, ItemDefinition.class).isEmpty());
+        assertNull("Unexpected type definition",
+                schemaRegistry.findTypeDefinitionByCompileTimeClass(ObjectFactory.class, TypeDefinition.class));
+    }
+
+    @Test
+    public void test200GlobalItemInMoreNamespaces() {
+        SchemaRegistry schemaRegistry = getPrismContext().getSchemaRegistry();
+
+        when();
+        List<ItemDefinition> found = schemaRegistry.findItemDefinitionsByElementName(new QName(STRING_TYPE), ItemDefinition.class);
+
+        then();
+        Set<String> namespaces = found.stream()
+                .map(def -> def.getItemName().getNamespaceURI())
+                .collect(Collectors.toSet());
+        assertEquals("Wrong namespaces of definitions found", Set.of(NS_EXTENSION, NS_EXTENSION_SECONDARY), namespaces);
+        assertEquals("Result differs from asking all the schemas", findInAllSchemas(STRING_TYPE), found);
+
+        and("ignoring one of the namespaces makes the name unambiguous");
+        ItemDefinition<?> primary = schemaRegistry.findItemDefinitionByElementName(new QName(STRING_TYPE), List.of(NS_EXTENSION_SECONDARY));
+        assertNotNull("No definition found", primary);
+        assertEquals("Wrong definition found", new QName(NS_EXTENSION, STRING_TYPE), primary.getItemName());
+
+        and("ambiguous name is reported");
+        try {
+            schemaRegistry.findItemDefinitionByElementName(new QName(STRING_TYPE), (List<String>) null);
+            fail("Unexpected success");
+        } catch (IllegalArgumentException e) {
+            displayExpectedException(e);
+        }
+    }
+
+    @Test
+    public void test210GlobalItemInOneNamespace() {
+        SchemaRegistry schemaRegistry = getPrismContext().getSchemaRegistry();
+
+        expect();
+        List<ItemDefinition> found = schemaRegistry.findItemDefinitionsByElementName(new QName("secondaryStringType"), ItemDefinition.class);
+        assertEquals("Wrong # of definitions", 1, found.size());
+        assertEquals("Wrong namespace", NS_EXTENSION_SECONDARY, found.get(0).getItemName().getNamespaceURI());
+        assertEquals("Result differs from asking all the schemas", findInAllSchemas("secondaryStringType"), found);
+
+        assertEquals("Wrong definition of 'user'", USER_QNAME,
+                schemaRegistry.findItemDefinitionByElementName(new QName("user"), (List<String>) null).getItemName());
+        assertTrue("Unexpected definitions of unknown name",
+                schemaRegistry.findItemDefinitionsByElementName(new QName("noSuchElement"), ItemDefinition.class).isEmpty());
+    }
+
+    @Test
+    public void test220GlobalTypeWithoutNamespace() {
+        SchemaRegistry schemaRegistry = getPrismContext().getSchemaRegistry();
+
+        expect();
+        ComplexTypeDefinition userType = schemaRegistry.findTypeDefinitionByType(new QName("UserType"), ComplexTypeDefinition.class);
+        assertNotNull("No definition for UserType", userType);
+        assertEquals("Wrong type name", USER_TYPE_QNAME, userType.getTypeName());
+        assertNull("Unexpected definition of unknown type",
+                schemaRegistry.findTypeDefinitionByType(new QName("NoSuchType"), TypeDefinition.class));
+    }
+
+    /**
+     * The lookup without the registry-level index: all schemas are asked, in the order of registration
+     * (the same way as the registry does it).
+     */
+    private List<ItemDefinition> findInAllSchemas(String localName) {
+        List<ItemDefinition> found = new ArrayList<>();
+        for (PrismSchema schema : getPrismContext().getSchemaRegistry().getSchemas()) {
+            found.addAll(schema.findItemDefinitionsByElementName(new QName(localName), ItemDefinition.class));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.impl;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.*;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.AbstractPrismTest;
+
+/**
+ * Tests {@link CompactValueList}, especially transitions between empty, single-value and array representations.
+ * The content is always compared with an equivalent ordinary list.
+ */
+public class TestCompactValueList extends AbstractPrismTest {
+
+    @Test
+    public void test100Empty() {
+        CompactValueList<String> list = new CompactValueList<>();
+
+        assertContent(list);
+        assertEquals("Wrong index", -1, list.indexOf("a"));
+        assertFalse("Iterator has next", list.iterator().hasNext());
+        assertIndexOutOfBounds(() -> list.get(0));
+        assertIndexOutOfBounds(() -> list.set(0, "a"));
+        assertIndexOutOfBounds(() -> list.remove(0));
+        assertIndexOutOfBounds(() -> list.add(1, "a"));
+    }
+
+    @Test
+    public void test110SingleValue() {
+        CompactValueList<String> list = new CompactValueList<>();
+
+        list.add("a");
+        assertContent(list, "a");
+        assertEquals("Wrong index", 0, list.indexOf("a"));
+        assertIndexOutOfBounds(() -> list.get(1));
+
+        assertEquals("Wrong old value", "a", list.set(0, "b"));
+        assertContent(list, "b");
+
+        assertTrue("Value not removed", list.remove("b"));
+        assertContent(list);
+
+        list.add(0, "c");
+        assertContent(list, "c");
+    }
+
+    @Test
+    public void test120SingleToMany() {
+        CompactValueList<String> list = new CompactValueList<>();
+        list.add("b");
+
+        list.add(0, "a");
+        assertContent(list, "a", "b");
+
+        list.add("d");
+        list.add(2, "c");
+        assertContent(list, "a", "b", "c", "d");
+
+        // beyond the initial array size
+        list.addAll(Arrays.asList("e", "f", "g", "h", "i"));
+        assertContent(list, "a", "b", "c", "d", "e", "f", "g", "h", "i");
+        assertEquals("Wrong index", 4, list.indexOf("e"));
+        assertEquals("Wrong old value", "e", list.set(4, "E"));
+        assertEquals("Wrong index of replaced value", -1, list.indexOf("e"));
+        assertContent(list, "a", "b", "c", "d", "E", "f", "g", "h", "i");
+    }
+
+    @Test
+    public void test130ManyToSingleAndEmpty() {
+        CompactValueList<String> list = new CompactValueList<>();
+        list.addAll(Arrays.asList("a", "b", "c"));
+
+        assertEquals("Wrong removed value", "b", list.remove(1));
+        assertContent(list, "a", "c");
+
+        assertEquals("Wrong removed value", "c", list.remove(1));
+        assertContent(list, "a");
+        assertEquals("Wrong old value", "a", list.set(0, "x"));
+        assertContent(list, "x");
+
+        assertEquals("Wrong removed value", "x", list.remove(0));
+        assertContent(list);
+
+        // adding after the list was shrunk
+        list.add("y");
+        list.add("z");
+        assertContent(list, "y", "z");
+    }
+
+    @Test
+    public void test140Clear() {
+        CompactValueList<String> list = new CompactValueList<>();
+        list.addAll(Arrays.asList("a", "b", "c"));
+
+        list.clear();
+        assertContent(list);
+
+        list.add("a");
+        assertContent(list, "a");
+        list.clear();
+        assertContent(list);
+    }
+
+    @Test
+    public void test150IteratorRemove() {
+        CompactValueList<String> list = new CompactValueList<>();
+        list.addAll(Arrays.asList("a", "b", "c", "d", "e"));
+
+        list.removeIf(value -> value.equals("b") || value.equals("d"));
+        assertContent(list, "a", "c", "e");
+
+        Iterator<String> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().equals("c")) {
+                iterator.remove();
+            }
+        }
+        assertContent(list, "c");
+
+        iterator = list.iterator();
+        assertEquals("Wrong value", "c", iterator.next());
+        iterator.remove();
+        assertFalse("Iterator has next", iterator.hasNext());
+        assertContent(list);
+    }
+
+    @Test
+    public void test160ConcurrentModification() {
+        CompactValueList<String> list = new CompactValueList<>();
+        list.add("a");
+
+        Iterator<String> iterator = list.iterator();
+        list.add("b");
+        try {
+            iterator.next();
+            fail("Unexpected success");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test170NullValues() {
+        CompactValueList<String> list = new CompactValueList<>();
+
+        list.add(null);
+        assertContent(list, (String) null);
+        assertEquals("Wrong index", 0, list.indexOf(null));
+
+        list.add("a");
+        list.add(null);
+        assertContent(list, null, "a", null);
+        assertEquals("Wrong last index", 2, list.lastIndexOf(null));
+    }
+
+    private void assertContent(CompactValueList<String> list, String... expected) {
+        List<String> expectedList = Arrays.asList(expected);
+        assertEquals("Wrong size", expected.length, list.size());
+        assertEquals("Wrong emptiness", expected.length == 0, list.isEmpty());
+        assertEquals("Wrong content", expectedList, list);
+        assertEquals("Wrong content (reversed comparison)", list, expectedList);
+        assertEquals("Wrong hashCode", expectedList.hashCode(), list.hashCode());
+        List<String> iterated = new ArrayList<>();
+        list.iterator().forEachRemaining(iterated::add);
+        assertEquals("Wrong iterated content", expectedList, iterated);
+    }
+
+    private void assertIndexOutOfBounds(Runnable operation) {
+        try {
+            operation.run();
+            fail("Unexpected success");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+}
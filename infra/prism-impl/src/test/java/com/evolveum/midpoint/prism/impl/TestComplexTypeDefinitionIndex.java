@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.impl;
+
+import static org.testng.AssertJUnit.*;
+
+import javax.xml.namespace.QName;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.AbstractPrismTest;
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.PrismPropertyDefinition;
+import com.evolveum.midpoint.prism.PrismReferenceDefinition;
+import com.evolveum.midpoint.util.DOMUtil;
+
+/**
+ * Tests lookup of item definitions in {@link ComplexTypeDefinitionImpl}. Frozen definitions use an index,
+ * mutable ones search the definitions sequentially; the results must be the same.
+ */
+public class TestComplexTypeDefinitionIndex extends AbstractPrismTest {
+
+    private static final String NS_1 = "http://midpoint.evolveum.com/xml/ns/test/ns1";
+    private static final String NS_2 = "http://midpoint.evolveum.com/xml/ns/test/ns2";
+    private static final String NS_3 = "http://midpoint.evolveum.com/xml/ns/test/ns3";
+
+    private static final QName NAME_1 = new QName(NS_1, "name");
+    private static final QName NAME_2 = new QName(NS_2, "name");
+    private static final QName DESCRIPTION = new QName(NS_1, "Description");
+    private static final QName LINK_REF = new QName(NS_1, "linkRef");
+    private static final QName LINK = new QName(NS_1, "link");
+
+    @Test
+    public void test100Mutable() {
+        given();
+        ComplexTypeDefinitionImpl type = createType();
+
+        expect();
+        assertLookups(type);
+    }
+
+    @Test
+    public void test110Frozen() {
+        given();
+        ComplexTypeDefinitionImpl type = createType();
+
+        when();
+        type.freeze();
+
+        then();
+        assertLookups(type);
+    }
+
+    /**
+     * Lookups done before freezing must not influence the results after definitions are added or removed.
+     */
+    @Test
+    public void test120ChangedBeforeFreezing() {
+        given();
+        ComplexTypeDefinitionImpl type = createType();
+        QName fullName = new QName(NS_1, "fullName");
+        assertNull("Unexpected definition", find(type, fullName, false));
+        assertNotNull("No definition", find(type, DESCRIPTION, false));
+
+        when();
+        PrismPropertyDefinition<?> fullNameDef = type.createPropertyDefinition(fullName, DOMUtil.XSD_STRING);
+        type.delete(DESCRIPTION);
+        type.freeze();
+
+        then();
+        assertSame("Wrong definition for added item", fullNameDef, find(type, new QName("fullName"), false));
+        assertNull("Deleted definition found", find(type, DESCRIPTION, false));
+        assertNull("Deleted definition found (case insensitive)", find(type, new QName("description"), true));
+        assertSame("Wrong definition for 'name'", type.getDefinitions().get(0), find(type, new QName("name"), false));
+    }
+
+    private void assertLookups(ComplexTypeDefinitionImpl type) {
+        ItemDefinition<?> name1Def = type.getDefinitions().get(0);
+        ItemDefinition<?> name2Def = type.getDefinitions().get(1);
+        ItemDefinition<?> descriptionDef = type.getDefinitions().get(2);
+        ItemDefinition<?> linkRefDef = type.getDefinitions().get(3);
+
+        assertSame("Wrong definition for qualified name 1", name1Def, find(type, NAME_1, false));
+        assertSame("Wrong definition for qualified name 2", name2Def, find(type, NAME_2, false));
+        assertSame("Wrong definition for unqualified name (the first one should be found)",
+                name1Def, find(type, new QName("name"), false));
+        assertNull("Definition found in a wrong namespace", find(type, new QName(NS_3, "name"), false));
+        assertNull("Unknown item found", find(type, new QName(NS_1, "unknown"), false));
+
+        assertSame("Wrong definition for exact case", descriptionDef, find(type, DESCRIPTION, false));
+        assertNull("Definition found for different case", find(type, new QName(NS_1, "description"), false));
+        assertSame("Wrong definition for different case (case insensitive)",
+                descriptionDef, find(type, new QName(NS_1, "description"), true));
+        assertSame("Wrong definition for unqualified different case (case insensitive)",
+                descriptionDef, find(type, new QName("DESCRIPTION"), true));
+
+        assertSame("Wrong definition for reference", linkRefDef, find(type, LINK_REF, false));
+        assertSame("Wrong definition for composite object element name", linkRefDef, find(type, LINK, false));
+        assertSame("Wrong definition for reference found by class",
+                linkRefDef, type.findLocalItemDefinition(LINK, PrismReferenceDefinition.class, false));
+        assertNull("Definition of wrong class found",
+                type.findLocalItemDefinition(NAME_1, PrismReferenceDefinition.class, false));
+    }
+
+    private ItemDefinition<?> find(ComplexTypeDefinitionImpl type, QName name, boolean caseInsensitive) {
+        return type.findLocalItemDefinition(name, ItemDefinition.class, caseInsensitive);
+    }
+
+    private ComplexTypeDefinitionImpl createType() {
+        ComplexTypeDefinitionImpl type = new ComplexTypeDefinitionImpl(new QName(NS_1, "TestType"), getPrismContext());
+        type.createPropertyDefinition(NAME_1, DOMUtil.XSD_STRING);
+        type.createPropertyDefinition(NAME_2, DOMUtil.XSD_STRING);
+        type.createPropertyDefinition(DESCRIPTION, DOMUtil.XSD_STRING);
+        PrismReferenceDefinitionImpl linkRefDef =
+                new PrismReferenceDefinitionImpl(LINK_REF, new QName(NS_1, "ObjectReferenceType"), getPrismContext());
+        linkRefDef.setCompositeObjectElementName(LINK);
+        type.add(linkRefDef);
+        return type;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.impl;
+
+import static org.testng.AssertJUnit.*;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.AbstractPrismTest;
+import com.evolveum.midpoint.prism.PrismContainer;
+import com.evolveum.midpoint.prism.PrismContainerDefinition;
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.foo.AssignmentType;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Tests lookup of container values by ID in containers large enough to use the ID index
+ * (see {@link PrismContainerImpl#VALUE_ID_INDEX_THRESHOLD}), especially keeping the index up to date.
+ */
+public class TestContainerValueIdIndex extends AbstractPrismTest {
+
+    private static final int VALUES = PrismContainerImpl.VALUE_ID_INDEX_THRESHOLD * 2;
+
+    @Test
+    public void test100FindById() throws SchemaException {
+        given();
+        PrismContainer<AssignmentType> assignments = createAssignments();
+
+        expect();
+        for (long id = 1; id <= VALUES; id++) {
+            PrismContainerValue<AssignmentType> value = assignments.findValue(id);
+            assertNotNull("No value with ID " + id, value);
+            assertEquals("Wrong ID", Long.valueOf(id), value.getId());
+        }
+        assertNull("Unexpected value found", assignments.findValue(VALUES + 1));
+        assertEquals("Wrong highest ID", Long.valueOf(VALUES), assignments.getHighestId());
+    }
+
+    @Test
+    public void test110Add() throws SchemaException {
+        given();
+        PrismContainer<AssignmentType> assignments = createAssignments();
+        assertNull("Unexpected value found", assignments.findValue(100L));
+
+        when();
+        assignments.add(createValue(100L));
+
+        then();
+        assertNotNull("Added value not found", assignments.findValue(100L));
+        assertEquals("Wrong highest ID", Long.valueOf(100L), assignments.getHighestId());
+
+        and("adding a value with existing ID fails");
+        try {
+            assignments.add(createAssignmentValue(5L, "duplicate"));
+            fail("Unexpected success");
+        } catch (IllegalStateException e) {
+            displayExpectedException(e);
+        }
+    }
+
+    @Test
+    public void test120Remove() throws SchemaException {
+        given();
+        PrismContainer<AssignmentType> assignments = createAssignments();
+        PrismContainerValue<AssignmentType> last = assignments.findValue(VALUES);
+
+        when();
+        assignments.remove(last);
+
+        then();
+        assertNull("Removed value found", assignments.findValue(VALUES));
+        assertEquals("Wrong highest ID", Long.valueOf(VALUES - 1), assignments.getHighestId());
+
+        and("the ID can be used again");
+        assignments.add(createValue((long) VALUES));
+        assertNotNull("Re-added value not found", assignments.findValue(VALUES));
+    }
+
+    @Test
+    public void test130SetId() throws SchemaException {
+        given();
+        PrismContainer<AssignmentType> assignments = createAssignments();
+        PrismContainerValue<AssignmentType> value = assignments.findValue(3L);
+
+        when();
+        value.setId(300L);
+
+        then();
+        assertNull("Value found by the old ID", assignments.findValue(3L));
+        assertSame("Value not found by the new ID", value, assignments.findValue(300L));
+        assertEquals("Wrong highest ID", Long.valueOf(300L), assignments.getHighestId());
+    }
+
+    /**
+     * Replacing a value directly in the values list (not via container methods) must not leave the index stale.
+     */
+    @Test
+    public void test140ReplaceInValuesList() throws SchemaException {
+        given();
+        PrismContainer<AssignmentType> assignments = createAssignments();
+        assertNull("Unexpected value found", assignments.findValue(400L));
+        assertEquals("Wrong highest ID", Long.valueOf(VALUES), assignments.getHighestId());
+
+        when();
+        PrismContainerValue<AssignmentType> replacement = createValue(400L);
+        replacement.setParent(assignments);
+        assignments.getValues().set(3, replacement);
+
+        then();
+        assertSame("Replacement not found", replacement, assignments.findValue(400L));
+        assertNull("Replaced value found", assignments.findValue(4L));
+        assertEquals("Wrong highest ID", Long.valueOf(400L), assignments.getHighestId());
+
+        and("adding a value with the ID of the replacement fails");
+        try {
+            assignments.add(createAssignmentValue(400L, "duplicate"));
+            fail("Unexpected success");
+        } catch (IllegalStateException e) {
+            displayExpectedException(e);
+        }
+    }
+
+    private PrismContainer<AssignmentType> createAssignments() throws SchemaException {
+        PrismContainerDefinition<AssignmentType> assignmentDef = getUserTypeDefinition().findContainerDefinition(UserType.F_ASSIGNMENT);
+        PrismContainer<AssignmentType> assignments = assignmentDef.instantiate();
+        for (long id = 1; id <= VALUES; id++) {
+            populateAssignmentValue(assignments.createNewValue(), id, "assignment " + id);
+        }
+        return assignments;
+    }
+
+    private PrismContainerValue<AssignmentType> createValue(Long id) throws SchemaException {
+        return createAssignmentValue(id, "assignment " + id);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.impl;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.AbstractPrismTest;
+import com.evolveum.midpoint.prism.PrismContainer;
+import com.evolveum.midpoint.prism.PrismContainerDefinition;
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.delta.ContainerDelta;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.equivalence.EquivalenceStrategy;
+import com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy;
+import com.evolveum.midpoint.prism.foo.AssignmentType;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Checks that the diff of large multi-valued items using {@link OutstandingValues} index
+ * gives the same deltas as the pairwise comparison.
+ */
+public class TestItemDiffIndexing extends AbstractPrismTest {
+
+    @Test
+    public void test100ManyValuesReversed() throws SchemaException {
+        given();
+        PrismContainer<AssignmentType> ass1 = createAssignments();
+        PrismContainer<AssignmentType> ass2 = createAssignments();
+        for (long id = 1; id <= 20; id++) {
+            addAssignment(ass1, id, "assignment " + id);
+        }
+        // reversed order, with one value changed, one missing and one new
+        for (long id = 21; id >= 2; id--) {
+            addAssignment(ass2, id, id == 7 ? "changed" : "assignment " + id);
+        }
+
+        expect();
+        List<? extends ItemDelta> deltas = assertSameDiff(ass1, ass2, EquivalenceStrategy.IGNORE_METADATA);
+        assertEquals("Unexpected number of modifications", 2, deltas.size());
+    }
+
+    /**
+     * An equal value with a different ID precedes the value with the same ID: the pairwise comparison
+     * takes the former, as it is the first candidate.
+     */
+    @Test
+    public void test110EqualValueBeforeSameId() throws SchemaException {
+        given();
+        PrismContainer<AssignmentType> ass1 = createAssignments();
+        PrismContainer<AssignmentType> ass2 = createAssignments();
+        addAssignment(ass1, 1L, "A");
+        addAssignment(ass2, 2L, "A");
+        addAssignment(ass2, 1L, "B");
+        for (long id = 3; id < 3 + OutstandingValues.INDEXING_THRESHOLD; id++) {
+            addAssignment(ass2, id, "padding " + id);
+        }
+
+        expect();
+        List<? extends ItemDelta> deltas = assertSameDiff(ass1, ass2, EquivalenceStrategy.REAL_VALUE);
+        assertEquals("Unexpected number of modifications", 1, deltas.size());
+        ContainerDelta<?> delta = (ContainerDelta<?>) deltas.get(0);
+        assertNull("Unexpected values to delete", delta.getValuesToDelete());
+        assertEquals("Wrong # of values to add", OutstandingValues.INDEXING_THRESHOLD + 1, delta.getValuesToAdd().size());
+        PrismContainerValue<?> firstAdded = delta.getValuesToAdd().iterator().next();
+        assertEquals("Wrong ID of the first value added", Long.valueOf(1L), firstAdded.getId());
+    }
+
+    /**
+     * The value with the same ID precedes an equal value with a different ID.
+     */
+    @Test
+    public void test120SameIdBeforeEqualValue() throws SchemaException {
+        given();
+        PrismContainer<AssignmentType> ass1 = createAssignments();
+        PrismContainer<AssignmentType> ass2 = createAssignments();
+        addAssignment(ass1, 1L, "A");
+        addAssignment(ass2, 1L, "B");
+        addAssignment(ass2, 2L, "A");
+        for (long id = 3; id < 3 + OutstandingValues.INDEXING_THRESHOLD; id++) {
+            addAssignment(ass2, id, "padding " + id);
+        }
+
+        expect();
+        List<? extends ItemDelta> deltas = assertSameDiff(ass1, ass2, EquivalenceStrategy.REAL_VALUE);
+        assertEquals("Unexpected number of modifications", 2, deltas.size());
+    }
+
+    private List<? extends ItemDelta> assertSameDiff(PrismContainer<AssignmentType> ass1, PrismContainer<AssignmentType> ass2,
+            ParameterizedEquivalenceStrategy strategy) {
+        List<? extends ItemDelta> indexed;
+        List<? extends ItemDelta> pairwise;
+        ItemImpl.valueIndexingEnabled = false;
+        try {
+            pairwise = new ArrayList<>(ass1.diffModifications(ass2, strategy));
+        } finally {
+            ItemImpl.valueIndexingEnabled = true;
+        }
+        indexed = new ArrayList<>(ass1.diffModifications(ass2, strategy));
+
+        displayValue("pairwise", pairwise);
+        displayValue("indexed", indexed);
+        assertEquals("Indexed diff differs from the pairwise one", pairwise, indexed);
+        return indexed;
+    }
+
+    private PrismContainer<AssignmentType> createAssignments() throws SchemaException {
+        PrismContainerDefinition<AssignmentType> assignmentDef = getUserTypeDefinition().findContainerDefinition(UserType.F_ASSIGNMENT);
+        return assignmentDef.instantiate();
+    }
+
+    private void addAssignment(PrismContainer<AssignmentType> assignments, Long id, String description) throws SchemaException {
+        populateAssignmentValue(assignments.createNewValue(), id, description);
+    }
+}
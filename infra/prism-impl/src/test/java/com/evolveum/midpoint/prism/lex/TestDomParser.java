@@ -6,18 +6,22 @@
  */
 package com.evolveum.midpoint.prism.lex;
 
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.USER_ALICE_METADATA_BASENAME;
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.USER_JACK_FILE_BASENAME;
 import static com.evolveum.midpoint.prism.util.PrismTestUtil.createDefaultParsingContext;
-import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.prism.ParserFileSource;
 import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 import com.evolveum.midpoint.prism.impl.lex.dom.DomLexicalProcessor;
+import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.DebugUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
 
 import org.testng.annotations.Test;
 import org.xml.sax.SAXException;
@@ -39,6 +43,8 @@ public class TestDomParser extends AbstractLexicalProcessorTest {
 
     private static final String OBJECTS_XML_1_NO_NS = "objects-xml-1-no-ns";
     private static final String OBJECTS_XML_2_NS = "objects-xml-2-ns";
+    private static final String OBJECTS_XML_3_NS_REDECLARED = "objects-xml-3-ns-redeclared";
+    private static final String OBJECTS_XML_4_METADATA = "objects-xml-4-metadata";
 
     @Override
     protected String getSubdirName() {
@@ -150,6 +156,73 @@ public class TestDomParser extends AbstractLexicalProcessorTest {
     }
 
 
+    /**
+     * Namespace declarations on objects (and their items) take precedence over the ones on the objects element.
+     * Also checks xsi:type resolution using these declarations.
+     */
+    @Test
+    public void testParseObjectsIteratively_xml_3_NsRedeclared() throws Exception {
+        List<RootXNodeImpl> nodes = readObjectsIterativelyAndCompare(OBJECTS_XML_3_NS_REDECLARED, 3);
+
+        assertExtensionNum(nodes.get(0), new QName("http://a/", "num"), DOMUtil.XSD_INT);
+        assertExtensionNum(nodes.get(1), new QName("http://b/", "num"), DOMUtil.XSD_INT);
+        assertExtensionNum(nodes.get(2), new QName("http://d/", "num"), new QName("http://c/", "int"));
+    }
+
+    private void assertExtensionNum(RootXNodeImpl node, QName expectedName, QName expectedType) {
+        MapXNodeImpl extension = (MapXNodeImpl) ((MapXNodeImpl) node.getSubnode()).get(UserType.F_EXTENSION);
+        assertNotNull("No extension in " + node, extension);
+        XNodeImpl num = extension.get(expectedName);
+        assertNotNull("No " + expectedName + " in " + extension, num);
+        assertEquals("Wrong xsi:type of " + expectedName, expectedType, num.getTypeQName());
+        assertTrue("Type declaration of " + expectedName + " is not explicit", num.isExplicitTypeDeclaration());
+    }
+
+    @Test
+    public void testParseObjectsIteratively_xml_4_Metadata() throws Exception {
+        List<RootXNodeImpl> nodes = readObjectsIterativelyAndCompare(OBJECTS_XML_4_METADATA, 2);
+
+        MapXNodeImpl alice = (MapXNodeImpl) nodes.get(0).getSubnode();
+        assertEquals("Wrong # of object metadata", 1, alice.getMetadataNodes().size());
+        PrimitiveXNodeImpl<?> name = (PrimitiveXNodeImpl<?>) alice.get(UserType.F_NAME);
+        assertEquals("Wrong # of name metadata", 1, name.getMetadataNodes().size());
+        ListXNodeImpl additionalNames = (ListXNodeImpl) alice.get(UserType.F_ADDITIONAL_NAMES);
+        assertEquals("Wrong # of additional names", 2, additionalNames.size());
+        assertEquals("Wrong # of metadata of the second additional name", 2,
+                ((PrimitiveXNodeImpl<?>) additionalNames.get(1)).getMetadataNodes().size());
+    }
+
+    @Test
+    public void testParseObjectsIteratively_SingleObjectWithMetadata() throws Exception {
+        List<RootXNodeImpl> nodes = readObjectsIterativelyAndCompare(USER_ALICE_METADATA_BASENAME, 1);
+
+        assertEquals("Wrong root element name", new QName(UserType.NS_FOO, "user"), nodes.get(0).getRootElementName());
+    }
+
+    /**
+     * Reads the objects iteratively (StAX) and checks the result against the standard (DOM) reading.
+     */
+    private List<RootXNodeImpl> readObjectsIterativelyAndCompare(String fileName, int expectedCount)
+            throws SchemaException, IOException {
+        LexicalProcessor<String> lexicalProcessor = createLexicalProcessor();
+
+        List<RootXNodeImpl> nodes = new ArrayList<>();
+        lexicalProcessor.readObjectsIteratively(getFileSource(fileName), createDefaultParsingContext(),
+                node -> {
+                    nodes.add(node);
+                    return true;
+                });
+        System.out.println("Parsed objects (iteratively):");
+        System.out.println(DebugUtil.debugDump(nodes));
+        assertEquals("Wrong # of nodes read", expectedCount, nodes.size());
+
+        List<RootXNodeImpl> nodesStandard = lexicalProcessor.readObjects(getFileSource(fileName), createDefaultParsingContext());
+        System.out.println("Parsed objects (standard way):");
+        System.out.println(DebugUtil.debugDump(nodesStandard));
+        assertEquals("Nodes are different", nodesStandard, nodes);
+        return nodes;
+    }
+
     private void validateSchemaCompliance(String xmlString, PrismContext prismContext)  throws SAXException, IOException {
 //        Document xmlDocument = DOMUtil.parseDocument(xmlString);
 //        Schema javaxSchema = prismContext.getSchemaRegistry().getJavaxSchema();
@@ -8,10 +8,12 @@ package com.evolveum.midpoint.prism.match;
 
 import static org.testng.AssertJUnit.*;
 
+import com.google.common.cache.CacheStats;
 import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.prism.AbstractPrismTest;
 import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.impl.match.DistinguishedNameMatchingRule;
 import com.evolveum.midpoint.prism.impl.match.MatchingRuleRegistryFactory;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.util.DOMUtil;
@@ -132,6 +134,47 @@ public class TestMatchingRule extends AbstractPrismTest {
         assertNormalized(rule, "<foo>FOO<bar> BAR </foo>", "<foo>FOO<bar> BAR </foo>   ");
     }
 
+    @Test
+    public void testDistinguishedName() throws Exception {
+        // GIVEN
+        MatchingRule<String> rule = matchingRuleRegistry.getMatchingRule(PrismConstants.DISTINGUISHED_NAME_MATCHING_RULE_NAME,
+                DOMUtil.XSD_STRING);
+        // WHEN, THEN (repeated to go through the cache of parsed DNs as well)
+        for (int i = 0; i < 2; i++) {
+            assertMatch(rule, "uid=jack,ou=People,dc=example,dc=com", "uid=jack,ou=People,dc=example,dc=com");
+            assertMatch(rule, "uid=jack,ou=People,dc=example,dc=com", "UID=Jack,OU=people,DC=Example,DC=COM");
+            assertNoMatch(rule, "uid=jack,ou=People,dc=example,dc=com", "uid=jack,ou=Groups,dc=example,dc=com");
+            assertMatch(rule, "", null);
+            assertNoMatch(rule, "uid=jack,dc=com", null);
+            assertNormalized(rule, "uid=jack,ou=people,dc=example,dc=com", "UID=Jack,OU=People,DC=example,DC=com");
+        }
+        try {
+            rule.match("uid=jack,dc=com", "this is not a DN");
+            fail("unexpected success");
+        } catch (SchemaException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDistinguishedNameCacheStats() throws Exception {
+        // GIVEN
+        MatchingRule<String> rule = matchingRuleRegistry.getMatchingRule(PrismConstants.DISTINGUISHED_NAME_MATCHING_RULE_NAME,
+                DOMUtil.XSD_STRING);
+        DistinguishedNameMatchingRule.clearCache();
+        CacheStats before = DistinguishedNameMatchingRule.getCacheStats();
+
+        // WHEN
+        rule.match("uid=jack,dc=com", "uid=jack,dc=com"); // miss, hit
+        rule.match("uid=jack,dc=com", "UID=Jack,DC=com"); // hit, miss
+        rule.normalize("UID=Jack,DC=com"); // hit
+
+        // THEN
+        CacheStats stats = DistinguishedNameMatchingRule.getCacheStats().minus(before);
+        assertEquals("Wrong # of cache hits", 3, stats.hitCount());
+        assertEquals("Wrong # of cache misses", 2, stats.missCount());
+    }
+
     private <T> void assertMatch(MatchingRule<T> rule, T a, T b) throws SchemaException {
         assertTrue("Values '" + a + "' and '" + b + "' does not match; rule: " + rule, rule.match(a, b));
     }
@@ -10,6 +10,7 @@ package com.evolveum.midpoint.prism.path;
 import com.evolveum.midpoint.prism.AbstractPrismTest;
 import com.evolveum.midpoint.prism.PrismInternalTestUtil;
 import com.evolveum.midpoint.prism.impl.marshaller.ItemPathHolder;
+import com.evolveum.midpoint.prism.impl.marshaller.ItemPathParsingCache;
 import com.evolveum.midpoint.prism.impl.marshaller.PathHolderSegment;
 import com.evolveum.midpoint.prism.impl.marshaller.TrivialItemPathParser;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
@@ -158,6 +159,32 @@ public class ItemPathTest extends AbstractPrismTest {
         AssertJUnit.assertEquals("foo:foofoo[1]/x:bar", parser.getPureItemPathString());
     }
 
+    @Test
+    public void cachedParseTest() {
+        String xpathStr = "f:foo/f:bar[10]/baz";
+        Map<String, String> fooNamespaces = new HashMap<>();
+        fooNamespaces.put("f", NS_FOO);
+        Map<String, String> barNamespaces = new HashMap<>();
+        barNamespaces.put("f", NS_BAR);
+
+        ItemPathParsingCache.clear();
+        long hitsBefore = ItemPathParsingCache.getHitCount();
+        long missesBefore = ItemPathParsingCache.getMissCount();
+
+        UniformItemPath foo1 = ItemPathHolder.parseFromString(xpathStr, fooNamespaces); // miss
+        UniformItemPath foo2 = ItemPathHolder.parseFromString(xpathStr, fooNamespaces); // hit
+        UniformItemPath bar1 = ItemPathHolder.parseFromString(xpathStr, barNamespaces); // miss: different namespace of "f"
+        UniformItemPath bar2 = ItemPathHolder.parseFromString(xpathStr, barNamespaces); // hit
+
+        assertEquals("Wrong # of cache hits", 2, ItemPathParsingCache.getHitCount() - hitsBefore);
+        assertEquals("Wrong # of cache misses", 2, ItemPathParsingCache.getMissCount() - missesBefore);
+        AssertJUnit.assertNotSame(foo1, foo2);
+        assertEquals(foo1, foo2);
+        assertEquals(bar1, bar2);
+        assertTrue(foo2.equivalent(ItemPath.create(new QName(NS_FOO, "foo"), new QName(NS_FOO, "bar"), 10L, new QName("baz"))));
+        assertTrue(bar2.equivalent(ItemPath.create(new QName(NS_BAR, "foo"), new QName(NS_BAR, "bar"), 10L, new QName("baz"))));
+    }
+
     @Test
     public void simpleXPathParseTest() {
         String xpathStr =
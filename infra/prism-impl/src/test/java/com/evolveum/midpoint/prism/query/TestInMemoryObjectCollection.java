@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.query;
+
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.EXTENSION_NUM_ELEMENT;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.match.MatchingRuleRegistryFactory;
+import com.evolveum.midpoint.prism.impl.query.InMemoryObjectCollection;
+import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+public class TestInMemoryObjectCollection extends AbstractPrismTest {
+
+    private static final File FILE_USER_JACK_FILTERS = new File(PrismInternalTestUtil.COMMON_DIR_XML, "user-jack-filters.xml");
+
+    private static final MatchingRuleRegistry MATCHING_RULE_REGISTRY = MatchingRuleRegistryFactory.createRegistry();
+
+    private static final ItemPath PATH_NUM = ItemPath.create(UserType.F_EXTENSION, EXTENSION_NUM_ELEMENT);
+    private static final int USERS = 10;
+
+    private final List<PrismObject<UserType>> users = new ArrayList<>();
+    private InMemoryObjectCollection<UserType> collection;
+
+    @Test
+    public void test100AddObjects() throws Exception {
+        PrismObject<UserType> jack = PrismTestUtil.parseObject(FILE_USER_JACK_FILTERS);
+        collection = new InMemoryObjectCollection<>(MATCHING_RULE_REGISTRY);
+        collection.addHashIndex(UserType.F_GIVEN_NAME);
+        collection.addHashIndex(UserType.F_ACCOUNT_REF);
+        for (int i = 0; i < USERS; i++) {
+            PrismObject<UserType> user = jack.clone();
+            user.setOid(oid(i));
+            user.findProperty(UserType.F_GIVEN_NAME).setRealValue("G" + i % 3);
+            user.<Integer>findProperty(PATH_NUM).setRealValue(i);
+            users.add(user);
+            collection.add(user);
+        }
+        collection.addSortedIndex(PATH_NUM); // index created for existing objects
+
+        AssertJUnit.assertEquals("Wrong # of objects", USERS, collection.size());
+        AssertJUnit.assertTrue("Stored object is not immutable", collection.get(oid(0)).isImmutable());
+    }
+
+    @Test
+    public void test110SearchByIndexes() throws Exception {
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).eq("G1")
+                .build(), 1, 4, 7);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).eq("G1")
+                .or().item(UserType.F_GIVEN_NAME).eq("G2")
+                .build(), 1, 2, 4, 5, 7, 8);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(PATH_NUM, numDefinition()).ge(6)
+                .and().item(UserType.F_GIVEN_NAME).eq("G0")
+                .build(), 6, 9);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(PATH_NUM, numDefinition()).lt(3)
+                .and().id(oid(1), oid(2), oid(5))
+                .build(), 1, 2);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .type(UserType.class)
+                .item(UserType.F_ACCOUNT_REF).ref("c0c010c0-d34d-b33f-f00d-aaaaaaaa1112")
+                .build(), 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_ACCOUNT_REF).ref("c0c010c0-d34d-b33f-f00d-aaaaaaaa9999")
+                .build());
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_FULL_NAME).contains("Sparrow") // not indexed
+                .and().not().item(UserType.F_GIVEN_NAME).eq("G0")
+                .build(), 1, 2, 4, 5, 7, 8);
+    }
+
+    @Test
+    public void test120Paging() throws Exception {
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(PATH_NUM, numDefinition()).ge(2)
+                .desc(PATH_NUM)
+                .offset(1)
+                .maxSize(3)
+                .build(), 8, 7, 6);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .asc(UserType.F_GIVEN_NAME)
+                .desc(PATH_NUM)
+                .maxSize(4)
+                .build(), 9, 6, 3, 0);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).eq("G2")
+                .offset(2)
+                .build(), 8);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .maxSize(0)
+                .build());
+    }
+
+    @Test
+    public void test130ApplyDeltas() throws Exception {
+        ObjectDelta<UserType> modify = getPrismContext().deltaFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).replace("G1")
+                .asObjectDelta(oid(0));
+        collection.applyDelta(modify);
+        modify.applyTo(users.get(0));
+
+        ObjectDelta<UserType> delete = getPrismContext().deltaFactory().object()
+                .createDeleteDelta(UserType.class, oid(4));
+        collection.applyDelta(delete);
+        users.remove(4);
+
+        AssertJUnit.assertEquals("Wrong # of objects", USERS - 1, collection.size());
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).eq("G1")
+                .build(), 0, 1, 7);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).eq("G0")
+                .build(), 3, 6, 9);
+    }
+
+    @Test
+    public void test140FullText() throws Exception {
+        collection.addFullTextIndex();
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .fullText("g2")
+                .build(), 2, 5, 8);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .fullText("G2 sparrow", "g0")
+                .build(), 2, 3, 5, 6, 8, 9);
+
+        ObjectDelta<UserType> modify = getPrismContext().deltaFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).replace("G2")
+                .asObjectDelta(oid(3));
+        collection.applyDelta(modify);
+        modify.applyTo(users.get(3)); // oid(4) was deleted, so this is oid(3)
+
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .fullText("g0")
+                .build(), 6, 9);
+        assertSearch(getPrismContext().queryFor(UserType.class)
+                .fullText("g2")
+                .and().item(PATH_NUM, numDefinition()).lt(5)
+                .build(), 2, 3);
+    }
+
+    /**
+     * Checks the result against the expected one, as well as against a plain evaluation of the filter.
+     */
+    private void assertSearch(ObjectQuery query, int... expected) throws SchemaException {
+        List<String> expectedOids = new ArrayList<>();
+        for (int i : expected) {
+            expectedOids.add(oid(i));
+        }
+        List<String> actualOids = new ArrayList<>();
+        for (PrismObject<UserType> object : collection.search(query)) {
+            actualOids.add(object.getOid());
+        }
+        AssertJUnit.assertEquals("Wrong result of " + query, expectedOids, actualOids);
+
+        if (query.getPaging() == null) {
+            List<String> plainOids = new ArrayList<>();
+            for (PrismObject<UserType> user : users) {
+                if (query.getFilter() == null || ObjectQuery.match(user, query.getFilter(), MATCHING_RULE_REGISTRY)) {
+                    plainOids.add(user.getOid());
+                }
+            }
+            AssertJUnit.assertEquals("Result of " + query + " differs from plain evaluation", plainOids, actualOids);
+            AssertJUnit.assertEquals("Wrong count for " + query, expected.length, collection.count(query.getFilter()));
+        }
+    }
+
+    private PrismPropertyDefinition<Integer> numDefinition() {
+        return getPrismContext().definitionFactory().createPropertyDefinition(EXTENSION_NUM_ELEMENT, DOMUtil.XSD_INT);
+    }
+
+    private static String oid(int i) {
+        return String.format("c0c010c0-d34d-b33f-f00d-0000000000%02d", i);
+    }
+}
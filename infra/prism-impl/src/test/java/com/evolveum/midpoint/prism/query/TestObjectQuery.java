@@ -21,6 +21,8 @@ import org.testng.annotations.Test;
 import com.evolveum.midpoint.prism.foo.AssignmentType;
 import com.evolveum.midpoint.prism.foo.UserType;
 import com.evolveum.midpoint.prism.impl.match.MatchingRuleRegistryFactory;
+import com.evolveum.midpoint.prism.impl.query.OrgClosure;
+import com.evolveum.midpoint.prism.impl.query.SubstringFilterImpl;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
@@ -30,6 +32,7 @@ import com.evolveum.midpoint.util.DOMUtil;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.List;
 import java.util.function.BiFunction;
 
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.EXTENSION_DATETIME_ELEMENT;
@@ -378,6 +381,300 @@ public class TestObjectQuery extends AbstractPrismTest {
         AssertJUnit.assertTrue("filter does not match object", match);
     }
 
+    @Test
+    public void testCompiledMatch() throws Exception {
+        PrismObject<UserType> user = parseUserJack();
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).eq("jack").matchingCaseIgnore()
+                .and().item(UserType.F_FULL_NAME).contains("arr")
+                .buildFilter());
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).eq("Will", "Elizabeth", "Hector", "Jack", "Joshamee")
+                .buildFilter());
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).eq("WILL", "ELIZABETH", "HECTOR", "JACK").matchingCaseIgnore()
+                .buildFilter());
+        assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).eq("Will", "Elizabeth", "Hector", "Joshamee")
+                .buildFilter());
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .id("c0c010c0-d34d-b33f-f00d-111111111111", "c0c010c0-d34d-b33f-f00d-222222222222")
+                .and().not().item(UserType.F_LOCALITY).startsWith("C")
+                .buildFilter());
+        assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class)
+                .id("c0c010c0-d34d-b33f-f00d-222222222222")
+                .or().none()
+                .buildFilter());
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_ACCOUNT_REF).ref("c0c010c0-d34d-b33f-f00d-aaaaaaaa1112", "c0c010c0-d34d-b33f-f00d-aaaaaaaa9999")
+                .buildFilter());
+        assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_ACCOUNT_REF).ref("c0c010c0-d34d-b33f-f00d-aaaaaaaa9999")
+                .buildFilter());
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .exists(UserType.F_ASSIGNMENT)
+                .item(AssignmentType.F_DESCRIPTION).eq("Assignment 2")
+                .buildFilter());
+        assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_ASSIGNMENT, AssignmentType.F_DESCRIPTION).eq("Assignment XXXXX")
+                .buildFilter());
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .type(UserType.class)
+                .item(UserType.F_FAMILY_NAME).endsWith("row")
+                .buildFilter());
+    }
+
+    @Test
+    public void testOptimize() throws Exception {
+        PrismObject<UserType> user = parseUserJack();
+        ObjectFilter filter = getPrismContext().queryFor(UserType.class)
+                .block()
+                    .item(UserType.F_FULL_NAME).contains("arr")
+                    .and().all()
+                .endBlock()
+                .and().block()
+                    .item(UserType.F_GIVEN_NAME).eq("Will")
+                    .or().item(UserType.F_GIVEN_NAME).eq("Jack")
+                    .or().item(UserType.F_GIVEN_NAME).eq("Jack")
+                    .or().none()
+                .endBlock()
+                .and().id("c0c010c0-d34d-b33f-f00d-111111111111")
+                .buildFilter();
+        String original = filter.toString();
+
+        ObjectFilter optimized = getPrismContext().queryFactory().optimize(filter);
+        displayValue("optimized filter", optimized.debugDump());
+
+        AssertJUnit.assertEquals("Original filter was modified", original, filter.toString());
+        AssertJUnit.assertTrue("Not an AND filter: " + optimized, optimized instanceof AndFilter);
+        List<ObjectFilter> conditions = ((AndFilter) optimized).getConditions();
+        AssertJUnit.assertEquals("Wrong # of conditions in " + optimized, 3, conditions.size());
+        AssertJUnit.assertTrue("OID check is not the first", conditions.get(0) instanceof InOidFilter);
+        AssertJUnit.assertTrue("Merged EQUAL is not the second", conditions.get(1) instanceof EqualFilter);
+        AssertJUnit.assertEquals("Wrong # of merged values", 2, ((EqualFilter<?>) conditions.get(1)).getValues().size());
+        AssertJUnit.assertTrue("Substring is not the last", conditions.get(2) instanceof SubstringFilter);
+
+        assertCompiledMatch(user, true, filter);
+        assertCompiledMatch(user, true, optimized);
+
+        ObjectFilter trivial = getPrismContext().queryFor(UserType.class)
+                .not().block().not().none().endBlock()
+                .and().item(UserType.F_GIVEN_NAME).eq("Jack")
+                .and().block().none().or().all().endBlock()
+                .buildFilter();
+        ObjectFilter trivialOptimized = getPrismContext().queryFactory().optimize(trivial);
+        AssertJUnit.assertTrue("Not reduced to NONE: " + trivialOptimized, trivialOptimized instanceof NoneFilter);
+        assertCompiledMatch(user, false, trivial);
+    }
+
+    /**
+     * Substrings containing regex metacharacters must be matched literally, both when evaluated
+     * without regular expressions (default matching rule) and with them (other rules, multi-line values).
+     */
+    @Test
+    public void testSubstringWithMetacharacters() throws Exception {
+        PrismObject<UserType> user = parseUserJack();
+        user.asObjectable().setFullName("cpt. Jack Sparrow [1.0]$");
+        user.asObjectable().setDescription("first line\nsecond (line)");
+
+        assertSubstring(user, UserType.F_FULL_NAME, null, "cpt. Jack", true, false, true);
+        assertSubstring(user, UserType.F_FULL_NAME, null, "cpt? Jack", true, false, false);
+        assertSubstring(user, UserType.F_FULL_NAME, null, "[1.0]$", false, true, true);
+        assertSubstring(user, UserType.F_FULL_NAME, null, "[1x0]$", false, true, false);
+        assertSubstring(user, UserType.F_FULL_NAME, null, "Sparrow [1.0]", false, false, true);
+        assertSubstring(user, UserType.F_FULL_NAME, null, ".*", false, false, false);
+        assertSubstring(user, UserType.F_FULL_NAME, null, "cpt. Jack Sparrow [1.0]$", true, true, true);
+        assertSubstring(user, UserType.F_FULL_NAME, null, "cpt. Jack Sparrow", true, true, false);
+        assertSubstring(user, UserType.F_FULL_NAME, null, "Jack", true, false, false);
+        assertSubstring(user, UserType.F_FULL_NAME, null, "Jack", false, true, false);
+
+        // The regex is used here; as "." does not match line terminators, only anchored substrings can match.
+        assertSubstring(user, UserType.F_DESCRIPTION, null, "(line)", false, false, false);
+        assertSubstring(user, UserType.F_DESCRIPTION, null, "first line\nsecond (line)", true, true, true);
+        assertSubstring(user, UserType.F_DESCRIPTION, null, "first line\nsecond (line", true, true, false);
+    }
+
+    @Test
+    public void testSubstringCaseIgnore() throws Exception {
+        PrismObject<UserType> user = parseUserJack();
+        user.asObjectable().setFullName("cpt. Jack Sparrow [1.0]$");
+        QName caseIgnore = PrismConstants.STRING_IGNORE_CASE_MATCHING_RULE_NAME;
+
+        assertSubstring(user, UserType.F_FULL_NAME, caseIgnore, "CPT. jACK", true, false, true);
+        assertSubstring(user, UserType.F_FULL_NAME, caseIgnore, "CPTX jACK", true, false, false);
+        assertSubstring(user, UserType.F_FULL_NAME, caseIgnore, "SPARROW [1.0]$", false, true, true);
+        assertSubstring(user, UserType.F_FULL_NAME, caseIgnore, "sparrow [1.0]", false, false, true);
+        assertSubstring(user, UserType.F_FULL_NAME, caseIgnore, "sparrow [1?0]", false, false, false);
+        assertSubstring(user, UserType.F_FULL_NAME, caseIgnore, "CPT. JACK SPARROW [1.0]$", true, true, true);
+        assertSubstring(user, UserType.F_FULL_NAME, null, "CPT. jACK", true, false, false);
+    }
+
+    @Test
+    public void testSubstringPolyString() throws Exception {
+        PrismObject<UserType> user = parseUserJack();
+        user.findProperty(UserType.F_NAME).setRealValue(new PolyString("Jack.Sparrow (1)*", "jack.sparrow (1)*"));
+        QName orig = PrismConstants.POLY_STRING_ORIG_MATCHING_RULE_NAME;
+        QName norm = PrismConstants.POLY_STRING_NORM_MATCHING_RULE_NAME;
+        QName strict = PrismConstants.POLY_STRING_STRICT_MATCHING_RULE_NAME;
+
+        // Default matching rule matches either orig or norm.
+        assertSubstring(user, UserType.F_NAME, null, "Jack.Sparrow", true, false, true);
+        assertSubstring(user, UserType.F_NAME, null, "jack.sparrow", true, false, true);
+        assertSubstring(user, UserType.F_NAME, null, "JackxSparrow", true, false, false);
+        assertSubstring(user, UserType.F_NAME, null, "(1)*", false, true, true);
+        assertSubstring(user, UserType.F_NAME, null, "Sparrow (1", false, false, true);
+        assertSubstring(user, UserType.F_NAME, null, "Sparrow 1", false, false, false);
+
+        assertSubstring(user, UserType.F_NAME, orig, "Jack.Sparrow", true, false, true);
+        assertSubstring(user, UserType.F_NAME, orig, "jack.sparrow", true, false, false);
+        assertSubstring(user, UserType.F_NAME, orig, "Sparrow (1)*", false, true, true);
+
+        assertSubstring(user, UserType.F_NAME, norm, "jack.sparrow", true, false, true);
+        assertSubstring(user, UserType.F_NAME, norm, "Jack.Sparrow", true, false, false);
+        assertSubstring(user, UserType.F_NAME, norm, "sparrow (1)*", false, true, true);
+        assertSubstring(user, UserType.F_NAME, norm, "sparrow (1)", false, true, false);
+
+        assertSubstring(user, UserType.F_NAME, strict, "Jack.Sparrow (1)*", true, true, true);
+        assertSubstring(user, UserType.F_NAME, strict, "jack.sparrow (1)*", true, true, false);
+    }
+
+    @Test
+    public void testFullTextMatch() throws Exception {
+        PrismObject<UserType> user = parseUserJack();
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .fullText("SPARROW")
+                .buildFilter());
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .fullText("pira best") // description, parts of words
+                .buildFilter());
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .fullText("assignment 2") // in a container
+                .buildFilter());
+        assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class)
+                .fullText("kraken")
+                .buildFilter());
+        assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class)
+                .fullText("sparrow kraken")
+                .buildFilter());
+        assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class)
+                .fullText("kraken", "jackie")
+                .buildFilter());
+    }
+
+    @Test
+    public void testOrgMatch() throws Exception {
+        // org1 <- org2 <- org3 <- user
+        PrismObject<UserType> org1 = createObjectWithParents("org1");
+        PrismObject<UserType> org2 = createObjectWithParents("org2", "org1");
+        PrismObject<UserType> org3 = createObjectWithParents("org3", "org2");
+        PrismObject<UserType> user = createObjectWithParents("user", "org3");
+
+        OrgClosure closure = new OrgClosure(UserType.F_PARENT_ORG_REF);
+        closure.add(org1);
+        closure.add(org3); // children before parents
+        closure.add(org2);
+        getPrismContext().setOrgHierarchyProvider(closure);
+        try {
+            assertCompiledMatch(org1, true, getPrismContext().queryFor(UserType.class).isRoot().buildFilter());
+            assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class).isRoot().buildFilter());
+            assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class).isDirectChildOf("org3").buildFilter());
+            assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class).isDirectChildOf("org2").buildFilter());
+            assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class).isChildOf("org1").buildFilter());
+            assertCompiledMatch(org1, false, getPrismContext().queryFor(UserType.class).isChildOf("org1").buildFilter());
+            assertCompiledMatch(org1, true, getPrismContext().queryFor(UserType.class).isParentOf("org3").buildFilter());
+            assertCompiledMatch(org3, false, getPrismContext().queryFor(UserType.class).isParentOf("org2").buildFilter());
+
+            PrismReferenceValue managerRef = getPrismContext().itemFactory().createReferenceValue("org1");
+            managerRef.setRelation(new QName(UserType.NS_FOO, "manager"));
+            assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class).isChildOf(managerRef).buildFilter());
+
+            // detaching org2 from org1
+            closure.applyDelta(getPrismContext().deltaFor(UserType.class)
+                    .item(UserType.F_PARENT_ORG_REF).replace()
+                    .asObjectDelta("org2"));
+            assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class).isChildOf("org2").buildFilter());
+            assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class).isChildOf("org1").buildFilter());
+            assertCompiledMatch(org1, false, getPrismContext().queryFor(UserType.class).isParentOf("org3").buildFilter());
+
+            // org4 is not known to the closure yet
+            closure.applyDelta(getPrismContext().deltaFor(UserType.class)
+                    .item(UserType.F_PARENT_ORG_REF).add(getPrismContext().itemFactory().createReferenceValue("org3"))
+                    .asObjectDelta("org4"));
+            assertCompiledMatch(org2, true, getPrismContext().queryFor(UserType.class).isParentOf("org4").buildFilter());
+            assertCompiledMatch(org1, false, getPrismContext().queryFor(UserType.class).isParentOf("org4").buildFilter());
+        } finally {
+            getPrismContext().setOrgHierarchyProvider(null);
+        }
+    }
+
+    @Test
+    public void testOrgMatchWithCycle() throws Exception {
+        // root <- orgB <-> orgA <- user
+        PrismObject<UserType> root = createObjectWithParents("root");
+        PrismObject<UserType> orgA = createObjectWithParents("orgA", "orgB");
+        PrismObject<UserType> orgB = createObjectWithParents("orgB", "root", "orgA");
+        PrismObject<UserType> user = createObjectWithParents("user", "orgA");
+
+        OrgClosure closure = new OrgClosure(UserType.F_PARENT_ORG_REF);
+        closure.add(user);
+        closure.add(orgA);
+        closure.add(orgB);
+        closure.add(root);
+        getPrismContext().setOrgHierarchyProvider(closure);
+        try {
+            assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class).isChildOf("root").buildFilter());
+            assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class).isChildOf("orgB").buildFilter());
+            assertCompiledMatch(orgA, true, getPrismContext().queryFor(UserType.class).isChildOf("orgB").buildFilter());
+            assertCompiledMatch(orgB, true, getPrismContext().queryFor(UserType.class).isChildOf("orgA").buildFilter());
+            AssertJUnit.assertFalse("Org in a cycle is its own ancestor", closure.isAncestor("orgA", "orgA"));
+            assertCompiledMatch(orgA, true, getPrismContext().queryFor(UserType.class).isParentOf("orgB").buildFilter());
+
+            // breaking the cycle: orgB is no longer below orgA
+            closure.applyDelta(getPrismContext().deltaFor(UserType.class)
+                    .item(UserType.F_PARENT_ORG_REF).delete(getPrismContext().itemFactory().createReferenceValue("orgA"))
+                    .asObjectDelta("orgB"));
+            AssertJUnit.assertFalse("Stale ancestor after breaking the cycle", closure.isAncestor("orgA", "orgB"));
+            assertCompiledMatch(orgA, true, getPrismContext().queryFor(UserType.class).isChildOf("root").buildFilter());
+            assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class).isChildOf("orgB").buildFilter());
+
+            // detaching orgB from root: no stale ancestors may remain
+            closure.applyDelta(getPrismContext().deltaFor(UserType.class)
+                    .item(UserType.F_PARENT_ORG_REF).replace()
+                    .asObjectDelta("orgB"));
+            AssertJUnit.assertFalse("Stale ancestor after detaching", closure.isAncestor("root", "orgA"));
+            assertCompiledMatch(user, false, getPrismContext().queryFor(UserType.class).isChildOf("root").buildFilter());
+            assertCompiledMatch(user, true, getPrismContext().queryFor(UserType.class).isChildOf("orgB").buildFilter());
+        } finally {
+            getPrismContext().setOrgHierarchyProvider(null);
+        }
+    }
+
+    private PrismObject<UserType> createObjectWithParents(String oid, String... parentOids) throws SchemaException {
+        PrismObject<UserType> object = getPrismContext().createObject(UserType.class);
+        object.setOid(oid);
+        PrismReference parentOrgRef = object.findOrCreateReference(UserType.F_PARENT_ORG_REF);
+        for (String parentOid : parentOids) {
+            parentOrgRef.add(getPrismContext().itemFactory().createReferenceValue(parentOid));
+        }
+        return object;
+    }
+
+    private void assertCompiledMatch(PrismObject<UserType> user, boolean expected, ObjectFilter filter)
+            throws SchemaException {
+        boolean interpreted = ObjectQuery.match(user, filter, MATCHING_RULE_REGISTRY);
+        boolean compiled = filter.compile(MATCHING_RULE_REGISTRY).match(user.getValue());
+        AssertJUnit.assertEquals("Wrong result of interpreted " + filter, expected, interpreted);
+        AssertJUnit.assertEquals("Wrong result of compiled " + filter, expected, compiled);
+    }
+
+    private void assertSubstring(PrismObject<UserType> user, ItemName itemName, QName matchingRule, String substring,
+            boolean anchorStart, boolean anchorEnd, boolean expected) throws SchemaException {
+        PrismPropertyDefinition<Object> definition = user.getDefinition().findPropertyDefinition(itemName);
+        ObjectFilter filter = SubstringFilterImpl.createSubstring(
+                itemName, definition, getPrismContext(), matchingRule, substring, anchorStart, anchorEnd);
+        assertCompiledMatch(user, expected, filter);
+    }
+
     private void assertNumGeFilter(PrismObject<UserType> user, Object value, boolean expected) throws SchemaException {
         assertGeFilter(user, EXTENSION_NUM_ELEMENT, DOMUtil.XSD_INT, value, expected);
     }
@@ -13,6 +13,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.Map.Entry;
@@ -289,6 +290,19 @@ public class DOMUtil {
 
     public static StringBuffer printDom(Node node, boolean indent, boolean omitXmlDeclaration) {
         StringWriter writer = new StringWriter();
+        printDom(node, writer, indent, omitXmlDeclaration);
+        return writer.getBuffer();
+    }
+
+    /**
+     * Serializes the node directly to given writer, i.e. without creating the whole string in memory.
+     * The writer is not closed.
+     */
+    public static void serializeDOM(Node node, Writer writer) {
+        printDom(node, writer, true, true);
+    }
+
+    private static void printDom(Node node, Writer writer, boolean indent, boolean omitXmlDeclaration) {
         DOMSource source = new DOMSource(node);
         try {
             Transformer trans = TRANSFORMER_THREAD_LOCAL.get();
@@ -299,8 +313,6 @@ public class DOMUtil {
         } catch (TransformerException e) {
             throw new SystemException("Error in XML transformation: " + e.getMessage(), e);
         }
-
-        return writer.getBuffer();
     }
 
     private static void showDomNode(Node node, StringBuilder sb, int level) {
@@ -476,7 +488,7 @@ public class DOMUtil {
     }
 
     @FunctionalInterface
-    private interface NamespaceResolver {
+    public interface NamespaceResolver {
         String resolve(String prefix);
     }
 
@@ -954,9 +966,16 @@ public class DOMUtil {
     }
 
     private static boolean isApplicationAttribute(Attr attr) {
-        String namespaceURI = attr.getNamespaceURI();
+        return isApplicationAttribute(attr.getNamespaceURI(), attr.getName());
+    }
+
+    /**
+     * Returns true if the attribute is not one of the auxiliary ones (xsi:type, namespace declarations, list marker, ...).
+     * Useful for readers that do not work with DOM attributes.
+     */
+    public static boolean isApplicationAttribute(String namespaceURI, String name) {
         if (StringUtils.isEmpty(namespaceURI)) {
-            return !AUXILIARY_ATTRIBUTE_NAMES.contains(attr.getName());
+            return !AUXILIARY_ATTRIBUTE_NAMES.contains(name);
         } else {
             return !AUXILIARY_NAMESPACES.contains(namespaceURI);
         }
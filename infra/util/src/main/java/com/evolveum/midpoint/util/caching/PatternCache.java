@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.util.caching;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bounded cache of compiled regular expressions.
+ *
+ * Matching rules get regular expressions as strings, and they are usually called for each value being matched
+ * (e.g. when evaluating substring filters in memory). Compiling the same pattern again and again is expensive.
+ */
+public class PatternCache {
+
+    private static final int MAX_SIZE = 1000;
+
+    private static final Cache<Key, Pattern> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .build();
+
+    /**
+     * Returns compiled pattern for given regex and flags (see {@link Pattern#compile(String, int)}).
+     *
+     * @throws java.util.regex.PatternSyntaxException If the expression's syntax is invalid
+     */
+    @NotNull
+    public static Pattern get(@NotNull String regex, int flags) {
+        Key key = new Key(regex, flags);
+        Pattern pattern = CACHE.getIfPresent(key);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex, flags);
+            CACHE.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    @NotNull
+    public static Pattern get(@NotNull String regex) {
+        return get(regex, 0);
+    }
+
+    /**
+     * Cached equivalent of {@link Pattern#matches(String, CharSequence)}.
+     */
+    public static boolean matches(@NotNull String regex, @NotNull CharSequence input) {
+        return get(regex).matcher(input).matches();
+    }
+
+    public static void clear() {
+        CACHE.invalidateAll();
+    }
+
+    private static class Key {
+        @NotNull private final String regex;
+        private final int flags;
+
+        private Key(@NotNull String regex, int flags) {
+            this.regex = regex;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return flags == key.flags && regex.equals(key.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(regex, flags);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.util;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+import com.evolveum.midpoint.util.caching.PatternCache;
+
+public class TestPatternCache extends AbstractUnitTest {
+
+    @Test
+    public void testPatternIsCached() {
+        Pattern first = PatternCache.get("a.c");
+        assertSame("Pattern is not cached", first, PatternCache.get("a.c"));
+        assertSame("Pattern with default flags is not cached", first, PatternCache.get("a.c", 0));
+        assertNotSame("Same pattern for different regex", first, PatternCache.get("a.d"));
+    }
+
+    @Test
+    public void testFlagsArePartOfKey() {
+        Pattern plain = PatternCache.get("abc");
+        Pattern caseInsensitive = PatternCache.get("abc", Pattern.CASE_INSENSITIVE);
+
+        assertNotSame("Same pattern for different flags", plain, caseInsensitive);
+        assertEquals("Wrong flags", Pattern.CASE_INSENSITIVE, caseInsensitive.flags());
+        assertFalse("Plain pattern ignores case", plain.matcher("ABC").matches());
+        assertTrue("Case insensitive pattern does not ignore case", caseInsensitive.matcher("ABC").matches());
+    }
+
+    @Test
+    public void testMatches() {
+        assertMatches(".*\\Q[1.0]$\\E.*", "version [1.0]$ released");
+        assertMatches(".*\\Q[1.0]$\\E.*", "version [1x0]$ released");
+        assertMatches("\\Qa.c\\E", "abc");
+        assertMatches("a.c", "abc");
+        assertMatches(".*x.*", "a\nx");
+        assertMatches("", "");
+    }
+
+    @Test
+    public void testClear() {
+        Pattern before = PatternCache.get("a+b");
+        PatternCache.clear();
+        Pattern after = PatternCache.get("a+b");
+
+        assertNotSame("Pattern was not removed from the cache", before, after);
+        assertEquals("Wrong pattern", before.pattern(), after.pattern());
+    }
+
+    @Test
+    public void testInvalidRegex() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                PatternCache.get("a(b");
+                fail("Unexpected success");
+            } catch (PatternSyntaxException e) {
+                // expected
+            }
+        }
+    }
+
+    private void assertMatches(String regex, String input) {
+        assertEquals("Wrong result for " + regex + " on " + input,
+                Pattern.matches(regex, input), PatternCache.matches(regex, input));
+    }
+}